@@ -0,0 +1,62 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.benchmarks;
+
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrUtils;
+import ucar.ma2.Array;
+import ucar.ma2.IndexIterator;
+
+import java.util.Random;
+
+/**
+ * Deterministic, moderately compressible test data shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Fills the array with a smooth signal plus a small random noise, similar to typical raster data.
+     */
+    static void fill(Array array) {
+        final Random random = new Random(42);
+        final IndexIterator iterator = array.getIndexIterator();
+        int i = 0;
+        while (iterator.hasNext()) {
+            final double value = 100 * Math.sin(i++ / 100.0) + random.nextInt(8);
+            iterator.setDoubleNext(value);
+        }
+    }
+
+    static Object createFilledBuffer(DataType dataType, int[] shape) {
+        final Object data = ZarrUtils.createDataBuffer(dataType, shape);
+        fill(Array.factory(ucar.ma2.DataType.getType(data.getClass().getComponentType(), false), shape, data));
+        return data;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.benchmarks;
+
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrUtils;
+import com.bc.zarr.chunk.ChunkReaderWriter;
+import com.bc.zarr.storage.InMemoryStore;
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a single uncompressed chunk per {@link DataType} and byte order.
+ * This isolates the cost of the type conversion from compression and storage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ChunkReaderWriterBenchmark {
+
+    @Param({"i1", "u1", "i2", "u2", "i4", "u4", "i8", "f4", "f8"})
+    public String dataType;
+
+    @Param({"BIG_ENDIAN", "LITTLE_ENDIAN"})
+    public String byteOrder;
+
+    @Param({"256"})
+    public int chunkSize;
+
+    private ChunkReaderWriter chunkReaderWriter;
+    private Array chunk;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        final DataType type = DataType.valueOf(dataType);
+        final ByteOrder order = "BIG_ENDIAN".equals(byteOrder) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        final int[] chunkShape = {chunkSize, chunkSize};
+        chunkReaderWriter = ChunkReaderWriter.create(CompressorFactory.nullCompressor, type, order, chunkShape, 0, new InMemoryStore());
+        final Object data = ZarrUtils.createDataBuffer(type, chunkShape);
+        chunk = Array.factory(ucar.ma2.DataType.getType(data.getClass().getComponentType(), false), chunkShape, data);
+        BenchmarkData.fill(chunk);
+        encoded = chunkReaderWriter.encode(chunk);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() throws IOException {
+        return chunkReaderWriter.encode(chunk);
+    }
+
+    @Benchmark
+    public Array decode() throws IOException {
+        return chunkReaderWriter.decode(encoded.duplicate());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.benchmarks;
+
+import com.bc.zarr.Compressor;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.chunk.ChunkReaderWriter;
+import com.bc.zarr.storage.InMemoryStore;
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compression and decompression of a single chunk of serialized {@code f4} data per compressor.<br/>
+ * The blosc compressor needs the native blosc library (see {@code bloscJnaLibraryPath}), so it is not part of the
+ * default parameters. Use e.g. {@code -p compressor=null,zlib,blosc} to include it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompressorBenchmark {
+
+    @Param({"null", "zlib", "gzip", "zstd", "lz4", "bz2"})
+    public String compressor;
+
+    @Param({"256"})
+    public int chunkSize;
+
+    private Compressor comp;
+    private byte[] raw;
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        comp = "null".equals(compressor) ? CompressorFactory.nullCompressor : CompressorFactory.create(compressor);
+        final int[] chunkShape = {chunkSize, chunkSize};
+        final ChunkReaderWriter serializer = ChunkReaderWriter.create(CompressorFactory.nullCompressor, DataType.f4,
+                                                                      ByteOrder.BIG_ENDIAN, chunkShape, 0, new InMemoryStore());
+        final Object data = BenchmarkData.createFilledBuffer(DataType.f4, chunkShape);
+        final ByteBuffer serialized = serializer.encode(Array.factory(ucar.ma2.DataType.FLOAT, chunkShape, data));
+        raw = new byte[serialized.remaining()];
+        serialized.get(raw);
+        compressed = compress();
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(raw.length);
+        comp.compress(new ByteArrayInputStream(raw), os);
+        return os.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] uncompress() throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(raw.length);
+        comp.uncompress(new ByteArrayInputStream(compressed), os);
+        return os.toByteArray();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.benchmarks;
+
+import com.bc.zarr.ZarrUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computation of the chunk indices touched by a read or write region.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ComputeChunkIndicesBenchmark {
+
+    private final int[] shape = {100, 10000, 10000};
+    private final int[] chunks = {1, 256, 256};
+
+    @Benchmark
+    public int[][] point() {
+        return ZarrUtils.computeChunkIndices(shape, chunks, new int[]{1, 1, 1}, new int[]{50, 5000, 5000});
+    }
+
+    @Benchmark
+    public int[][] slice() {
+        return ZarrUtils.computeChunkIndices(shape, chunks, new int[]{1, 2048, 2048}, new int[]{50, 100, 100});
+    }
+
+    @Benchmark
+    public int[][] cube() {
+        return ZarrUtils.computeChunkIndices(shape, chunks, new int[]{20, 1024, 1024}, new int[]{10, 100, 100});
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.benchmarks;
+
+import com.bc.zarr.ucar.PartialDataCopier;
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying the overlapping region of a chunk into a target buffer for different dimensionalities and overlaps.
+ * <ul>
+ *     <li>{@code full} - the chunk lies completely inside the target</li>
+ *     <li>{@code half} - the chunk is shifted by half of its size along the last dimension</li>
+ *     <li>{@code corner} - the chunk is shifted by half of its size along all dimensions</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PartialDataCopierBenchmark {
+
+    @Param({"1", "2", "3"})
+    public int rank;
+
+    @Param({"full", "half", "corner"})
+    public String overlap;
+
+    private Array source;
+    private Array target;
+    private int[] offset;
+
+    @Setup
+    public void setUp() {
+        // roughly 64k elements per chunk for every rank
+        final int edge = rank == 1 ? 65536 : rank == 2 ? 256 : 40;
+        final int[] chunkShape = new int[rank];
+        Arrays.fill(chunkShape, edge);
+        final int[] targetShape = new int[rank];
+        Arrays.fill(targetShape, edge * 2);
+        source = Array.factory(ucar.ma2.DataType.FLOAT, chunkShape);
+        BenchmarkData.fill(source);
+        target = Array.factory(ucar.ma2.DataType.FLOAT, targetShape);
+        offset = new int[rank];
+        if ("half".equals(overlap)) {
+            offset[rank - 1] = -edge / 2;
+        } else if ("corner".equals(overlap)) {
+            Arrays.fill(offset, -edge / 2);
+        } else {
+            Arrays.fill(offset, edge / 2);
+        }
+    }
+
+    @Benchmark
+    public Array copy() throws InvalidRangeException {
+        PartialDataCopier.copy(offset, source, target);
+        return target;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.benchmarks;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+import com.bc.zarr.ZarrUtils;
+import com.bc.zarr.storage.FileSystemStore;
+import com.bc.zarr.storage.InMemoryStore;
+import com.bc.zarr.storage.Store;
+import com.bc.zarr.storage.ZipStore;
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ZarrArray#read(Object, int[], int[])} and {@link ZarrArray#write(Object, int[], int[])} of a
+ * 2048 x 2048 {@code f4} array with 256 x 256 chunks on the different stores.
+ * <ul>
+ *     <li>{@code full} - the whole array (64 chunks)</li>
+ *     <li>{@code aligned} - a region of 4 complete chunks</li>
+ *     <li>{@code unaligned} - a region of the same size overlapping 9 chunks partially</li>
+ *     <li>{@code point} - a single value</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ZarrArrayBenchmark {
+
+    private static final int SIZE = 2048;
+    private static final int CHUNK = 256;
+
+    @Param({"memory", "filesystem", "zip"})
+    public String store;
+
+    @Param({"null", "zlib"})
+    public String compressor;
+
+    @Param({"full", "aligned", "unaligned", "point"})
+    public String region;
+
+    private Path tempDir;
+    private Store zarrStore;
+    private ZarrArray array;
+    private Object data;
+    private int[] shape;
+    private int[] offset;
+
+    @Setup
+    public void setUp() throws IOException, InvalidRangeException {
+        tempDir = Files.createTempDirectory("jzarr-benchmark");
+        if ("filesystem".equals(store)) {
+            zarrStore = new FileSystemStore(tempDir.resolve("array.zarr"));
+        } else if ("zip".equals(store)) {
+            zarrStore = new ZipStore(tempDir.resolve("array.zip"));
+        } else {
+            zarrStore = new InMemoryStore();
+        }
+        // arrays are created inside a group because a zip store can not delete its own root directory
+        array = ZarrGroup.create(zarrStore).createArray("array", new ArrayParams()
+                .shape(SIZE, SIZE)
+                .chunks(CHUNK, CHUNK)
+                .dataType(DataType.f4)
+                .compressor("null".equals(compressor) ? null : CompressorFactory.create(compressor)));
+        array.write(BenchmarkData.createFilledBuffer(DataType.f4, new int[]{SIZE, SIZE}), new int[]{SIZE, SIZE}, new int[]{0, 0});
+        if ("full".equals(region)) {
+            shape = new int[]{SIZE, SIZE};
+            offset = new int[]{0, 0};
+        } else if ("aligned".equals(region)) {
+            shape = new int[]{2 * CHUNK, 2 * CHUNK};
+            offset = new int[]{CHUNK, CHUNK};
+        } else if ("unaligned".equals(region)) {
+            shape = new int[]{2 * CHUNK, 2 * CHUNK};
+            offset = new int[]{CHUNK / 2, CHUNK / 2};
+        } else {
+            shape = new int[]{1, 1};
+            offset = new int[]{SIZE / 2 + 3, SIZE / 2 + 5};
+        }
+        data = BenchmarkData.createFilledBuffer(DataType.f4, shape);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        zarrStore.close();
+        ZarrUtils.deleteDirectoryTreeRecursively(tempDir);
+    }
+
+    @Benchmark
+    public Object read() throws IOException, InvalidRangeException {
+        return array.read(shape, offset);
+    }
+
+    @Benchmark
+    public void write() throws IOException, InvalidRangeException {
+        array.write(data, shape, offset);
+    }
+}
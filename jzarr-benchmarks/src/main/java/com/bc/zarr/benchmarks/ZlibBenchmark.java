@@ -0,0 +1,121 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.benchmarks;
+
+import com.bc.zarr.Compressor;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.chunk.ChunkReaderWriter;
+import com.bc.zarr.storage.InMemoryStore;
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compares the zlib compressor, which reuses its {@link Deflater}/{@link Inflater} per thread, with the former
+ * implementation creating new instances per chunk ({@code unpooled}) and never calling {@code end()}.<br/>
+ * Run with {@code -jvmArgs -XX:NativeMemoryTracking=summary} and {@code jcmd <pid> VM.native_memory summary} to
+ * compare the native memory held by the {@code Other} category, where the zlib streams are accounted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ZlibBenchmark {
+
+    @Param({"pooled", "unpooled"})
+    public String implementation;
+
+    @Param({"1", "5"})
+    public int level;
+
+    @Param({"64", "256"})
+    public int chunkSize;
+
+    private Compressor zlib;
+    private byte[] raw;
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        zlib = CompressorFactory.create("zlib", "level", level);
+        final int[] chunkShape = {chunkSize, chunkSize};
+        final ChunkReaderWriter serializer = ChunkReaderWriter.create(CompressorFactory.nullCompressor, DataType.f4,
+                                                                      ByteOrder.BIG_ENDIAN, chunkShape, 0, new InMemoryStore());
+        final Object data = BenchmarkData.createFilledBuffer(DataType.f4, chunkShape);
+        final ByteBuffer serialized = serializer.encode(Array.factory(ucar.ma2.DataType.FLOAT, chunkShape, data));
+        raw = new byte[serialized.remaining()];
+        serialized.get(raw);
+        compressed = zlib.compress(raw);
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        if ("pooled".equals(implementation)) {
+            return zlib.compress(raw);
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(raw.length);
+        try (final OutputStream dos = new DeflaterOutputStream(os, new Deflater(level))) {
+            passThrough(new ByteArrayInputStream(raw), dos);
+        }
+        return os.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] uncompress() throws IOException {
+        if ("pooled".equals(implementation)) {
+            return zlib.uncompress(compressed, raw.length);
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(raw.length);
+        try (final InputStream iis = new InflaterInputStream(new ByteArrayInputStream(compressed), new Inflater())) {
+            passThrough(iis, os);
+        }
+        return os.toByteArray();
+    }
+
+    private static void passThrough(InputStream is, OutputStream os) throws IOException {
+        final byte[] bytes = new byte[4096];
+        int read;
+        while ((read = is.read(bytes)) >= 0) {
+            os.write(bytes, 0, read);
+        }
+    }
+}
@@ -30,6 +30,8 @@ import com.bc.zarr.storage.Store;
 
 import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -69,13 +71,17 @@ import java.util.Map;
  * </pre>
  */
 public class ArrayParams {
-    private int[] shape;
+    private long[] shape;
     private int[] chunks;
+    private int[] shards;
     private boolean chunked = true;
     private DataType dataType = DataType.f8;
     private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
     private Number fillValue = 0;
     private Compressor compressor = CompressorFactory.createDefaultCompressor();
+    private List<Filter> filters = Collections.emptyList();
+    private Integer zarrFormat;
+    private String dimensionSeparator;
 
     /**
      * Sets the mandatory {@code shape} and returns a reference to this Builder so that the methods can be chained together.
@@ -84,7 +90,19 @@ public class ArrayParams {
      * @return a reference to this Builder
      */
     public ArrayParams shape(int... shape) {
-        this.shape = shape;
+        this.shape = ZarrUtils.toLongShape(shape);
+        return this;
+    }
+
+    /**
+     * Sets the mandatory {@code shape} of an array whose dimensions may exceed the int range and returns a reference
+     * to this Builder so that the methods can be chained together.
+     *
+     * @param shape the {@code shape} to set
+     * @return a reference to this Builder
+     */
+    public ArrayParams shape(long... shape) {
+        this.shape = shape.clone();
         return this;
     }
 
@@ -100,6 +118,24 @@ public class ArrayParams {
         return this;
     }
 
+    /**
+     * Sets the optional {@code shards} and returns a reference to this Builder so that the methods can be chained together.<br/>
+     * If shards are given, the chunks of the array are not stored as separate objects but packed into shards
+     * of the given shape. This keeps the read granularity of small chunks without creating a huge number of stored
+     * objects. The number of dimensions must be equal to the number of dimensions of the shape and each shard
+     * dimension must be a multiple of the corresponding chunk dimension.<br/>
+     * Sharding is only supported for Zarr v3 arrays, where it is described by the {@code sharding_indexed} codec.
+     * Zarr v2 does not define sharding and other readers would decode the shards as chunks.<br/>
+     * Default value: {@code null} (no sharding)
+     *
+     * @param shards the {@code shards} to set
+     * @return a reference to this Builder
+     */
+    public ArrayParams shards(int... shards) {
+        this.shards = shards;
+        return this;
+    }
+
     /**
      * Sets the optional {@code chunked} and returns a reference to this Builder so that the methods can be chained together.<br/>
      * If no chunks is given and chunked is true, chunks will be calculated using an heuristic algorithm.<br/>
@@ -166,6 +202,56 @@ public class ArrayParams {
         return this;
     }
 
+    /**
+     * Sets the optional {@code filters} and returns a reference to this Builder so that the methods can be chained together.<br/>
+     * The filters are applied in the given order to the serialized chunks before compression, e.g.
+     * {@code FilterFactory.create("delta", "dtype", "<i4")}. Filters are only supported for Zarr v2 arrays.<br/>
+     * Default value: no filters
+     *
+     * @param filters the {@link Filter}s to set
+     * @return a reference to this Builder
+     */
+    public ArrayParams filters(Filter... filters) {
+        this.filters = filters == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(filters.clone()));
+        return this;
+    }
+
+    /**
+     * Sets the optional {@code dimensionSeparator} and returns a reference to this Builder so that the methods can be chained together.<br/>
+     * The separator is placed between the chunk indices of a chunk key. With {@code "."} all chunks of an array are
+     * stored flat side by side (e.g. {@code 0.1.2}), with {@code "/"} the chunks are nested in one directory level
+     * per dimension (e.g. {@code 0/1/2}), which keeps directories and object store listings small for arrays with
+     * many chunks.<br/>
+     * Default value: {@code null} ({@code "."} for Zarr v2 and {@code "/"} for Zarr v3)
+     *
+     * @param dimensionSeparator the {@code dimensionSeparator} to set, {@code "."} or {@code "/"}
+     * @return a reference to this Builder
+     */
+    public ArrayParams dimensionSeparator(String dimensionSeparator) {
+        if (dimensionSeparator != null && !".".equals(dimensionSeparator) && !"/".equals(dimensionSeparator)) {
+            throw new IllegalArgumentException("Dimension separator must be '.' or '/' but was '" + dimensionSeparator + "'.");
+        }
+        this.dimensionSeparator = dimensionSeparator;
+        return this;
+    }
+
+    /**
+     * Sets the optional {@code zarrFormat} and returns a reference to this Builder so that the methods can be chained together.<br/>
+     * Supported formats are {@code 2} and {@code 3}. Zarr v3 arrays store their metadata and attributes in a single
+     * {@code zarr.json} document and use the {@code default} chunk key encoding ({@code c/0/1}).<br/>
+     * Default value: {@code null} (the format of the containing group, or {@code 2} for standalone arrays)
+     *
+     * @param zarrFormat the {@code zarrFormat} to set
+     * @return a reference to this Builder
+     */
+    public ArrayParams zarrFormat(int zarrFormat) {
+        if (zarrFormat != 2 && zarrFormat != 3) {
+            throw new IllegalArgumentException("Zarr format 2 or 3 expected but was " + zarrFormat + ".");
+        }
+        this.zarrFormat = zarrFormat;
+        return this;
+    }
+
     /**
      * Returns {@link Params} built from the parameters previously set.<br/>
      * This method is package local and should  be used by framework itself only.<br/>
@@ -181,21 +267,22 @@ public class ArrayParams {
             if (chunked) {
                 chunks = new int[shape.length];
                 for (int i = 0; i < shape.length; i++) {
-                    int shapeDim = shape[i];
-                    final int numChunks = (shapeDim / 512);
+                    long shapeDim = shape[i];
+                    final long numChunks = (shapeDim / 512);
                     if (numChunks > 0) {
-                        int chunkDim = shapeDim / (numChunks + 1);
+                        // at most 1024
+                        int chunkDim = (int) (shapeDim / (numChunks + 1));
                         if (shapeDim % chunkDim == 0) {
                             chunks[i] = chunkDim;
                         } else {
                             chunks[i] = chunkDim + 1;
                         }
                     } else {
-                        chunks[i] = shapeDim;
+                        chunks[i] = (int) shapeDim;
                     }
                 }
             } else {
-                chunks = Arrays.copyOf(shape, shape.length);
+                chunks = toChunkShape(shape);
             }
         }
 
@@ -208,34 +295,79 @@ public class ArrayParams {
         for (int i = 0; i < chunks.length; i++) {
             int chunkDim = chunks[i];
             if (chunkDim < 1) {
-                chunks[i] = shape[i];
+                chunks[i] = toChunkShape(shape)[i];
+            }
+        }
+
+        if (shards != null) {
+            if (zarrFormat != null && zarrFormat == 2) {
+                throw new IllegalArgumentException("Sharding is only supported for Zarr v3 arrays.");
+            }
+            if (shards.length != chunks.length) {
+                throw new IllegalArgumentException(
+                        "Shards must have the same number of dimensions as shape. " +
+                        "Expected: " + shape.length + " but was " + shards.length + " !");
+            }
+            for (int i = 0; i < shards.length; i++) {
+                if (shards[i] < 1 || shards[i] % chunks[i] != 0) {
+                    throw new IllegalArgumentException(
+                            "Shards must be a multiple of chunks. " +
+                            "Shards: " + Arrays.toString(shards) + " Chunks: " + Arrays.toString(chunks));
+                }
             }
         }
 
-        return new Params(shape, chunks, dataType, byteOrder, fillValue, compressor);
+        return new Params(shape, chunks, shards, dataType, byteOrder, fillValue, compressor, filters, zarrFormat, dimensionSeparator);
+    }
+
+    private static int[] toChunkShape(long[] shape) {
+        final int[] chunks = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            if (shape[i] > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A chunk can not span the whole dimension " + i + " of shape " + Arrays.toString(shape) + ".");
+            }
+            chunks[i] = (int) shape[i];
+        }
+        return chunks;
     }
 
     /**
      * {@link ArrayParams} builder static inner class.
      */
     public static final class Params {
-        private final int[] shape;
+        private final long[] shape;
         private final int[] chunks;
+        private final int[] shards;
         private final DataType dataType;
         private final ByteOrder byteOrder;
         private final Number fillValue;
         private final Compressor compressor;
+        private final List<Filter> filters;
+        private final Integer zarrFormat;
+        private final String dimensionSeparator;
 
-        private Params(int[] shape, int[] chunks, DataType dataType, ByteOrder byteOrder, Number fillValue, Compressor compressor) {
+        private Params(long[] shape, int[] chunks, int[] shards, DataType dataType, ByteOrder byteOrder, Number fillValue, Compressor compressor,
+                       List<Filter> filters, Integer zarrFormat, String dimensionSeparator) {
             this.shape = shape;
             this.chunks = chunks;
+            this.shards = shards;
             this.dataType = dataType;
             this.byteOrder = byteOrder;
             this.fillValue = fillValue;
             this.compressor = compressor;
+            this.filters = filters;
+            this.zarrFormat = zarrFormat;
+            this.dimensionSeparator = dimensionSeparator;
         }
 
+        /**
+         * @throws IllegalStateException if a dimension exceeds the int range
+         */
         public int[] getShape() {
+            return ZarrUtils.toIntShape(shape);
+        }
+
+        public long[] getLongShape() {
             return shape;
         }
 
@@ -243,8 +375,12 @@ public class ArrayParams {
             return chunks;
         }
 
+        public int[] getShards() {
+            return shards;
+        }
+
         public boolean isChunked() {
-            return !Arrays.equals(shape, chunks);
+            return !Arrays.equals(shape, ZarrUtils.toLongShape(chunks));
         }
 
         public DataType getDataType() {
@@ -263,15 +399,40 @@ public class ArrayParams {
             return compressor;
         }
 
+        /**
+         * @return the filters, never {@code null}
+         */
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        /**
+         * @return the requested zarr format or {@code null} if not explicitly given
+         */
+        public Integer getZarrFormat() {
+            return zarrFormat;
+        }
+
+        /**
+         * @return the requested dimension separator or {@code null} if not explicitly given
+         */
+        public String getDimensionSeparator() {
+            return dimensionSeparator;
+        }
+
         public ArrayParams toBuilder() {
             ArrayParams builder = new ArrayParams();
-            builder.shape = getShape();
+            builder.shape = getLongShape();
             builder.chunks = getChunks();
+            builder.shards = getShards();
             builder.chunked = isChunked();
             builder.dataType = getDataType();
             builder.byteOrder = getByteOrder();
             builder.fillValue = getFillValue();
             builder.compressor = getCompressor();
+            builder.filters = getFilters();
+            builder.zarrFormat = getZarrFormat();
+            builder.dimensionSeparator = getDimensionSeparator();
             return builder;
         }
     }
@@ -0,0 +1,231 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread safe cache of the store keys of the chunks of an array.<br/>
+ * <br/>
+ * The keys are addressed by their linear (row major) chunk index and are built only once, directly from the
+ * already normalized array key, without any locking. Cached keys are held in lazily allocated pages, so a cache hit
+ * does not allocate any objects.<br/>
+ * <br/>
+ * The cache is bounded: once {@link #DEFAULT_MAX_CACHED_KEYS} keys (rounded to whole pages) are cached, further keys
+ * are built on every access. Walks over the whole chunk grid use {@link #build(long)}, which does not cache at all.
+ */
+final class ChunkKeyCache {
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int MAX_PAGES = 1 << 20;
+    static final int DEFAULT_MAX_CACHED_KEYS = 1 << 20;
+
+    private final String prefix;
+    private final int[] chunkGrid;
+    private final ChunkKeyEncoding encoding;
+    private final long numChunks;
+    private final AtomicReferenceArray<AtomicReferenceArray<String>> pages;
+    private final Map<Long, String> fallback;
+    private final int maxCachedKeys;
+    private final int maxCachedPages;
+    private final AtomicInteger cachedPages = new AtomicInteger();
+
+    /**
+     * @param arrayKey  the normalized store key of the array
+     * @param shape     the array shape
+     * @param chunks    the chunk shape
+     * @param encoding  the chunk key encoding
+     */
+    ChunkKeyCache(String arrayKey, int[] shape, int[] chunks, ChunkKeyEncoding encoding) {
+        this(arrayKey, ZarrUtils.toLongShape(shape), chunks, encoding);
+    }
+
+    /**
+     * @param arrayKey  the normalized store key of the array
+     * @param shape     the array shape
+     * @param chunks    the chunk shape
+     * @param encoding  the chunk key encoding
+     * @throws IllegalArgumentException if the number of chunks along a dimension exceeds the int range
+     */
+    ChunkKeyCache(String arrayKey, long[] shape, int[] chunks, ChunkKeyEncoding encoding) {
+        this(arrayKey, shape, chunks, encoding, DEFAULT_MAX_CACHED_KEYS);
+    }
+
+    /**
+     * @param maxCachedKeys the maximum number of cached keys, rounded up to whole pages
+     */
+    ChunkKeyCache(String arrayKey, long[] shape, int[] chunks, ChunkKeyEncoding encoding, int maxCachedKeys) {
+        this.maxCachedKeys = maxCachedKeys;
+        this.maxCachedPages = Math.max(1, (maxCachedKeys + PAGE_SIZE - 1) >>> PAGE_SHIFT);
+        this.prefix = arrayKey.isEmpty() ? "" : arrayKey + "/";
+        this.encoding = encoding;
+        chunkGrid = new int[shape.length];
+        long numChunks = 1;
+        for (int i = 0; i < shape.length; i++) {
+            final long gridSize = Math.max(1, (shape[i] + chunks[i] - 1) / chunks[i]);
+            if (gridSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many chunks along dimension " + i + ": " + gridSize);
+            }
+            chunkGrid[i] = (int) gridSize;
+            numChunks = Math.multiplyExact(numChunks, gridSize);
+        }
+        this.numChunks = numChunks;
+        final long numPages = (numChunks + PAGE_SIZE - 1) >>> PAGE_SHIFT;
+        if (numPages <= MAX_PAGES) {
+            pages = new AtomicReferenceArray<>((int) numPages);
+            fallback = null;
+        } else {
+            pages = null;
+            fallback = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * @param chunkIndex the chunk grid index
+     * @return the store key of the chunk
+     */
+    String get(int[] chunkIndex) {
+        final long linearIndex = toLinearIndex(chunkIndex);
+        final String cached = lookup(linearIndex);
+        if (cached != null) {
+            return cached;
+        }
+        return store(linearIndex, prefix + encoding.encode(chunkIndex));
+    }
+
+    /**
+     * @param linearIndex the row major index of the chunk in the chunk grid
+     * @return the store key of the chunk
+     */
+    String get(long linearIndex) {
+        final String cached = lookup(linearIndex);
+        if (cached != null) {
+            return cached;
+        }
+        return store(linearIndex, prefix + encoding.encode(toChunkIndex(linearIndex)));
+    }
+
+    /**
+     * Returns the key of the chunk without adding it to the cache. Meant for walks over the whole chunk grid,
+     * which would otherwise fill the cache with keys which are needed only once.
+     *
+     * @param linearIndex the row major index of the chunk in the chunk grid
+     * @return the store key of the chunk
+     */
+    String build(long linearIndex) {
+        final String cached = lookup(linearIndex);
+        if (cached != null) {
+            return cached;
+        }
+        return prefix + encoding.encode(toChunkIndex(linearIndex));
+    }
+
+    /**
+     * Same as {@link #build(long)}, addressed by the chunk grid index.
+     */
+    String build(int[] chunkIndex) {
+        final String cached = lookup(toLinearIndex(chunkIndex));
+        if (cached != null) {
+            return cached;
+        }
+        return prefix + encoding.encode(chunkIndex);
+    }
+
+    /**
+     * @return the number of chunks in the chunk grid
+     */
+    long size() {
+        return numChunks;
+    }
+
+    long toLinearIndex(int[] chunkIndex) {
+        long linearIndex = 0;
+        for (int i = 0; i < chunkIndex.length; i++) {
+            linearIndex = linearIndex * chunkGrid[i] + chunkIndex[i];
+        }
+        return linearIndex;
+    }
+
+    int[] toChunkIndex(long linearIndex) {
+        final int[] chunkIndex = new int[chunkGrid.length];
+        for (int i = chunkGrid.length - 1; i >= 0; i--) {
+            chunkIndex[i] = (int) (linearIndex % chunkGrid[i]);
+            linearIndex /= chunkGrid[i];
+        }
+        return chunkIndex;
+    }
+
+    private String lookup(long linearIndex) {
+        if (pages == null) {
+            return fallback.get(linearIndex);
+        }
+        final AtomicReferenceArray<String> page = pages.get((int) (linearIndex >>> PAGE_SHIFT));
+        return page == null ? null : page.get((int) (linearIndex & (PAGE_SIZE - 1)));
+    }
+
+    private String store(long linearIndex, String key) {
+        if (pages == null) {
+            // the size is only a bound, concurrent additions may exceed it slightly
+            if (fallback.size() >= maxCachedKeys) {
+                return key;
+            }
+            final String previous = fallback.putIfAbsent(linearIndex, key);
+            return previous == null ? key : previous;
+        }
+        final int pageIndex = (int) (linearIndex >>> PAGE_SHIFT);
+        AtomicReferenceArray<String> page = pages.get(pageIndex);
+        if (page == null) {
+            if (!reservePage()) {
+                return key;
+            }
+            if (!pages.compareAndSet(pageIndex, null, new AtomicReferenceArray<>(PAGE_SIZE))) {
+                cachedPages.decrementAndGet();
+            }
+            page = pages.get(pageIndex);
+        }
+        final int slot = (int) (linearIndex & (PAGE_SIZE - 1));
+        if (page.compareAndSet(slot, null, key)) {
+            return key;
+        }
+        return page.get(slot);
+    }
+
+    private boolean reservePage() {
+        int count;
+        do {
+            count = cachedPages.get();
+            if (count >= maxCachedPages) {
+                return false;
+            }
+        } while (!cachedPages.compareAndSet(count, count + 1));
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import java.util.Arrays;
+
+/**
+ * Encodes chunk grid indices into chunk keys and decodes chunk keys back into chunk grid indices.<br/>
+ * <br/>
+ * Two encodings are supported:
+ * <ul>
+ *     <li>{@code "v2"} - the Zarr v2 encoding, e.g. {@code "1.2.3"} or with separator {@code '/'} {@code "1/2/3"}</li>
+ *     <li>{@code "default"} - the Zarr v3 default encoding, e.g. {@code "c/1/2/3"} or with separator {@code '.'} {@code "c.1.2.3"}</li>
+ * </ul>
+ */
+public final class ChunkKeyEncoding {
+
+    public static final String NAME_DEFAULT = "default";
+    public static final String NAME_V2 = "v2";
+
+    private final String name;
+    private final char separator;
+
+    private ChunkKeyEncoding(String name, char separator) {
+        this.name = name;
+        this.separator = separator;
+    }
+
+    public static ChunkKeyEncoding create(String name, String separator) {
+        if (!NAME_DEFAULT.equals(name) && !NAME_V2.equals(name)) {
+            throw new IllegalArgumentException("Chunk key encoding '" + name + "' not supported.");
+        }
+        if (separator == null) {
+            separator = NAME_DEFAULT.equals(name) ? "/" : ".";
+        }
+        if (!".".equals(separator) && !"/".equals(separator)) {
+            throw new IllegalArgumentException("Chunk key separator must be '.' or '/' but was '" + separator + "'.");
+        }
+        return new ChunkKeyEncoding(name, separator.charAt(0));
+    }
+
+    public static ChunkKeyEncoding v2(String separator) {
+        return create(NAME_V2, separator);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSeparator() {
+        return String.valueOf(separator);
+    }
+
+    public String encode(int[] chunkIndex) {
+        final StringBuilder sb = new StringBuilder();
+        if (NAME_DEFAULT.equals(name)) {
+            sb.append('c');
+            for (int index : chunkIndex) {
+                sb.append(separator).append(index);
+            }
+            return sb.toString();
+        }
+        if (chunkIndex.length == 0) {
+            return "0";
+        }
+        for (int index : chunkIndex) {
+            sb.append(index).append(separator);
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    /**
+     * @param chunkKey the chunk key relative to the array
+     * @param rank     the number of dimensions of the array
+     * @return the chunk grid index or {@code null} if the given key is not a chunk key of this encoding
+     */
+    public int[] decode(String chunkKey, int rank) {
+        String indices = chunkKey;
+        if (NAME_DEFAULT.equals(name)) {
+            if (!chunkKey.startsWith("c")) {
+                return null;
+            }
+            if (rank == 0) {
+                return chunkKey.length() == 1 ? new int[0] : null;
+            }
+            if (chunkKey.length() < 2 || chunkKey.charAt(1) != separator) {
+                return null;
+            }
+            indices = chunkKey.substring(2);
+        } else if (rank == 0) {
+            return "0".equals(chunkKey) ? new int[0] : null;
+        }
+        final int[] chunkIndex = new int[rank];
+        int dim = 0;
+        // accumulated as long to detect indices beyond the int range
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < indices.length(); i++) {
+            final char c = indices.charAt(i);
+            if (c == separator) {
+                if (digits == 0 || dim == rank - 1) {
+                    return null;
+                }
+                chunkIndex[dim++] = (int) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) {
+                    return null;
+                }
+                digits++;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0 || dim != rank - 1) {
+            return null;
+        }
+        chunkIndex[dim] = (int) value;
+        return chunkIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ChunkKeyEncoding that = (ChunkKeyEncoding) o;
+        return separator == that.separator && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new Object[]{name, separator});
+    }
+
+    @Override
+    public String toString() {
+        return "chunkKeyEncoding=" + name + "/separator=" + separator;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import ucar.ma2.Array;
+
+/**
+ * The minimum, maximum and number of fill values of a single chunk, restricted to the part of the chunk which
+ * lies within the array bounds. Fill values and NaN are not taken into account for the minimum and maximum.
+ *
+ * @see ZarrArray#buildStatistics()
+ */
+public final class ChunkStatistics {
+
+    private final long count;
+    private final long fillCount;
+    private final double min;
+    private final double max;
+
+    public ChunkStatistics(long count, long fillCount, double min, double max) {
+        this.count = count;
+        this.fillCount = fillCount;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return the number of elements of the chunk within the array bounds
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of elements equal to the fill value
+     */
+    public long getFillCount() {
+        return fillCount;
+    }
+
+    /**
+     * @return the minimum value or NaN if the chunk holds fill values and NaN only
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the maximum value or NaN if the chunk holds fill values and NaN only
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return {@code false} if the chunk holds fill values and NaN only
+     */
+    public boolean hasValues() {
+        return !Double.isNaN(min);
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkStatistics{count=" + count + ", fillCount=" + fillCount + ", min=" + min + ", max=" + max + "}";
+    }
+
+    /**
+     * @param chunk      the decoded chunk
+     * @param validShape the shape of the part of the chunk within the array bounds
+     * @param dataType   the data type of the array, unsigned types are evaluated as their unsigned value
+     * @param fill       the fill value of the array or {@code null}
+     */
+    static ChunkStatistics compute(Array chunk, int[] validShape, DataType dataType, Number fill) {
+        final double fillValue = fill == null ? Double.NaN : fill.doubleValue();
+        final boolean fillIsNaN = Double.isNaN(fillValue);
+        long count = 0;
+        long fillCount = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        final ChunkElements elements = new ChunkElements(chunk.getShape(), validShape);
+        while (elements.next()) {
+            final double value = getValue(chunk, dataType, elements.index());
+            count++;
+            if (fill != null && (value == fillValue || fillIsNaN && Double.isNaN(value))) {
+                fillCount++;
+            } else if (!Double.isNaN(value)) {
+                if (!(value >= min)) {
+                    min = value;
+                }
+                if (!(value <= max)) {
+                    max = value;
+                }
+            }
+        }
+        return new ChunkStatistics(count, fillCount, min, max);
+    }
+
+    /**
+     * @return the element of the chunk at the index, the unsigned value for unsigned data types
+     */
+    static double getValue(Array chunk, DataType dataType, int index) {
+        switch (dataType) {
+            case u4:
+                return ((int[]) chunk.getStorage())[index] & 0xFFFFFFFFL;
+            case u2:
+                return ((short[]) chunk.getStorage())[index] & 0xFFFF;
+            case u1:
+                return ((byte[]) chunk.getStorage())[index] & 0xFF;
+            default:
+                return chunk.getDouble(index);
+        }
+    }
+
+    /**
+     * Iterates the row major indices of the elements of a chunk within a valid region starting at the chunk origin.
+     */
+    static final class ChunkElements {
+
+        private final int[] chunkShape;
+        private final int[] validShape;
+        private final int[] position;
+        private final boolean empty;
+        private int index = -1;
+        private boolean started;
+
+        ChunkElements(int[] chunkShape, int[] validShape) {
+            this.chunkShape = chunkShape;
+            this.validShape = validShape;
+            this.position = new int[chunkShape.length];
+            boolean empty = false;
+            for (int size : validShape) {
+                empty |= size <= 0;
+            }
+            this.empty = empty;
+        }
+
+        boolean next() {
+            if (empty) {
+                return false;
+            }
+            if (!started) {
+                started = true;
+                index = 0;
+                return true;
+            }
+            for (int i = position.length - 1; i >= 0; i--) {
+                if (++position[i] < validShape[i]) {
+                    index = 0;
+                    for (int k = 0; k < position.length; k++) {
+                        index = index * chunkShape[k] + position[k];
+                    }
+                    return true;
+                }
+                position[i] = 0;
+            }
+            return false;
+        }
+
+        /**
+         * @return the row major index of the current element within the chunk
+         */
+        int index() {
+            return index;
+        }
+
+        /**
+         * @return the position of the current element within the chunk, the array is reused
+         */
+        int[] position() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.Store;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The statistics of the chunks of an array, persisted as one small sidecar object per chunk below a directory next
+ * to the array metadata, so that a write only touches the entries of the chunks it writes.
+ * <p>
+ * A marker object in the directory holds the generation of the statistics, a random number chosen whenever they
+ * are built. Entries of another generation are ignored, and so are pending entries: a writer marks the entries of
+ * its chunks as pending before it stores the chunks and replaces them afterwards, so a writer failing in between
+ * leaves chunks without statistics instead of stale ones. Chunks without valid statistics must always be read.
+ */
+final class ChunkStatisticsIndex {
+
+    static final String GENERATION_KEY = "generation";
+
+    // "ZST2"
+    private static final int MAGIC = 0x5A535432;
+    private static final long PENDING = -1;
+    private static final int ENTRY_SIZE = 4 + 8 + 8 + 8 + 8 + 8;
+
+    private final Store store;
+    private final String directoryKey;
+    private final long generation;
+
+    private ChunkStatisticsIndex(Store store, String directoryKey, long generation) {
+        this.store = store;
+        this.directoryKey = directoryKey;
+        this.generation = generation;
+    }
+
+    /**
+     * @return the index or {@code null} if no statistics have been built
+     */
+    static ChunkStatisticsIndex open(Store store, String directoryKey) throws IOException {
+        final String key = directoryKey + "/" + GENERATION_KEY;
+        try (InputStream is = store.getInputStream(key)) {
+            if (is == null) {
+                return null;
+            }
+            final DataInputStream in = new DataInputStream(is);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("'" + key + "' is not a chunk statistics marker.");
+            }
+            return new ChunkStatisticsIndex(store, directoryKey, in.readLong());
+        }
+    }
+
+    /**
+     * Starts a new generation of statistics, all existing entries become invalid.
+     */
+    static ChunkStatisticsIndex create(Store store, String directoryKey) throws IOException {
+        final long generation = ThreadLocalRandom.current().nextLong();
+        try (DataOutputStream out = new DataOutputStream(store.getOutputStream(directoryKey + "/" + GENERATION_KEY))) {
+            out.writeInt(MAGIC);
+            out.writeLong(generation);
+        }
+        return new ChunkStatisticsIndex(store, directoryKey, generation);
+    }
+
+    /**
+     * @return the statistics of the chunk or {@code null} if there are no valid statistics for it
+     */
+    ChunkStatistics get(int[] chunkIndex) throws IOException {
+        return getAll(Collections.singletonList(chunkIndex)).get(0);
+    }
+
+    /**
+     * @return the statistics of the chunks in the same order, {@code null} for chunks without valid statistics
+     */
+    List<ChunkStatistics> getAll(List<int[]> chunkIndices) throws IOException {
+        final List<String> keys = new ArrayList<>(chunkIndices.size());
+        for (int[] chunkIndex : chunkIndices) {
+            keys.add(key(chunkIndex));
+        }
+        final Map<String, ByteBuffer> entries = store.getMany(keys);
+        final List<ChunkStatistics> statistics = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            final ByteBuffer entry = entries.get(key);
+            statistics.add(entry == null ? null : decode(entry.duplicate()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Invalidates the entries of chunks which are about to be written.
+     */
+    void markPending(Collection<int[]> chunkIndices) throws IOException {
+        final Map<String, ByteBuffer> entries = new HashMap<>();
+        for (int[] chunkIndex : chunkIndices) {
+            entries.put(key(chunkIndex), encode(PENDING, 0, Double.NaN, Double.NaN));
+        }
+        store.putMany(entries);
+    }
+
+    /**
+     * @param statistics the statistics of written chunks by chunk index
+     */
+    void putAll(Map<int[], ChunkStatistics> statistics) throws IOException {
+        final Map<String, ByteBuffer> entries = new HashMap<>();
+        for (Map.Entry<int[], ChunkStatistics> entry : statistics.entrySet()) {
+            final ChunkStatistics value = entry.getValue();
+            entries.put(key(entry.getKey()), encode(value.getCount(), value.getFillCount(), value.getMin(), value.getMax()));
+        }
+        store.putMany(entries);
+    }
+
+    /**
+     * Removes the entries of chunks which have been deleted.
+     */
+    void deleteAll(Collection<int[]> chunkIndices) throws IOException {
+        final List<String> keys = new ArrayList<>(chunkIndices.size());
+        for (int[] chunkIndex : chunkIndices) {
+            keys.add(key(chunkIndex));
+        }
+        store.deleteMany(keys);
+    }
+
+    private String key(int[] chunkIndex) {
+        final StringBuilder key = new StringBuilder(directoryKey).append('/');
+        for (int i = 0; i < chunkIndex.length; i++) {
+            key.append(i == 0 ? "" : ".").append(chunkIndex[i]);
+        }
+        return chunkIndex.length == 0 ? key.append('0').toString() : key.toString();
+    }
+
+    private ByteBuffer encode(long count, long fillCount, double min, double max) {
+        final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.putInt(MAGIC).putLong(generation).putLong(count).putLong(fillCount).putDouble(min).putDouble(max);
+        entry.flip();
+        return entry;
+    }
+
+    private ChunkStatistics decode(ByteBuffer entry) {
+        if (entry.remaining() != ENTRY_SIZE || entry.getInt() != MAGIC || entry.getLong() != generation) {
+            return null;
+        }
+        final long count = entry.getLong();
+        if (count == PENDING) {
+            return null;
+        }
+        return new ChunkStatistics(count, entry.getLong(), entry.getDouble(), entry.getDouble());
+    }
+}
@@ -26,6 +26,8 @@
 
 package com.bc.zarr;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -40,6 +42,33 @@ public abstract class Compressor {
 
     public abstract void uncompress(InputStream is, OutputStream os) throws IOException;
 
+    /**
+     * Compresses a whole chunk. Compressors working on complete buffers anyway should override this method,
+     * the default implementation wraps the bytes in streams and calls {@link #compress(InputStream, OutputStream)}.
+     *
+     * @param raw the uncompressed bytes
+     * @return the compressed bytes
+     */
+    public byte[] compress(byte[] raw) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        compress(new ByteArrayInputStream(raw), os);
+        return os.toByteArray();
+    }
+
+    /**
+     * Uncompresses a whole chunk. Compressors working on complete buffers anyway should override this method,
+     * the default implementation wraps the bytes in streams and calls {@link #uncompress(InputStream, OutputStream)}.
+     *
+     * @param compressed the compressed bytes
+     * @param rawSize    the expected size of the uncompressed bytes or {@code -1} if unknown
+     * @return the uncompressed bytes
+     */
+    public byte[] uncompress(byte[] compressed, int rawSize) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(rawSize > 0 ? rawSize : 32);
+        uncompress(new ByteArrayInputStream(compressed), os);
+        return os.toByteArray();
+    }
+
     void passThrough(InputStream is, OutputStream os) throws IOException {
         final byte[] bytes = new byte[4096];
         int read = is.read(bytes);
@@ -50,4 +79,10 @@ public abstract class Compressor {
             read = is.read(bytes);
         }
     }
+
+    byte[] readAll(InputStream is) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        passThrough(is, os);
+        return os.toByteArray();
+    }
 }
@@ -26,11 +26,21 @@
 
 package com.bc.zarr;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdInputStream;
 import com.sun.jna.ptr.NativeLongByReference;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.blosc.BufferSizes;
 import org.blosc.IBloscDll;
 import org.blosc.JBlosc;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
@@ -38,14 +48,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 public class CompressorFactory {
 
@@ -120,6 +132,18 @@ public class CompressorFactory {
         if ("blosc".equals(id)) {
             return new BloscCompressor(properties);
         }
+        if ("gzip".equals(id)) {
+            return new GzipCompressor(properties);
+        }
+        if ("zstd".equals(id)) {
+            return new ZstdCompressor(properties);
+        }
+        if ("lz4".equals(id)) {
+            return new Lz4Compressor(properties);
+        }
+        if ("bz2".equals(id)) {
+            return new Bz2Compressor(properties);
+        }
         throw new IllegalArgumentException("Compressor id:'" + id + "' not supported.");
     }
 
@@ -133,6 +157,17 @@ public class CompressorFactory {
         return map;
     }
 
+    private static int getInt(Map<String, Object> map, String key, int defaultValue) {
+        final Object value = map.get(key);
+        if (value == null) {
+            return defaultValue;
+        } else if (value instanceof String) {
+            return Integer.parseInt((String) value);
+        } else {
+            return ((Number) value).intValue();
+        }
+    }
+
     private static class NullCompressor extends Compressor {
 
         @Override
@@ -154,9 +189,28 @@ public class CompressorFactory {
         public void uncompress(InputStream is, OutputStream os) throws IOException {
             passThrough(is, os);
         }
+
+        @Override
+        public byte[] compress(byte[] raw) {
+            return raw;
+        }
+
+        @Override
+        public byte[] uncompress(byte[] compressed, int rawSize) {
+            return compressed;
+        }
     }
 
+    /**
+     * Compatible to the numcodecs {@code Zlib} codec.<br/>
+     * The native zlib streams are reused per thread (one {@link Deflater} per level and one {@link Inflater}),
+     * which avoids the initialization cost per chunk and the native memory held by unreleased instances until
+     * finalization.
+     */
     private static class ZlibCompressor extends Compressor {
+        private static final ThreadLocal<Deflater[]> deflaters = ThreadLocal.withInitial(() -> new Deflater[10]);
+        private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
         private final int level;
 
         private ZlibCompressor(Map<String, Object> map) {
@@ -195,15 +249,296 @@ public class CompressorFactory {
 
         @Override
         public void compress(InputStream is, OutputStream os) throws IOException {
-            try (final DeflaterOutputStream dos = new DeflaterOutputStream(os, new Deflater(level))) {
-                passThrough(is, dos);
+            os.write(compress(readAll(is)));
+        }
+
+        @Override
+        public void uncompress(InputStream is, OutputStream os) throws IOException {
+            os.write(uncompress(readAll(is), -1));
+        }
+
+        @Override
+        public byte[] compress(byte[] raw) {
+            final Deflater[] levels = deflaters.get();
+            if (levels[level] == null) {
+                levels[level] = new Deflater(level);
+            }
+            final Deflater deflater = levels[level];
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            // zlib's compressBound
+            byte[] compressed = new byte[raw.length + (raw.length >> 12) + (raw.length >> 14) + (raw.length >> 25) + 13];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            return Arrays.copyOf(compressed, length);
+        }
+
+        @Override
+        public byte[] uncompress(byte[] compressed, int rawSize) throws IOException {
+            final Inflater inflater = inflaters.get();
+            inflater.reset();
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawSize > 0 ? rawSize : Math.max(64, compressed.length * 4)];
+            int length = 0;
+            try {
+                while (!inflater.finished()) {
+                    if (length == raw.length) {
+                        raw = Arrays.copyOf(raw, raw.length * 2);
+                    }
+                    final int inflated = inflater.inflate(raw, length, raw.length - length);
+                    if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("zlib: unexpected end of compressed data.");
+                    }
+                    length += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("zlib: " + e.getMessage(), e);
+            }
+            return length == raw.length ? raw : Arrays.copyOf(raw, length);
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code GZip} codec.
+     */
+    private static class GzipCompressor extends Compressor {
+        private final int level;
+
+        private GzipCompressor(Map<String, Object> map) {
+            level = getInt(map, "level", 1);
+            if (level < 0 || level > 9) {
+                throw new IllegalArgumentException("gzip: level parameter must be between 0 and 9 but was: " + level);
+            }
+        }
+
+        @Override
+        public String getId() {
+            return "gzip";
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        @Override
+        public String toString() {
+            return "compressor=" + getId() + "/level=" + level;
+        }
+
+        @Override
+        public void compress(InputStream is, OutputStream os) throws IOException {
+            try (final GZIPOutputStream gos = new GZIPOutputStream(os) {{
+                def.setLevel(level);
+            }}) {
+                passThrough(is, gos);
+            }
+        }
+
+        @Override
+        public void uncompress(InputStream is, OutputStream os) throws IOException {
+            try (final GZIPInputStream gis = new GZIPInputStream(is)) {
+                passThrough(gis, os);
+            }
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code Zstd} codec, i.e. a single zstd frame.
+     */
+    private static class ZstdCompressor extends Compressor {
+        private final int level;
+        private final boolean checksum;
+
+        private ZstdCompressor(Map<String, Object> map) {
+            level = getInt(map, "level", 1);
+            if (level > Zstd.maxCompressionLevel()) {
+                throw new IllegalArgumentException("zstd: level parameter must not exceed " + Zstd.maxCompressionLevel() + " but was: " + level);
+            }
+            final Object checksumObj = map.get("checksum");
+            checksum = checksumObj instanceof String ? Boolean.parseBoolean((String) checksumObj) : Boolean.TRUE.equals(checksumObj);
+        }
+
+        @Override
+        public String getId() {
+            return "zstd";
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public boolean getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return "compressor=" + getId() + "/level=" + level + "/checksum=" + checksum;
+        }
+
+        @Override
+        public void compress(InputStream is, OutputStream os) throws IOException {
+            os.write(compress(readAll(is)));
+        }
+
+        @Override
+        public void uncompress(InputStream is, OutputStream os) throws IOException {
+            os.write(uncompress(readAll(is), -1));
+        }
+
+        @Override
+        public byte[] compress(byte[] raw) {
+            try (final ZstdCompressCtx ctx = new ZstdCompressCtx()) {
+                ctx.setLevel(level);
+                ctx.setChecksum(checksum);
+                return ctx.compress(raw);
+            }
+        }
+
+        @Override
+        public byte[] uncompress(byte[] compressed, int rawSize) throws IOException {
+            final long frameContentSize = Zstd.getFrameContentSize(compressed);
+            if (frameContentSize > Integer.MAX_VALUE) {
+                throw new IOException("zstd: content size " + frameContentSize + " exceeds the maximum array size.");
+            }
+            if (frameContentSize > 0) {
+                return Zstd.decompress(compressed, (int) frameContentSize);
+            }
+            // 0 and -1 (ZSTD_CONTENTSIZE_UNKNOWN) if the frame does not declare its content size
+            if (frameContentSize < -1) {
+                throw new IOException("zstd: invalid frame header, error code " + frameContentSize + ".");
+            }
+            final ByteArrayOutputStream os = new ByteArrayOutputStream(rawSize > 0 ? rawSize : compressed.length * 4);
+            try (final ZstdInputStream zis = new ZstdInputStream(new ByteArrayInputStream(compressed))) {
+                passThrough(zis, os);
+            }
+            return os.toByteArray();
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code LZ4} codec, i.e. a little endian 32 bit uncompressed size followed by
+     * a LZ4 block.
+     */
+    private static class Lz4Compressor extends Compressor {
+        private static final LZ4Factory factory = LZ4Factory.fastestInstance();
+
+        private final int acceleration;
+
+        private Lz4Compressor(Map<String, Object> map) {
+            acceleration = getInt(map, "acceleration", 1);
+            if (acceleration < 1) {
+                throw new IllegalArgumentException("lz4: acceleration parameter must be at least 1 but was: " + acceleration);
+            }
+        }
+
+        @Override
+        public String getId() {
+            return "lz4";
+        }
+
+        /**
+         * The acceleration is kept for compatibility of the metadata, the compressor always uses the
+         * default acceleration of 1.
+         */
+        public int getAcceleration() {
+            return acceleration;
+        }
+
+        @Override
+        public String toString() {
+            return "compressor=" + getId() + "/acceleration=" + acceleration;
+        }
+
+        @Override
+        public void compress(InputStream is, OutputStream os) throws IOException {
+            os.write(compress(readAll(is)));
+        }
+
+        @Override
+        public void uncompress(InputStream is, OutputStream os) throws IOException {
+            os.write(uncompress(readAll(is), -1));
+        }
+
+        @Override
+        public byte[] compress(byte[] raw) {
+            final LZ4Compressor compressor = factory.fastCompressor();
+            final int maxLength = compressor.maxCompressedLength(raw.length);
+            final byte[] compressed = new byte[4 + maxLength];
+            ByteBuffer.wrap(compressed).order(ByteOrder.LITTLE_ENDIAN).putInt(raw.length);
+            final int length = compressor.compress(raw, 0, raw.length, compressed, 4, maxLength);
+            return Arrays.copyOf(compressed, 4 + length);
+        }
+
+        @Override
+        public byte[] uncompress(byte[] compressed, int rawSize) throws IOException {
+            if (compressed.length < 4) {
+                throw new IOException("lz4: compressed data too short.");
+            }
+            final int size = ByteBuffer.wrap(compressed).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            if (size < 0) {
+                throw new IOException("lz4: invalid uncompressed size " + size + ".");
+            }
+            final byte[] raw = new byte[size];
+            // the safe decompressor checks the bounds of the input, corrupt data must not be read past its end
+            final LZ4SafeDecompressor decompressor = factory.safeDecompressor();
+            final int length;
+            try {
+                length = decompressor.decompress(compressed, 4, compressed.length - 4, raw, 0, size);
+            } catch (LZ4Exception e) {
+                throw new IOException("lz4: corrupt compressed data.", e);
+            }
+            if (length != size) {
+                throw new IOException("lz4: expected " + size + " uncompressed bytes but was " + length + ".");
+            }
+            return raw;
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code BZ2} codec.
+     */
+    private static class Bz2Compressor extends Compressor {
+        private final int level;
+
+        private Bz2Compressor(Map<String, Object> map) {
+            level = getInt(map, "level", 1);
+            if (level < 1 || level > 9) {
+                throw new IllegalArgumentException("bz2: level parameter must be between 1 and 9 but was: " + level);
+            }
+        }
+
+        @Override
+        public String getId() {
+            return "bz2";
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        @Override
+        public String toString() {
+            return "compressor=" + getId() + "/level=" + level;
+        }
+
+        @Override
+        public void compress(InputStream is, OutputStream os) throws IOException {
+            try (final BZip2CompressorOutputStream bos = new BZip2CompressorOutputStream(os, level)) {
+                passThrough(is, bos);
             }
         }
 
         @Override
         public void uncompress(InputStream is, OutputStream os) throws IOException {
-            try (final InflaterInputStream iis = new InflaterInputStream(is, new Inflater())) {
-                passThrough(iis, os);
+            try (final BZip2CompressorInputStream bis = new BZip2CompressorInputStream(is)) {
+                passThrough(bis, os);
             }
         }
     }
@@ -27,13 +27,49 @@
 package com.bc.zarr;
 
 public enum DataType {
-    f8,
-    f4,
-    i8,
-    i4,
-    u4,
-    i2,
-    u2,
-    i1,
-    u1
+    f8(8, "float64"),
+    f4(4, "float32"),
+    i8(8, "int64"),
+    i4(4, "int32"),
+    u4(4, "uint32"),
+    i2(2, "int16"),
+    u2(2, "uint16"),
+    i1(1, "int8"),
+    u1(1, "uint8");
+
+    private final int byteCount;
+    private final String zarrV3Name;
+
+    DataType(int byteCount, String zarrV3Name) {
+        this.byteCount = byteCount;
+        this.zarrV3Name = zarrV3Name;
+    }
+
+    /**
+     * @return the number of bytes of a single element
+     */
+    public int getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the name of the data type according to the Zarr v3 specification, e.g. {@code "float64"}
+     */
+    public String getZarrV3Name() {
+        return zarrV3Name;
+    }
+
+    /**
+     * @param zarrV3Name the name of a data type according to the Zarr v3 specification
+     * @return the corresponding DataType
+     * @throws IllegalArgumentException if the data type is not supported
+     */
+    public static DataType fromZarrV3Name(String zarrV3Name) {
+        for (DataType dataType : values()) {
+            if (dataType.zarrV3Name.equals(zarrV3Name)) {
+                return dataType;
+            }
+        }
+        throw new IllegalArgumentException("Data type '" + zarrV3Name + "' not supported.");
+    }
 }
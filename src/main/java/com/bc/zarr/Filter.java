@@ -0,0 +1,68 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import java.nio.ByteOrder;
+
+/**
+ * A transformation of the uncompressed chunk bytes applied before compression, e.g. to improve the compression
+ * ratio. Filters correspond to the entries of the {@code "filters"} list of a {@code .zarray} header and are
+ * created by {@link FilterFactory}.<br/>
+ * <br/>
+ * On write the filters of an array are applied in list order to the serialized chunk, on read they are reverted
+ * in reverse order. {@link #encode(byte[])} and {@link #decode(byte[])} may work in place and return the given
+ * array, so callers must not pass bytes they do not own.
+ */
+public abstract class Filter {
+
+    public abstract String getId();
+
+    public abstract String toString();
+
+    /**
+     * Returns the filter to be applied to the chunks of an array with the given data type. Filters whose
+     * parameters do not contain the data type (e.g. {@code bitround}) return a filter bound to it, the default
+     * implementation returns this filter.
+     *
+     * @throws IllegalArgumentException if the filter can not be applied to the data type
+     */
+    public Filter forDataType(DataType dataType, ByteOrder order) {
+        return this;
+    }
+
+    /**
+     * @param raw the uncompressed chunk bytes, may be modified
+     * @return the filtered bytes, possibly the given array
+     */
+    public abstract byte[] encode(byte[] raw);
+
+    /**
+     * @param encoded the filtered bytes, may be modified
+     * @return the unfiltered chunk bytes, possibly the given array
+     */
+    public abstract byte[] decode(byte[] encoded);
+}
@@ -0,0 +1,784 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates {@link Filter} instances compatible to the numcodecs filters of the same id.<br/>
+ * Supported ids are {@code delta}, {@code fixedscaleoffset}, {@code shuffle}, {@code quantize} and
+ * {@code bitround}. The last two are lossy and only applicable to {@code f4} and {@code f8} data.
+ */
+public class FilterFactory {
+
+    /**
+     * Creates a new {@link Filter} instance according to the given properties.
+     *
+     * @param properties a Map containing the id and the filter specific properties
+     * @return a new Filter instance according to the properties
+     * @throws IllegalArgumentException If it is not able to create a Filter.
+     */
+    public static Filter create(Map<String, Object> properties) {
+        final String id = (String) properties.get("id");
+        return create(id, properties);
+    }
+
+    /**
+     * Creates a new {@link Filter} instance according to the id and the given properties.
+     *
+     * @param id           the id of the filter
+     * @param keyValuePair an even count of key value pairs defining the filter specific properties
+     * @return a new Filter instance according to the id and the properties
+     * @throws IllegalArgumentException If it is not able to create a Filter.
+     */
+    public static Filter create(String id, Object... keyValuePair) {
+        if (keyValuePair.length % 2 != 0) {
+            throw new IllegalArgumentException("The count of keyValuePair arguments must be an even count.");
+        }
+        final Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keyValuePair.length; i += 2) {
+            map.put((String) keyValuePair[i], keyValuePair[i + 1]);
+        }
+        return create(id, map);
+    }
+
+    /**
+     * Creates a new {@link Filter} instance according to the id and the given properties.
+     *
+     * @param id         the id of the filter
+     * @param properties a Map containing the filter specific properties
+     * @return a new Filter instance according to the id and the properties
+     * @throws IllegalArgumentException If it is not able to create a Filter.
+     */
+    public static Filter create(String id, Map<String, Object> properties) {
+        if ("delta".equals(id)) {
+            return new DeltaFilter(properties);
+        }
+        if ("fixedscaleoffset".equals(id)) {
+            return new FixedScaleOffsetFilter(properties);
+        }
+        if ("shuffle".equals(id)) {
+            return new ShuffleFilter(properties);
+        }
+        if ("quantize".equals(id)) {
+            return new QuantizeFilter(properties);
+        }
+        if ("bitround".equals(id)) {
+            return new BitRoundFilter(properties, null, null);
+        }
+        throw new IllegalArgumentException("Filter id:'" + id + "' not supported.");
+    }
+
+    private static String dtypeProperty(Map<String, Object> map, String key, String defaultValue) {
+        final Object value = map.get(key);
+        if (value == null) {
+            if (defaultValue == null) {
+                throw new IllegalArgumentException("Filter parameter '" + key + "' must be given.");
+            }
+            return defaultValue;
+        }
+        final String dtype = (String) value;
+        ZarrHeader.getRawDataType(dtype); // validates
+        return dtype;
+    }
+
+    private static double doubleProperty(Map<String, Object> map, String key, double defaultValue) {
+        final Object value = map.get(key);
+        if (value == null) {
+            return defaultValue;
+        } else if (value instanceof String) {
+            return Double.parseDouble((String) value);
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    /**
+     * Compatible to the numcodecs {@code Delta} filter. Stores the first element and the differences of all
+     * following elements to their predecessor, which turns slowly varying integer data into small numbers.
+     */
+    private static class DeltaFilter extends Filter {
+        private final String dtype;
+        private final String astype;
+        private final DataType dataType;
+        private final DataType asDataType;
+        private final ByteOrder order;
+        private final ByteOrder asOrder;
+
+        private DeltaFilter(Map<String, Object> map) {
+            dtype = dtypeProperty(map, "dtype", null);
+            astype = dtypeProperty(map, "astype", dtype);
+            dataType = ZarrHeader.getRawDataType(dtype);
+            asDataType = ZarrHeader.getRawDataType(astype);
+            order = ZarrHeader.getByteOrder(dtype);
+            asOrder = ZarrHeader.getByteOrder(astype);
+        }
+
+        @Override
+        public String getId() {
+            return "delta";
+        }
+
+        public String getDtype() {
+            return dtype;
+        }
+
+        public String getAstype() {
+            return astype;
+        }
+
+        @Override
+        public String toString() {
+            return "filter=" + getId() + "/dtype=" + dtype + "/astype=" + astype;
+        }
+
+        @Override
+        public byte[] encode(byte[] raw) {
+            if (dataType == asDataType && order.equals(asOrder)) {
+                encodeInPlace(ByteBuffer.wrap(raw).order(order));
+                return raw;
+            }
+            final Elements source = new Elements(raw, dataType, order);
+            final Elements target = new Elements(new byte[source.size * asDataType.getByteCount()], asDataType, asOrder);
+            if (source.isFloatingPoint() || target.isFloatingPoint()) {
+                double previous = 0;
+                for (int i = 0; i < source.size; i++) {
+                    final double value = source.getDouble(i);
+                    target.putDouble(i, value - previous);
+                    previous = value;
+                }
+            } else {
+                long previous = 0;
+                for (int i = 0; i < source.size; i++) {
+                    final long value = source.getLong(i);
+                    target.putLong(i, value - previous);
+                    previous = value;
+                }
+            }
+            return target.bytes;
+        }
+
+        @Override
+        public byte[] decode(byte[] encoded) {
+            if (dataType == asDataType && order.equals(asOrder)) {
+                decodeInPlace(ByteBuffer.wrap(encoded).order(order));
+                return encoded;
+            }
+            final Elements source = new Elements(encoded, asDataType, asOrder);
+            final Elements target = new Elements(new byte[source.size * dataType.getByteCount()], dataType, order);
+            if (source.isFloatingPoint() || target.isFloatingPoint()) {
+                double sum = 0;
+                for (int i = 0; i < source.size; i++) {
+                    sum += source.getDouble(i);
+                    target.putDouble(i, sum);
+                }
+            } else {
+                long sum = 0;
+                for (int i = 0; i < source.size; i++) {
+                    sum += source.getLong(i);
+                    target.putLong(i, sum);
+                }
+            }
+            return target.bytes;
+        }
+
+        private void encodeInPlace(ByteBuffer buffer) {
+            switch (dataType) {
+                case f8: {
+                    final DoubleBuffer b = buffer.asDoubleBuffer();
+                    double previous = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        final double value = b.get(i);
+                        b.put(i, value - previous);
+                        previous = value;
+                    }
+                    break;
+                }
+                case f4: {
+                    final FloatBuffer b = buffer.asFloatBuffer();
+                    float previous = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        final float value = b.get(i);
+                        b.put(i, value - previous);
+                        previous = value;
+                    }
+                    break;
+                }
+                case i8: {
+                    final LongBuffer b = buffer.asLongBuffer();
+                    long previous = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        final long value = b.get(i);
+                        b.put(i, value - previous);
+                        previous = value;
+                    }
+                    break;
+                }
+                case i4:
+                case u4: {
+                    final IntBuffer b = buffer.asIntBuffer();
+                    int previous = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        final int value = b.get(i);
+                        b.put(i, value - previous);
+                        previous = value;
+                    }
+                    break;
+                }
+                case i2:
+                case u2: {
+                    final ShortBuffer b = buffer.asShortBuffer();
+                    short previous = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        final short value = b.get(i);
+                        b.put(i, (short) (value - previous));
+                        previous = value;
+                    }
+                    break;
+                }
+                default: {
+                    byte previous = 0;
+                    for (int i = 0; i < buffer.limit(); i++) {
+                        final byte value = buffer.get(i);
+                        buffer.put(i, (byte) (value - previous));
+                        previous = value;
+                    }
+                }
+            }
+        }
+
+        private void decodeInPlace(ByteBuffer buffer) {
+            switch (dataType) {
+                case f8: {
+                    final DoubleBuffer b = buffer.asDoubleBuffer();
+                    double sum = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        sum += b.get(i);
+                        b.put(i, sum);
+                    }
+                    break;
+                }
+                case f4: {
+                    final FloatBuffer b = buffer.asFloatBuffer();
+                    float sum = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        sum += b.get(i);
+                        b.put(i, sum);
+                    }
+                    break;
+                }
+                case i8: {
+                    final LongBuffer b = buffer.asLongBuffer();
+                    long sum = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        sum += b.get(i);
+                        b.put(i, sum);
+                    }
+                    break;
+                }
+                case i4:
+                case u4: {
+                    final IntBuffer b = buffer.asIntBuffer();
+                    int sum = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        sum += b.get(i);
+                        b.put(i, sum);
+                    }
+                    break;
+                }
+                case i2:
+                case u2: {
+                    final ShortBuffer b = buffer.asShortBuffer();
+                    short sum = 0;
+                    for (int i = 0; i < b.limit(); i++) {
+                        sum += b.get(i);
+                        b.put(i, sum);
+                    }
+                    break;
+                }
+                default: {
+                    byte sum = 0;
+                    for (int i = 0; i < buffer.limit(); i++) {
+                        sum += buffer.get(i);
+                        buffer.put(i, sum);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code FixedScaleOffset} filter. Encodes {@code round((x - offset) * scale)},
+     * usually into a smaller integer type, and decodes {@code x / scale + offset}.
+     */
+    private static class FixedScaleOffsetFilter extends Filter {
+        private final double offset;
+        private final double scale;
+        private final String dtype;
+        private final String astype;
+        private final DataType dataType;
+        private final DataType asDataType;
+        private final ByteOrder order;
+        private final ByteOrder asOrder;
+
+        private FixedScaleOffsetFilter(Map<String, Object> map) {
+            offset = doubleProperty(map, "offset", Double.NaN);
+            scale = doubleProperty(map, "scale", Double.NaN);
+            if (Double.isNaN(offset) || Double.isNaN(scale)) {
+                throw new IllegalArgumentException("fixedscaleoffset: parameters 'offset' and 'scale' must be given.");
+            }
+            dtype = dtypeProperty(map, "dtype", null);
+            astype = dtypeProperty(map, "astype", dtype);
+            dataType = ZarrHeader.getRawDataType(dtype);
+            asDataType = ZarrHeader.getRawDataType(astype);
+            order = ZarrHeader.getByteOrder(dtype);
+            asOrder = ZarrHeader.getByteOrder(astype);
+        }
+
+        @Override
+        public String getId() {
+            return "fixedscaleoffset";
+        }
+
+        public double getOffset() {
+            return offset;
+        }
+
+        public double getScale() {
+            return scale;
+        }
+
+        public String getDtype() {
+            return dtype;
+        }
+
+        public String getAstype() {
+            return astype;
+        }
+
+        @Override
+        public String toString() {
+            return "filter=" + getId() + "/offset=" + offset + "/scale=" + scale + "/dtype=" + dtype + "/astype=" + astype;
+        }
+
+        @Override
+        public byte[] encode(byte[] raw) {
+            final Elements source = new Elements(raw, dataType, order);
+            final Elements target = dataType == asDataType && order.equals(asOrder)
+                                    ? source
+                                    : new Elements(new byte[source.size * asDataType.getByteCount()], asDataType, asOrder);
+            for (int i = 0; i < source.size; i++) {
+                target.putRounded(i, (source.getDouble(i) - offset) * scale);
+            }
+            return target.bytes;
+        }
+
+        @Override
+        public byte[] decode(byte[] encoded) {
+            final Elements source = new Elements(encoded, asDataType, asOrder);
+            final Elements target = dataType == asDataType && order.equals(asOrder)
+                                    ? source
+                                    : new Elements(new byte[source.size * dataType.getByteCount()], dataType, order);
+            for (int i = 0; i < source.size; i++) {
+                target.putDouble(i, source.getDouble(i) / scale + offset);
+            }
+            return target.bytes;
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code Shuffle} filter. Groups the n-th bytes of all elements together, e.g.
+     * all high order bytes, which often compress much better than the interleaved bytes.
+     */
+    private static class ShuffleFilter extends Filter {
+        private final int elementsize;
+
+        private ShuffleFilter(Map<String, Object> map) {
+            elementsize = (int) doubleProperty(map, "elementsize", 4);
+            if (elementsize < 1) {
+                throw new IllegalArgumentException("shuffle: elementsize must be at least 1 but was: " + elementsize);
+            }
+        }
+
+        @Override
+        public String getId() {
+            return "shuffle";
+        }
+
+        public int getElementsize() {
+            return elementsize;
+        }
+
+        @Override
+        public String toString() {
+            return "filter=" + getId() + "/elementsize=" + elementsize;
+        }
+
+        @Override
+        public byte[] encode(byte[] raw) {
+            if (elementsize == 1) {
+                return raw;
+            }
+            final byte[] shuffled = new byte[raw.length];
+            final int count = raw.length / elementsize;
+            for (int i = 0; i < count; i++) {
+                final int offset = i * elementsize;
+                for (int j = 0; j < elementsize; j++) {
+                    shuffled[j * count + i] = raw[offset + j];
+                }
+            }
+            final int tail = count * elementsize;
+            System.arraycopy(raw, tail, shuffled, tail, raw.length - tail);
+            return shuffled;
+        }
+
+        @Override
+        public byte[] decode(byte[] encoded) {
+            if (elementsize == 1) {
+                return encoded;
+            }
+            final byte[] unshuffled = new byte[encoded.length];
+            final int count = encoded.length / elementsize;
+            for (int j = 0; j < elementsize; j++) {
+                final int offset = j * count;
+                for (int i = 0; i < count; i++) {
+                    unshuffled[i * elementsize + j] = encoded[offset + i];
+                }
+            }
+            final int tail = count * elementsize;
+            System.arraycopy(encoded, tail, unshuffled, tail, encoded.length - tail);
+            return unshuffled;
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code Quantize} filter. Rounds the values to a power of two precision which
+     * retains the given number of decimal digits, so the low mantissa bits become zero and compress well.
+     * Decoding only converts back to the data type, the precision is lost.
+     */
+    private static class QuantizeFilter extends Filter {
+        private final int digits;
+        private final String dtype;
+        private final String astype;
+        private final DataType dataType;
+        private final DataType asDataType;
+        private final ByteOrder order;
+        private final ByteOrder asOrder;
+        private final double scale;
+
+        private QuantizeFilter(Map<String, Object> map) {
+            final double digitsValue = doubleProperty(map, "digits", Double.NaN);
+            if (Double.isNaN(digitsValue)) {
+                throw new IllegalArgumentException("quantize: parameter 'digits' must be given.");
+            }
+            digits = (int) digitsValue;
+            dtype = dtypeProperty(map, "dtype", null);
+            astype = dtypeProperty(map, "astype", dtype);
+            dataType = ZarrHeader.getRawDataType(dtype);
+            asDataType = ZarrHeader.getRawDataType(astype);
+            if (!isFloatingPoint(dataType) || !isFloatingPoint(asDataType)) {
+                throw new IllegalArgumentException("quantize: only f4 and f8 are supported but was " + dtype + " as " + astype + ".");
+            }
+            order = ZarrHeader.getByteOrder(dtype);
+            asOrder = ZarrHeader.getByteOrder(astype);
+            // same computation as numcodecs, which uses log10 of the precision instead of -digits
+            double exponent = Math.log10(Math.pow(10, -digits));
+            exponent = exponent < 0 ? Math.floor(exponent) : Math.ceil(exponent);
+            final double bits = Math.ceil(Math.log(Math.pow(10, -exponent)) / Math.log(2));
+            scale = Math.pow(2, bits);
+        }
+
+        @Override
+        public String getId() {
+            return "quantize";
+        }
+
+        public int getDigits() {
+            return digits;
+        }
+
+        public String getDtype() {
+            return dtype;
+        }
+
+        public String getAstype() {
+            return astype;
+        }
+
+        @Override
+        public String toString() {
+            return "filter=" + getId() + "/digits=" + digits + "/dtype=" + dtype + "/astype=" + astype;
+        }
+
+        @Override
+        public byte[] encode(byte[] raw) {
+            if (dataType == asDataType && order.equals(asOrder)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(raw).order(order);
+                if (dataType == DataType.f8) {
+                    final DoubleBuffer b = buffer.asDoubleBuffer();
+                    for (int i = 0; i < b.limit(); i++) {
+                        b.put(i, Math.rint(scale * b.get(i)) / scale);
+                    }
+                } else {
+                    final FloatBuffer b = buffer.asFloatBuffer();
+                    for (int i = 0; i < b.limit(); i++) {
+                        b.put(i, (float) (Math.rint(scale * b.get(i)) / scale));
+                    }
+                }
+                return raw;
+            }
+            final Elements source = new Elements(raw, dataType, order);
+            final Elements target = new Elements(new byte[source.size * asDataType.getByteCount()], asDataType, asOrder);
+            for (int i = 0; i < source.size; i++) {
+                target.putDouble(i, Math.rint(scale * source.getDouble(i)) / scale);
+            }
+            return target.bytes;
+        }
+
+        @Override
+        public byte[] decode(byte[] encoded) {
+            if (dataType == asDataType && order.equals(asOrder)) {
+                return encoded;
+            }
+            final Elements source = new Elements(encoded, asDataType, asOrder);
+            final Elements target = new Elements(new byte[source.size * dataType.getByteCount()], dataType, order);
+            for (int i = 0; i < source.size; i++) {
+                target.putDouble(i, source.getDouble(i));
+            }
+            return target.bytes;
+        }
+    }
+
+    /**
+     * Compatible to the numcodecs {@code BitRound} filter. Rounds the mantissa of each value half to even to
+     * {@code keepbits} bits and sets the remaining bits to zero. The data type is not part of the parameters,
+     * so the filter is bound to the data type of the array by {@link #forDataType}. Decoding does nothing.
+     */
+    private static class BitRoundFilter extends Filter {
+        private static final int MANTISSA_BITS_F4 = 23;
+        private static final int MANTISSA_BITS_F8 = 52;
+
+        private final int keepbits;
+        private final DataType dataType;
+        private final ByteOrder order;
+
+        private BitRoundFilter(Map<String, Object> map, DataType dataType, ByteOrder order) {
+            final double keepbitsValue = doubleProperty(map, "keepbits", Double.NaN);
+            if (Double.isNaN(keepbitsValue)) {
+                throw new IllegalArgumentException("bitround: parameter 'keepbits' must be given.");
+            }
+            keepbits = (int) keepbitsValue;
+            if (keepbits < 0) {
+                throw new IllegalArgumentException("bitround: keepbits must be zero or positive but was: " + keepbits);
+            }
+            this.dataType = dataType;
+            this.order = order;
+        }
+
+        @Override
+        public String getId() {
+            return "bitround";
+        }
+
+        public int getKeepbits() {
+            return keepbits;
+        }
+
+        @Override
+        public String toString() {
+            return "filter=" + getId() + "/keepbits=" + keepbits;
+        }
+
+        @Override
+        public Filter forDataType(DataType dataType, ByteOrder order) {
+            if (!isFloatingPoint(dataType)) {
+                throw new IllegalArgumentException("bitround: only f4 and f8 are supported but was " + dataType + ".");
+            }
+            final int mantissaBits = dataType == DataType.f8 ? MANTISSA_BITS_F8 : MANTISSA_BITS_F4;
+            if (keepbits > mantissaBits) {
+                throw new IllegalArgumentException("bitround: keepbits must not exceed " + mantissaBits + " for " + dataType + " but was: " + keepbits);
+            }
+            final Map<String, Object> map = new HashMap<>();
+            map.put("keepbits", keepbits);
+            return new BitRoundFilter(map, dataType, order);
+        }
+
+        @Override
+        public byte[] encode(byte[] raw) {
+            if (dataType == null) {
+                throw new IllegalStateException("bitround: filter is not bound to a data type.");
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(raw).order(order);
+            if (dataType == DataType.f8) {
+                final int maskbits = MANTISSA_BITS_F8 - keepbits;
+                if (maskbits == 0) {
+                    return raw;
+                }
+                final long mask = -1L << maskbits;
+                final long halfQuantum = (1L << (maskbits - 1)) - 1;
+                final LongBuffer b = buffer.asLongBuffer();
+                for (int i = 0; i < b.limit(); i++) {
+                    final long bits = b.get(i);
+                    b.put(i, (bits + ((bits >>> maskbits) & 1) + halfQuantum) & mask);
+                }
+            } else {
+                final int maskbits = MANTISSA_BITS_F4 - keepbits;
+                if (maskbits == 0) {
+                    return raw;
+                }
+                final int mask = -1 << maskbits;
+                final int halfQuantum = (1 << (maskbits - 1)) - 1;
+                final IntBuffer b = buffer.asIntBuffer();
+                for (int i = 0; i < b.limit(); i++) {
+                    final int bits = b.get(i);
+                    b.put(i, (bits + ((bits >>> maskbits) & 1) + halfQuantum) & mask);
+                }
+            }
+            return raw;
+        }
+
+        @Override
+        public byte[] decode(byte[] encoded) {
+            return encoded;
+        }
+    }
+
+    private static boolean isFloatingPoint(DataType dataType) {
+        return dataType == DataType.f8 || dataType == DataType.f4;
+    }
+
+    /**
+     * Element wise access to serialized chunk bytes of a given data type and byte order, used by filters
+     * converting between data types.
+     */
+    private static final class Elements {
+        private final byte[] bytes;
+        private final ByteBuffer buffer;
+        private final DataType dataType;
+        private final int size;
+
+        private Elements(byte[] bytes, DataType dataType, ByteOrder order) {
+            this.bytes = bytes;
+            this.buffer = ByteBuffer.wrap(bytes).order(order);
+            this.dataType = dataType;
+            this.size = bytes.length / dataType.getByteCount();
+        }
+
+        boolean isFloatingPoint() {
+            return FilterFactory.isFloatingPoint(dataType);
+        }
+
+        long getLong(int i) {
+            switch (dataType) {
+                case f8:
+                    return (long) buffer.getDouble(i * 8);
+                case f4:
+                    return (long) buffer.getFloat(i * 4);
+                case i8:
+                    return buffer.getLong(i * 8);
+                case i4:
+                    return buffer.getInt(i * 4);
+                case u4:
+                    return buffer.getInt(i * 4) & 0xFFFFFFFFL;
+                case i2:
+                    return buffer.getShort(i * 2);
+                case u2:
+                    return buffer.getShort(i * 2) & 0xFFFF;
+                case i1:
+                    return buffer.get(i);
+                default:
+                    return buffer.get(i) & 0xFF;
+            }
+        }
+
+        double getDouble(int i) {
+            switch (dataType) {
+                case f8:
+                    return buffer.getDouble(i * 8);
+                case f4:
+                    return buffer.getFloat(i * 4);
+                default:
+                    return getLong(i);
+            }
+        }
+
+        void putLong(int i, long value) {
+            switch (dataType) {
+                case f8:
+                    buffer.putDouble(i * 8, value);
+                    break;
+                case f4:
+                    buffer.putFloat(i * 4, value);
+                    break;
+                case i8:
+                    buffer.putLong(i * 8, value);
+                    break;
+                case i4:
+                case u4:
+                    buffer.putInt(i * 4, (int) value);
+                    break;
+                case i2:
+                case u2:
+                    buffer.putShort(i * 2, (short) value);
+                    break;
+                default:
+                    buffer.put(i, (byte) value);
+            }
+        }
+
+        void putDouble(int i, double value) {
+            switch (dataType) {
+                case f8:
+                    buffer.putDouble(i * 8, value);
+                    break;
+                case f4:
+                    buffer.putFloat(i * 4, (float) value);
+                    break;
+                default:
+                    putLong(i, (long) value);
+            }
+        }
+
+        /**
+         * Stores the value rounded half to even (like numpy {@code around}) if the data type is an integer type.
+         */
+        void putRounded(int i, double value) {
+            if (isFloatingPoint()) {
+                putDouble(i, Math.rint(value));
+            } else {
+                putLong(i, (long) Math.rint(value));
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the elements of an array where a mask of the same shape is {@code true}. The selected values are
+ * ordered row major, as if the array was flattened. The array is processed chunk by chunk: chunks where the mask
+ * is all {@code false} are not read at all, chunks where it is all {@code true} are read or written as a whole.
+ * <p>
+ * To order the values without holding the whole mask, the chunks are processed in slabs of one chunk row along the
+ * first dimension. Within a slab, every row of a chunk is a segment of the flattened slab, so the position of its
+ * first selected value is known once the selected elements of all segments of the slab are counted.
+ */
+final class MaskSelection {
+
+    interface Mask {
+        /**
+         * @return the mask values of the region in row major order
+         */
+        boolean[] read(int[] shape, long[] origin) throws IOException, InvalidRangeException;
+    }
+
+    private interface SlabAction {
+        /**
+         * Called before the chunks of a slab are visited.
+         *
+         * @param base  the number of values selected in the slabs before
+         * @param count the number of values selected in this slab
+         */
+        void begin(int base, int count) throws IOException;
+    }
+
+    private interface ChunkAction {
+        /**
+         * @param block     the mask of the chunk or {@code null} if it is all {@code true}
+         * @param rowStarts the position of the first selected value of each chunk row within the slab
+         */
+        void apply(long[] origin, int[] shape, boolean[] block, int[] rowStarts) throws IOException, InvalidRangeException;
+    }
+
+    private final ZarrArray array;
+    private final Mask mask;
+
+    MaskSelection(ZarrArray array, Mask mask) {
+        this.array = array;
+        this.mask = mask;
+    }
+
+    static Mask of(boolean[] mask, long[] shape) {
+        if (mask.length != ZarrUtils.computeSize(shape)) {
+            throw new IllegalArgumentException("The mask has " + mask.length + " elements but the array " + ZarrUtils.computeSize(shape) + ".");
+        }
+        final int rank = shape.length;
+        return (blockShape, origin) -> {
+            final boolean[] block = new boolean[ZarrUtils.computeSizeInteger(blockShape)];
+            final int rowLength = blockShape[rank - 1];
+            final int[] position = new int[rank];
+            for (int row = 0; row < block.length / Math.max(1, rowLength); row++) {
+                long index = 0;
+                for (int d = 0; d < rank; d++) {
+                    index = index * shape[d] + origin[d] + position[d];
+                }
+                System.arraycopy(mask, (int) index, block, row * rowLength, rowLength);
+                for (int d = rank - 2; d >= 0 && ++position[d] == blockShape[d]; d--) {
+                    position[d] = 0;
+                }
+            }
+            return block;
+        };
+    }
+
+    static Mask of(ZarrArray mask, long[] shape) {
+        if (!Arrays.equals(mask.getLongShape(), shape)) {
+            throw new IllegalArgumentException("The mask shape " + Arrays.toString(mask.getLongShape()) + " differs from the array shape " + Arrays.toString(shape) + ".");
+        }
+        return (blockShape, origin) -> {
+            final Object values = mask.read(blockShape, origin);
+            final boolean[] block = new boolean[java.lang.reflect.Array.getLength(values)];
+            if (values instanceof byte[]) {
+                final byte[] v = (byte[]) values;
+                for (int i = 0; i < block.length; i++) {
+                    block[i] = v[i] != 0;
+                }
+            } else if (values instanceof short[]) {
+                final short[] v = (short[]) values;
+                for (int i = 0; i < block.length; i++) {
+                    block[i] = v[i] != 0;
+                }
+            } else if (values instanceof int[]) {
+                final int[] v = (int[]) values;
+                for (int i = 0; i < block.length; i++) {
+                    block[i] = v[i] != 0;
+                }
+            } else if (values instanceof long[]) {
+                final long[] v = (long[]) values;
+                for (int i = 0; i < block.length; i++) {
+                    block[i] = v[i] != 0;
+                }
+            } else if (values instanceof float[]) {
+                final float[] v = (float[]) values;
+                for (int i = 0; i < block.length; i++) {
+                    block[i] = v[i] != 0;
+                }
+            } else {
+                final double[] v = (double[]) values;
+                for (int i = 0; i < block.length; i++) {
+                    block[i] = v[i] != 0;
+                }
+            }
+            return block;
+        };
+    }
+
+    /**
+     * @return the selected values in row major order
+     */
+    Object get() throws IOException, InvalidRangeException {
+        final DataType dataType = array.getDataType();
+        final List<Object> slabs = new ArrayList<>();
+        final int[] total = new int[1];
+        process((base, count) -> {
+            slabs.add(ZarrUtils.createDataBuffer(dataType, new int[]{count}));
+            total[0] = base + count;
+        }, (origin, shape, block, rowStarts) -> {
+            final Object target = slabs.get(slabs.size() - 1);
+            final Object data = array.read(shape, origin);
+            final int rowLength = shape[shape.length - 1];
+            for (int row = 0; row < rowStarts.length; row++) {
+                if (block == null) {
+                    System.arraycopy(data, row * rowLength, target, rowStarts[row], rowLength);
+                } else {
+                    transfer(data, row * rowLength, target, rowStarts[row], block, row * rowLength, rowLength, false);
+                }
+            }
+        });
+        final Object values = ZarrUtils.createDataBuffer(dataType, new int[]{total[0]});
+        int position = 0;
+        for (Object slab : slabs) {
+            final int length = java.lang.reflect.Array.getLength(slab);
+            System.arraycopy(slab, 0, values, position, length);
+            position += length;
+        }
+        return values;
+    }
+
+    /**
+     * @return the number of selected elements, the mask is read but the array is not
+     */
+    int count() throws IOException, InvalidRangeException {
+        final int[] total = new int[1];
+        process((base, count) -> total[0] = base + count, (origin, shape, block, rowStarts) -> {
+        });
+        return total[0];
+    }
+
+    /**
+     * @param values the values of the selected elements in row major order, a primitive java array of the data type
+     *               of the array with one element per {@code true} mask element. The length is checked in a counting
+     *               pass over the mask before anything is written.
+     */
+    void set(Object values) throws IOException, InvalidRangeException {
+        final int length = java.lang.reflect.Array.getLength(values);
+        final int selected = count();
+        if (selected != length) {
+            throw new IllegalArgumentException(selected + " elements are selected by the mask but " + length + " values are given.");
+        }
+        final int[] base = new int[1];
+        process((slabBase, count) -> base[0] = slabBase, (origin, shape, block, rowStarts) -> {
+            final int rowLength = shape[shape.length - 1];
+            // the chunk is read only if it is not overwritten completely
+            final Object data = block == null ? ZarrUtils.createDataBuffer(array.getDataType(), shape) : array.read(shape, origin);
+            for (int row = 0; row < rowStarts.length; row++) {
+                if (block == null) {
+                    System.arraycopy(values, base[0] + rowStarts[row], data, row * rowLength, rowLength);
+                } else {
+                    transfer(values, base[0] + rowStarts[row], data, row * rowLength, block, row * rowLength, rowLength, true);
+                }
+            }
+            array.write(data, shape, origin);
+        });
+    }
+
+    /**
+     * @param value the value written to all selected elements
+     */
+    void set(Number value) throws IOException, InvalidRangeException {
+        final DataType dataType = array.getDataType();
+        process((base, count) -> {
+        }, (origin, shape, block, rowStarts) -> {
+            if (block == null) {
+                array.write(value, shape, origin);
+                return;
+            }
+            final Object data = array.read(shape, origin);
+            final Object filled = ZarrUtils.createDataBufferFilledWith(value, dataType, new int[]{block.length});
+            transfer(filled, 0, data, 0, block, 0, block.length, true);
+            array.write(data, shape, origin);
+        });
+    }
+
+    private void process(SlabAction slabAction, ChunkAction chunkAction) throws IOException, InvalidRangeException {
+        final long[] shape = array.getLongShape();
+        final int[] chunks = array.getChunks();
+        final int rank = shape.length;
+        final int last = rank - 1;
+        final int[] grid = new int[rank];
+        for (int d = 0; d < rank; d++) {
+            grid[d] = (int) ((shape[d] + chunks[d] - 1) / chunks[d]);
+        }
+        if (ZarrUtils.computeSize(shape) == 0) {
+            return;
+        }
+        // a one dimensional array is a single slab
+        final int slabCount = rank == 1 ? 1 : grid[0];
+        int base = 0;
+        for (int slab = 0; slab < slabCount; slab++) {
+            // the rows of the slab are all dimensions but the last one
+            final long[] slabOrigin = new long[rank];
+            final int[] slabRowShape = new int[Math.max(0, last)];
+            if (rank > 1) {
+                slabOrigin[0] = (long) slab * chunks[0];
+                slabRowShape[0] = (int) Math.min(chunks[0], shape[0] - slabOrigin[0]);
+                for (int d = 1; d < last; d++) {
+                    slabRowShape[d] = Math.toIntExact(shape[d]);
+                }
+            }
+            final int[] slabRowStrides = strides(slabRowShape);
+            final int[] segmentCounts = new int[Math.multiplyExact(ZarrUtils.computeSizeInteger(slabRowShape), grid[last])];
+
+            final List<ChunkMask> chunkMasks = new ArrayList<>();
+            final int[] chunkIndex = new int[rank];
+            chunkIndex[0] = rank == 1 ? 0 : slab;
+            do {
+                final ChunkMask chunkMask = new ChunkMask(chunkIndex, chunks, shape);
+                final boolean[] block = mask.read(chunkMask.shape, chunkMask.origin);
+                final int rowLength = chunkMask.shape[last];
+                final int rowCount = block.length / rowLength;
+                chunkMask.rowSegments = new int[rowCount];
+                final int[] position = new int[last];
+                int selected = 0;
+                for (int row = 0; row < rowCount; row++) {
+                    int slabRow = 0;
+                    for (int d = 0; d < last; d++) {
+                        slabRow += (int) (chunkMask.origin[d] - slabOrigin[d] + position[d]) * slabRowStrides[d];
+                    }
+                    final int segment = slabRow * grid[last] + chunkIndex[last];
+                    int rowSelected = 0;
+                    for (int i = row * rowLength; i < (row + 1) * rowLength; i++) {
+                        if (block[i]) {
+                            rowSelected++;
+                        }
+                    }
+                    chunkMask.rowSegments[row] = segment;
+                    segmentCounts[segment] += rowSelected;
+                    selected += rowSelected;
+                    for (int d = last - 1; d >= 0 && ++position[d] == chunkMask.shape[d]; d--) {
+                        position[d] = 0;
+                    }
+                }
+                if (selected > 0) {
+                    chunkMask.block = selected == block.length ? null : block;
+                    chunkMasks.add(chunkMask);
+                }
+            } while (nextChunk(chunkIndex, grid, rank == 1 ? 0 : 1));
+
+            int count = 0;
+            for (int segment = 0; segment < segmentCounts.length; segment++) {
+                final int segmentCount = segmentCounts[segment];
+                segmentCounts[segment] = count;
+                count = Math.addExact(count, segmentCount);
+            }
+            slabAction.begin(base, count);
+            for (ChunkMask chunkMask : chunkMasks) {
+                final int[] rowStarts = new int[chunkMask.rowSegments.length];
+                for (int row = 0; row < rowStarts.length; row++) {
+                    rowStarts[row] = segmentCounts[chunkMask.rowSegments[row]];
+                }
+                chunkAction.apply(chunkMask.origin, chunkMask.shape, chunkMask.block, rowStarts);
+            }
+            base = Math.addExact(base, count);
+        }
+    }
+
+    /**
+     * Advances the chunk index within the grid, the dimensions before {@code from} are kept.
+     */
+    private static boolean nextChunk(int[] chunkIndex, int[] grid, int from) {
+        for (int d = chunkIndex.length - 1; d >= from; d--) {
+            if (++chunkIndex[d] < grid[d]) {
+                return true;
+            }
+            chunkIndex[d] = 0;
+        }
+        return false;
+    }
+
+    private static int[] strides(int[] shape) {
+        final int[] strides = new int[shape.length];
+        int stride = 1;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= shape[d];
+        }
+        return strides;
+    }
+
+    /**
+     * Copies between the consecutive values of a selection and the positions of a row where the mask is
+     * {@code true}.
+     *
+     * @param expand {@code true} to copy consecutive source values to the masked target positions, {@code false}
+     *               to copy the masked source positions to consecutive target values
+     */
+    private static void transfer(Object source, int sourcePos, Object target, int targetPos, boolean[] mask, int maskPos, int length, boolean expand) {
+        final int[] masked = new int[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (mask[maskPos + i]) {
+                masked[count++] = i;
+            }
+        }
+        copy(source, sourcePos, expand ? null : masked, target, targetPos, expand ? masked : null, count);
+    }
+
+    /**
+     * Copies {@code count} values with typed loops, a {@code null} index array addresses consecutive positions.
+     */
+    private static void copy(Object source, int sourcePos, int[] sourceIndices, Object target, int targetPos, int[] targetIndices, int count) {
+        if (source instanceof byte[]) {
+            final byte[] s = (byte[]) source;
+            final byte[] t = (byte[]) target;
+            for (int j = 0; j < count; j++) {
+                t[targetPos + (targetIndices == null ? j : targetIndices[j])] = s[sourcePos + (sourceIndices == null ? j : sourceIndices[j])];
+            }
+        } else if (source instanceof short[]) {
+            final short[] s = (short[]) source;
+            final short[] t = (short[]) target;
+            for (int j = 0; j < count; j++) {
+                t[targetPos + (targetIndices == null ? j : targetIndices[j])] = s[sourcePos + (sourceIndices == null ? j : sourceIndices[j])];
+            }
+        } else if (source instanceof int[]) {
+            final int[] s = (int[]) source;
+            final int[] t = (int[]) target;
+            for (int j = 0; j < count; j++) {
+                t[targetPos + (targetIndices == null ? j : targetIndices[j])] = s[sourcePos + (sourceIndices == null ? j : sourceIndices[j])];
+            }
+        } else if (source instanceof long[]) {
+            final long[] s = (long[]) source;
+            final long[] t = (long[]) target;
+            for (int j = 0; j < count; j++) {
+                t[targetPos + (targetIndices == null ? j : targetIndices[j])] = s[sourcePos + (sourceIndices == null ? j : sourceIndices[j])];
+            }
+        } else if (source instanceof float[]) {
+            final float[] s = (float[]) source;
+            final float[] t = (float[]) target;
+            for (int j = 0; j < count; j++) {
+                t[targetPos + (targetIndices == null ? j : targetIndices[j])] = s[sourcePos + (sourceIndices == null ? j : sourceIndices[j])];
+            }
+        } else {
+            final double[] s = (double[]) source;
+            final double[] t = (double[]) target;
+            for (int j = 0; j < count; j++) {
+                t[targetPos + (targetIndices == null ? j : targetIndices[j])] = s[sourcePos + (sourceIndices == null ? j : sourceIndices[j])];
+            }
+        }
+    }
+
+    private static final class ChunkMask {
+        private final long[] origin;
+        private final int[] shape;
+        private int[] rowSegments;
+        private boolean[] block;
+
+        private ChunkMask(int[] chunkIndex, int[] chunks, long[] arrayShape) {
+            origin = new long[chunkIndex.length];
+            shape = new int[chunkIndex.length];
+            for (int d = 0; d < chunkIndex.length; d++) {
+                origin[d] = (long) chunkIndex[d] * chunks[d];
+                shape[d] = (int) Math.min(chunks[d], arrayShape[d] - origin[d]);
+            }
+        }
+    }
+}
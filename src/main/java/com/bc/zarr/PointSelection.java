@@ -0,0 +1,175 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A selection of single elements of an array, grouped by the chunks holding them. The groups are ordered by their
+ * first point, the points of a group keep their order of the selection.
+ */
+final class PointSelection {
+
+    private final int size;
+    private final List<int[]> chunkIndices = new ArrayList<>();
+    private final List<int[]> points = new ArrayList<>();
+    private final List<int[]> positions = new ArrayList<>();
+
+    /**
+     * @param shape       the array shape
+     * @param chunks      the chunk shape
+     * @param chunkKeys   the chunk keys of the array, used for the chunk grid
+     * @param coordinates the coordinates of the points, one array per dimension, all of the same length
+     * @throws IllegalArgumentException if the coordinates do not match the rank or a point is out of bounds
+     */
+    PointSelection(long[] shape, int[] chunks, ChunkKeyCache chunkKeys, long[][] coordinates) {
+        final int rank = shape.length;
+        if (coordinates.length != rank) {
+            throw new IllegalArgumentException(rank + " coordinate arrays expected but got " + coordinates.length + ".");
+        }
+        size = coordinates[0].length;
+        for (long[] dimension : coordinates) {
+            if (dimension.length != size) {
+                throw new IllegalArgumentException("All coordinate arrays must have the same length.");
+            }
+        }
+        final int[] chunkStrides = new int[rank];
+        int stride = 1;
+        for (int d = rank - 1; d >= 0; d--) {
+            chunkStrides[d] = stride;
+            stride *= chunks[d];
+        }
+        final Map<Long, Integer> groups = new HashMap<>();
+        final int[] groupSizes = new int[size];
+        final int[] groupOf = new int[size];
+        final int[] positionOf = new int[size];
+        final int[] chunkIndex = new int[rank];
+        for (int i = 0; i < size; i++) {
+            int position = 0;
+            for (int d = 0; d < rank; d++) {
+                final long coordinate = coordinates[d][i];
+                if (coordinate < 0 || coordinate >= shape[d]) {
+                    throw new IllegalArgumentException("Point " + i + " exceeds dimension " + d + " of size " + shape[d] + ": " + coordinate);
+                }
+                chunkIndex[d] = (int) (coordinate / chunks[d]);
+                position += (int) (coordinate - (long) chunkIndex[d] * chunks[d]) * chunkStrides[d];
+            }
+            final long linearIndex = chunkKeys.toLinearIndex(chunkIndex);
+            Integer group = groups.get(linearIndex);
+            if (group == null) {
+                group = chunkIndices.size();
+                groups.put(linearIndex, group);
+                chunkIndices.add(chunkIndex.clone());
+            }
+            groupOf[i] = group;
+            positionOf[i] = position;
+            groupSizes[group]++;
+        }
+        for (int group = 0; group < chunkIndices.size(); group++) {
+            points.add(new int[groupSizes[group]]);
+            positions.add(new int[groupSizes[group]]);
+        }
+        Arrays.fill(groupSizes, 0);
+        for (int i = 0; i < size; i++) {
+            final int group = groupOf[i];
+            points.get(group)[groupSizes[group]] = i;
+            positions.get(group)[groupSizes[group]] = positionOf[i];
+            groupSizes[group]++;
+        }
+    }
+
+    /**
+     * @return the number of selected points
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of chunks holding selected points
+     */
+    int chunkCount() {
+        return chunkIndices.size();
+    }
+
+    int[] chunkIndex(int group) {
+        return chunkIndices.get(group);
+    }
+
+    /**
+     * Copies the selected elements of a chunk to their positions in the buffer.
+     *
+     * @param group  the chunk group
+     * @param chunk  the decoded chunk data, a primitive java array of the full chunk shape
+     * @param buffer the target buffer with one element per point, a primitive java array of the same type
+     */
+    void gather(int group, Object chunk, Object buffer) {
+        final int[] targets = points.get(group);
+        final int[] sources = positions.get(group);
+        if (chunk instanceof byte[]) {
+            final byte[] s = (byte[]) chunk;
+            final byte[] t = (byte[]) buffer;
+            for (int i = 0; i < targets.length; i++) {
+                t[targets[i]] = s[sources[i]];
+            }
+        } else if (chunk instanceof short[]) {
+            final short[] s = (short[]) chunk;
+            final short[] t = (short[]) buffer;
+            for (int i = 0; i < targets.length; i++) {
+                t[targets[i]] = s[sources[i]];
+            }
+        } else if (chunk instanceof int[]) {
+            final int[] s = (int[]) chunk;
+            final int[] t = (int[]) buffer;
+            for (int i = 0; i < targets.length; i++) {
+                t[targets[i]] = s[sources[i]];
+            }
+        } else if (chunk instanceof long[]) {
+            final long[] s = (long[]) chunk;
+            final long[] t = (long[]) buffer;
+            for (int i = 0; i < targets.length; i++) {
+                t[targets[i]] = s[sources[i]];
+            }
+        } else if (chunk instanceof float[]) {
+            final float[] s = (float[]) chunk;
+            final float[] t = (float[]) buffer;
+            for (int i = 0; i < targets.length; i++) {
+                t[targets[i]] = s[sources[i]];
+            }
+        } else {
+            final double[] s = (double[]) chunk;
+            final double[] t = (double[]) buffer;
+            for (int i = 0; i < targets.length; i++) {
+                t[targets[i]] = s[sources[i]];
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import java.util.Arrays;
+
+/**
+ * A selection of every {@code step[i]}-th element along each dimension of an array, split into the parts falling
+ * into the individual chunks. Along each dimension the selected elements form runs, one per intersected chunk,
+ * chunks lying between two selected elements are not part of the selection.
+ */
+final class StridedSelection {
+
+    private final int[] step;
+    private final int[] chunkStrides;
+    private final int[] bufferStrides;
+    // per dimension and run: the chunk index, the first selected position within the chunk,
+    // the position of the run within the buffer and the number of selected elements
+    private final int[][] runChunks;
+    private final int[][] runChunkStarts;
+    private final int[][] runBufferStarts;
+    private final int[][] runCounts;
+
+    /**
+     * @param shape  the array shape
+     * @param chunks the chunk shape
+     * @param count  the number of selected elements along each dimension
+     * @param offset the position of the first selected element
+     * @param step   the distance between the selected elements, negative to select in descending order
+     * @throws IllegalArgumentException if a step is zero or the selection exceeds the array bounds
+     */
+    StridedSelection(long[] shape, int[] chunks, int[] count, long[] offset, int[] step) {
+        final int rank = shape.length;
+        if (count.length != rank || offset.length != rank || step.length != rank) {
+            throw new IllegalArgumentException("Shape, offset and step must have " + rank + " dimensions.");
+        }
+        this.step = step.clone();
+        chunkStrides = strides(chunks);
+        bufferStrides = strides(count);
+        runChunks = new int[rank][];
+        runChunkStarts = new int[rank][];
+        runBufferStarts = new int[rank][];
+        runCounts = new int[rank][];
+        for (int d = 0; d < rank; d++) {
+            if (step[d] == 0) {
+                throw new IllegalArgumentException("Step must not be zero: " + Arrays.toString(step));
+            }
+            final long last = offset[d] + (long) (count[d] - 1) * step[d];
+            if (count[d] < 0 || count[d] > 0 && (offset[d] < 0 || offset[d] >= shape[d] || last < 0 || last >= shape[d])) {
+                throw new IllegalArgumentException("Selection of " + count[d] + " elements from " + offset[d] + " with step " + step[d]
+                                                   + " exceeds dimension " + d + " of size " + shape[d] + ".");
+            }
+            splitIntoRuns(d, chunks[d], count[d], offset[d], step[d]);
+        }
+    }
+
+    /**
+     * @return the number of chunks intersecting the selection
+     */
+    int chunkCount() {
+        int chunkCount = 1;
+        for (int[] chunksOfDimension : runChunks) {
+            chunkCount = Math.multiplyExact(chunkCount, chunksOfDimension.length);
+        }
+        return chunkCount;
+    }
+
+    /**
+     * @param i the index of an intersected chunk, in row major order of the chunks
+     * @return the run indices of the chunk along each dimension
+     */
+    int[] run(int i) {
+        final int rank = runChunks.length;
+        final int[] run = new int[rank];
+        int rest = i;
+        for (int d = rank - 1; d >= 0; d--) {
+            run[d] = rest % runChunks[d].length;
+            rest /= runChunks[d].length;
+        }
+        return run;
+    }
+
+    /**
+     * @param run the run indices of a chunk as returned by {@link #run(int)}
+     * @return the chunk index
+     */
+    int[] chunkIndex(int[] run) {
+        final int[] chunkIndex = new int[run.length];
+        for (int d = 0; d < run.length; d++) {
+            chunkIndex[d] = runChunks[d][run[d]];
+        }
+        return chunkIndex;
+    }
+
+    /**
+     * Copies the selected elements of a chunk into the buffer.
+     *
+     * @param run   the run indices of the chunk as returned by {@link #run(int)}
+     * @param chunk the decoded chunk data, a primitive java array of the full chunk shape
+     * @param buffer the target buffer of the selection shape, a primitive java array of the same type
+     */
+    void copy(int[] run, Object chunk, Object buffer) {
+        final int rank = run.length;
+        final int[] counts = new int[rank];
+        int source = 0;
+        int target = 0;
+        for (int d = 0; d < rank; d++) {
+            counts[d] = runCounts[d][run[d]];
+            if (counts[d] == 0) {
+                return;
+            }
+            source += runChunkStarts[d][run[d]] * chunkStrides[d];
+            target += runBufferStarts[d][run[d]] * bufferStrides[d];
+        }
+        final int last = rank - 1;
+        final int sourceStep = step[last];
+        final int rowLength = counts[last];
+        final int[] position = new int[rank];
+        while (true) {
+            copyRow(chunk, source, sourceStep, buffer, target, rowLength);
+            int d = last - 1;
+            while (d >= 0 && ++position[d] == counts[d]) {
+                source -= (counts[d] - 1) * step[d] * chunkStrides[d];
+                target -= (counts[d] - 1) * bufferStrides[d];
+                position[d] = 0;
+                d--;
+            }
+            if (d < 0) {
+                return;
+            }
+            source += step[d] * chunkStrides[d];
+            target += bufferStrides[d];
+        }
+    }
+
+    private void splitIntoRuns(int d, int chunkSize, int count, long offset, int step) {
+        int runCount = 0;
+        long previousChunk = -1;
+        for (int k = 0; k < count; k++) {
+            final long chunk = (offset + (long) k * step) / chunkSize;
+            if (chunk != previousChunk) {
+                runCount++;
+                previousChunk = chunk;
+            }
+        }
+        runChunks[d] = new int[runCount];
+        runChunkStarts[d] = new int[runCount];
+        runBufferStarts[d] = new int[runCount];
+        runCounts[d] = new int[runCount];
+        int run = -1;
+        previousChunk = -1;
+        for (int k = 0; k < count; k++) {
+            final long position = offset + (long) k * step;
+            final long chunk = position / chunkSize;
+            if (chunk != previousChunk) {
+                run++;
+                previousChunk = chunk;
+                runChunks[d][run] = (int) chunk;
+                runChunkStarts[d][run] = (int) (position - chunk * chunkSize);
+                runBufferStarts[d][run] = k;
+            }
+            runCounts[d][run]++;
+        }
+    }
+
+    private static int[] strides(int[] shape) {
+        final int[] strides = new int[shape.length];
+        int stride = 1;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= shape[d];
+        }
+        return strides;
+    }
+
+    /**
+     * Copies {@code length} elements taken every {@code sourceStep}-th position from the source to consecutive
+     * positions of the target, typed loops instead of reflective element access.
+     */
+    static void copyRow(Object source, int sourcePos, int sourceStep, Object target, int targetPos, int length) {
+        if (sourceStep == 1) {
+            System.arraycopy(source, sourcePos, target, targetPos, length);
+        } else if (source instanceof byte[]) {
+            final byte[] s = (byte[]) source;
+            final byte[] t = (byte[]) target;
+            for (int i = 0; i < length; i++, sourcePos += sourceStep) {
+                t[targetPos + i] = s[sourcePos];
+            }
+        } else if (source instanceof short[]) {
+            final short[] s = (short[]) source;
+            final short[] t = (short[]) target;
+            for (int i = 0; i < length; i++, sourcePos += sourceStep) {
+                t[targetPos + i] = s[sourcePos];
+            }
+        } else if (source instanceof int[]) {
+            final int[] s = (int[]) source;
+            final int[] t = (int[]) target;
+            for (int i = 0; i < length; i++, sourcePos += sourceStep) {
+                t[targetPos + i] = s[sourcePos];
+            }
+        } else if (source instanceof long[]) {
+            final long[] s = (long[]) source;
+            final long[] t = (long[]) target;
+            for (int i = 0; i < length; i++, sourcePos += sourceStep) {
+                t[targetPos + i] = s[sourcePos];
+            }
+        } else if (source instanceof float[]) {
+            final float[] s = (float[]) source;
+            final float[] t = (float[]) target;
+            for (int i = 0; i < length; i++, sourcePos += sourceStep) {
+                t[targetPos + i] = s[sourcePos];
+            }
+        } else {
+            final double[] s = (double[]) source;
+            final double[] t = (double[]) target;
+            for (int i = 0; i < length; i++, sourcePos += sourceStep) {
+                t[targetPos + i] = s[sourcePos];
+            }
+        }
+    }
+}
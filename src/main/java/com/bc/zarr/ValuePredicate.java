@@ -0,0 +1,74 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+/**
+ * A condition on the values of an array which can be evaluated against the value range of a chunk, so that
+ * {@link ZarrArray#scan(ValuePredicate, MatchConsumer)} is able to skip chunks which can not contain a match.
+ * E.g. {@code ValuePredicate.greaterThan(30)}.
+ */
+public interface ValuePredicate {
+
+    /**
+     * @return {@code true} if the value satisfies the condition
+     */
+    boolean test(double value);
+
+    /**
+     * @param min the minimum value of a chunk
+     * @param max the maximum value of a chunk
+     * @return {@code false} only if no value between {@code min} and {@code max} satisfies the condition
+     */
+    boolean mayMatch(double min, double max);
+
+    static ValuePredicate greaterThan(double threshold) {
+        return new RangePredicate(threshold, false, Double.POSITIVE_INFINITY, true);
+    }
+
+    static ValuePredicate greaterThanOrEqualTo(double threshold) {
+        return new RangePredicate(threshold, true, Double.POSITIVE_INFINITY, true);
+    }
+
+    static ValuePredicate lessThan(double threshold) {
+        return new RangePredicate(Double.NEGATIVE_INFINITY, true, threshold, false);
+    }
+
+    static ValuePredicate lessThanOrEqualTo(double threshold) {
+        return new RangePredicate(Double.NEGATIVE_INFINITY, true, threshold, true);
+    }
+
+    /**
+     * @return a predicate matching the values from {@code lower} to {@code upper}, both inclusive
+     */
+    static ValuePredicate between(double lower, double upper) {
+        return new RangePredicate(lower, true, upper, true);
+    }
+
+    static ValuePredicate equalTo(double value) {
+        return new RangePredicate(value, true, value, true);
+    }
+}
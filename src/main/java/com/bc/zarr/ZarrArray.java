@@ -27,8 +27,14 @@
 package com.bc.zarr;
 
 import com.bc.zarr.chunk.ChunkReaderWriter;
+import com.bc.zarr.jfr.JfrEvents;
+import com.bc.zarr.jfr.StoreRecording;
+import com.bc.zarr.metrics.ChunkInstrumentation;
+import com.bc.zarr.metrics.ChunkOperation;
+import com.bc.zarr.metrics.Instrumentations;
 import com.bc.zarr.storage.FileSystemStore;
 import com.bc.zarr.storage.InMemoryStore;
+import com.bc.zarr.storage.ShardingStore;
 import com.bc.zarr.storage.Store;
 import com.bc.zarr.ucar.NetCDF_Util;
 import com.bc.zarr.ucar.PartialDataCopier;
@@ -36,31 +42,55 @@ import ucar.ma2.Array;
 import ucar.ma2.InvalidRangeException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
 import static com.bc.zarr.CompressorFactory.nullCompressor;
 import static com.bc.zarr.ZarrConstants.FILENAME_DOT_ZARRAY;
+import static com.bc.zarr.ZarrConstants.FILENAME_DOT_ZSTATS;
+import static com.bc.zarr.ZarrConstants.FILENAME_ZARR_JSON;
 
 public class ZarrArray {
 
-    private final int[] _shape;
+    private static final int SCAN_BATCH_SIZE = 64;
+    private static final int WRITE_BATCH_SIZE = 64;
+    private static final int LOCK_STRIPES = 256;
+
+    // replaced by resize, which must not run concurrently with reads or writes
+    private volatile long[] _shape;
     private final int[] _chunks;
+    private final int[] _shards;
     private final ZarrPath relativePath;
     private final ChunkReaderWriter _chunkReaderWriter;
-    private final Map<String, String> _chunkFilenames;
+    private volatile ChunkKeyCache _chunkKeys;
+    // chunk keys are mapped to a fixed number of locks, so the locks do not grow with the number of written chunks
+    private final ReentrantLock[] _chunkLocks;
     private final DataType _dataType;
     private final Number _fillValue;
     private final Compressor _compressor;
+    private final List<Filter> _filters;
     private final Store _store;
+    private final Store _chunkStore;
     private final ByteOrder _byteOrder;
+    private final int _zarrFormat;
+    private final ChunkKeyEncoding _chunkKeyEncoding;
+    private final List<String> _dimensionNames;
+    private volatile ChunkInstrumentation _instrumentation;
 
-    private ZarrArray(ZarrPath relativePath, int[] shape, int[] chunkShape, DataType dataType, ByteOrder order, Number fillValue, Compressor compressor, Store store) {
+    private ZarrArray(ZarrPath relativePath, long[] shape, int[] chunkShape, int[] shards, DataType dataType, ByteOrder order, Number fillValue, Compressor compressor,
+                      List<Filter> filters, Store store, int zarrFormat, ChunkKeyEncoding chunkKeyEncoding, List<String> dimensionNames) {
         this.relativePath = relativePath;
+        _zarrFormat = zarrFormat;
+        _chunkKeyEncoding = chunkKeyEncoding;
+        _dimensionNames = dimensionNames;
         _shape = shape;
         _chunks = chunkShape;
+        _shards = shards;
         _dataType = dataType;
         _fillValue = fillValue;
         if (compressor == null) {
@@ -68,10 +98,26 @@ public class ZarrArray {
         } else {
             _compressor = compressor;
         }
+        _filters = filters == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(filters));
         _store = store;
-        _chunkReaderWriter = ChunkReaderWriter.create(_compressor, _dataType, order, _chunks, _fillValue, _store);
-        _chunkFilenames = new HashMap<>();
+        if (shards == null) {
+            _chunkStore = store;
+        } else {
+            final int[] chunksPerShard = new int[shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                chunksPerShard[i] = shards[i] / chunkShape[i];
+            }
+            // sharding is only supported for Zarr v3 arrays, so the index is followed by its checksum
+            _chunkStore = new ShardingStore(store, relativePath.storeKey, chunksPerShard, chunkKeyEncoding, true);
+        }
+        _chunkReaderWriter = ChunkReaderWriter.create(_compressor, _filters, _dataType, order, _chunks, _fillValue, _chunkStore);
+        _chunkKeys = new ChunkKeyCache(relativePath.storeKey, shape, chunkShape, chunkKeyEncoding);
+        _chunkLocks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            _chunkLocks[i] = new ReentrantLock();
+        }
         _byteOrder = order;
+        setInstrumentation(Instrumentations.getDefault());
     }
 
     public static ZarrArray open(String path) throws IOException {
@@ -90,11 +136,15 @@ public class ZarrArray {
         final ZarrPath zarrHeaderPath = relativePath.resolve(FILENAME_DOT_ZARRAY);
         try (final InputStream storageStream = store.getInputStream(zarrHeaderPath.storeKey)){
             if(storageStream == null) {
+                final ZarrArray zarrArrayV3 = openV3(relativePath, store);
+                if (zarrArrayV3 != null) {
+                    return zarrArrayV3;
+                }
                 throw new IOException("'" + FILENAME_DOT_ZARRAY + "' expected but is not readable or missing in store.");
             }
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(storageStream))) {
                 final ZarrHeader header = ZarrUtils.fromJson(reader, ZarrHeader.class);
-                final int[] shape = header.getShape();
+                final long[] shape = header.getLongShape();
                 final int[] chunks = header.getChunks();
                 final DataType dataType = header.getRawDataType();
                 final ByteOrder byteOrder = header.getByteOrder();
@@ -103,7 +153,24 @@ public class ZarrArray {
                 if (compressor == null) {
                     compressor = nullCompressor;
                 }
-                return new ZarrArray(relativePath, shape, chunks, dataType, byteOrder, fillValue, compressor, store);
+                return new ZarrArray(relativePath, shape, chunks, null, dataType, byteOrder, fillValue, compressor, header.getFilters(), store,
+                                     2, ChunkKeyEncoding.v2(header.getDimensionSeparator()), null);
+            }
+        }
+    }
+
+    private static ZarrArray openV3(ZarrPath relativePath, Store store) throws IOException {
+        final ZarrPath zarrJsonPath = relativePath.resolve(FILENAME_ZARR_JSON);
+        try (final InputStream storageStream = store.getInputStream(zarrJsonPath.storeKey)) {
+            if (storageStream == null) {
+                return null;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(storageStream))) {
+                final ZarrHeaderV3 header = ZarrUtils.fromJson(reader, ZarrHeaderV3.class);
+                return new ZarrArray(relativePath, header.getLongShape(), header.getChunks(), header.getShards(),
+                                     header.getDataType(), header.getByteOrder(), header.getFillValue(),
+                                     header.getCompressor(), null, store, 3, header.getChunkKeyEncoding(),
+                                     header.getDimensionNames());
             }
         }
     }
@@ -147,15 +214,42 @@ public class ZarrArray {
     }
 
     public static ZarrArray create(ZarrPath relativePath, Store store, ArrayParams arrayParams, Map<String, Object> attributes) throws IOException {
+        return create(relativePath, store, arrayParams, attributes, 2);
+    }
+
+    /**
+     * @param defaultZarrFormat the zarr format to be used if the {@code arrayParams} do not define one, e.g. the
+     *                          format of the containing group
+     */
+    static ZarrArray create(ZarrPath relativePath, Store store, ArrayParams arrayParams, Map<String, Object> attributes, int defaultZarrFormat) throws IOException {
         store.delete(relativePath.storeKey);
+        // not every store deletes the keys below the array key
+        store.delete(relativePath.resolve(FILENAME_DOT_ZSTATS).resolve(ChunkStatisticsIndex.GENERATION_KEY).storeKey);
         final ArrayParams.Params params = arrayParams.build();
-        final int[] shape = params.getShape();
+        final int zarrFormat = params.getZarrFormat() != null ? params.getZarrFormat() : defaultZarrFormat;
+        final long[] shape = params.getLongShape();
         final int[] chunks = params.getChunks();
+        final int[] shards = params.getShards();
         final DataType dataType = params.getDataType();
         final Number fillValue = params.getFillValue();
         final Compressor compressor = params.getCompressor();
         final ByteOrder byteOrder = params.getByteOrder();
-        final ZarrArray zarrArray = new ZarrArray(relativePath, shape, chunks, dataType, byteOrder, fillValue, compressor, store);
+        final List<Filter> filters = params.getFilters();
+        if (shards != null && zarrFormat != 3) {
+            throw new IllegalArgumentException("Sharding is only supported for Zarr v3 arrays.");
+        }
+        if (zarrFormat == 3) {
+            if (!filters.isEmpty()) {
+                throw new IllegalArgumentException("Filters are only supported for Zarr v2 arrays.");
+            }
+            final ChunkKeyEncoding chunkKeyEncoding = ChunkKeyEncoding.create(ChunkKeyEncoding.NAME_DEFAULT, params.getDimensionSeparator());
+            final ZarrArray zarrArray = new ZarrArray(relativePath, shape, chunks, shards, dataType, byteOrder, fillValue, compressor, null, store,
+                                                      3, chunkKeyEncoding, null);
+            zarrArray.writeZarrJson(attributes);
+            return zarrArray;
+        }
+        final ZarrArray zarrArray = new ZarrArray(relativePath, shape, chunks, null, dataType, byteOrder, fillValue, compressor, filters, store,
+                                                  2, ChunkKeyEncoding.v2(params.getDimensionSeparator()), null);
         zarrArray.writeZArrayHeader();
         zarrArray.writeAttributes(attributes);
         return zarrArray;
@@ -165,11 +259,25 @@ public class ZarrArray {
         return _compressor;
     }
 
+    /**
+     * @return the filters applied to the chunks before compression, never {@code null}
+     */
+    public List<Filter> getFilters() {
+        return _filters;
+    }
+
     public DataType getDataType() {
         return _dataType;
     }
 
+    /**
+     * @throws IllegalStateException if a dimension exceeds the int range, see {@link #getLongShape()}
+     */
     public int[] getShape() {
+        return ZarrUtils.toIntShape(_shape);
+    }
+
+    public long[] getLongShape() {
         return Arrays.copyOf(_shape, _shape.length);
     }
 
@@ -177,6 +285,20 @@ public class ZarrArray {
         return Arrays.copyOf(_chunks, _chunks.length);
     }
 
+    /**
+     * @return the shard shape or {@code null} if the chunks of this array are not sharded
+     */
+    public int[] getShards() {
+        return _shards == null ? null : Arrays.copyOf(_shards, _shards.length);
+    }
+
+    /**
+     * @return {@code 2} or {@code 3}
+     */
+    public int getZarrFormat() {
+        return _zarrFormat;
+    }
+
     public Number getFillValue() {
         return _fillValue;
     }
@@ -185,6 +307,55 @@ public class ZarrArray {
         return _byteOrder;
     }
 
+    /**
+     * @return the store holding the metadata and the chunks of this array
+     */
+    public Store getStore() {
+        return _store;
+    }
+
+    /**
+     * The keys of the objects the data of this array is stored in, in row major order of the chunk grid or, if
+     * the array is sharded, of the shard grid. Objects of chunks never written are not present in the store.
+     * The list is a view, its keys are built when accessed.
+     *
+     * @return the store keys of the chunks or shards of this array
+     */
+    public List<String> getStorageKeys() {
+        final ChunkKeyCache keys = _shards == null ? _chunkKeys : new ChunkKeyCache(relativePath.storeKey, _shape, _shards, _chunkKeyEncoding);
+        if (keys.size() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many chunks to be listed: " + keys.size());
+        }
+        final int size = (int) keys.size();
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return keys.build((long) index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public ChunkInstrumentation getInstrumentation() {
+        return _instrumentation;
+    }
+
+    /**
+     * @param instrumentation receives the timings and byte counts of the chunk operations of this array,
+     *                        {@code null} disables the instrumentation
+     */
+    public void setInstrumentation(ChunkInstrumentation instrumentation) {
+        _instrumentation = instrumentation == null ? ChunkInstrumentation.NOOP : instrumentation;
+        _chunkReaderWriter.setInstrumentation(_instrumentation, relativePath.storeKey);
+    }
+
     public void write(Number value) throws IOException, InvalidRangeException {
         final int[] shape = getShape();
         final int[] offset = new int[shape.length];
@@ -196,25 +367,150 @@ public class ZarrArray {
         write(data, shape, offset);
     }
 
+    public void write(Number value, int[] shape, long[] offset) throws IOException, InvalidRangeException {
+        final Object data = ZarrUtils.createDataBufferFilledWith(value, getDataType(), shape);
+        write(data, shape, offset);
+    }
+
     public void write(Object data, int[] dataShape, int[] offset) throws IOException, InvalidRangeException {
+        write(data, dataShape, ZarrUtils.toLongShape(offset));
+    }
+
+    /**
+     * Writes the data chunk by chunk in batches of a bounded number of chunks, so that neither the encoded chunks
+     * nor the locks of all touched chunks are held at once. Readers may observe the batches written so far.
+     *
+     * @param offset the position of the data in the array, its dimensions may exceed the int range
+     */
+    public void write(Object data, int[] dataShape, long[] offset) throws IOException, InvalidRangeException {
         final int[][] chunkIndices = ZarrUtils.computeChunkIndices(_shape, _chunks, dataShape, offset);
         ucar.ma2.DataType dataType = ucar.ma2.DataType.getType(data.getClass().getComponentType(), false);
         final Array source = Array.factory(dataType, dataShape, data);
+        final ChunkStatisticsIndex statistics = statistics();
+        for (int[][] batch : writeBatches(chunkIndices)) {
+            writeBatch(source, dataShape, offset, batch, statistics);
+        }
+    }
 
-        for (int[] chunkIndex : chunkIndices) {
-            final String chunkFilename = getChunkFilename(chunkIndex);
-            final ZarrPath chunkFilePath = relativePath.resolve(chunkFilename);
+    private void writeBatch(Array source, int[] dataShape, long[] offset, int[][] chunkIndices, ChunkStatisticsIndex statistics) throws IOException, InvalidRangeException {
+        final String[] chunkKeys = new String[chunkIndices.length];
+        final Map<String, ByteBuffer> toBeStored = new HashMap<>();
+        final Map<String, int[]> partialChunks = new HashMap<>();
+        final Map<String, int[]> partialChunkIndices = new HashMap<>();
+        final Set<String> chunksToBeFetched = new HashSet<>();
+        final Map<int[], ChunkStatistics> writtenStatistics = statistics == null ? null : new HashMap<>();
+        for (int i = 0; i < chunkIndices.length; i++) {
+            final int[] chunkIndex = chunkIndices[i];
+            final String chunkKey = _chunkKeys.get(chunkIndex);
             final int[] fromBufferPos = computeFrom(chunkIndex, offset, false);
-            synchronized (chunkFilename) {
-                if (partialCopyingIsNotNeeded(dataShape, fromBufferPos)) {
-                    _chunkReaderWriter.write(chunkFilePath.storeKey, source);
-                } else {
-                    final Array targetChunk = _chunkReaderWriter.read(chunkFilePath.storeKey);
-                    PartialDataCopier.copy(fromBufferPos, source, targetChunk);
-                    _chunkReaderWriter.write(chunkFilePath.storeKey, targetChunk);
+            chunkKeys[i] = chunkKey;
+            if (partialCopyingIsNotNeeded(dataShape, fromBufferPos)) {
+                toBeStored.put(chunkKey, _chunkReaderWriter.encode(chunkKey, source));
+                if (writtenStatistics != null) {
+                    writtenStatistics.put(chunkIndex, computeStatistics(chunkIndex, source));
+                }
+            } else {
+                partialChunks.put(chunkKey, fromBufferPos);
+                partialChunkIndices.put(chunkKey, chunkIndex);
+                if (!isChunkCovered(chunkIndex, dataShape, offset)) {
+                    chunksToBeFetched.add(chunkKey);
+                }
+            }
+        }
+
+        final ChunkInstrumentation instrumentation = _instrumentation;
+        final boolean measure = instrumentation.isEnabled();
+        final ReentrantLock[] locks = lockChunks(chunkKeys);
+        try {
+            // chunks completely covered by the data are overwritten anyway and need not be fetched
+            final Map<String, ByteBuffer> storedChunks = fetchChunks(chunksToBeFetched, instrumentation);
+            for (Map.Entry<String, int[]> entry : partialChunks.entrySet()) {
+                final String chunkKey = entry.getKey();
+                final Array targetChunk = _chunkReaderWriter.decode(chunkKey, storedChunks.get(chunkKey));
+                final long start = measure ? System.nanoTime() : 0;
+                PartialDataCopier.copy(entry.getValue(), source, targetChunk);
+                if (measure) {
+                    recordCopy(instrumentation, start, targetChunk);
+                }
+                toBeStored.put(chunkKey, _chunkReaderWriter.encode(chunkKey, targetChunk));
+                if (writtenStatistics != null) {
+                    final int[] chunkIndex = partialChunkIndices.get(chunkKey);
+                    writtenStatistics.put(chunkIndex, computeStatistics(chunkIndex, targetChunk));
+                }
+            }
+            if (statistics != null) {
+                statistics.markPending(Arrays.asList(chunkIndices));
+            }
+            final StoreRecording storeEvent = JfrEvents.store();
+            final long start = measure ? System.nanoTime() : 0;
+            _chunkStore.putMany(toBeStored);
+            if (measure) {
+                final long stored = countBytes(toBeStored.values());
+                instrumentation.record(relativePath.storeKey, ChunkOperation.STORE, System.nanoTime() - start, stored, stored);
+            }
+            if (storeEvent.shouldCommit()) {
+                commit(storeEvent, StoreRecording.PUT_MANY, toBeStored.keySet(), toBeStored.values());
+            }
+            if (statistics != null) {
+                statistics.putAll(writtenStatistics);
+            }
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Splits the chunks to be written into batches of about {@link #WRITE_BATCH_SIZE} chunks. The chunks of a
+     * sharded array are grouped by shard and a shard is never split across batches, so that each shard is
+     * rewritten once.
+     */
+    private List<int[][]> writeBatches(int[][] chunkIndices) {
+        final List<int[][]> batches = new ArrayList<>();
+        if (_shards == null) {
+            for (int start = 0; start < chunkIndices.length; start += WRITE_BATCH_SIZE) {
+                batches.add(Arrays.copyOfRange(chunkIndices, start, Math.min(start + WRITE_BATCH_SIZE, chunkIndices.length)));
+            }
+            return batches;
+        }
+        final int[][] sorted = chunkIndices.clone();
+        Arrays.sort(sorted, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                final int chunksPerShard = _shards[i] / _chunks[i];
+                final int compared = Integer.compare(a[i] / chunksPerShard, b[i] / chunksPerShard);
+                if (compared != 0) {
+                    return compared;
                 }
             }
+            return 0;
+        });
+        int start = 0;
+        for (int end = 1; end <= sorted.length; end++) {
+            final boolean shardEnds = end == sorted.length || !isSameShard(sorted[end - 1], sorted[end]);
+            if (shardEnds && (end - start >= WRITE_BATCH_SIZE || end == sorted.length)) {
+                batches.add(Arrays.copyOfRange(sorted, start, end));
+                start = end;
+            }
         }
+        return batches;
+    }
+
+    private boolean isSameShard(int[] chunkIndex, int[] otherChunkIndex) {
+        for (int i = 0; i < chunkIndex.length; i++) {
+            final int chunksPerShard = _shards[i] / _chunks[i];
+            if (chunkIndex[i] / chunksPerShard != otherChunkIndex[i] / chunksPerShard) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a lazy view of the whole array, see {@link ZarrArrayView}
+     */
+    public ZarrArrayView view() {
+        return ZarrArrayView.of(this);
     }
 
     public Object read() throws IOException, InvalidRangeException {
@@ -226,6 +522,10 @@ public class ZarrArray {
     }
 
     public Object read(int[] shape, int[] offset) throws IOException, InvalidRangeException {
+        return read(shape, ZarrUtils.toLongShape(offset));
+    }
+
+    public Object read(int[] shape, long[] offset) throws IOException, InvalidRangeException {
         final Object data = ZarrUtils.createDataBuffer(getDataType(), shape);
         read(data, shape, offset);
         return data;
@@ -236,6 +536,13 @@ public class ZarrArray {
     }
 
     public void read(Object buffer, int[] bufferShape, int[] offset) throws IOException, InvalidRangeException {
+        read(buffer, bufferShape, ZarrUtils.toLongShape(offset));
+    }
+
+    /**
+     * @param offset the position of the buffer in the array, its dimensions may exceed the int range
+     */
+    public void read(Object buffer, int[] bufferShape, long[] offset) throws IOException, InvalidRangeException {
         if (!buffer.getClass().isArray()) {
             throw new IOException("Target buffer object is not an array.");
         }
@@ -245,28 +552,659 @@ public class ZarrArray {
             throw new IOException("Expected target buffer size is " + expectedSize + " but was " + targetSize);
         }
         final int[][] chunkIndices = ZarrUtils.computeChunkIndices(_shape, _chunks, bufferShape, offset);
+        final String[] chunkKeys = new String[chunkIndices.length];
+        for (int i = 0; i < chunkIndices.length; i++) {
+            chunkKeys[i] = _chunkKeys.get(chunkIndices[i]);
+        }
+        final ChunkInstrumentation instrumentation = _instrumentation;
+        final boolean measure = instrumentation.isEnabled();
+        final Map<String, ByteBuffer> storedChunks = fetchChunks(Arrays.asList(chunkKeys), instrumentation);
 
-        for (int[] chunkIndex : chunkIndices) {
-            final String chunkFilename = getChunkFilename(chunkIndex);
-            final ZarrPath chunkFilePath = relativePath.resolve(chunkFilename);
-            final int[] fromChunkPos = computeFrom(chunkIndex, offset, true);
-            final Array sourceChunk = _chunkReaderWriter.read(chunkFilePath.storeKey);
+        for (int i = 0; i < chunkIndices.length; i++) {
+            final int[] fromChunkPos = computeFrom(chunkIndices[i], offset, true);
+            final Array sourceChunk = _chunkReaderWriter.decode(chunkKeys[i], storedChunks.get(chunkKeys[i]));
+            final long start = measure ? System.nanoTime() : 0;
             if (partialCopyingIsNotNeeded(bufferShape, fromChunkPos)) {
                 System.arraycopy(sourceChunk.getStorage(), 0, buffer, 0, (int) sourceChunk.getSize());
             } else {
                 final Array target = NetCDF_Util.createArrayWithGivenStorage(buffer, bufferShape);
                 PartialDataCopier.copy(fromChunkPos, sourceChunk, target);
             }
+            if (measure) {
+                recordCopy(instrumentation, start, sourceChunk);
+            }
+        }
+    }
+
+    /**
+     * Reads every {@code step[i]}-th element along each dimension, e.g. a preview of every 10th pixel. Only the
+     * chunks holding selected elements are fetched and decoded.
+     *
+     * @param shape  the number of selected elements along each dimension, the shape of the returned data
+     * @param offset the position of the first selected element
+     * @param step   the distance between the selected elements along each dimension, negative to select in
+     *               descending order starting at the offset
+     * @return the selected elements in row major order
+     */
+    public Object read(int[] shape, long[] offset, int[] step) throws IOException, InvalidRangeException {
+        final Object data = ZarrUtils.createDataBuffer(getDataType(), shape);
+        read(data, shape, offset, step);
+        return data;
+    }
+
+    /**
+     * Reads every {@code step[i]}-th element along each dimension into the buffer, see
+     * {@link #read(int[], long[], int[])}.
+     */
+    public void read(Object buffer, int[] bufferShape, long[] offset, int[] step) throws IOException, InvalidRangeException {
+        if (!buffer.getClass().isArray()) {
+            throw new IOException("Target buffer object is not an array.");
+        }
+        final int targetSize = java.lang.reflect.Array.getLength(buffer);
+        final long expectedSize = ZarrUtils.computeSize(bufferShape);
+        if (targetSize != expectedSize) {
+            throw new IOException("Expected target buffer size is " + expectedSize + " but was " + targetSize);
+        }
+        final StridedSelection selection;
+        try {
+            selection = new StridedSelection(_shape, _chunks, bufferShape, offset, step);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRangeException(e.getMessage());
+        }
+        final ChunkInstrumentation instrumentation = _instrumentation;
+        final boolean measure = instrumentation.isEnabled();
+        final int chunkCount = selection.chunkCount();
+        for (int batchStart = 0; batchStart < chunkCount; batchStart += SCAN_BATCH_SIZE) {
+            final int[][] runs = new int[Math.min(SCAN_BATCH_SIZE, chunkCount - batchStart)][];
+            final String[] chunkKeys = new String[runs.length];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = selection.run(batchStart + i);
+                chunkKeys[i] = _chunkKeys.get(selection.chunkIndex(runs[i]));
+            }
+            final Map<String, ByteBuffer> storedChunks = fetchChunks(Arrays.asList(chunkKeys), instrumentation);
+            for (int i = 0; i < runs.length; i++) {
+                final Array sourceChunk = _chunkReaderWriter.decode(chunkKeys[i], storedChunks.get(chunkKeys[i]));
+                final long start = measure ? System.nanoTime() : 0;
+                selection.copy(runs[i], sourceChunk.getStorage(), buffer);
+                if (measure) {
+                    recordCopy(instrumentation, start, sourceChunk);
+                }
+            }
+        }
+    }
+
+    public Object readPoints(int[]... coordinates) throws IOException, InvalidRangeException {
+        final long[][] longCoordinates = new long[coordinates.length][];
+        for (int d = 0; d < coordinates.length; d++) {
+            longCoordinates[d] = ZarrUtils.toLongShape(coordinates[d]);
+        }
+        return readPoints(longCoordinates);
+    }
+
+    /**
+     * Reads single elements at scattered positions, e.g. the values at station locations. The points are grouped
+     * by chunk, so every chunk holding points is fetched and decoded once. The chunks are decoded in parallel.
+     *
+     * @param coordinates the coordinates of the points, one array per dimension, all of the same length, e.g.
+     *                    {@code readPoints(ys, xs)} for the points {@code (ys[i], xs[i])}
+     * @return the values of the points in the order of the coordinates
+     */
+    public Object readPoints(long[]... coordinates) throws IOException, InvalidRangeException {
+        final PointSelection selection;
+        try {
+            selection = new PointSelection(_shape, _chunks, _chunkKeys, coordinates);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRangeException(e.getMessage());
+        }
+        final Object buffer = ZarrUtils.createDataBuffer(getDataType(), new int[]{selection.size()});
+        final ChunkInstrumentation instrumentation = _instrumentation;
+        final boolean measure = instrumentation.isEnabled();
+        final int chunkCount = selection.chunkCount();
+        for (int batchStart = 0; batchStart < chunkCount; batchStart += SCAN_BATCH_SIZE) {
+            final int from = batchStart;
+            final String[] chunkKeys = new String[Math.min(SCAN_BATCH_SIZE, chunkCount - from)];
+            for (int i = 0; i < chunkKeys.length; i++) {
+                chunkKeys[i] = _chunkKeys.get(selection.chunkIndex(from + i));
+            }
+            final Map<String, ByteBuffer> storedChunks = fetchChunks(Arrays.asList(chunkKeys), instrumentation);
+            try {
+                // the points of different chunks are gathered into disjoint positions of the buffer
+                IntStream.range(0, chunkKeys.length).parallel().forEach(i -> {
+                    try {
+                        final Array sourceChunk = _chunkReaderWriter.decode(chunkKeys[i], storedChunks.get(chunkKeys[i]));
+                        final long start = measure ? System.nanoTime() : 0;
+                        selection.gather(from + i, sourceChunk.getStorage(), buffer);
+                        if (measure) {
+                            recordCopy(instrumentation, start, sourceChunk);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Reads the elements where the mask is {@code true}. Chunks where the mask is all {@code false} are not read.
+     *
+     * @param mask a mask of the array shape in row major order
+     * @return the selected values in row major order
+     */
+    public Object getMasked(boolean[] mask) throws IOException, InvalidRangeException {
+        return new MaskSelection(this, MaskSelection.of(mask, _shape)).get();
+    }
+
+    /**
+     * Reads the elements where the mask array is not zero, see {@link #getMasked(boolean[])}.
+     *
+     * @param mask an array of the same shape, e.g. a land/sea mask of data type {@code u1}
+     */
+    public Object getMasked(ZarrArray mask) throws IOException, InvalidRangeException {
+        return new MaskSelection(this, MaskSelection.of(mask, _shape)).get();
+    }
+
+    /**
+     * Writes the elements where the mask is {@code true}. Chunks where the mask is all {@code false} are not
+     * touched, chunks where it is all {@code true} are written without reading them first.
+     *
+     * @param mask   a mask of the array shape in row major order
+     * @param values the values in row major order, one per {@code true} mask element
+     */
+    public void setMasked(boolean[] mask, Object values) throws IOException, InvalidRangeException {
+        new MaskSelection(this, MaskSelection.of(mask, _shape)).set(values);
+    }
+
+    /**
+     * Writes the elements where the mask array is not zero, see {@link #setMasked(boolean[], Object)}. The mask array
+     * is read twice, once to check the number of values before anything is written.
+     */
+    public void setMasked(ZarrArray mask, Object values) throws IOException, InvalidRangeException {
+        new MaskSelection(this, MaskSelection.of(mask, _shape)).set(values);
+    }
+
+    /**
+     * Sets the elements where the mask is {@code true} to a value, see {@link #setMasked(boolean[], Object)}.
+     */
+    public void setMasked(boolean[] mask, Number value) throws IOException, InvalidRangeException {
+        new MaskSelection(this, MaskSelection.of(mask, _shape)).set(value);
+    }
+
+    /**
+     * Sets the elements where the mask array is not zero to a value, see {@link #setMasked(boolean[], Object)}.
+     */
+    public void setMasked(ZarrArray mask, Number value) throws IOException, InvalidRangeException {
+        new MaskSelection(this, MaskSelection.of(mask, _shape)).set(value);
+    }
+
+    /**
+     * Changes the shape of the array and rewrites its metadata. Chunks outside the new shape are deleted, chunks cut
+     * by the new shape are rewritten with fill values beyond it, all other chunks are left untouched. So growing an
+     * array costs a metadata write only and shrinking it depends on the number of chunks dropped or cut, not on the
+     * size of the array.
+     * <p>
+     * Must not be called concurrently with reads or writes of this instance. Other instances opened on the same
+     * store keep the shape they were opened with.
+     *
+     * @param newShape the new shape, of the same rank as the current shape
+     */
+    public synchronized void resize(int... newShape) throws IOException {
+        resize(ZarrUtils.toLongShape(newShape));
+    }
+
+    /**
+     * Changes the shape of the array, see {@link #resize(int...)}.
+     *
+     * @param newShape the new shape, its dimensions may exceed the int range
+     */
+    public synchronized void resize(long... newShape) throws IOException {
+        final long[] oldShape = _shape;
+        if (newShape.length != oldShape.length) {
+            throw new IllegalArgumentException("Rank " + oldShape.length + " expected but the new shape " + Arrays.toString(newShape) + " has rank " + newShape.length + ".");
+        }
+        for (long size : newShape) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Negative size in new shape " + Arrays.toString(newShape) + ".");
+            }
+        }
+        if (Arrays.equals(oldShape, newShape)) {
+            return;
+        }
+        final long[] shape = newShape.clone();
+        // the statistics are addressed by chunk index, so the entries of the kept chunks remain valid
+        final ChunkStatisticsIndex statistics = statistics();
+        cutChunks(oldShape, shape, statistics);
+        deleteDroppedChunks(oldShape, shape, statistics);
+
+        _shape = shape;
+        _chunkKeys = new ChunkKeyCache(relativePath.storeKey, shape, _chunks, _chunkKeyEncoding);
+        if (_zarrFormat == 3) {
+            writeZarrJson(getAttributes());
+        } else {
+            writeZArrayHeader();
+        }
+    }
+
+    /**
+     * Grows the array along an axis and writes the data into the new part. Only the new chunks and the chunks at
+     * the former boundary of the array are written, see {@link #resize(int...)}.
+     *
+     * @param data a primitive java array holding the data in row major order. Its shape equals the array shape
+     *             except along the axis, where the size is derived from the data length.
+     * @param axis the dimension to append to
+     * @return the new shape of the array
+     */
+    public synchronized long[] append(Object data, int axis) throws IOException, InvalidRangeException {
+        final long[] shape = getLongShape();
+        if (axis < 0 || axis >= shape.length) {
+            throw new IllegalArgumentException("Axis " + axis + " is out of range for rank " + shape.length + ".");
+        }
+        long sliceSize = 1;
+        for (int i = 0; i < shape.length; i++) {
+            if (i != axis) {
+                sliceSize = Math.multiplyExact(sliceSize, shape[i]);
+            }
+        }
+        final int length = java.lang.reflect.Array.getLength(data);
+        if (sliceSize == 0 || length % sliceSize != 0) {
+            throw new IllegalArgumentException("The data length " + length + " is not a multiple of the slice size " + sliceSize + " of axis " + axis + ".");
+        }
+        final int[] dataShape = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            // the data is a java array, so every dimension of its shape is within the int range
+            dataShape[i] = i == axis ? (int) (length / sliceSize) : (int) shape[i];
+        }
+        final long[] offset = new long[shape.length];
+        offset[axis] = shape[axis];
+        final long[] newShape = shape.clone();
+        newShape[axis] += dataShape[axis];
+        resize(newShape);
+        write(data, dataShape, offset);
+        return getLongShape();
+    }
+
+    /**
+     * Computes the {@link ChunkStatistics} of all stored chunks and stores them as sidecar objects next to the
+     * array metadata, one per chunk. Afterwards every {@link #write(Object, int[], int[])} and
+     * {@link #resize(long...)} of any instance of this library replaces the statistics of the chunks it writes. The
+     * statistics of a chunk are invalidated before the chunk is stored, so a failed write leaves the chunk without
+     * statistics, and chunks without statistics are always read by {@link #scan(ValuePredicate, MatchConsumer)}.
+     * Writers which do not maintain the statistics, e.g. other zarr implementations, make them stale, they must be
+     * built again afterwards. The statistics must not be built while the array is written concurrently.
+     */
+    public void buildStatistics() throws IOException {
+        final ChunkStatisticsIndex index = ChunkStatisticsIndex.create(_store, statisticsKey());
+        final long chunkCount = _chunkKeys.size();
+        final List<String> batch = new ArrayList<>();
+        for (long linearIndex = 0; linearIndex < chunkCount; linearIndex++) {
+            batch.add(_chunkKeys.build(linearIndex));
+            if (batch.size() == SCAN_BATCH_SIZE || linearIndex == chunkCount - 1) {
+                final Map<String, ByteBuffer> storedChunks = fetchChunks(batch, _instrumentation);
+                final Map<int[], ChunkStatistics> computed = new HashMap<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    final ByteBuffer stored = storedChunks.get(batch.get(i));
+                    if (stored != null) {
+                        final int[] chunkIndex = _chunkKeys.toChunkIndex(linearIndex - batch.size() + 1 + i);
+                        computed.put(chunkIndex, computeStatistics(chunkIndex, _chunkReaderWriter.decode(batch.get(i), stored)));
+                    }
+                }
+                index.putAll(computed);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if chunk statistics have been built for this array
+     */
+    public boolean hasStatistics() throws IOException {
+        return statistics() != null;
+    }
+
+    /**
+     * @param chunkIndex the index of the chunk in the chunk grid
+     * @return the statistics of the chunk or {@code null} if there are no statistics for the chunk, i.e. it has
+     * never been written, a write of it failed or no statistics have been built for the array
+     */
+    public ChunkStatistics getChunkStatistics(int... chunkIndex) throws IOException {
+        final ChunkStatisticsIndex statistics = statistics();
+        return statistics == null ? null : statistics.get(chunkIndex);
+    }
+
+    /**
+     * @return the indices of the chunks which may hold values matching the predicate according to their
+     * statistics. Chunks without statistics are always included.
+     */
+    public List<int[]> findChunks(ValuePredicate predicate) throws IOException {
+        final ChunkStatisticsIndex statistics = statistics();
+        final List<int[]> chunkIndices = new ArrayList<>();
+        final long chunkCount = _chunkKeys.size();
+        final List<int[]> batch = new ArrayList<>();
+        for (long linearIndex = 0; linearIndex < chunkCount; linearIndex++) {
+            batch.add(_chunkKeys.toChunkIndex(linearIndex));
+            if (batch.size() == SCAN_BATCH_SIZE || linearIndex == chunkCount - 1) {
+                final List<ChunkStatistics> batchStatistics = statistics == null ? null : statistics.getAll(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    final ChunkStatistics chunkStatistics = batchStatistics == null ? null : batchStatistics.get(i);
+                    if (chunkStatistics == null || chunkStatistics.hasValues() && predicate.mayMatch(chunkStatistics.getMin(), chunkStatistics.getMax())) {
+                        chunkIndices.add(batch.get(i));
+                    }
+                }
+                batch.clear();
+            }
+        }
+        return chunkIndices;
+    }
+
+    /**
+     * Visits all elements of the array matching the predicate, chunk by chunk. Fill values never match. If
+     * statistics have been built, only the chunks returned by {@link #findChunks(ValuePredicate)} are read.
+     *
+     * @return the number of matching elements
+     */
+    public long scan(ValuePredicate predicate, MatchConsumer consumer) throws IOException {
+        final List<int[]> candidates = findChunks(predicate);
+        final double fill = _fillValue == null ? Double.NaN : _fillValue.doubleValue();
+        long matches = 0;
+        for (int start = 0; start < candidates.size(); start += SCAN_BATCH_SIZE) {
+            final List<int[]> batch = candidates.subList(start, Math.min(start + SCAN_BATCH_SIZE, candidates.size()));
+            final List<String> keys = new ArrayList<>();
+            for (int[] chunkIndex : batch) {
+                keys.add(_chunkKeys.build(chunkIndex));
+            }
+            final Map<String, ByteBuffer> storedChunks = fetchChunks(keys, _instrumentation);
+            for (int i = 0; i < batch.size(); i++) {
+                final ByteBuffer stored = storedChunks.get(keys.get(i));
+                if (stored == null) {
+                    // never written, fill values only
+                    continue;
+                }
+                final int[] chunkIndex = batch.get(i);
+                final Array chunk = _chunkReaderWriter.decode(keys.get(i), stored);
+                final ChunkStatistics.ChunkElements elements = new ChunkStatistics.ChunkElements(_chunks, validShape(chunkIndex));
+                while (elements.next()) {
+                    final double value = ChunkStatistics.getValue(chunk, _dataType, elements.index());
+                    if (_fillValue != null && (value == fill || Double.isNaN(fill) && Double.isNaN(value)) || !predicate.test(value)) {
+                        continue;
+                    }
+                    final long[] position = new long[_chunks.length];
+                    for (int k = 0; k < position.length; k++) {
+                        position[k] = (long) chunkIndex[k] * _chunks[k] + elements.position()[k];
+                    }
+                    consumer.accept(position, value);
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Looks the statistics up on every call, so that statistics built by another instance are maintained as well.
+     */
+    private ChunkStatisticsIndex statistics() throws IOException {
+        return ChunkStatisticsIndex.open(_store, statisticsKey());
+    }
+
+    private String statisticsKey() {
+        return relativePath.resolve(FILENAME_DOT_ZSTATS).storeKey;
+    }
+
+    private ChunkStatistics computeStatistics(int[] chunkIndex, Array chunk) {
+        return ChunkStatistics.compute(chunk, validShape(chunkIndex), _dataType, _fillValue);
+    }
+
+    /**
+     * @return the shape of the part of the chunk within the array bounds
+     */
+    private int[] validShape(int[] chunkIndex) {
+        final int[] validShape = new int[chunkIndex.length];
+        for (int i = 0; i < chunkIndex.length; i++) {
+            validShape[i] = (int) Math.min(_chunks[i], _shape[i] - (long) chunkIndex[i] * _chunks[i]);
+        }
+        return validShape;
+    }
+
+    /**
+     * Rewrites the stored chunks which are cut by a smaller new shape, with fill values beyond the new shape.
+     *
+     * @param statistics the statistics to be maintained or {@code null}
+     */
+    private void cutChunks(long[] oldShape, long[] newShape, ChunkStatisticsIndex statistics) throws IOException {
+        final int rank = oldShape.length;
+        final int[] oldGrid = chunkGrid(oldShape);
+        final int[] newGrid = chunkGrid(newShape);
+        final Map<String, int[]> cut = new LinkedHashMap<>();
+        for (int axis = 0; axis < rank; axis++) {
+            if (newShape[axis] >= oldShape[axis] || newShape[axis] % _chunks[axis] == 0) {
+                continue;
+            }
+            // the chunks of the slab at the new boundary of the axis which remain within the new shape
+            final int[] slab = new int[rank];
+            for (int i = 0; i < rank; i++) {
+                slab[i] = i == axis ? 1 : Math.min(oldGrid[i], newGrid[i]);
+            }
+            final long slabSize = ZarrUtils.computeSize(slab);
+            for (long linearIndex = 0; linearIndex < slabSize; linearIndex++) {
+                final int[] chunkIndex = new int[rank];
+                long rest = linearIndex;
+                for (int i = rank - 1; i >= 0; i--) {
+                    chunkIndex[i] = (int) (rest % slab[i]);
+                    rest /= slab[i];
+                }
+                chunkIndex[axis] = (int) (newShape[axis] / _chunks[axis]);
+                cut.put(_chunkKeys.get(chunkIndex), chunkIndex);
+            }
+        }
+        final List<String> keys = new ArrayList<>(cut.keySet());
+        for (int start = 0; start < keys.size(); start += SCAN_BATCH_SIZE) {
+            final List<String> batch = keys.subList(start, Math.min(start + SCAN_BATCH_SIZE, keys.size()));
+            final Map<String, ByteBuffer> storedChunks = fetchChunks(batch, _instrumentation);
+            final Map<String, ByteBuffer> toBeStored = new HashMap<>();
+            final Map<int[], ChunkStatistics> cutStatistics = new HashMap<>();
+            for (Map.Entry<String, ByteBuffer> stored : storedChunks.entrySet()) {
+                final String chunkKey = stored.getKey();
+                final int[] chunkIndex = cut.get(chunkKey);
+                final Array chunk = _chunkReaderWriter.decode(chunkKey, stored.getValue());
+                final Array cutChunk = _chunkReaderWriter.decode(chunkKey, null);
+                final int[] keptShape = new int[rank];
+                for (int i = 0; i < rank; i++) {
+                    keptShape[i] = (int) Math.min(_chunks[i], newShape[i] - (long) chunkIndex[i] * _chunks[i]);
+                }
+                // copies the kept part row by row, the last dimension is contiguous
+                final int rowLength = keptShape[rank - 1];
+                keptShape[rank - 1] = 1;
+                final ChunkStatistics.ChunkElements rows = new ChunkStatistics.ChunkElements(_chunks, keptShape);
+                while (rows.next()) {
+                    System.arraycopy(chunk.getStorage(), rows.index(), cutChunk.getStorage(), rows.index(), rowLength);
+                }
+                keptShape[rank - 1] = rowLength;
+                toBeStored.put(chunkKey, _chunkReaderWriter.encode(chunkKey, cutChunk));
+                cutStatistics.put(chunkIndex, ChunkStatistics.compute(cutChunk, keptShape, _dataType, _fillValue));
+            }
+            if (toBeStored.isEmpty()) {
+                continue;
+            }
+            if (statistics != null) {
+                statistics.markPending(cutStatistics.keySet());
+            }
+            _chunkStore.putMany(toBeStored);
+            if (statistics != null) {
+                statistics.putAll(cutStatistics);
+            }
+        }
+    }
+
+    /**
+     * Deletes the stored chunks (or whole shards) outside a smaller new shape, and their statistics.
+     *
+     * @param statistics the statistics to be maintained or {@code null}
+     */
+    private void deleteDroppedChunks(long[] oldShape, long[] newShape, ChunkStatisticsIndex statistics) throws IOException {
+        boolean shrinks = false;
+        for (int i = 0; i < oldShape.length; i++) {
+            shrinks |= newShape[i] < oldShape[i];
+        }
+        if (!shrinks) {
+            return;
+        }
+        final int[] oldGrid = chunkGrid(oldShape);
+        final int[] newGrid = chunkGrid(newShape);
+        final ChunkKeyCache oldKeys = _chunkKeys;
+        if (statistics != null) {
+            statistics.deleteAll(droppedIndices(oldGrid, newGrid));
+        }
+        if (_shards == null) {
+            _store.deleteMany(chunkKeys(oldKeys, droppedIndices(oldGrid, newGrid)));
+            return;
+        }
+        final int rank = oldGrid.length;
+        final int[] chunksPerShard = new int[rank];
+        final int[] oldShardGrid = new int[rank];
+        final int[] newShardGrid = new int[rank];
+        final int[] keptChunkGrid = new int[rank];
+        for (int i = 0; i < rank; i++) {
+            chunksPerShard[i] = _shards[i] / _chunks[i];
+            oldShardGrid[i] = (oldGrid[i] + chunksPerShard[i] - 1) / chunksPerShard[i];
+            newShardGrid[i] = (newGrid[i] + chunksPerShard[i] - 1) / chunksPerShard[i];
+            keptChunkGrid[i] = Math.min(oldGrid[i], newShardGrid[i] * chunksPerShard[i]);
+        }
+        final ChunkKeyCache shardKeys = new ChunkKeyCache(relativePath.storeKey, oldShape, _shards, _chunkKeyEncoding);
+        _store.deleteMany(chunkKeys(shardKeys, droppedIndices(oldShardGrid, newShardGrid)));
+        // the dropped chunks within the shards at the new boundary, each of these shards is rewritten once
+        _chunkStore.deleteMany(chunkKeys(oldKeys, droppedIndices(keptChunkGrid, newGrid)));
+    }
+
+    private static List<String> chunkKeys(ChunkKeyCache keys, List<int[]> indices) {
+        final List<String> chunkKeys = new ArrayList<>(indices.size());
+        for (int[] index : indices) {
+            chunkKeys.add(keys.build(index));
+        }
+        return chunkKeys;
+    }
+
+    /**
+     * @return the indices of the old grid outside the new grid, enumerated slab by slab along each axis where the
+     * grid shrinks, so that each index is returned once
+     */
+    private static List<int[]> droppedIndices(int[] oldGrid, int[] newGrid) {
+        final int rank = oldGrid.length;
+        final List<int[]> dropped = new ArrayList<>();
+        for (int axis = 0; axis < rank; axis++) {
+            if (newGrid[axis] >= oldGrid[axis]) {
+                continue;
+            }
+            // the slab beyond the new boundary, restricted to the kept part along the axes before
+            final int[] from = new int[rank];
+            final int[] slab = new int[rank];
+            for (int i = 0; i < rank; i++) {
+                from[i] = i == axis ? newGrid[i] : 0;
+                slab[i] = i == axis ? oldGrid[i] - newGrid[i] : i < axis ? Math.min(oldGrid[i], newGrid[i]) : oldGrid[i];
+            }
+            final long slabSize = ZarrUtils.computeSize(slab);
+            for (long linearIndex = 0; linearIndex < slabSize; linearIndex++) {
+                final int[] index = new int[rank];
+                long rest = linearIndex;
+                for (int i = rank - 1; i >= 0; i--) {
+                    index[i] = from[i] + (int) (rest % slab[i]);
+                    rest /= slab[i];
+                }
+                dropped.add(index);
+            }
+        }
+        return dropped;
+    }
+
+    private int[] chunkGrid(long[] shape) {
+        final int[] grid = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            grid[i] = (int) ((shape[i] + _chunks[i] - 1) / _chunks[i]);
         }
+        return grid;
     }
 
-    private synchronized String getChunkFilename(int[] chunkIndex) {
-        String chunkFilename = ZarrUtils.createChunkFilename(chunkIndex);
-        if (_chunkFilenames.containsKey(chunkFilename)) {
-            return _chunkFilenames.get(chunkFilename);
+    private static boolean isInGrid(int[] chunkIndex, int[] grid) {
+        for (int i = 0; i < chunkIndex.length; i++) {
+            if (chunkIndex[i] >= grid[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, ByteBuffer> fetchChunks(Collection<String> chunkKeys, ChunkInstrumentation instrumentation) throws IOException {
+        if (chunkKeys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final StoreRecording storeEvent = JfrEvents.store();
+        final boolean measure = instrumentation.isEnabled();
+        final long start = measure ? System.nanoTime() : 0;
+        final Map<String, ByteBuffer> storedChunks = _chunkStore.getMany(chunkKeys);
+        if (measure) {
+            final long fetched = countBytes(storedChunks.values());
+            instrumentation.record(relativePath.storeKey, ChunkOperation.FETCH, System.nanoTime() - start, fetched, fetched);
+        }
+        if (storeEvent.shouldCommit()) {
+            commit(storeEvent, StoreRecording.GET_MANY, chunkKeys, storedChunks.values());
+        }
+        return storedChunks;
+    }
+
+    private void commit(StoreRecording event, String operation, Collection<String> keys, Collection<ByteBuffer> values) {
+        event.commit(relativePath.storeKey, _chunkStore.getClass().getSimpleName(), operation,
+                     keys.isEmpty() ? null : keys.iterator().next(), keys.size(), countBytes(values));
+    }
+
+    private void recordCopy(ChunkInstrumentation instrumentation, long start, Array chunk) {
+        final long duration = System.nanoTime() - start;
+        final long bytes = chunk.getSize() * chunk.getDataType().getSize();
+        instrumentation.record(relativePath.storeKey, ChunkOperation.COPY, duration, bytes, bytes);
+    }
+
+    private static long countBytes(Collection<ByteBuffer> buffers) {
+        long count = 0;
+        for (ByteBuffer buffer : buffers) {
+            if (buffer != null) {
+                count += buffer.remaining();
+            }
         }
-        _chunkFilenames.put(chunkFilename, chunkFilename);
-        return chunkFilename;
+        return count;
+    }
+
+    /**
+     * Acquires the locks of the given chunks in a globally consistent order, so that concurrent
+     * writes touching overlapping sets of chunks can not deadlock. Chunks sharing a lock stripe share its lock.
+     */
+    private ReentrantLock[] lockChunks(String[] chunkKeys) {
+        final SortedSet<Integer> stripes = new TreeSet<>();
+        for (String chunkKey : chunkKeys) {
+            final int hash = chunkKey.hashCode();
+            stripes.add((hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1));
+        }
+        final ReentrantLock[] locks = new ReentrantLock[stripes.size()];
+        int i = 0;
+        for (int stripe : stripes) {
+            locks[i] = _chunkLocks[stripe];
+            locks[i++].lock();
+        }
+        return locks;
+    }
+
+    /**
+     * @return {@code true} if the data covers the whole chunk within the array bounds
+     */
+    private boolean isChunkCovered(int[] chunkIndex, int[] dataShape, long[] offset) {
+        for (int i = 0; i < chunkIndex.length; i++) {
+            final long chunkStart = (long) chunkIndex[i] * _chunks[i];
+            final long chunkEnd = Math.min(chunkStart + _chunks[i], _shape[i]);
+            if (chunkStart < offset[i] || chunkEnd > offset[i] + dataShape[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private boolean partialCopyingIsNotNeeded(int[] bufferShape, int[] offset) {
@@ -282,10 +1220,17 @@ public class ZarrArray {
     }
 
     public void writeAttributes(Map<String, Object> attributes) throws IOException {
-        ZarrUtils.writeAttributes(attributes, relativePath, _store);
+        if (_zarrFormat == 3) {
+            ZarrUtils.writeAttributesV3(attributes, relativePath, _store);
+        } else {
+            ZarrUtils.writeAttributes(attributes, relativePath, _store);
+        }
     }
 
     public Map<String, Object> getAttributes() throws IOException {
+        if (_zarrFormat == 3) {
+            return ZarrUtils.readAttributesV3(relativePath, _store);
+        }
         return ZarrUtils.readAttributes(relativePath, _store);
     }
 
@@ -295,20 +1240,23 @@ public class ZarrArray {
                "'/" + relativePath.storeKey + "' " +
                "shape=" + Arrays.toString(_shape) +
                ", chunks=" + Arrays.toString(_chunks) +
+               (_shards == null ? "" : ", shards=" + Arrays.toString(_shards)) +
                ", dataType=" + _dataType +
                ", fillValue=" + _fillValue +
                ", " + _compressor.toString() +
+               (_filters.isEmpty() ? "" : ", filters=" + _filters) +
                ", store=" + _store.getClass().getSimpleName() +
                ", byteOrder=" + _byteOrder +
+               (_zarrFormat == 2 ? "" : ", zarrFormat=" + _zarrFormat) +
                '}';
     }
 
-    private int[] computeFrom(int[] chunkIndex, int[] to, boolean read) {
+    private int[] computeFrom(int[] chunkIndex, long[] to, boolean read) {
         int[] from = new int[chunkIndex.length];
         for (int i = 0; i < chunkIndex.length; i++) {
             int index = chunkIndex[i];
-            from[i] = index * _chunks[i];
-            from[i] -= to[i];
+            // the distance between a chunk and an intersecting buffer is within the int range
+            from[i] = (int) ((long) index * _chunks[i] - to[i]);
         }
         if (read) {
             for (int i1 = 0; i1 < from.length; i1++) {
@@ -319,7 +1267,9 @@ public class ZarrArray {
     }
 
     private void writeZArrayHeader() throws IOException {
-        final ZarrHeader zarrHeader = new ZarrHeader(_shape, _chunks, _dataType.toString(), _byteOrder, _fillValue, _compressor);
+        final String dimensionSeparator = "/".equals(_chunkKeyEncoding.getSeparator()) ? "/" : null;
+        final ZarrHeader zarrHeader = new ZarrHeader(_shape, _chunks, _dataType.toString(), _byteOrder, _fillValue, _compressor, dimensionSeparator,
+                                                     _filters);
         final ZarrPath zArray = relativePath.resolve(FILENAME_DOT_ZARRAY);
         try (
                 OutputStream os = _store.getOutputStream(zArray.storeKey);
@@ -328,6 +1278,12 @@ public class ZarrArray {
             ZarrUtils.toJson(zarrHeader, writer, true);
         }
     }
+
+    private void writeZarrJson(Map<String, Object> attributes) throws IOException {
+        final ZarrHeaderV3 zarrHeader = new ZarrHeaderV3(_shape, _chunks, _shards, _dataType, _byteOrder, _fillValue,
+                                                         _compressor, _chunkKeyEncoding, attributes, _dimensionNames);
+        ZarrUtils.writeZarrJson(zarrHeader, relativePath, _store);
+    }
 }
 
 
@@ -0,0 +1,272 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An immutable, lazy view of a region of a {@link ZarrArray}. Views are derived from each other by
+ * {@link #slice(long[], long[]) slicing}, {@link #step(int...) stepping} and {@link #transpose(int...) transposing}
+ * without any I/O, the chunks are only fetched when the data of a view is {@link #read() read}. E.g. every second
+ * row of a region, flipped vertically:
+ * <pre>
+ *    final ZarrArrayView view = array.view().slice(new long[]{100, 200}, new long[]{50, 80}).step(-2, 1);
+ *    final float[] data = (float[]) view.read();
+ * </pre>
+ * Internally a view maps its element {@code v} to the array element {@code b} with
+ * {@code b[axes[i]] = offset[axes[i]] + v[i] * step[axes[i]]}.
+ */
+public final class ZarrArrayView {
+
+    private final ZarrArray array;
+    // indexed by array dimension
+    private final long[] offset;
+    private final long[] count;
+    private final int[] step;
+    // the array dimension of each view dimension
+    private final int[] axes;
+
+    private ZarrArrayView(ZarrArray array, long[] offset, long[] count, int[] step, int[] axes) {
+        this.array = array;
+        this.offset = offset;
+        this.count = count;
+        this.step = step;
+        this.axes = axes;
+    }
+
+    /**
+     * @return a view of the whole array
+     */
+    public static ZarrArrayView of(ZarrArray array) {
+        final long[] shape = array.getLongShape();
+        final int[] step = new int[shape.length];
+        final int[] axes = new int[shape.length];
+        for (int d = 0; d < shape.length; d++) {
+            step[d] = 1;
+            axes[d] = d;
+        }
+        return new ZarrArrayView(array, new long[shape.length], shape, step, axes);
+    }
+
+    public ZarrArray getArray() {
+        return array;
+    }
+
+    public DataType getDataType() {
+        return array.getDataType();
+    }
+
+    /**
+     * @throws IllegalStateException if a dimension exceeds the int range, see {@link #getLongShape()}
+     */
+    public int[] getShape() {
+        return ZarrUtils.toIntShape(getLongShape());
+    }
+
+    public long[] getLongShape() {
+        final long[] shape = new long[axes.length];
+        for (int i = 0; i < axes.length; i++) {
+            shape[i] = count[axes[i]];
+        }
+        return shape;
+    }
+
+    public ZarrArrayView slice(int[] offset, int[] shape) {
+        return slice(ZarrUtils.toLongShape(offset), ZarrUtils.toLongShape(shape));
+    }
+
+    /**
+     * @param offset the position of the region within this view
+     * @param shape  the shape of the region
+     * @return a view of the region
+     */
+    public ZarrArrayView slice(long[] offset, long[] shape) {
+        checkRank(offset.length);
+        checkRank(shape.length);
+        final long[] newOffset = this.offset.clone();
+        final long[] newCount = count.clone();
+        for (int i = 0; i < axes.length; i++) {
+            final int d = axes[i];
+            if (offset[i] < 0 || shape[i] < 0 || offset[i] + shape[i] > count[d]) {
+                throw new IllegalArgumentException("The region at " + Arrays.toString(offset) + " of shape " + Arrays.toString(shape)
+                                                   + " exceeds the view shape " + Arrays.toString(getLongShape()) + ".");
+            }
+            newOffset[d] = this.offset[d] + offset[i] * step[d];
+            newCount[d] = shape[i];
+        }
+        return new ZarrArrayView(array, newOffset, newCount, step, axes);
+    }
+
+    /**
+     * @param step the distance between the elements of the new view along each dimension of this view, negative
+     *             to reverse the order starting at the last element
+     * @return a view of every {@code step[i]}-th element
+     */
+    public ZarrArrayView step(int... step) {
+        checkRank(step.length);
+        final long[] newOffset = offset.clone();
+        final long[] newCount = count.clone();
+        final int[] newStep = this.step.clone();
+        for (int i = 0; i < axes.length; i++) {
+            final int d = axes[i];
+            if (step[i] == 0) {
+                throw new IllegalArgumentException("Step must not be zero: " + Arrays.toString(step));
+            }
+            if (step[i] < 0 && count[d] > 0) {
+                newOffset[d] = offset[d] + (count[d] - 1) * this.step[d];
+            }
+            final long distance = Math.abs((long) step[i]);
+            newCount[d] = (count[d] + distance - 1) / distance;
+            newStep[d] = Math.multiplyExact(this.step[d], step[i]);
+        }
+        return new ZarrArrayView(array, newOffset, newCount, newStep, axes);
+    }
+
+    /**
+     * @param axes the dimension of this view for each dimension of the new view, e.g. {@code transpose(1, 0)}
+     *             swaps rows and columns
+     * @return a view with permuted dimensions
+     */
+    public ZarrArrayView transpose(int... axes) {
+        checkRank(axes.length);
+        final int[] newAxes = new int[axes.length];
+        final boolean[] used = new boolean[axes.length];
+        for (int i = 0; i < axes.length; i++) {
+            if (axes[i] < 0 || axes[i] >= axes.length || used[axes[i]]) {
+                throw new IllegalArgumentException("Not a permutation of the dimensions: " + Arrays.toString(axes));
+            }
+            used[axes[i]] = true;
+            newAxes[i] = this.axes[axes[i]];
+        }
+        return new ZarrArrayView(array, offset, count, step, newAxes);
+    }
+
+    /**
+     * Reads the data of the view. Only the chunks holding elements of the view are fetched.
+     *
+     * @return the elements in row major order of the view shape
+     */
+    public Object read() throws IOException, InvalidRangeException {
+        final int[] baseShape = ZarrUtils.toIntShape(count);
+        final Object data;
+        if (isContiguous()) {
+            data = array.read(baseShape, offset);
+        } else {
+            data = array.read(baseShape, offset, step);
+        }
+        if (isIdentity(axes)) {
+            return data;
+        }
+        return permute(data, baseShape);
+    }
+
+    /**
+     * Reads a region of the view, same as {@code slice(offset, shape).read()}.
+     */
+    public Object read(int[] shape, long[] offset) throws IOException, InvalidRangeException {
+        return slice(offset, ZarrUtils.toLongShape(shape)).read();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+               "shape=" + Arrays.toString(getLongShape()) +
+               ", offset=" + Arrays.toString(offset) +
+               ", step=" + Arrays.toString(step) +
+               ", axes=" + Arrays.toString(axes) +
+               ", array=" + array +
+               '}';
+    }
+
+    /**
+     * Reorders data held in the order of the array dimensions into the order of the view dimensions.
+     */
+    private Object permute(Object data, int[] baseShape) {
+        final int rank = axes.length;
+        final int[] baseStrides = new int[rank];
+        int stride = 1;
+        for (int d = rank - 1; d >= 0; d--) {
+            baseStrides[d] = stride;
+            stride *= baseShape[d];
+        }
+        final int[] viewShape = new int[rank];
+        final int[] sourceStrides = new int[rank];
+        for (int i = 0; i < rank; i++) {
+            viewShape[i] = baseShape[axes[i]];
+            sourceStrides[i] = baseStrides[axes[i]];
+        }
+        final Object target = ZarrUtils.createDataBuffer(array.getDataType(), viewShape);
+        final int length = java.lang.reflect.Array.getLength(target);
+        if (length == 0) {
+            return target;
+        }
+        final int last = rank - 1;
+        final int rowLength = viewShape[last];
+        final int[] position = new int[rank];
+        int source = 0;
+        for (int targetPos = 0; targetPos < length; targetPos += rowLength) {
+            StridedSelection.copyRow(data, source, sourceStrides[last], target, targetPos, rowLength);
+            int d = last - 1;
+            while (d >= 0 && ++position[d] == viewShape[d]) {
+                source -= (viewShape[d] - 1) * sourceStrides[d];
+                position[d] = 0;
+                d--;
+            }
+            if (d >= 0) {
+                source += sourceStrides[d];
+            }
+        }
+        return target;
+    }
+
+    private boolean isContiguous() {
+        for (int s : step) {
+            if (s != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdentity(int[] axes) {
+        for (int i = 0; i < axes.length; i++) {
+            if (axes[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkRank(int rank) {
+        if (rank != axes.length) {
+            throw new IllegalArgumentException(axes.length + " dimensions expected but got " + rank + ".");
+        }
+    }
+}
@@ -31,7 +31,14 @@ public final class ZarrConstants {
     public static final String FILENAME_DOT_ZARRAY = ".zarray";
     public static final String FILENAME_DOT_ZATTRS = ".zattrs";
     public static final String FILENAME_DOT_ZGROUP = ".zgroup";
+    public static final String FILENAME_ZARR_JSON = "zarr.json";
+    public static final String FILENAME_DOT_ZSTATS = ".zstats";
 
     // Zarr format key
     public static final String ZARR_FORMAT = "zarr_format";
+
+    // Zarr v3 node types
+    public static final String NODE_TYPE = "node_type";
+    public static final String NODE_TYPE_ARRAY = "array";
+    public static final String NODE_TYPE_GROUP = "group";
 }
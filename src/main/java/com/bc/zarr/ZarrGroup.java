@@ -29,11 +29,13 @@ package com.bc.zarr;
 import com.bc.zarr.storage.FileSystemStore;
 import com.bc.zarr.storage.InMemoryStore;
 import com.bc.zarr.storage.Store;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.*;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -74,7 +76,23 @@ public class ZarrGroup {
     }
 
     public static ZarrGroup create(Store store, final Map<String, Object> attributes) throws IOException {
-        ZarrGroup zarrGroup = new ZarrGroup(store);
+        return create(store, attributes, 2);
+    }
+
+    /**
+     * Creates a group in the given zarr format. Sub groups and arrays created from the group inherit
+     * the zarr format unless the {@link ArrayParams} define another one.
+     *
+     * @param store      the store
+     * @param attributes the attributes or {@code null}
+     * @param zarrFormat {@code 2} or {@code 3}
+     * @throws IOException
+     */
+    public static ZarrGroup create(Store store, final Map<String, Object> attributes, int zarrFormat) throws IOException {
+        if (zarrFormat != 2 && zarrFormat != 3) {
+            throw new IllegalArgumentException("Zarr format 2 or 3 expected but was " + zarrFormat + ".");
+        }
+        ZarrGroup zarrGroup = new ZarrGroup(store, new ZarrPath(""), zarrFormat);
         zarrGroup.createHeader();
         zarrGroup.writeAttributes(attributes);
         return zarrGroup;
@@ -99,16 +117,35 @@ public class ZarrGroup {
         if (store == null) {
             return create();
         }
-        validateGroupToBeOpened(store, new ZarrPath(""));
-        return new ZarrGroup(store);
+        final ZarrPath relativePath = new ZarrPath("");
+        return new ZarrGroup(store, relativePath, validateGroupToBeOpened(store, relativePath));
     }
 
-    private static void validateGroupToBeOpened(Store store, ZarrPath relativePath) throws IOException {
+    /**
+     * @return the zarr format of the group
+     */
+    private static int validateGroupToBeOpened(Store store, ZarrPath relativePath) throws IOException {
         try (InputStream is = store.getInputStream(relativePath.resolve(FILENAME_DOT_ZGROUP).storeKey)) {
             if (is == null) {
+                final ObjectNode zarrJson = ZarrUtils.readZarrJson(relativePath, store);
+                if (zarrJson != null) {
+                    ensureIsZarrV3Group(zarrJson);
+                    return 3;
+                }
                 throw new IOException("'" + FILENAME_DOT_ZGROUP + "' expected but is not readable or missing in store.");
             }
             ensureZarrFormatIs2(is);
+            return 2;
+        }
+    }
+
+    private static void ensureIsZarrV3Group(ObjectNode zarrJson) throws IOException {
+        if (zarrJson.path(ZARR_FORMAT).asInt() != 3) {
+            throw new IOException("Zarr format 3 expected but is '" + zarrJson.path(ZARR_FORMAT).asText() + "'");
+        }
+        final String nodeType = zarrJson.path(NODE_TYPE).asText();
+        if (!NODE_TYPE_GROUP.equals(nodeType)) {
+            throw new IOException("Node type '" + NODE_TYPE_GROUP + "' expected but is '" + nodeType + "'");
         }
     }
 
@@ -130,7 +167,7 @@ public class ZarrGroup {
 
     public ZarrGroup createSubGroup(String subGroupName, Map<String, Object> attributes) throws IOException {
         final ZarrPath relativePath = this.relativePath.resolve(subGroupName);
-        final ZarrGroup group = new ZarrGroup(store, relativePath);
+        final ZarrGroup group = new ZarrGroup(store, relativePath, zarrFormat);
         group.createHeader();
         group.writeAttributes(attributes);
         return group;
@@ -138,8 +175,7 @@ public class ZarrGroup {
 
     public ZarrGroup openSubGroup(String subGroupName) throws IOException {
         final ZarrPath relativePath = this.relativePath.resolve(subGroupName);
-        validateGroupToBeOpened(store, relativePath);
-        return new ZarrGroup(store, relativePath);
+        return new ZarrGroup(store, relativePath, validateGroupToBeOpened(store, relativePath));
     }
 
     private final static class ZarrFormat {
@@ -148,15 +184,19 @@ public class ZarrGroup {
 
     private final Store store;
     private final ZarrPath relativePath;
+    private final int zarrFormat;
 
-    private ZarrGroup(Store store) {
-        this.relativePath = new ZarrPath("");
+    private ZarrGroup(Store store, ZarrPath relativePath, int zarrFormat) {
+        this.relativePath = relativePath;
         this.store = store;
+        this.zarrFormat = zarrFormat;
     }
 
-    private ZarrGroup(Store store, ZarrPath relativePath) {
-        this.relativePath = relativePath;
-        this.store = store;
+    /**
+     * @return {@code 2} or {@code 3}
+     */
+    public int getZarrFormat() {
+        return zarrFormat;
     }
 
     public ZarrArray createArray(String name, ArrayParams params) throws IOException {
@@ -165,7 +205,7 @@ public class ZarrGroup {
 
     public ZarrArray createArray(String name, ArrayParams params, final Map<String, Object> attributes) throws IOException {
         final ZarrPath relativePath = this.relativePath.resolve(name);
-        return ZarrArray.create(relativePath, store, params, attributes);
+        return ZarrArray.create(relativePath, store, params, attributes, zarrFormat);
     }
 
     public ZarrArray openArray(String name) throws IOException {
@@ -184,10 +224,17 @@ public class ZarrGroup {
     }
 
     public void writeAttributes(Map<String, Object> attributes) throws IOException {
-        ZarrUtils.writeAttributes(attributes, relativePath, store);
+        if (zarrFormat == 3) {
+            ZarrUtils.writeAttributesV3(attributes, relativePath, store);
+        } else {
+            ZarrUtils.writeAttributes(attributes, relativePath, store);
+        }
     }
 
     public Map<String, Object> getAttributes() throws IOException {
+        if (zarrFormat == 3) {
+            return ZarrUtils.readAttributesV3(relativePath, store);
+        }
         return ZarrUtils.readAttributes(relativePath, store);
     }
 
@@ -198,6 +245,14 @@ public class ZarrGroup {
 
 
     private void createHeader() throws IOException {
+        if (zarrFormat == 3) {
+            final Map<String, Object> zarrJson = new LinkedHashMap<>();
+            zarrJson.put(ZARR_FORMAT, 3);
+            zarrJson.put(NODE_TYPE, NODE_TYPE_GROUP);
+            zarrJson.put("attributes", Collections.emptyMap());
+            ZarrUtils.writeZarrJson(zarrJson, relativePath, store);
+            return;
+        }
         final Map<String, Integer> singletonMap = Collections.singletonMap(ZARR_FORMAT, 2);
         final ZarrPath headerPath = relativePath.resolve(FILENAME_DOT_ZGROUP);
         try (
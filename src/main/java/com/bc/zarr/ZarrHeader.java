@@ -37,7 +37,10 @@ import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.StreamSupport;
 
@@ -45,15 +48,43 @@ public class ZarrHeader {
 
     private final int[] chunks;
     private final Compressor compressor;
+    private final String dimension_separator;
     private final String dtype;
     private final Number fill_value;
-    private final String filters = null;
+    private final List<Filter> filters;
     private final String order = "C";
-    private final int[] shape;
+    private final long[] shape;
     private final int zarr_format = 2;
 
     public ZarrHeader(int[] shape, int[] chunks, String dtype, ByteOrder byteOrder, Number fill_value, Compressor compressor) {
+        this(shape, chunks, dtype, byteOrder, fill_value, compressor, null);
+    }
+
+    /**
+     * @param dimensionSeparator the separator of the chunk indices in chunk keys, {@code "."} (flat) or
+     *                           {@code "/"} (nested). If {@code null}, the property is not written and
+     *                           readers fall back to the default {@code "."}.
+     */
+    public ZarrHeader(int[] shape, int[] chunks, String dtype, ByteOrder byteOrder, Number fill_value, Compressor compressor, String dimensionSeparator) {
+        this(shape, chunks, dtype, byteOrder, fill_value, compressor, dimensionSeparator, null);
+    }
+
+    /**
+     * @param filters the filters applied to the chunks before compression or {@code null} if there are none
+     */
+    public ZarrHeader(int[] shape, int[] chunks, String dtype, ByteOrder byteOrder, Number fill_value, Compressor compressor, String dimensionSeparator,
+                      List<Filter> filters) {
+        this(ZarrUtils.toLongShape(shape), chunks, dtype, byteOrder, fill_value, compressor, dimensionSeparator, filters);
+    }
+
+    /**
+     * @param shape the array shape, its dimensions may exceed the int range
+     */
+    public ZarrHeader(long[] shape, int[] chunks, String dtype, ByteOrder byteOrder, Number fill_value, Compressor compressor, String dimensionSeparator,
+                      List<Filter> filters) {
         this.chunks = chunks;
+        this.filters = filters == null || filters.isEmpty() ? null : Collections.unmodifiableList(new ArrayList<>(filters));
+        this.dimension_separator = dimensionSeparator;
         if (compressor == null || CompressorFactory.nullCompressor.equals(compressor)) {
             this.compressor = null;
         } else {
@@ -73,6 +104,20 @@ public class ZarrHeader {
         return compressor;
     }
 
+    /**
+     * @return {@code "."}, {@code "/"} or {@code null} if not defined
+     */
+    public String getDimensionSeparator() {
+        return dimension_separator;
+    }
+
+    /**
+     * @return the filters or {@code null} if there are none
+     */
+    public List<Filter> getFilters() {
+        return filters;
+    }
+
     public String getDtype() {
         return dtype;
     }
@@ -81,7 +126,7 @@ public class ZarrHeader {
         return getRawDataType(dtype);
     }
 
-    private static DataType getRawDataType(String dtype) {
+    static DataType getRawDataType(String dtype) {
         dtype = dtype.replace(">", "");
         dtype = dtype.replace("<", "");
         dtype = dtype.replace("|", "");
@@ -92,7 +137,7 @@ public class ZarrHeader {
         return getByteOrder(this.dtype);
     }
 
-    private static ByteOrder getByteOrder(String dtype) {
+    static ByteOrder getByteOrder(String dtype) {
         if (dtype.startsWith(">")) {
             return ByteOrder.BIG_ENDIAN;
         } else if (dtype.startsWith("<")) {
@@ -117,7 +162,14 @@ public class ZarrHeader {
         return fill_value;
     }
 
+    /**
+     * @throws IllegalStateException if a dimension exceeds the int range
+     */
     public int[] getShape() {
+        return ZarrUtils.toIntShape(shape);
+    }
+
+    public long[] getLongShape() {
         return shape;
     }
 
@@ -133,11 +185,14 @@ public class ZarrHeader {
             gen.writeObjectField("chunks", value.getChunks());
             gen.writeFieldName("compressor");
             gen.writeObject(value.getCompressor());
+            if (value.getDimensionSeparator() != null) {
+                gen.writeStringField("dimension_separator", value.getDimensionSeparator());
+            }
             gen.writeStringField("dtype", value.getDtype());
             gen.writeObjectField("fill_value", value.getFill_value());
-            gen.writeObjectField("filters", value.filters);
+            gen.writeObjectField("filters", value.getFilters());
             gen.writeObjectField("order", value.order);
-            gen.writeObjectField("shape", value.getShape());
+            gen.writeObjectField("shape", value.getLongShape());
             gen.writeNumberField("zarr_format", value.zarr_format);
             gen.writeEndObject();
         }
@@ -153,8 +208,12 @@ public class ZarrHeader {
         public ZarrHeader deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
             ObjectCodec codec = p.getCodec();
             TreeNode root = codec.readTree(p);
-            int[] shape = StreamSupport.stream(((ArrayNode) root.path("shape")).spliterator(), false).mapToInt(JsonNode::asInt).toArray();
+            long[] shape = StreamSupport.stream(((ArrayNode) root.path("shape")).spliterator(), false).mapToLong(JsonNode::asLong).toArray();
             int[] chunks = StreamSupport.stream(((ArrayNode) root.path("chunks")).spliterator(), false).mapToInt(JsonNode::asInt).toArray();
+            String dimensionSeparator = null;
+            if (((JsonNode) root.path("dimension_separator")).isTextual()) {
+                dimensionSeparator = ((JsonNode) root.path("dimension_separator")).asText();
+            }
             String dtype = ((JsonNode) root.path("dtype")).asText();
             JsonNode fillValueNode = (JsonNode) root.path("fill_value");
             final Number fill;
@@ -173,7 +232,16 @@ public class ZarrHeader {
             } else {
                 compressor = CompressorFactory.create(compBean);
             }
-            return new ZarrHeader(shape, chunks, getRawDataType(dtype).toString(), getByteOrder(dtype), fill, compressor);
+            List<Filter> filters = null;
+            if (root.path("filters") instanceof ArrayNode) {
+                filters = new ArrayList<>();
+                for (JsonNode filterNode : (ArrayNode) root.path("filters")) {
+                    Map<String, Object> filterBean = codec.readValue(filterNode.traverse(codec), HashMap.class);
+                    filters.add(FilterFactory.create(filterBean));
+                }
+            }
+            return new ZarrHeader(shape, chunks, getRawDataType(dtype).toString(), getByteOrder(dtype), fill, compressor, dimensionSeparator,
+                                  filters);
         }
 
     }
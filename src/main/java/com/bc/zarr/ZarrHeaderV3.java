@@ -0,0 +1,425 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.stream.StreamSupport;
+
+import static com.bc.zarr.ZarrConstants.*;
+
+/**
+ * The array metadata of the Zarr v3 format, stored as {@code zarr.json} document. In contrast to Zarr v2 the
+ * attributes are part of the same document.<br/>
+ * <br/>
+ * Supported codec pipelines are {@code bytes} optionally followed by a single compressor
+ * (e.g. {@code blosc} or {@code numcodecs.zlib}), or a single {@code sharding_indexed} codec whose inner
+ * codecs follow the same rule.
+ */
+public class ZarrHeaderV3 {
+
+    private static final String CODEC_BYTES = "bytes";
+    private static final String CODEC_SHARDING = "sharding_indexed";
+    private static final String CODEC_CRC32C = "crc32c";
+    private static final String NUMCODECS_PREFIX = "numcodecs.";
+    private static final List<String> CORE_COMPRESSOR_CODECS = Arrays.asList("blosc", "gzip", "zstd");
+    private static final String[] BLOSC_SHUFFLE_NAMES = {"noshuffle", "shuffle", "bitshuffle"};
+
+    private final long[] shape;
+    private final int[] chunks;
+    private final int[] shards;
+    private final DataType dataType;
+    private final ByteOrder byteOrder;
+    private final Number fillValue;
+    private final Compressor compressor;
+    private final ChunkKeyEncoding chunkKeyEncoding;
+    private final Map<String, Object> attributes;
+    private final List<String> dimensionNames;
+
+    /**
+     * @param shape            the array shape
+     * @param chunks           the chunk shape (the inner chunk shape if the array is sharded)
+     * @param shards           the shard shape or {@code null} if the array is not sharded
+     * @param dataType         the data type
+     * @param byteOrder        the byte order of the chunk data
+     * @param fillValue        the fill value
+     * @param compressor       the compressor or {@code null}
+     * @param chunkKeyEncoding the chunk key encoding
+     * @param attributes       the user attributes or {@code null}
+     * @param dimensionNames   the dimension names or {@code null}
+     */
+    public ZarrHeaderV3(int[] shape, int[] chunks, int[] shards, DataType dataType, ByteOrder byteOrder, Number fillValue,
+                        Compressor compressor, ChunkKeyEncoding chunkKeyEncoding, Map<String, Object> attributes,
+                        List<String> dimensionNames) {
+        this(ZarrUtils.toLongShape(shape), chunks, shards, dataType, byteOrder, fillValue, compressor, chunkKeyEncoding, attributes,
+             dimensionNames);
+    }
+
+    /**
+     * @param shape the array shape, its dimensions may exceed the int range
+     */
+    public ZarrHeaderV3(long[] shape, int[] chunks, int[] shards, DataType dataType, ByteOrder byteOrder, Number fillValue,
+                        Compressor compressor, ChunkKeyEncoding chunkKeyEncoding, Map<String, Object> attributes,
+                        List<String> dimensionNames) {
+        this.shape = shape;
+        this.chunks = chunks;
+        this.shards = shards;
+        this.dataType = dataType;
+        this.byteOrder = byteOrder == null ? ByteOrder.nativeOrder() : byteOrder;
+        this.fillValue = fillValue;
+        if (compressor == null || CompressorFactory.nullCompressor.equals(compressor)) {
+            this.compressor = null;
+        } else {
+            this.compressor = compressor;
+        }
+        this.chunkKeyEncoding = chunkKeyEncoding;
+        this.attributes = attributes == null ? new LinkedHashMap<>() : attributes;
+        this.dimensionNames = dimensionNames;
+    }
+
+    /**
+     * @throws IllegalStateException if a dimension exceeds the int range
+     */
+    public int[] getShape() {
+        return ZarrUtils.toIntShape(shape);
+    }
+
+    public long[] getLongShape() {
+        return shape;
+    }
+
+    public int[] getChunks() {
+        return chunks;
+    }
+
+    public int[] getShards() {
+        return shards;
+    }
+
+    public DataType getDataType() {
+        return dataType;
+    }
+
+    public ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    public Number getFillValue() {
+        return fillValue;
+    }
+
+    public Compressor getCompressor() {
+        return compressor;
+    }
+
+    public ChunkKeyEncoding getChunkKeyEncoding() {
+        return chunkKeyEncoding;
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    public List<String> getDimensionNames() {
+        return dimensionNames;
+    }
+
+    public ZarrHeaderV3 withAttributes(Map<String, Object> attributes) {
+        return new ZarrHeaderV3(shape, chunks, shards, dataType, byteOrder, fillValue, compressor, chunkKeyEncoding,
+                                attributes, dimensionNames);
+    }
+
+    private List<Object> createChunkCodecs() {
+        final List<Object> codecs = new ArrayList<>();
+        final Map<String, Object> bytesConfiguration = new LinkedHashMap<>();
+        if (dataType.getByteCount() > 1) {
+            bytesConfiguration.put("endian", ByteOrder.BIG_ENDIAN.equals(byteOrder) ? "big" : "little");
+        }
+        codecs.add(codec(CODEC_BYTES, bytesConfiguration));
+        if (compressor != null) {
+            codecs.add(toCodec(compressor, dataType));
+        }
+        return codecs;
+    }
+
+    private List<Object> createCodecs() {
+        if (shards == null) {
+            return createChunkCodecs();
+        }
+        final Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("chunk_shape", chunks);
+        configuration.put("codecs", createChunkCodecs());
+        configuration.put("index_codecs", Arrays.asList(
+                codec(CODEC_BYTES, Collections.singletonMap("endian", "little")),
+                codec(CODEC_CRC32C, null)));
+        configuration.put("index_location", "end");
+        return Collections.singletonList(codec(CODEC_SHARDING, configuration));
+    }
+
+    private static Map<String, Object> codec(String name, Map<String, Object> configuration) {
+        final Map<String, Object> codec = new LinkedHashMap<>();
+        codec.put("name", name);
+        if (configuration != null) {
+            codec.put("configuration", configuration);
+        }
+        return codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toCodec(Compressor compressor, DataType dataType) {
+        final Map<String, Object> configuration = new LinkedHashMap<>(ZarrUtils.getObjectMapper().convertValue(compressor, Map.class));
+        final String id = (String) configuration.remove("id");
+        if ("blosc".equals(id)) {
+            final int shuffle = ((Number) configuration.get("shuffle")).intValue();
+            configuration.put("shuffle", BLOSC_SHUFFLE_NAMES[shuffle]);
+            configuration.put("typesize", dataType.getByteCount());
+        }
+        if (CORE_COMPRESSOR_CODECS.contains(id)) {
+            return codec(id, configuration);
+        }
+        return codec(NUMCODECS_PREFIX + id, configuration);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Compressor toCompressor(String name, JsonNode configuration) {
+        final Map<String, Object> properties = new HashMap<>();
+        if (configuration != null && configuration.isObject()) {
+            properties.putAll(ZarrUtils.getObjectMapper().convertValue(configuration, Map.class));
+        }
+        final String id = name.startsWith(NUMCODECS_PREFIX) ? name.substring(NUMCODECS_PREFIX.length()) : name;
+        if ("blosc".equals(id)) {
+            properties.remove("typesize");
+            final Object shuffle = properties.get("shuffle");
+            if (shuffle instanceof String) {
+                final int index = Arrays.asList(BLOSC_SHUFFLE_NAMES).indexOf(shuffle);
+                if (index < 0) {
+                    throw new IllegalArgumentException("blosc: shuffle type not supported: '" + shuffle + "'");
+                }
+                properties.put("shuffle", index);
+            }
+        }
+        return CompressorFactory.create(id, properties);
+    }
+
+    private static Object fillValueToJson(Number fillValue) {
+        if (fillValue instanceof Double || fillValue instanceof Float) {
+            final double value = fillValue.doubleValue();
+            if (Double.isNaN(value)) {
+                return "NaN";
+            }
+            if (Double.isInfinite(value)) {
+                return value > 0 ? "Infinity" : "-Infinity";
+            }
+        }
+        return fillValue;
+    }
+
+    private static Number fillValueFromJson(JsonNode node, DataType dataType) throws IOException {
+        if (node.isIntegralNumber()) {
+            return node.longValue();
+        }
+        if (node.isNumber()) {
+            return node.doubleValue();
+        }
+        final String text = node.asText();
+        if ("NaN".equals(text)) {
+            return Double.NaN;
+        }
+        if ("Infinity".equals(text)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if ("-Infinity".equals(text)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (text.startsWith("0x")) {
+            final long bits = Long.parseUnsignedLong(text.substring(2), 16);
+            if (dataType == DataType.f4) {
+                return (double) Float.intBitsToFloat((int) bits);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+        if (node.isNull()) {
+            return null;
+        }
+        throw new IOException("Unsupported fill value '" + text + "'");
+    }
+
+    private static int[] toIntArray(JsonNode node) {
+        return StreamSupport.stream(node.spliterator(), false).mapToInt(JsonNode::asInt).toArray();
+    }
+
+    /**
+     * The result of parsing a codec pipeline.
+     */
+    private static final class Codecs {
+        private ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+        private Compressor compressor;
+        private int[] innerChunks;
+    }
+
+    private static Codecs parseCodecs(JsonNode codecsNode, boolean allowSharding) throws IOException {
+        final Codecs codecs = new Codecs();
+        boolean bytesFound = false;
+        for (JsonNode codecNode : codecsNode) {
+            final String name = codecNode.path("name").asText();
+            final JsonNode configuration = codecNode.path("configuration");
+            if (CODEC_BYTES.equals(name)) {
+                final String endian = configuration.path("endian").asText("little");
+                codecs.byteOrder = "big".equals(endian) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+                bytesFound = true;
+            } else if (CODEC_SHARDING.equals(name) && allowSharding && codecsNode.size() == 1) {
+                final Codecs inner = parseCodecs(configuration.path("codecs"), false);
+                validateIndexCodecs(configuration);
+                inner.innerChunks = toIntArray(configuration.path("chunk_shape"));
+                return inner;
+            } else if (!bytesFound) {
+                throw new IOException("Codec '" + name + "' not supported at this position of the codec pipeline.");
+            } else if (codecs.compressor != null) {
+                throw new IOException("Only a single compressor is supported but found '" + name + "' in addition.");
+            } else {
+                codecs.compressor = toCompressor(name, configuration);
+            }
+        }
+        if (!bytesFound) {
+            throw new IOException("Codec pipeline without 'bytes' codec not supported.");
+        }
+        return codecs;
+    }
+
+    private static void validateIndexCodecs(JsonNode configuration) throws IOException {
+        final String location = configuration.path("index_location").asText("end");
+        if (!"end".equals(location)) {
+            throw new IOException("Shard index location '" + location + "' not supported.");
+        }
+        final JsonNode indexCodecs = configuration.path("index_codecs");
+        final boolean valid = indexCodecs.size() == 2
+                              && CODEC_BYTES.equals(indexCodecs.get(0).path("name").asText())
+                              && "little".equals(indexCodecs.get(0).path("configuration").path("endian").asText("little"))
+                              && CODEC_CRC32C.equals(indexCodecs.get(1).path("name").asText());
+        if (!valid) {
+            throw new IOException("Only shard index codecs [bytes (little endian), crc32c] are supported.");
+        }
+    }
+
+    static class ZarrHeaderV3Serializer extends StdSerializer<ZarrHeaderV3> {
+
+        protected ZarrHeaderV3Serializer() {
+            super(ZarrHeaderV3.class);
+        }
+
+        @Override
+        public void serialize(ZarrHeaderV3 value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeNumberField(ZARR_FORMAT, 3);
+            gen.writeStringField(NODE_TYPE, NODE_TYPE_ARRAY);
+            gen.writeObjectField("shape", value.getLongShape());
+            gen.writeStringField("data_type", value.getDataType().getZarrV3Name());
+            final int[] gridShape = value.getShards() == null ? value.getChunks() : value.getShards();
+            gen.writeObjectField("chunk_grid", codec("regular", Collections.singletonMap("chunk_shape", gridShape)));
+            final ChunkKeyEncoding encoding = value.getChunkKeyEncoding();
+            gen.writeObjectField("chunk_key_encoding", codec(encoding.getName(), Collections.singletonMap("separator", encoding.getSeparator())));
+            gen.writeObjectField("fill_value", fillValueToJson(value.getFillValue()));
+            gen.writeObjectField("codecs", value.createCodecs());
+            gen.writeObjectField("attributes", value.getAttributes());
+            if (value.getDimensionNames() != null) {
+                gen.writeObjectField("dimension_names", value.getDimensionNames());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    static class ZarrHeaderV3DeSerializer extends StdDeserializer<ZarrHeaderV3> {
+
+        protected ZarrHeaderV3DeSerializer() {
+            super(ZarrHeaderV3.class);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ZarrHeaderV3 deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            final ObjectCodec codec = p.getCodec();
+            final JsonNode root = codec.readTree(p);
+            final int zarrFormat = root.path(ZARR_FORMAT).asInt();
+            if (zarrFormat != 3) {
+                throw new IOException("Zarr format 3 expected but is '" + root.path(ZARR_FORMAT).asText() + "'");
+            }
+            final String nodeType = root.path(NODE_TYPE).asText();
+            if (!NODE_TYPE_ARRAY.equals(nodeType)) {
+                throw new IOException("Node type '" + NODE_TYPE_ARRAY + "' expected but is '" + nodeType + "'");
+            }
+            final String gridName = root.path("chunk_grid").path("name").asText();
+            if (!"regular".equals(gridName)) {
+                throw new IOException("Chunk grid '" + gridName + "' not supported.");
+            }
+            final long[] shape = StreamSupport.stream(root.path("shape").spliterator(), false).mapToLong(JsonNode::asLong).toArray();
+            final int[] gridShape = toIntArray(root.path("chunk_grid").path("configuration").path("chunk_shape"));
+            final DataType dataType = DataType.fromZarrV3Name(root.path("data_type").asText());
+            final JsonNode encodingNode = root.path("chunk_key_encoding");
+            final JsonNode separatorNode = encodingNode.path("configuration").path("separator");
+            final ChunkKeyEncoding encoding = ChunkKeyEncoding.create(
+                    encodingNode.path("name").asText(ChunkKeyEncoding.NAME_DEFAULT),
+                    separatorNode.isTextual() ? separatorNode.asText() : null);
+            final Number fillValue = fillValueFromJson(root.path("fill_value"), dataType);
+            final Codecs codecs = parseCodecs(root.path("codecs"), true);
+            final int[] chunks = codecs.innerChunks == null ? gridShape : codecs.innerChunks;
+            final int[] shards = codecs.innerChunks == null ? null : gridShape;
+            Map<String, Object> attributes = null;
+            if (root.path("attributes").isObject()) {
+                attributes = codec.treeToValue(root.path("attributes"), LinkedHashMap.class);
+            }
+            List<String> dimensionNames = null;
+            if (root.path("dimension_names").isArray()) {
+                dimensionNames = new ArrayList<>();
+                for (JsonNode nameNode : root.path("dimension_names")) {
+                    dimensionNames.add(nameNode.isNull() ? null : nameNode.asText());
+                }
+            }
+            return new ZarrHeaderV3(shape, chunks, shards, dataType, codecs.byteOrder, fillValue, codecs.compressor,
+                                    encoding, attributes, dimensionNames);
+        }
+    }
+
+    static void register(ObjectMapper objectMapper) {
+        SimpleModule simpleModule = new SimpleModule();
+        simpleModule.addSerializer(ZarrHeaderV3.class, new ZarrHeaderV3Serializer());
+        simpleModule.addDeserializer(ZarrHeaderV3.class, new ZarrHeaderV3DeSerializer());
+
+        objectMapper.registerModules(simpleModule);
+    }
+}
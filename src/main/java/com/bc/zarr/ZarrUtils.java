@@ -29,8 +29,10 @@ import com.bc.zarr.storage.Store;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.PrettyPrinter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import ucar.ma2.Array;
 import ucar.ma2.MAMath;
 
@@ -40,7 +42,7 @@ import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static com.bc.zarr.ZarrConstants.FILENAME_DOT_ZATTRS;
+import static com.bc.zarr.ZarrConstants.*;
 
 public final class ZarrUtils {
 
@@ -67,16 +69,32 @@ public final class ZarrUtils {
     }
 
     public static int[][] computeChunkIndices(int[] shape, int[] chunks, int[] bufferShape, int[] to) {
+        return computeChunkIndices(toLongShape(shape), chunks, bufferShape, toLongShape(to));
+    }
+
+    /**
+     * @param shape       the array shape
+     * @param chunks      the chunk shape
+     * @param bufferShape the shape of the region
+     * @param to          the position of the region in the array
+     * @return the indices of the chunks intersecting the region in row major order
+     * @throws IllegalArgumentException if a chunk index exceeds the int range
+     */
+    public static int[][] computeChunkIndices(long[] shape, int[] chunks, int[] bufferShape, long[] to) {
         final int depth = shape.length;
         int[] start = new int[depth];
         int[] end = new int[depth];
         int numChunks = 1;
         for (int i = 0; i < depth; i++) {
-            final int staIdx = to[i] / chunks[i];
-            final int endIdx = (to[i] + bufferShape[i] - 1) / chunks[i];
-            numChunks *= (endIdx - staIdx + 1);
-            start[i] = staIdx;
-            end[i] = endIdx;
+            final long staIdx = to[i] / chunks[i];
+            final long endIdx = (to[i] + bufferShape[i] - 1) / chunks[i];
+            if (endIdx > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Chunk index " + endIdx + " of dimension " + i + " exceeds the int range.");
+            }
+            // the region is held in a java array, so the count of chunks intersecting it is an int
+            numChunks = Math.multiplyExact(numChunks, (int) (endIdx - staIdx + 1));
+            start[i] = (int) staIdx;
+            end[i] = (int) endIdx;
         }
 
         final int[][] chunkIndices = new int[numChunks][];
@@ -108,27 +126,73 @@ public final class ZarrUtils {
         return sb.toString();
     }
 
+    /**
+     * @param separator the dimension separator, {@code "."} or {@code "/"}
+     */
+    public static String createChunkFilename(int[] currentIdx, String separator) {
+        return ChunkKeyEncoding.v2(separator).encode(currentIdx);
+    }
+
     public static <T> T fromJson(Reader reader, final Class<T> classOfType) throws IOException {
         ObjectMapper objectMapper = getObjectMapper();
         return objectMapper.readValue(reader, classOfType);
     }
 
+    /**
+     * @throws ArithmeticException if the size exceeds the long range
+     */
     public static long computeSize(int[] ints) {
         long count = 1;
         for (int i : ints) {
-            count *= i;
+            count = Math.multiplyExact(count, i);
+        }
+        return count;
+    }
+
+    /**
+     * @throws ArithmeticException if the size exceeds the long range
+     */
+    public static long computeSize(long[] longs) {
+        long count = 1;
+        for (long l : longs) {
+            count = Math.multiplyExact(count, l);
         }
         return count;
     }
 
+    /**
+     * @throws ArithmeticException if the size exceeds the int range, e.g. the maximum size of a java array
+     */
     public static int computeSizeInteger(int[] ints) {
         int count = 1;
         for (int i : ints) {
-            count *= i;
+            count = Math.multiplyExact(count, i);
         }
         return count;
     }
 
+    public static long[] toLongShape(int[] shape) {
+        final long[] longShape = new long[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            longShape[i] = shape[i];
+        }
+        return longShape;
+    }
+
+    /**
+     * @throws IllegalStateException if a dimension exceeds the int range
+     */
+    public static int[] toIntShape(long[] shape) {
+        final int[] intShape = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            if (shape[i] > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The shape " + Arrays.toString(shape) + " exceeds the int range, use the long based methods.");
+            }
+            intShape[i] = (int) shape[i];
+        }
+        return intShape;
+    }
+
     static ObjectWriter getObjectWriter(boolean prettyPrinting) {
         if (prettyPrinting) {
             PrettyPrinter prettyPrinter = new DefaultPrettyPrinter().withArrayIndenter(DefaultPrettyPrinter.FixedSpaceIndenter.instance);
@@ -141,6 +205,7 @@ public final class ZarrUtils {
         if (objectMapper == null) {
             objectMapper = new ObjectMapper();
             ZarrHeader.register(objectMapper);
+            ZarrHeaderV3.register(objectMapper);
         }
         return objectMapper;
     }
@@ -179,6 +244,75 @@ public final class ZarrUtils {
         }
     }
 
+    /**
+     * Writes the attributes into the {@code zarr.json} document of a Zarr v3 node. All other entries of the
+     * document remain unchanged.
+     */
+    static void writeAttributesV3(Map<String, Object> attributes, ZarrPath zarrPath, Store store) throws IOException {
+        if (attributes != null && !attributes.isEmpty()) {
+            final ObjectNode zarrJson = readZarrJson(zarrPath, store);
+            if (zarrJson == null) {
+                throw new IOException("'" + FILENAME_ZARR_JSON + "' expected but is not readable or missing in store.");
+            }
+            zarrJson.set("attributes", getObjectMapper().valueToTree(attributes));
+            writeZarrJson(zarrJson, zarrPath, store);
+        }
+    }
+
+    static Map<String, Object> readAttributesV3(ZarrPath zarrPath, Store store) throws IOException {
+        final ObjectNode zarrJson = readZarrJson(zarrPath, store);
+        if (zarrJson == null || !zarrJson.path("attributes").isObject()) {
+            return new HashMap<>();
+        }
+        return getObjectMapper().treeToValue(zarrJson.get("attributes"), Map.class);
+    }
+
+    /**
+     * @return the {@code zarr.json} document of the given node or {@code null} if the node has no such document
+     */
+    static ObjectNode readZarrJson(ZarrPath zarrPath, Store store) throws IOException {
+        final ZarrPath jsonPath = zarrPath.resolve(FILENAME_ZARR_JSON);
+        try (InputStream inputStream = store.getInputStream(jsonPath.storeKey)) {
+            if (inputStream == null) {
+                return null;
+            }
+            final JsonNode node = getObjectMapper().readTree(new InputStreamReader(inputStream));
+            if (!(node instanceof ObjectNode)) {
+                throw new IOException("'" + jsonPath.storeKey + "' does not contain a json object.");
+            }
+            return (ObjectNode) node;
+        }
+    }
+
+    static void writeZarrJson(Object document, ZarrPath zarrPath, Store store) throws IOException {
+        final ZarrPath jsonPath = zarrPath.resolve(FILENAME_ZARR_JSON);
+        try (
+                final OutputStream os = store.getOutputStream(jsonPath.storeKey);
+                final OutputStreamWriter writer = new OutputStreamWriter(os)
+        ) {
+            toJson(document, writer, true);
+        }
+    }
+
+    /**
+     * Filters the keys of Zarr v3 nodes by their {@code node_type}.
+     *
+     * @param store    the store containing the nodes
+     * @param nodeKeys keys of nodes owning a {@code zarr.json} document
+     * @param nodeType {@link ZarrConstants#NODE_TYPE_ARRAY} or {@link ZarrConstants#NODE_TYPE_GROUP}
+     * @return the keys of the nodes with the given node type
+     */
+    public static TreeSet<String> filterNodeKeys(Store store, Set<String> nodeKeys, String nodeType) throws IOException {
+        final TreeSet<String> filtered = new TreeSet<>();
+        for (String nodeKey : nodeKeys) {
+            final ObjectNode zarrJson = readZarrJson(new ZarrPath(nodeKey), store);
+            if (zarrJson != null && nodeType.equals(zarrJson.path(NODE_TYPE).asText())) {
+                filtered.add(nodeKey);
+            }
+        }
+        return filtered;
+    }
+
     public static void deleteDirectoryTreeRecursively(Path toBeDeleted) throws IOException {
         final List<Path> paths = Files.walk(toBeDeleted).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
         for (Path path : paths) {
@@ -28,24 +28,40 @@ package com.bc.zarr.chunk;
 import com.bc.zarr.Compressor;
 import com.bc.zarr.CompressorFactory;
 import com.bc.zarr.DataType;
+import com.bc.zarr.Filter;
+import com.bc.zarr.jfr.ChunkRecording;
+import com.bc.zarr.jfr.CompressorRecording;
+import com.bc.zarr.jfr.JfrEvents;
+import com.bc.zarr.jfr.StoreRecording;
+import com.bc.zarr.metrics.ChunkInstrumentation;
+import com.bc.zarr.metrics.ChunkOperation;
 import com.bc.zarr.storage.Store;
 import com.bc.zarr.ucar.NetCDF_Util;
 import ucar.ma2.Array;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.List;
 
 import static com.bc.zarr.ZarrUtils.computeSizeInteger;
 
 public abstract class ChunkReaderWriter {
 
     protected final Compressor compressor;
+    private Filter[] filters = new Filter[0];
     final int[] chunkShape;
     protected final Number fill;
     protected final Store store;
     protected final ByteOrder order;
     private final int size;
+    private ChunkInstrumentation instrumentation = ChunkInstrumentation.NOOP;
+    private String arrayPath = "";
 
     ChunkReaderWriter(ByteOrder order, Compressor compressor, int[] chunkShape, Number fill, Store store) {
         if (compressor != null) {
@@ -61,6 +77,24 @@ public abstract class ChunkReaderWriter {
     }
 
     public static ChunkReaderWriter create(Compressor compressor, DataType dataType, ByteOrder order, int[] chunkShape, Number fill, Store store) {
+        return create(compressor, null, dataType, order, chunkShape, fill, store);
+    }
+
+    /**
+     * @param filters the filters applied in list order to the serialized chunks before compression, may be {@code null}
+     */
+    public static ChunkReaderWriter create(Compressor compressor, List<Filter> filters, DataType dataType, ByteOrder order, int[] chunkShape, Number fill, Store store) {
+        final ChunkReaderWriter chunkReaderWriter = createForDataType(compressor, dataType, order, chunkShape, fill, store);
+        if (filters != null) {
+            chunkReaderWriter.filters = new Filter[filters.size()];
+            for (int i = 0; i < filters.size(); i++) {
+                chunkReaderWriter.filters[i] = filters.get(i).forDataType(dataType, order);
+            }
+        }
+        return chunkReaderWriter;
+    }
+
+    private static ChunkReaderWriter createForDataType(Compressor compressor, DataType dataType, ByteOrder order, int[] chunkShape, Number fill, Store store) {
         if (dataType == DataType.f8) {
             return new ChunkReaderWriterImpl_Double(order, compressor, chunkShape, fill, store);
         } else if (dataType == DataType.f4) {
@@ -78,9 +112,180 @@ public abstract class ChunkReaderWriter {
         }
     }
 
-    public abstract Array read(String path) throws IOException;
+    /**
+     * @param instrumentation receives the timings of decompress, decode, encode and compress
+     * @param arrayPath       the array path passed to the instrumentation
+     */
+    public void setInstrumentation(ChunkInstrumentation instrumentation, String arrayPath) {
+        this.instrumentation = instrumentation == null ? ChunkInstrumentation.NOOP : instrumentation;
+        this.arrayPath = arrayPath;
+    }
+
+    public Array read(String storeKey) throws IOException {
+        final StoreRecording storeEvent = JfrEvents.store();
+        final byte[] stored;
+        try (
+                final InputStream is = store.getInputStream(storeKey)
+        ) {
+            stored = is == null ? null : readAll(is);
+        }
+        if (storeEvent.shouldCommit()) {
+            commit(storeEvent, StoreRecording.GET, storeKey, 1, stored == null ? 0 : stored.length);
+        }
+        if (stored != null) {
+            return decodeBytes(storeKey, stored);
+        } else {
+            return createFilled();
+        }
+    }
+
+    public void write(String storeKey, Array array) throws IOException {
+        final StoreRecording storeEvent = JfrEvents.store();
+        try (
+                final OutputStream os = store.getOutputStream(storeKey)
+        ) {
+            final byte[] stored = encodeBytes(storeKey, array);
+            os.write(stored);
+            if (storeEvent.shouldCommit()) {
+                commit(storeEvent, StoreRecording.PUT, storeKey, 1, stored.length);
+            }
+        }
+    }
+
+    /**
+     * Decodes a chunk from its stored (compressed) representation.
+     *
+     * @param stored the stored bytes of the chunk or {@code null} if the chunk does not exist in the store
+     * @return the chunk data or a chunk filled with the fill value if {@code stored} is {@code null}
+     */
+    public Array decode(ByteBuffer stored) throws IOException {
+        return decode(null, stored);
+    }
+
+    /**
+     * @param chunkKey the key of the chunk, only used for diagnostics, may be {@code null}
+     * @see #decode(ByteBuffer)
+     */
+    public Array decode(String chunkKey, ByteBuffer stored) throws IOException {
+        if (stored == null) {
+            return createFilled();
+        }
+        return decodeBytes(chunkKey, toByteArray(stored));
+    }
+
+    /**
+     * Encodes a chunk into its stored (compressed) representation.
+     *
+     * @param array the chunk data
+     * @return the bytes to be stored
+     */
+    public ByteBuffer encode(Array array) throws IOException {
+        return encode(null, array);
+    }
+
+    /**
+     * @param chunkKey the key of the chunk, only used for diagnostics, may be {@code null}
+     * @see #encode(Array)
+     */
+    public ByteBuffer encode(String chunkKey, Array array) throws IOException {
+        return ByteBuffer.wrap(encodeBytes(chunkKey, array));
+    }
+
+    private Array decodeBytes(String chunkKey, byte[] stored) throws IOException {
+        final ChunkRecording readEvent = JfrEvents.chunkRead();
+        final CompressorRecording compressorEvent = JfrEvents.compressor();
+        final boolean measure = instrumentation.isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        final byte[] decompressed = compressor.uncompress(stored, filters.length == 0 ? getSize() * getByteCount() : -1);
+        if (compressorEvent.shouldCommit()) {
+            commit(compressorEvent, CompressorRecording.UNCOMPRESS, stored.length, decompressed.length);
+        }
+        if (measure) {
+            final long end = System.nanoTime();
+            instrumentation.record(arrayPath, ChunkOperation.DECOMPRESS, end - start, stored.length, decompressed.length);
+            start = end;
+        }
+        byte[] raw = decompressed;
+        if (filters.length > 0) {
+            if (raw == stored) {
+                // filters may work in place, but the stored bytes may be owned by the store
+                raw = raw.clone();
+            }
+            for (int i = filters.length - 1; i >= 0; i--) {
+                raw = filters[i].decode(raw);
+            }
+        }
+        final Array array;
+        try {
+            array = fromBytes(raw);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Chunk data too short. Expected " + getSize() * getByteCount() + " bytes but was " + raw.length + ".", e);
+        }
+        if (measure) {
+            instrumentation.record(arrayPath, ChunkOperation.DECODE, System.nanoTime() - start, raw.length, raw.length);
+        }
+        if (readEvent.shouldCommit()) {
+            readEvent.commit(arrayPath, chunkKey, stored.length, raw.length);
+        }
+        return array;
+    }
+
+    private byte[] encodeBytes(String chunkKey, Array array) throws IOException {
+        final ChunkRecording writeEvent = JfrEvents.chunkWrite();
+        final boolean measure = instrumentation.isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        byte[] raw = toBytes(array);
+        if (filters.length > 0 && raw == array.getStorage()) {
+            // filters may work in place, but the storage of the array is owned by the caller
+            raw = raw.clone();
+        }
+        for (Filter filter : filters) {
+            raw = filter.encode(raw);
+        }
+        if (measure) {
+            final long end = System.nanoTime();
+            instrumentation.record(arrayPath, ChunkOperation.ENCODE, end - start, raw.length, raw.length);
+            start = end;
+        }
+        final CompressorRecording compressorEvent = JfrEvents.compressor();
+        final byte[] stored = compressor.compress(raw);
+        if (compressorEvent.shouldCommit()) {
+            commit(compressorEvent, CompressorRecording.COMPRESS, raw.length, stored.length);
+        }
+        if (measure) {
+            instrumentation.record(arrayPath, ChunkOperation.COMPRESS, System.nanoTime() - start, raw.length, stored.length);
+        }
+        if (writeEvent.shouldCommit()) {
+            writeEvent.commit(arrayPath, chunkKey, stored.length, raw.length);
+        }
+        return stored;
+    }
+
+    private void commit(CompressorRecording event, String operation, long bytesIn, long bytesOut) {
+        event.commit(arrayPath, compressor.getId(), operation, bytesIn, bytesOut);
+    }
+
+    private void commit(StoreRecording event, String operation, String key, int keyCount, long bytes) {
+        event.commit(arrayPath, store.getClass().getSimpleName(), operation, key, keyCount, bytes);
+    }
+
+    /**
+     * Converts uncompressed chunk bytes into typed chunk data.
+     */
+    protected abstract Array fromBytes(byte[] raw);
+
+    /**
+     * Converts typed chunk data into uncompressed chunk bytes. For byte data the result may be the storage of the
+     * array itself.
+     */
+    protected abstract byte[] toBytes(Array array);
 
-    public abstract void write(String path, Array array) throws IOException;
+    /**
+     * @return the number of bytes per element
+     */
+    protected abstract int getByteCount();
+
+    protected abstract Array createFilled();
 
     protected Array createFilled(final ucar.ma2.DataType dataType) {
         return NetCDF_Util.createFilledArray(dataType, chunkShape, fill);
@@ -90,4 +295,23 @@ public abstract class ChunkReaderWriter {
         return this.size;
     }
 
+    private static byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+            && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final byte[] bytes = new byte[4096];
+        int read;
+        while ((read = is.read(bytes)) >= 0) {
+            os.write(bytes, 0, read);
+        }
+        return os.toByteArray();
+    }
 }
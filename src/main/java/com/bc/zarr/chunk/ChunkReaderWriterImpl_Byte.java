@@ -30,8 +30,6 @@ import com.bc.zarr.storage.Store;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 
-import java.io.*;
-
 public class ChunkReaderWriterImpl_Byte extends ChunkReaderWriter {
 
     public ChunkReaderWriterImpl_Byte(Compressor compressor, int[] chunkShape, Number fill, Store store) {
@@ -39,32 +37,22 @@ public class ChunkReaderWriterImpl_Byte extends ChunkReaderWriter {
     }
 
     @Override
-    public Array read(String storeKey) throws IOException {
-        try (
-                final InputStream is = store.getInputStream(storeKey)
-        ) {
-            if (is != null) {
-                try (
-                        final ByteArrayOutputStream os = new ByteArrayOutputStream()
-                ) {
-                    compressor.uncompress(is, os);
-                    final byte[] b = os.toByteArray();
-                    return Array.factory(DataType.BYTE, chunkShape, b);
-                }
-            } else {
-                return createFilled(DataType.BYTE);
-            }
-        }
+    protected Array fromBytes(byte[] raw) {
+        return Array.factory(DataType.BYTE, chunkShape, raw);
+    }
+
+    @Override
+    protected byte[] toBytes(Array array) {
+        return (byte[]) array.get1DJavaArray(DataType.BYTE);
+    }
+
+    @Override
+    protected int getByteCount() {
+        return 1;
     }
 
     @Override
-    public void write(String storeKey, Array array) throws IOException {
-        final byte[] bytes = (byte[]) array.get1DJavaArray(DataType.BYTE);
-        try (
-                final ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-                final OutputStream os = store.getOutputStream(storeKey)
-        ) {
-            compressor.compress(is, os);
-        }
+    protected Array createFilled() {
+        return createFilled(DataType.BYTE);
     }
 }
@@ -23,6 +23,7 @@
  * SOFTWARE.
  *
  */
+
 package com.bc.zarr.chunk;
 
 import com.bc.zarr.Compressor;
@@ -30,11 +31,7 @@ import com.bc.zarr.storage.Store;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.ImageOutputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
-import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public class ChunkReaderWriterImpl_Double extends ChunkReaderWriter {
@@ -44,43 +41,27 @@ public class ChunkReaderWriterImpl_Double extends ChunkReaderWriter {
     }
 
     @Override
-    public Array read(String storeKey) throws IOException {
-        try (
-                InputStream is = store.getInputStream(storeKey)
-        ) {
-            if (is != null) {
-                try (
-                        final ByteArrayOutputStream os = new ByteArrayOutputStream()
-                ) {
-                    compressor.uncompress(is, os);
-                    final double[] doubles = new double[getSize()];
-                    try (
-                            final ByteArrayInputStream bais = new ByteArrayInputStream(os.toByteArray());
-                            final ImageInputStream iis = new MemoryCacheImageInputStream(bais)
-                    ) {
-                        iis.setByteOrder(order);
-                        iis.readFully(doubles, 0, doubles.length);
-                    }
-                    return Array.factory(DataType.DOUBLE, chunkShape, doubles);
-                }
-            } else {
-                return createFilled(DataType.DOUBLE);
-            }
-        }
+    protected Array fromBytes(byte[] raw) {
+        final double[] doubles = new double[getSize()];
+        ByteBuffer.wrap(raw).order(order).asDoubleBuffer().get(doubles);
+        return Array.factory(DataType.DOUBLE, chunkShape, doubles);
+    }
+
+    @Override
+    protected byte[] toBytes(Array array) {
+        final double[] doubles = (double[]) array.get1DJavaArray(DataType.DOUBLE);
+        final ByteBuffer buffer = ByteBuffer.allocate(doubles.length * 8).order(order);
+        buffer.asDoubleBuffer().put(doubles);
+        return buffer.array();
+    }
+
+    @Override
+    protected int getByteCount() {
+        return 8;
     }
 
     @Override
-    public void write(String storeKey, Array array) throws IOException {
-        try (
-                final ImageOutputStream iis = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
-                final InputStream is = new ZarrInputStreamAdapter(iis);
-                final OutputStream os = store.getOutputStream(storeKey)
-        ) {
-            final double[] doubles = (double[]) array.get1DJavaArray(DataType.DOUBLE);
-            iis.setByteOrder(order);
-            iis.writeDoubles(doubles, 0, doubles.length);
-            iis.seek(0);
-            compressor.compress(is, os);
-        }
+    protected Array createFilled() {
+        return createFilled(DataType.DOUBLE);
     }
 }
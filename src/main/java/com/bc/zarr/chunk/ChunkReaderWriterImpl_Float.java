@@ -23,6 +23,7 @@
  * SOFTWARE.
  *
  */
+
 package com.bc.zarr.chunk;
 
 import com.bc.zarr.Compressor;
@@ -30,11 +31,7 @@ import com.bc.zarr.storage.Store;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.ImageOutputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
-import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public class ChunkReaderWriterImpl_Float extends ChunkReaderWriter {
@@ -44,43 +41,27 @@ public class ChunkReaderWriterImpl_Float extends ChunkReaderWriter {
     }
 
     @Override
-    public Array read(String storeKey) throws IOException {
-        try (
-                final InputStream is = store.getInputStream(storeKey)
-        ) {
-            if (is != null) {
-                try (
-                        final ByteArrayOutputStream os = new ByteArrayOutputStream()
-                ) {
-                    compressor.uncompress(is, os);
-                    final float[] floats = new float[getSize()];
-                    try (
-                            final ByteArrayInputStream bais = new ByteArrayInputStream(os.toByteArray());
-                            final ImageInputStream iis = new MemoryCacheImageInputStream(bais)
-                    ) {
-                        iis.setByteOrder(order);
-                        iis.readFully(floats, 0, floats.length);
-                    }
-                    return Array.factory(DataType.FLOAT, chunkShape, floats);
-                }
-            } else {
-                return createFilled(DataType.FLOAT);
-            }
-        }
+    protected Array fromBytes(byte[] raw) {
+        final float[] floats = new float[getSize()];
+        ByteBuffer.wrap(raw).order(order).asFloatBuffer().get(floats);
+        return Array.factory(DataType.FLOAT, chunkShape, floats);
+    }
+
+    @Override
+    protected byte[] toBytes(Array array) {
+        final float[] floats = (float[]) array.get1DJavaArray(DataType.FLOAT);
+        final ByteBuffer buffer = ByteBuffer.allocate(floats.length * 4).order(order);
+        buffer.asFloatBuffer().put(floats);
+        return buffer.array();
+    }
+
+    @Override
+    protected int getByteCount() {
+        return 4;
     }
 
     @Override
-    public void write(String storeKey, Array array) throws IOException {
-        try (
-                final ImageOutputStream iis = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
-                final InputStream is = new ZarrInputStreamAdapter(iis);
-                final OutputStream os = store.getOutputStream(storeKey)
-        ) {
-            final float[] floats = (float[]) array.get1DJavaArray(DataType.FLOAT);
-            iis.setByteOrder(order);
-            iis.writeFloats(floats, 0, floats.length);
-            iis.seek(0);
-            compressor.compress(is, os);
-        }
+    protected Array createFilled() {
+        return createFilled(DataType.FLOAT);
     }
 }
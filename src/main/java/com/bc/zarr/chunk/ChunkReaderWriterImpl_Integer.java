@@ -23,6 +23,7 @@
  * SOFTWARE.
  *
  */
+
 package com.bc.zarr.chunk;
 
 import com.bc.zarr.Compressor;
@@ -30,11 +31,7 @@ import com.bc.zarr.storage.Store;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.ImageOutputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
-import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public class ChunkReaderWriterImpl_Integer extends ChunkReaderWriter {
@@ -44,43 +41,27 @@ public class ChunkReaderWriterImpl_Integer extends ChunkReaderWriter {
     }
 
     @Override
-    public Array read(String storeKey) throws IOException {
-        try (
-                final InputStream is = store.getInputStream(storeKey)
-        ) {
-            if (is != null) {
-                try (
-                        final ByteArrayOutputStream os = new ByteArrayOutputStream()
-                ) {
-                    compressor.uncompress(is, os);
-                    final int[] ints = new int[getSize()];
-                    try (
-                            final ByteArrayInputStream bais = new ByteArrayInputStream(os.toByteArray());
-                            final ImageInputStream iis = new MemoryCacheImageInputStream(bais)
-                    ) {
-                        iis.setByteOrder(order);
-                        iis.readFully(ints, 0, ints.length);
-                    }
-                    return Array.factory(DataType.INT, chunkShape, ints);
-                }
-            } else {
-                return createFilled(DataType.INT);
-            }
-        }
+    protected Array fromBytes(byte[] raw) {
+        final int[] ints = new int[getSize()];
+        ByteBuffer.wrap(raw).order(order).asIntBuffer().get(ints);
+        return Array.factory(DataType.INT, chunkShape, ints);
+    }
+
+    @Override
+    protected byte[] toBytes(Array array) {
+        final int[] ints = (int[]) array.get1DJavaArray(DataType.INT);
+        final ByteBuffer buffer = ByteBuffer.allocate(ints.length * 4).order(order);
+        buffer.asIntBuffer().put(ints);
+        return buffer.array();
+    }
+
+    @Override
+    protected int getByteCount() {
+        return 4;
     }
 
     @Override
-    public void write(String storeKey, Array array) throws IOException {
-        try (
-                final ImageOutputStream iis = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
-                final InputStream is = new ZarrInputStreamAdapter(iis);
-                final OutputStream os = store.getOutputStream(storeKey)
-        ) {
-            final int[] ints = (int[]) array.get1DJavaArray(DataType.INT);
-            iis.setByteOrder(order);
-            iis.writeInts(ints, 0, ints.length);
-            iis.seek(0);
-            compressor.compress(is, os);
-        }
+    protected Array createFilled() {
+        return createFilled(DataType.INT);
     }
 }
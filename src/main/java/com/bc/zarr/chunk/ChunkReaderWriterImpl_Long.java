@@ -23,6 +23,7 @@
  * SOFTWARE.
  *
  */
+
 package com.bc.zarr.chunk;
 
 import com.bc.zarr.Compressor;
@@ -30,11 +31,7 @@ import com.bc.zarr.storage.Store;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.ImageOutputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
-import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public class ChunkReaderWriterImpl_Long extends ChunkReaderWriter {
@@ -44,43 +41,27 @@ public class ChunkReaderWriterImpl_Long extends ChunkReaderWriter {
     }
 
     @Override
-    public Array read(String storeKey) throws IOException {
-        try (
-                final InputStream is = store.getInputStream(storeKey)
-        ) {
-            if (is != null) {
-                try (
-                        final ByteArrayOutputStream os = new ByteArrayOutputStream()
-                ) {
-                    compressor.uncompress(is, os);
-                    final long[] longs = new long[getSize()];
-                    try (
-                            final ByteArrayInputStream bais = new ByteArrayInputStream(os.toByteArray());
-                            final ImageInputStream iis = new MemoryCacheImageInputStream(bais)
-                    ) {
-                        iis.setByteOrder(order);
-                        iis.readFully(longs, 0, longs.length);
-                    }
-                    return Array.factory(DataType.LONG, chunkShape, longs);
-                }
-            } else {
-                return createFilled(DataType.LONG);
-            }
-        }
+    protected Array fromBytes(byte[] raw) {
+        final long[] longs = new long[getSize()];
+        ByteBuffer.wrap(raw).order(order).asLongBuffer().get(longs);
+        return Array.factory(DataType.LONG, chunkShape, longs);
+    }
+
+    @Override
+    protected byte[] toBytes(Array array) {
+        final long[] longs = (long[]) array.get1DJavaArray(DataType.LONG);
+        final ByteBuffer buffer = ByteBuffer.allocate(longs.length * 8).order(order);
+        buffer.asLongBuffer().put(longs);
+        return buffer.array();
+    }
+
+    @Override
+    protected int getByteCount() {
+        return 8;
     }
 
     @Override
-    public void write(String storeKey, Array array) throws IOException {
-        try (
-                final ImageOutputStream iis = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
-                final InputStream is = new ZarrInputStreamAdapter(iis);
-                final OutputStream os = store.getOutputStream(storeKey)
-        ) {
-            final long[] longs = (long[]) array.get1DJavaArray(DataType.LONG);
-            iis.setByteOrder(order);
-            iis.writeLongs(longs, 0, longs.length);
-            iis.seek(0);
-            compressor.compress(is, os);
-        }
+    protected Array createFilled() {
+        return createFilled(DataType.LONG);
     }
 }
@@ -23,6 +23,7 @@
  * SOFTWARE.
  *
  */
+
 package com.bc.zarr.chunk;
 
 import com.bc.zarr.Compressor;
@@ -30,11 +31,7 @@ import com.bc.zarr.storage.Store;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.ImageOutputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
-import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public class ChunkReaderWriterImpl_Short extends ChunkReaderWriter {
@@ -44,43 +41,27 @@ public class ChunkReaderWriterImpl_Short extends ChunkReaderWriter {
     }
 
     @Override
-    public Array read(String storeKey) throws IOException {
-        try (
-                InputStream is = store.getInputStream(storeKey)
-        ) {
-            if (is != null) {
-                try (
-                        final ByteArrayOutputStream os = new ByteArrayOutputStream()
-                ) {
-                    compressor.uncompress(is, os);
-                    final short[] shorts = new short[getSize()];
-                    try (
-                            final ByteArrayInputStream bais = new ByteArrayInputStream(os.toByteArray());
-                            final ImageInputStream iis = new MemoryCacheImageInputStream(bais)
-                    ) {
-                        iis.setByteOrder(order);
-                        iis.readFully(shorts, 0, shorts.length);
-                    }
-                    return Array.factory(DataType.SHORT, chunkShape, shorts);
-                }
-            } else {
-                return createFilled(DataType.SHORT);
-            }
-        }
+    protected Array fromBytes(byte[] raw) {
+        final short[] shorts = new short[getSize()];
+        ByteBuffer.wrap(raw).order(order).asShortBuffer().get(shorts);
+        return Array.factory(DataType.SHORT, chunkShape, shorts);
+    }
+
+    @Override
+    protected byte[] toBytes(Array array) {
+        final short[] shorts = (short[]) array.get1DJavaArray(DataType.SHORT);
+        final ByteBuffer buffer = ByteBuffer.allocate(shorts.length * 2).order(order);
+        buffer.asShortBuffer().put(shorts);
+        return buffer.array();
+    }
+
+    @Override
+    protected int getByteCount() {
+        return 2;
     }
 
     @Override
-    public void write(String storeKey, Array array) throws IOException {
-        try (
-                final ImageOutputStream iis = new MemoryCacheImageOutputStream(new ByteArrayOutputStream());
-                final InputStream is = new ZarrInputStreamAdapter(iis);
-                final OutputStream os = store.getOutputStream(storeKey)
-        ) {
-            final short[] shorts = (short[]) array.get1DJavaArray(DataType.SHORT);
-            iis.setByteOrder(order);
-            iis.writeShorts(shorts, 0, shorts.length);
-            iis.seek(0);
-            compressor.compress(is, os);
-        }
+    protected Array createFilled() {
+        return createFilled(DataType.SHORT);
     }
 }
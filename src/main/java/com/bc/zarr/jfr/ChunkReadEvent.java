@@ -0,0 +1,73 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering the decompression and decoding of one chunk.
+ */
+@Name("com.bc.zarr.ChunkRead")
+@Label("Chunk Read")
+@Category({"jzarr", "Chunk"})
+@Description("Decompression and decoding of a chunk")
+public class ChunkReadEvent extends jdk.jfr.Event implements ChunkRecording {
+
+    @Label("Array Path")
+    public String arrayPath;
+
+    @Label("Chunk Key")
+    public String chunkKey;
+
+    @Label("Stored Size")
+    @Description("Size of the compressed chunk, -1 if unknown, 0 if the chunk is not present in the store")
+    @DataAmount
+    public long storedSize;
+
+    @Label("Raw Size")
+    @DataAmount
+    public long rawSize;
+
+    static ChunkReadEvent started() {
+        final ChunkReadEvent event = new ChunkReadEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commit(String arrayPath, String chunkKey, long storedSize, long rawSize) {
+        this.arrayPath = arrayPath;
+        this.chunkKey = chunkKey;
+        this.storedSize = storedSize;
+        this.rawSize = rawSize;
+        commit();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering one call of {@link com.bc.zarr.Compressor#compress} or
+ * {@link com.bc.zarr.Compressor#uncompress}.
+ */
+@Name("com.bc.zarr.Compressor")
+@Label("Compressor")
+@Category({"jzarr", "Compressor"})
+@Description("Compression or decompression of chunk bytes")
+public class CompressorEvent extends jdk.jfr.Event implements CompressorRecording {
+
+    @Label("Array Path")
+    public String arrayPath;
+
+    @Label("Compressor")
+    @Description("The compressor id, e.g. zlib or blosc")
+    public String compressor;
+
+    @Label("Operation")
+    @Description("compress or uncompress")
+    public String operation;
+
+    @Label("Bytes In")
+    @DataAmount
+    public long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    public long bytesOut;
+
+    static CompressorEvent started() {
+        final CompressorEvent event = new CompressorEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commit(String arrayPath, String compressor, String operation, long bytesIn, long bytesOut) {
+        this.arrayPath = arrayPath;
+        this.compressor = compressor;
+        this.operation = operation;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        commit();
+    }
+}
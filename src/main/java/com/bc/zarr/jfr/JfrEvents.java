@@ -0,0 +1,95 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.jfr;
+
+/**
+ * Starts the flight recorder events of jzarr.<br/>
+ * <br/>
+ * The event classes extend {@code jdk.jfr.Event}, which is missing in Java 8 runtimes before 8u262 and in some
+ * vendor builds. The library code therefore only uses the recording interfaces and starts the events here. If the
+ * {@code jdk.jfr} API is not available, the returned recordings do nothing and the event classes are never loaded.
+ */
+public final class JfrEvents {
+
+    private static final boolean AVAILABLE = isJfrAvailable();
+    private static final NoRecording NO_RECORDING = new NoRecording();
+
+    private JfrEvents() {
+    }
+
+    /**
+     * @return {@code true} if the runtime provides the {@code jdk.jfr} API
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static StoreRecording store() {
+        return AVAILABLE ? StoreEvent.started() : NO_RECORDING;
+    }
+
+    public static CompressorRecording compressor() {
+        return AVAILABLE ? CompressorEvent.started() : NO_RECORDING;
+    }
+
+    public static ChunkRecording chunkRead() {
+        return AVAILABLE ? ChunkReadEvent.started() : NO_RECORDING;
+    }
+
+    public static ChunkRecording chunkWrite() {
+        return AVAILABLE ? ChunkWriteEvent.started() : NO_RECORDING;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static final class NoRecording implements StoreRecording, CompressorRecording, ChunkRecording {
+
+        @Override
+        public boolean shouldCommit() {
+            return false;
+        }
+
+        @Override
+        public void commit(String arrayPath, String store, String operation, String key, int keyCount, long bytes) {
+        }
+
+        @Override
+        public void commit(String arrayPath, String compressor, String operation, long bytesIn, long bytesOut) {
+        }
+
+        @Override
+        public void commit(String arrayPath, String chunkKey, long storedSize, long rawSize) {
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering a chunk read or write request to a {@link com.bc.zarr.storage.Store}.
+ * Batched requests ({@code getMany}, {@code putMany}) are covered by a single event.
+ */
+@Name("com.bc.zarr.Store")
+@Label("Store Operation")
+@Category({"jzarr", "Store"})
+@Description("Chunk request to a store")
+public class StoreEvent extends jdk.jfr.Event implements StoreRecording {
+
+    @Label("Array Path")
+    public String arrayPath;
+
+    @Label("Store")
+    @Description("The simple class name of the store")
+    public String store;
+
+    @Label("Operation")
+    @Description("get, put, getMany or putMany")
+    public String operation;
+
+    @Label("Key")
+    @Description("The requested key, for batched requests the first one")
+    public String key;
+
+    @Label("Key Count")
+    public int keyCount;
+
+    @Label("Bytes")
+    @Description("The bytes read or written, not counting missing keys")
+    @DataAmount
+    public long bytes;
+
+    static StoreEvent started() {
+        final StoreEvent event = new StoreEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commit(String arrayPath, String store, String operation, String key, int keyCount, long bytes) {
+        this.arrayPath = arrayPath;
+        this.store = store;
+        this.operation = operation;
+        this.key = key;
+        this.keyCount = keyCount;
+        this.bytes = bytes;
+        commit();
+    }
+}
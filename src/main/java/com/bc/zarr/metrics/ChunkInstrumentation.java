@@ -0,0 +1,71 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.metrics;
+
+/**
+ * Service provider interface receiving timings and byte counts of the chunk operations of arrays.<br/>
+ * <br/>
+ * Implementations must be thread safe and should return quickly, because {@link #record} is called on the
+ * read/write path for every chunk. The default instance is {@link #NOOP}, other defaults can be installed with
+ * {@link Instrumentations#setDefault(ChunkInstrumentation)} or registered as {@link java.util.ServiceLoader}
+ * service in {@code META-INF/services/com.bc.zarr.metrics.ChunkInstrumentation}.
+ *
+ * @see ChunkMetrics
+ */
+public interface ChunkInstrumentation {
+
+    /**
+     * Instrumentation that drops all records. {@link #isEnabled()} returns {@code false}, so callers skip
+     * taking timestamps altogether.
+     */
+    ChunkInstrumentation NOOP = new ChunkInstrumentation() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void record(String arrayPath, ChunkOperation operation, long durationNanos, long bytesIn, long bytesOut) {
+        }
+    };
+
+    /**
+     * @return {@code false} if records are dropped anyway and callers may skip measuring
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param arrayPath     the path of the array within its store
+     * @param operation     the chunk operation
+     * @param durationNanos the duration of the operation
+     * @param bytesIn       the bytes consumed by the operation, see {@link ChunkOperation}
+     * @param bytesOut      the bytes produced by the operation, see {@link ChunkOperation}
+     */
+    void record(String arrayPath, ChunkOperation operation, long durationNanos, long bytesIn, long bytesOut);
+}
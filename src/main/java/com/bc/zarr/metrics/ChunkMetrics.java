@@ -0,0 +1,98 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ChunkInstrumentation} collecting per array counters and latency histograms in memory.<br/>
+ * <br/>
+ * The collected values can be published with {@link JmxChunkMetrics} or bridged to other metrics libraries by
+ * reading the getters of {@link OperationMetrics}, e.g. for Micrometer:
+ * <pre>
+ *   OperationMetrics fetch = chunkMetrics.get("band").get(ChunkOperation.FETCH);
+ *   FunctionCounter.builder("jzarr.chunk.fetch.bytes", fetch, OperationMetrics::getBytesOut).register(registry);
+ *   FunctionTimer.builder("jzarr.chunk.fetch", fetch, OperationMetrics::getCount,
+ *                         OperationMetrics::getTotalNanos, TimeUnit.NANOSECONDS).register(registry);
+ * </pre>
+ */
+public class ChunkMetrics implements ChunkInstrumentation {
+
+    private final ConcurrentHashMap<String, Map<ChunkOperation, OperationMetrics>> arrays = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String arrayPath, ChunkOperation operation, long durationNanos, long bytesIn, long bytesOut) {
+        get(arrayPath).get(operation).record(durationNanos, bytesIn, bytesOut);
+    }
+
+    /**
+     * @return the paths of the arrays with recorded metrics
+     */
+    public Set<String> getArrayPaths() {
+        return Collections.unmodifiableSet(new TreeSet<>(arrays.keySet()));
+    }
+
+    /**
+     * @param arrayPath the path of the array
+     * @return the metrics of all operations of the array, created on first access
+     */
+    public Map<ChunkOperation, OperationMetrics> get(String arrayPath) {
+        return arrays.computeIfAbsent(arrayPath, path -> {
+            final EnumMap<ChunkOperation, OperationMetrics> metrics = new EnumMap<>(ChunkOperation.class);
+            for (ChunkOperation operation : ChunkOperation.values()) {
+                metrics.put(operation, new OperationMetrics());
+            }
+            return Collections.unmodifiableMap(metrics);
+        });
+    }
+
+    /**
+     * @param arrayPath the path of the array
+     * @return raw size divided by compressed size of all chunks compressed and decompressed so far or
+     * {@code NaN} if nothing was recorded
+     */
+    public double getCompressionRatio(String arrayPath) {
+        final Map<ChunkOperation, OperationMetrics> metrics = get(arrayPath);
+        final OperationMetrics compress = metrics.get(ChunkOperation.COMPRESS);
+        final OperationMetrics decompress = metrics.get(ChunkOperation.DECOMPRESS);
+        final long raw = compress.getBytesIn() + decompress.getBytesOut();
+        final long compressed = compress.getBytesOut() + decompress.getBytesIn();
+        return compressed == 0 ? Double.NaN : (double) raw / compressed;
+    }
+
+    /**
+     * Drops all recorded metrics.
+     */
+    public void reset() {
+        arrays.clear();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.metrics;
+
+/**
+ * The stages a chunk passes on its way between a {@link com.bc.zarr.storage.Store} and the user buffer.
+ * <pre>
+ *   read:  FETCH -> DECOMPRESS -> DECODE -> COPY
+ *   write: COPY  -> ENCODE     -> COMPRESS -> STORE
+ * </pre>
+ */
+public enum ChunkOperation {
+    /** Reading stored chunk bytes from the store. Bytes out: the stored bytes. */
+    FETCH,
+    /** Decompressing stored bytes. Bytes in: compressed size, bytes out: raw size. */
+    DECOMPRESS,
+    /** Reverting the filters and converting raw bytes to typed chunk data. Bytes in/out: raw size. */
+    DECODE,
+    /** Copying between a chunk and the user buffer. Bytes in/out: the copied bytes. */
+    COPY,
+    /** Converting typed chunk data to raw bytes and applying the filters. Bytes in/out: raw size. */
+    ENCODE,
+    /** Compressing raw bytes. Bytes in: raw size, bytes out: compressed size. */
+    COMPRESS,
+    /** Writing chunk bytes to the store. Bytes in: the stored bytes. */
+    STORE
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Holder of the default {@link ChunkInstrumentation} given to newly created or opened arrays.
+ */
+public final class Instrumentations {
+
+    private static volatile ChunkInstrumentation defaultInstrumentation;
+
+    private Instrumentations() {
+    }
+
+    /**
+     * @return the instrumentation set by {@link #setDefault(ChunkInstrumentation)}, else the first
+     * {@link ServiceLoader} provided one, else {@link ChunkInstrumentation#NOOP}
+     */
+    public static ChunkInstrumentation getDefault() {
+        ChunkInstrumentation instrumentation = defaultInstrumentation;
+        if (instrumentation == null) {
+            synchronized (Instrumentations.class) {
+                if (defaultInstrumentation == null) {
+                    final Iterator<ChunkInstrumentation> providers = ServiceLoader.load(ChunkInstrumentation.class).iterator();
+                    defaultInstrumentation = providers.hasNext() ? providers.next() : ChunkInstrumentation.NOOP;
+                }
+                instrumentation = defaultInstrumentation;
+            }
+        }
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation for arrays created or opened afterwards.
+     *
+     * @param instrumentation the instrumentation or {@code null} for {@link ChunkInstrumentation#NOOP}
+     */
+    public static void setDefault(ChunkInstrumentation instrumentation) {
+        defaultInstrumentation = instrumentation == null ? ChunkInstrumentation.NOOP : instrumentation;
+    }
+}
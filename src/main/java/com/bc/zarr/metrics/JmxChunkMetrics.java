@@ -0,0 +1,117 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the {@link ChunkMetrics} of an array as MXBean named
+ * {@code com.bc.zarr:type=ChunkMetrics,array="<array path>"}.
+ */
+public class JmxChunkMetrics implements ChunkMetricsMXBean {
+
+    private final ChunkMetrics metrics;
+    private final String arrayPath;
+
+    public JmxChunkMetrics(ChunkMetrics metrics, String arrayPath) {
+        this.metrics = metrics;
+        this.arrayPath = arrayPath;
+    }
+
+    /**
+     * Registers the metrics of the given array at the platform MBean server.
+     *
+     * @return the object name of the registered MXBean
+     */
+    public static ObjectName register(ChunkMetrics metrics, String arrayPath) throws JMException {
+        return register(metrics, arrayPath, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public static ObjectName register(ChunkMetrics metrics, String arrayPath, MBeanServer server) throws JMException {
+        final ObjectName name = createObjectName(arrayPath);
+        server.registerMBean(new JmxChunkMetrics(metrics, arrayPath), name);
+        return name;
+    }
+
+    public static ObjectName createObjectName(String arrayPath) throws JMException {
+        return new ObjectName("com.bc.zarr:type=ChunkMetrics,array=" + ObjectName.quote(arrayPath));
+    }
+
+    @Override
+    public String getArrayPath() {
+        return arrayPath;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        return collect(OperationMetrics::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getTotalNanos() {
+        return collect(OperationMetrics::getTotalNanos);
+    }
+
+    @Override
+    public Map<String, Long> getBytesIn() {
+        return collect(OperationMetrics::getBytesIn);
+    }
+
+    @Override
+    public Map<String, Long> getBytesOut() {
+        return collect(OperationMetrics::getBytesOut);
+    }
+
+    @Override
+    public Map<String, Long> getP50Nanos() {
+        return collect(operation -> operation.getQuantileUpperBoundNanos(0.5));
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return collect(operation -> operation.getQuantileUpperBoundNanos(0.99));
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        return metrics.getCompressionRatio(arrayPath);
+    }
+
+    private Map<String, Long> collect(ToLongFunction<OperationMetrics> getter) {
+        final Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<ChunkOperation, OperationMetrics> entry : metrics.get(arrayPath).entrySet()) {
+            values.put(entry.getKey().name(), getter.applyAsLong(entry.getValue()));
+        }
+        return values;
+    }
+}
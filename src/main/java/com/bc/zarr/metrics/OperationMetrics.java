@@ -0,0 +1,112 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and a latency histogram of one {@link ChunkOperation} of one array.<br/>
+ * The histogram has power of two buckets: bucket {@code i} counts durations below {@code 2^i} nanoseconds
+ * (and at least {@code 2^(i-1)}), the last bucket counts everything longer.
+ */
+public final class OperationMetrics {
+
+    static final int BUCKET_COUNT = 40;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[BUCKET_COUNT];
+
+    OperationMetrics() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    void record(long durationNanos, long in, long out) {
+        count.increment();
+        totalNanos.add(durationNanos);
+        bytesIn.add(in);
+        bytesOut.add(out);
+        final int bucket = 64 - Long.numberOfLeadingZeros(Math.max(durationNanos, 0));
+        histogram[Math.min(bucket, BUCKET_COUNT - 1)].increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * @return the bucket counts, see class documentation
+     */
+    public long[] getHistogram() {
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @param quantile a value between 0 and 1, e.g. {@code 0.99}
+     * @return the upper bound in nanoseconds of the histogram bucket containing the quantile or {@code 0} if
+     * nothing was recorded
+     */
+    public long getQuantileUpperBoundNanos(double quantile) {
+        final long[] counts = getHistogram();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(quantile * total);
+        long cumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulated += counts[i];
+            if (cumulated >= rank) {
+                return i == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.reduce;
+
+/**
+ * Accumulates the values of an array for a {@link Reducer}. The reducer calls {@link #add(long)} for arrays with an
+ * integer data type and {@link #add(double)} for arrays with a floating point data type, so accumulators are able
+ * to work on primitive values without boxing. Unsigned data types are passed as their unsigned value. NaN is not
+ * passed to the accumulator, nor are fill values if the reducer is configured with
+ * {@link Reducer#skipFillValues(boolean)}.
+ * <p>
+ * An accumulator is used by a single thread at a time. The partial results of concurrently processed chunks are
+ * combined with {@link #merge(Accumulator)}.
+ *
+ * @param <A> the type of the accumulator itself
+ */
+public interface Accumulator<A extends Accumulator<A>> {
+
+    void add(long value);
+
+    void add(double value);
+
+    /**
+     * Adds the values accumulated by another accumulator of the same configuration to this one.
+     */
+    void merge(A other);
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.reduce;
+
+import java.util.Arrays;
+
+/**
+ * Counts the values in equally sized bins between a minimum (inclusive) and a maximum (inclusive). Values outside
+ * of the range are counted separately.
+ */
+public class Histogram implements Accumulator<Histogram> {
+
+    private final double min;
+    private final double max;
+    private final long[] counts;
+    private final double binsPerUnit;
+    private long below;
+    private long above;
+
+    public Histogram(double min, double max, int binCount) {
+        if (!(max > min)) {
+            throw new IllegalArgumentException("Maximum " + max + " must be greater than minimum " + min + ".");
+        }
+        if (binCount < 1) {
+            throw new IllegalArgumentException("At least one bin expected but was " + binCount + ".");
+        }
+        this.min = min;
+        this.max = max;
+        this.counts = new long[binCount];
+        this.binsPerUnit = binCount / (max - min);
+    }
+
+    @Override
+    public void add(long value) {
+        add((double) value);
+    }
+
+    @Override
+    public void add(double value) {
+        if (value < min) {
+            below++;
+        } else if (value > max) {
+            above++;
+        } else {
+            counts[Math.min((int) ((value - min) * binsPerUnit), counts.length - 1)]++;
+        }
+    }
+
+    @Override
+    public void merge(Histogram other) {
+        if (other.counts.length != counts.length || other.min != min || other.max != max) {
+            throw new IllegalArgumentException("Histograms with different bins can not be merged.");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        below += other.below;
+        above += other.above;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return a copy of the bin counts
+     */
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * @return the number of values less than the minimum
+     */
+    public long getBelow() {
+        return below;
+    }
+
+    /**
+     * @return the number of values greater than the maximum
+     */
+    public long getAbove() {
+        return above;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{min=" + min + ", max=" + max + ", counts=" + Arrays.toString(counts) + ", below=" + below + ", above=" + above + "}";
+    }
+}
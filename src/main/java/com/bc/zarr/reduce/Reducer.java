@@ -0,0 +1,374 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.reduce;
+
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Reduces the values of an array chunk by chunk, without reading the whole array into memory. E.g.:
+ * <pre>
+ *    Summary summary = new Reducer(array).summary();
+ *    List&lt;Summary&gt; perPixel = new Reducer(array).reduce(0, Summary::new);
+ * </pre>
+ * The chunks are processed in parallel on a fork/join pool, each task holds a single chunk and its own
+ * {@link Accumulator}, the partial results are merged when the tasks are joined. NaN values are skipped, fill values
+ * are accumulated like any other value unless {@link #skipFillValues(boolean)} is set, because the fill value is
+ * often a valid value as well, e.g. the default fill value {@code 0}.
+ */
+public class Reducer {
+
+    private final ZarrArray array;
+    private final int[] shape;
+    private final int[] chunks;
+    private final int[] chunkGrid;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean skipFillValues;
+
+    public Reducer(ZarrArray array) {
+        this.array = array;
+        this.shape = array.getShape();
+        this.chunks = array.getChunks();
+        this.chunkGrid = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            chunkGrid[i] = (shape[i] + chunks[i] - 1) / chunks[i];
+        }
+    }
+
+    /**
+     * @param parallelism the number of chunks processed concurrently, default the number of processors
+     * @return a reference to this reducer
+     */
+    public Reducer parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param skipFillValues whether values equal to the fill value of the array are treated as missing and not
+     *                       passed to the accumulators, default {@code false}
+     * @return a reference to this reducer
+     */
+    public Reducer skipFillValues(boolean skipFillValues) {
+        this.skipFillValues = skipFillValues;
+        return this;
+    }
+
+    public Summary summary() throws IOException {
+        return reduce(Summary::new);
+    }
+
+    public Histogram histogram(double min, double max, int binCount) throws IOException {
+        return reduce(() -> new Histogram(min, max, binCount));
+    }
+
+    /**
+     * Reduces all values of the array.
+     *
+     * @param factory creates the accumulators, one per chunk
+     * @return the merged accumulator
+     */
+    public <A extends Accumulator<A>> A reduce(Supplier<A> factory) throws IOException {
+        long chunkCount = 1;
+        for (int size : chunkGrid) {
+            chunkCount *= size;
+        }
+        if (chunkCount == 0) {
+            return factory.get();
+        }
+        return invoke(new ChunkRangeTask<>(0, chunkCount, factory));
+    }
+
+    /**
+     * Reduces the values along an axis, e.g. along the time axis of a {@code [time, y, x]} array to get one
+     * result per pixel. Memory is bounded by the size of the result, the chunks are processed in columns along
+     * the axis.
+     *
+     * @param axis    the dimension to be reduced
+     * @param factory creates the accumulators, one per element of the result
+     * @return the accumulators in row major order of the array shape without the axis
+     */
+    @SuppressWarnings("unchecked")
+    public <A extends Accumulator<A>> List<A> reduce(int axis, Supplier<A> factory) throws IOException {
+        if (axis < 0 || axis >= shape.length) {
+            throw new IllegalArgumentException("Axis must be between 0 and " + (shape.length - 1) + " but was " + axis + ".");
+        }
+        long resultSize = 1;
+        long columnCount = 1;
+        for (int i = 0; i < shape.length; i++) {
+            if (i != axis) {
+                resultSize *= shape[i];
+                columnCount *= chunkGrid[i];
+            }
+        }
+        if (resultSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The result of " + resultSize + " elements is too large.");
+        }
+        final Object[] result = new Object[(int) resultSize];
+        if (resultSize > 0) {
+            invoke(new ColumnRangeTask(axis, 0, columnCount, factory, result));
+        }
+        return (List<A>) (List<?>) Arrays.asList(result);
+    }
+
+    private <T> T invoke(ForkJoinTask<T> task) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Object readChunk(int[] chunkIndex, int[] validShape) {
+        final int[] origin = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            origin[i] = chunkIndex[i] * chunks[i];
+            validShape[i] = Math.min(chunks[i], shape[i] - origin[i]);
+        }
+        try {
+            return array.read(validShape, origin);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InvalidRangeException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int[] toChunkIndex(long linearIndex, int[] grid) {
+        final int[] chunkIndex = new int[grid.length];
+        for (int i = grid.length - 1; i >= 0; i--) {
+            chunkIndex[i] = (int) (linearIndex % grid[i]);
+            linearIndex /= grid[i];
+        }
+        return chunkIndex;
+    }
+
+    /**
+     * Passes the values of a chunk to the accumulators, {@code targets[targetIndex[i]]} receives the i-th value or
+     * {@code targets[0]} if there is no target index. One loop per primitive type avoids boxing.
+     */
+    @SuppressWarnings("rawtypes")
+    private void accumulate(Object data, Accumulator[] targets, int[] targetIndex) {
+        final DataType dataType = array.getDataType();
+        final Number fill = skipFillValues ? array.getFillValue() : null;
+        if (data instanceof double[] || data instanceof float[]) {
+            final double fillValue = fill == null ? Double.NaN : fill.doubleValue();
+            if (data instanceof double[]) {
+                final double[] values = (double[]) data;
+                for (int i = 0; i < values.length; i++) {
+                    final double value = values[i];
+                    if (value != fillValue && !Double.isNaN(value)) {
+                        targets[targetIndex == null ? 0 : targetIndex[i]].add(value);
+                    }
+                }
+            } else {
+                final float[] values = (float[]) data;
+                for (int i = 0; i < values.length; i++) {
+                    final double value = values[i];
+                    if (value != fillValue && !Double.isNaN(value)) {
+                        targets[targetIndex == null ? 0 : targetIndex[i]].add(value);
+                    }
+                }
+            }
+            return;
+        }
+        final boolean hasFill = fill != null;
+        final long fillValue = hasFill ? fill.longValue() : 0;
+        if (data instanceof long[]) {
+            final long[] values = (long[]) data;
+            for (int i = 0; i < values.length; i++) {
+                if (!hasFill || values[i] != fillValue) {
+                    targets[targetIndex == null ? 0 : targetIndex[i]].add(values[i]);
+                }
+            }
+        } else if (data instanceof int[]) {
+            final int[] values = (int[]) data;
+            final boolean unsigned = dataType == DataType.u4;
+            for (int i = 0; i < values.length; i++) {
+                final long value = unsigned ? values[i] & 0xFFFFFFFFL : values[i];
+                if (!hasFill || value != fillValue) {
+                    targets[targetIndex == null ? 0 : targetIndex[i]].add(value);
+                }
+            }
+        } else if (data instanceof short[]) {
+            final short[] values = (short[]) data;
+            final boolean unsigned = dataType == DataType.u2;
+            for (int i = 0; i < values.length; i++) {
+                final long value = unsigned ? values[i] & 0xFFFF : values[i];
+                if (!hasFill || value != fillValue) {
+                    targets[targetIndex == null ? 0 : targetIndex[i]].add(value);
+                }
+            }
+        } else {
+            final byte[] values = (byte[]) data;
+            final boolean unsigned = dataType == DataType.u1;
+            for (int i = 0; i < values.length; i++) {
+                final long value = unsigned ? values[i] & 0xFF : values[i];
+                if (!hasFill || value != fillValue) {
+                    targets[targetIndex == null ? 0 : targetIndex[i]].add(value);
+                }
+            }
+        }
+    }
+
+    private class ChunkRangeTask<A extends Accumulator<A>> extends RecursiveTask<A> {
+
+        private final long from;
+        private final long to;
+        private final Supplier<A> factory;
+
+        private ChunkRangeTask(long from, long to, Supplier<A> factory) {
+            this.from = from;
+            this.to = to;
+            this.factory = factory;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from == 1) {
+                final A accumulator = factory.get();
+                final int[] validShape = new int[shape.length];
+                final Object data = readChunk(toChunkIndex(from, chunkGrid), validShape);
+                accumulate(data, new Accumulator[]{accumulator}, null);
+                return accumulator;
+            }
+            final long middle = (from + to) >>> 1;
+            final ChunkRangeTask<A> left = new ChunkRangeTask<>(from, middle, factory);
+            left.fork();
+            final A result = new ChunkRangeTask<>(middle, to, factory).compute();
+            final A leftResult = left.join();
+            leftResult.merge(result);
+            return leftResult;
+        }
+    }
+
+    private class ColumnRangeTask extends RecursiveAction {
+
+        private final int axis;
+        private final long from;
+        private final long to;
+        private final Supplier<? extends Accumulator<?>> factory;
+        private final Object[] result;
+
+        private ColumnRangeTask(int axis, long from, long to, Supplier<? extends Accumulator<?>> factory, Object[] result) {
+            this.axis = axis;
+            this.from = from;
+            this.to = to;
+            this.factory = factory;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final long middle = (from + to) >>> 1;
+                invokeAll(new ColumnRangeTask(axis, from, middle, factory, result),
+                          new ColumnRangeTask(axis, middle, to, factory, result));
+                return;
+            }
+            // the chunk index of the column with the axis component removed
+            final int[] columnGrid = removeAxis(chunkGrid);
+            final int[] columnIndex = toChunkIndex(from, columnGrid);
+            final int[] blockShape = new int[columnGrid.length];
+            for (int i = 0; i < blockShape.length; i++) {
+                final int dim = i < axis ? i : i + 1;
+                blockShape[i] = Math.min(chunks[dim], shape[dim] - columnIndex[i] * chunks[dim]);
+            }
+            final Accumulator<?>[] block = new Accumulator<?>[product(blockShape)];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = factory.get();
+            }
+            final int[] chunkIndex = new int[shape.length];
+            for (int i = 0; i < columnIndex.length; i++) {
+                chunkIndex[i < axis ? i : i + 1] = columnIndex[i];
+            }
+            final int[] validShape = new int[shape.length];
+            for (int c = 0; c < chunkGrid[axis]; c++) {
+                chunkIndex[axis] = c;
+                final Object data = readChunk(chunkIndex, validShape);
+                // values along the axis are the outermost loop in the reduced block: row major with the axis removed
+                final int blockSize = block.length;
+                final int[] targetIndex = new int[blockSize * validShape[axis]];
+                final int inner = product(Arrays.copyOfRange(validShape, axis + 1, validShape.length));
+                for (int i = 0; i < targetIndex.length; i++) {
+                    final int outer = i / (inner * validShape[axis]);
+                    targetIndex[i] = outer * inner + i % inner;
+                }
+                accumulate(data, block, targetIndex);
+            }
+            // copy the block into the result
+            final int[] resultShape = removeAxis(shape);
+            final int[] position = new int[blockShape.length];
+            for (int i = 0; i < block.length; i++) {
+                int rest = i;
+                for (int d = blockShape.length - 1; d >= 0; d--) {
+                    position[d] = rest % blockShape[d];
+                    rest /= blockShape[d];
+                }
+                int resultIndex = 0;
+                for (int d = 0; d < resultShape.length; d++) {
+                    final int dim = d < axis ? d : d + 1;
+                    resultIndex = resultIndex * resultShape[d] + columnIndex[d] * chunks[dim] + position[d];
+                }
+                result[resultIndex] = block[i];
+            }
+        }
+
+        private int[] removeAxis(int[] values) {
+            final int[] removed = new int[values.length - 1];
+            for (int i = 0; i < removed.length; i++) {
+                removed[i] = values[i < axis ? i : i + 1];
+            }
+            return removed;
+        }
+    }
+
+    private static int product(int[] values) {
+        int product = 1;
+        for (int value : values) {
+            product *= value;
+        }
+        return product;
+    }
+}
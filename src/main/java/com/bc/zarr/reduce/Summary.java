@@ -0,0 +1,115 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.reduce;
+
+/**
+ * Count, sum, minimum, maximum and mean of the values. The sum is computed with Kahan summation.
+ */
+public class Summary implements Accumulator<Summary> {
+
+    private long count;
+    private double sum;
+    private double compensation;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    @Override
+    public void add(long value) {
+        add((double) value);
+    }
+
+    @Override
+    public void add(double value) {
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        addToSum(value);
+    }
+
+    @Override
+    public void merge(Summary other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        addToSum(other.sum);
+        addToSum(-other.compensation);
+    }
+
+    private void addToSum(double value) {
+        final double y = value - compensation;
+        final double t = sum + y;
+        compensation = (t - sum) - y;
+        sum = t;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the minimum or NaN if no value has been added
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the maximum or NaN if no value has been added
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean or NaN if no value has been added
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "Summary{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + ", mean=" + getMean() + "}";
+    }
+}
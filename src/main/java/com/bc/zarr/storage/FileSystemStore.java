@@ -31,13 +31,17 @@ import com.bc.zarr.ZarrUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -67,6 +71,30 @@ public class FileSystemStore implements Store {
         return null;
     }
 
+    @Override
+    public ByteBuffer getRange(String key, long offset, int length) throws IOException {
+        final Path path = internalRoot.resolve(key);
+        if (!Files.isReadable(path)) {
+            return null;
+        }
+        try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long start = offset < 0 ? size + offset : offset;
+            if (start < 0 || length < 0 || start + length > size) {
+                throw new IOException("Range [" + offset + ", " + length + "] exceeds the size " + size + " of '" + key + "'.");
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(length);
+            channel.position(start);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Unexpected end of '" + key + "'.");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
     @Override
     public OutputStream getOutputStream(String key) {
         return new ByteArrayOutputStream() {
@@ -108,12 +136,16 @@ public class FileSystemStore implements Store {
 
     @Override
     public TreeSet<String> getArrayKeys() throws IOException {
-        return getKeysFor(ZarrConstants.FILENAME_DOT_ZARRAY);
+        final TreeSet<String> keys = getKeysFor(ZarrConstants.FILENAME_DOT_ZARRAY);
+        keys.addAll(ZarrUtils.filterNodeKeys(this, getKeysFor(ZarrConstants.FILENAME_ZARR_JSON), ZarrConstants.NODE_TYPE_ARRAY));
+        return keys;
     }
 
     @Override
     public TreeSet<String> getGroupKeys() throws IOException {
-        return getKeysFor(ZarrConstants.FILENAME_DOT_ZGROUP);
+        final TreeSet<String> keys = getKeysFor(ZarrConstants.FILENAME_DOT_ZGROUP);
+        keys.addAll(ZarrUtils.filterNodeKeys(this, getKeysFor(ZarrConstants.FILENAME_ZARR_JSON), ZarrConstants.NODE_TYPE_GROUP));
+        return keys;
     }
 
     private TreeSet<String> getKeysFor(String suffix) throws IOException {
@@ -27,15 +27,20 @@
 package com.bc.zarr.storage;
 
 import com.bc.zarr.ZarrConstants;
+import com.bc.zarr.ZarrUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InMemoryStore implements Store {
-    private final Map<String, byte[]> map = new HashMap<>();
+    // chunks may be written by several threads concurrently
+    private final Map<String, byte[]> map = new ConcurrentHashMap<>();
 
     @Override
     public InputStream getInputStream(String key) {
@@ -58,19 +63,58 @@ public class InMemoryStore implements Store {
         };
     }
 
+    @Override
+    public ByteBuffer getRange(String key, long offset, int length) throws IOException {
+        final byte[] bytes = map.get(key);
+        if (bytes == null) {
+            return null;
+        }
+        final long start = offset < 0 ? bytes.length + offset : offset;
+        if (start < 0 || length < 0 || start + length > bytes.length) {
+            throw new IOException("Range [" + offset + ", " + length + "] exceeds the size " + bytes.length + " of '" + key + "'.");
+        }
+        return ByteBuffer.wrap(bytes, (int) start, length).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public Map<String, ByteBuffer> getMany(Collection<String> keys) {
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        for (String key : keys) {
+            final byte[] bytes = map.get(key);
+            if (bytes != null) {
+                values.put(key, ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putMany(Map<String, ByteBuffer> values) {
+        for (Map.Entry<String, ByteBuffer> entry : values.entrySet()) {
+            final ByteBuffer value = entry.getValue().duplicate();
+            final byte[] bytes = new byte[value.remaining()];
+            value.get(bytes);
+            map.put(entry.getKey(), bytes);
+        }
+    }
+
     @Override
     public void delete(String key) {
         map.remove(key);
     }
 
     @Override
-    public TreeSet<String> getArrayKeys() {
-        return getKeysFor(ZarrConstants.FILENAME_DOT_ZARRAY);
+    public TreeSet<String> getArrayKeys() throws IOException {
+        final TreeSet<String> keys = getKeysFor(ZarrConstants.FILENAME_DOT_ZARRAY);
+        keys.addAll(ZarrUtils.filterNodeKeys(this, getKeysFor(ZarrConstants.FILENAME_ZARR_JSON), ZarrConstants.NODE_TYPE_ARRAY));
+        return keys;
     }
 
     @Override
-    public TreeSet<String> getGroupKeys() {
-        return getKeysFor(ZarrConstants.FILENAME_DOT_ZGROUP);
+    public TreeSet<String> getGroupKeys() throws IOException {
+        final TreeSet<String> keys = getKeysFor(ZarrConstants.FILENAME_DOT_ZGROUP);
+        keys.addAll(ZarrUtils.filterNodeKeys(this, getKeysFor(ZarrConstants.FILENAME_ZARR_JSON), ZarrConstants.NODE_TYPE_GROUP));
+        return keys;
     }
 
     private TreeSet<String> getKeysFor(String suffix) {
@@ -0,0 +1,467 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.storage;
+
+import com.bc.zarr.ChunkKeyEncoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Store} decorator which packs the chunks of a single array into shards, so that arrays with
+ * a huge number of small chunks do not result in a huge number of stored objects.<br/>
+ * <br/>
+ * Chunk keys of the array are mapped to a shard key and a position inside the shard. The layout of a
+ * shard follows the Zarr v3 {@code sharding_indexed} codec with {@code index_location = "end"}: the encoded
+ * chunks are concatenated and followed by an index which holds an {@code (offset, nbytes)} pair of little
+ * endian unsigned 64 bit integers for each chunk of the shard in C order. Chunks which are not present are
+ * marked with offset and nbytes set to {@code 2^64 - 1}. Optionally the index is followed by its CRC32C
+ * checksum (index codecs {@code bytes} + {@code crc32c}, the Zarr v3 default).<br/>
+ * <br/>
+ * Chunks are read via range reads of the underlying store, shards are written as a whole. All keys which
+ * are not chunk keys of the array are passed through to the underlying store unchanged.<br/>
+ * <br/>
+ * Reads and writes of a shard are serialized by a lock per shard, so readers never see a shard index and chunk
+ * data of different writes. The locks are local to this instance: other instances or processes must not write
+ * shards which are read or written concurrently through this store.
+ */
+public class ShardingStore implements Store {
+
+    private static final long MISSING = 0xFFFFFFFFFFFFFFFFL;
+
+    private final Store store;
+    private final String keyPrefix;
+    private final int[] chunksPerShard;
+    private final ChunkKeyEncoding chunkKeyEncoding;
+    private final boolean indexChecksum;
+    private final int chunksInShard;
+    private final int indexSize;
+    private final Map<String, ReentrantLock> shardLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store with the Zarr v3 defaults: {@code default} chunk key encoding with {@code "/"} separator
+     * and an index followed by its CRC32C checksum.
+     *
+     * @param store          the underlying store
+     * @param arrayKey       the store key of the array whose chunks are to be sharded
+     * @param chunksPerShard the number of chunks per shard along each dimension
+     */
+    public ShardingStore(Store store, String arrayKey, int[] chunksPerShard) {
+        this(store, arrayKey, chunksPerShard, ChunkKeyEncoding.create(ChunkKeyEncoding.NAME_DEFAULT, "/"), true);
+    }
+
+    /**
+     * @param store            the underlying store
+     * @param arrayKey         the store key of the array whose chunks are to be sharded
+     * @param chunksPerShard   the number of chunks per shard along each dimension
+     * @param chunkKeyEncoding the encoding of the chunk keys, also used for the shard keys
+     * @param indexChecksum    whether the shard index is followed by a CRC32C checksum
+     */
+    public ShardingStore(Store store, String arrayKey, int[] chunksPerShard, ChunkKeyEncoding chunkKeyEncoding, boolean indexChecksum) {
+        this.store = store;
+        this.keyPrefix = arrayKey == null || arrayKey.isEmpty() ? "" : arrayKey + "/";
+        this.chunksPerShard = Arrays.copyOf(chunksPerShard, chunksPerShard.length);
+        this.chunkKeyEncoding = chunkKeyEncoding;
+        this.indexChecksum = indexChecksum;
+        int count = 1;
+        for (int cps : chunksPerShard) {
+            if (cps < 1) {
+                throw new IllegalArgumentException("Chunks per shard must be greater than zero but was " + Arrays.toString(chunksPerShard));
+            }
+            count *= cps;
+        }
+        this.chunksInShard = count;
+        this.indexSize = count * 16 + (indexChecksum ? 4 : 0);
+    }
+
+    @Override
+    public InputStream getInputStream(String key) throws IOException {
+        if (locate(key) == null) {
+            return store.getInputStream(key);
+        }
+        final ByteBuffer chunk = getMany(Collections.singletonList(key)).get(key);
+        if (chunk == null) {
+            return null;
+        }
+        final byte[] bytes = new byte[chunk.remaining()];
+        chunk.get(bytes);
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public OutputStream getOutputStream(String key) throws IOException {
+        if (locate(key) == null) {
+            return store.getOutputStream(key);
+        }
+        return new ByteArrayOutputStream() {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (!closed) {
+                        putMany(Collections.singletonMap(key, ByteBuffer.wrap(this.toByteArray())));
+                    }
+                } finally {
+                    closed = true;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        final ChunkLocation location = locate(key);
+        if (location == null) {
+            store.delete(key);
+            return;
+        }
+        final ReentrantLock lock = shardLocks.computeIfAbsent(location.shardKey, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            final ByteBuffer[] chunks = readShard(store.getMany(Collections.singletonList(location.shardKey)).get(location.shardKey));
+            if (chunks[location.position] != null) {
+                chunks[location.position] = null;
+                writeShards(Collections.singletonMap(location.shardKey, chunks));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the chunks shard by shard, so that each shard is read and rewritten once.
+     */
+    @Override
+    public void deleteMany(Collection<String> keys) throws IOException {
+        final List<String> plainKeys = new ArrayList<>();
+        final SortedMap<String, List<Integer>> byShard = new TreeMap<>();
+        for (String key : keys) {
+            final ChunkLocation location = locate(key);
+            if (location == null) {
+                plainKeys.add(key);
+            } else {
+                byShard.computeIfAbsent(location.shardKey, k -> new ArrayList<>()).add(location.position);
+            }
+        }
+        store.deleteMany(plainKeys);
+        for (Map.Entry<String, List<Integer>> entry : byShard.entrySet()) {
+            final String shardKey = entry.getKey();
+            final ReentrantLock lock = shardLocks.computeIfAbsent(shardKey, k -> new ReentrantLock());
+            lock.lock();
+            try {
+                final ByteBuffer[] chunks = readShard(store.getMany(Collections.singletonList(shardKey)).get(shardKey));
+                boolean changed = false;
+                for (int position : entry.getValue()) {
+                    changed |= chunks[position] != null;
+                    chunks[position] = null;
+                }
+                if (changed) {
+                    writeShards(Collections.singletonMap(shardKey, chunks));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, ByteBuffer> getMany(Collection<String> keys) throws IOException {
+        final List<String> plainKeys = new ArrayList<>();
+        final Map<String, List<ChunkLocation>> byShard = new LinkedHashMap<>();
+        for (String key : keys) {
+            final ChunkLocation location = locate(key);
+            if (location == null) {
+                plainKeys.add(key);
+            } else {
+                byShard.computeIfAbsent(location.shardKey, k -> new ArrayList<>()).add(location);
+            }
+        }
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        if (!plainKeys.isEmpty()) {
+            values.putAll(store.getMany(plainKeys));
+        }
+        for (Map.Entry<String, List<ChunkLocation>> entry : byShard.entrySet()) {
+            final String shardKey = entry.getKey();
+            final List<ChunkLocation> locations = entry.getValue();
+            // the index and the chunks are read under the lock, so that they belong to the same write
+            final ReentrantLock lock = shardLocks.computeIfAbsent(shardKey, k -> new ReentrantLock());
+            lock.lock();
+            try {
+                if (locations.size() * 2 > chunksInShard) {
+                    // most of the shard is requested, a single read is cheaper than many range reads
+                    final ByteBuffer[] chunks = readShard(store.getMany(Collections.singletonList(shardKey)).get(shardKey));
+                    for (ChunkLocation location : locations) {
+                        if (chunks[location.position] != null) {
+                            values.put(location.key, chunks[location.position]);
+                        }
+                    }
+                } else {
+                    final ByteBuffer indexBytes = store.getRange(shardKey, -indexSize, indexSize);
+                    if (indexBytes == null) {
+                        continue;
+                    }
+                    final long[] index = readIndex(indexBytes, shardKey);
+                    for (ChunkLocation location : locations) {
+                        final long offset = index[location.position * 2];
+                        final long nbytes = index[location.position * 2 + 1];
+                        if (offset != MISSING) {
+                            checkIndexEntry(shardKey, location.position, offset, nbytes, Integer.MAX_VALUE - indexSize);
+                            values.put(location.key, store.getRange(shardKey, offset, (int) nbytes));
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putMany(Map<String, ByteBuffer> values) throws IOException {
+        final Map<String, ByteBuffer> plainValues = new HashMap<>();
+        final SortedMap<String, Map<Integer, ByteBuffer>> byShard = new TreeMap<>();
+        for (Map.Entry<String, ByteBuffer> entry : values.entrySet()) {
+            final ChunkLocation location = locate(entry.getKey());
+            if (location == null) {
+                plainValues.put(entry.getKey(), entry.getValue());
+            } else {
+                byShard.computeIfAbsent(location.shardKey, k -> new HashMap<>()).put(location.position, entry.getValue());
+            }
+        }
+        if (!plainValues.isEmpty()) {
+            store.putMany(plainValues);
+        }
+        if (byShard.isEmpty()) {
+            return;
+        }
+
+        // shard keys are sorted, so concurrent writers acquire the locks in the same order
+        final List<ReentrantLock> locks = new ArrayList<>();
+        try {
+            final List<String> partialShards = new ArrayList<>();
+            for (Map.Entry<String, Map<Integer, ByteBuffer>> entry : byShard.entrySet()) {
+                final ReentrantLock lock = shardLocks.computeIfAbsent(entry.getKey(), k -> new ReentrantLock());
+                lock.lock();
+                locks.add(lock);
+                if (entry.getValue().size() < chunksInShard) {
+                    partialShards.add(entry.getKey());
+                }
+            }
+            final Map<String, ByteBuffer> existing = partialShards.isEmpty()
+                                                     ? Collections.emptyMap()
+                                                     : store.getMany(partialShards);
+            final Map<String, ByteBuffer[]> shards = new HashMap<>();
+            for (Map.Entry<String, Map<Integer, ByteBuffer>> entry : byShard.entrySet()) {
+                final ByteBuffer[] chunks = readShard(existing.get(entry.getKey()));
+                for (Map.Entry<Integer, ByteBuffer> chunk : entry.getValue().entrySet()) {
+                    chunks[chunk.getKey()] = chunk.getValue();
+                }
+                shards.put(entry.getKey(), chunks);
+            }
+            writeShards(shards);
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Set<String> getArrayKeys() throws IOException {
+        return store.getArrayKeys();
+    }
+
+    @Override
+    public Set<String> getGroupKeys() throws IOException {
+        return store.getGroupKeys();
+    }
+
+    private void writeShards(Map<String, ByteBuffer[]> shards) throws IOException {
+        final Map<String, ByteBuffer> toBeStored = new HashMap<>();
+        for (Map.Entry<String, ByteBuffer[]> entry : shards.entrySet()) {
+            final ByteBuffer shard = encodeShard(entry.getValue());
+            if (shard == null) {
+                store.delete(entry.getKey());
+            } else {
+                toBeStored.put(entry.getKey(), shard);
+            }
+        }
+        if (!toBeStored.isEmpty()) {
+            store.putMany(toBeStored);
+        }
+    }
+
+    private ByteBuffer encodeShard(ByteBuffer[] chunks) {
+        long dataSize = 0;
+        boolean empty = true;
+        for (ByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                dataSize += chunk.remaining();
+                empty = false;
+            }
+        }
+        if (empty) {
+            return null;
+        }
+        if (dataSize + indexSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Shard size exceeds " + Integer.MAX_VALUE + " bytes.");
+        }
+        final ByteBuffer shard = ByteBuffer.allocate((int) dataSize + indexSize);
+        final ByteBuffer index = ByteBuffer.allocate(indexSize).order(ByteOrder.LITTLE_ENDIAN);
+        for (ByteBuffer chunk : chunks) {
+            if (chunk == null) {
+                index.putLong(MISSING).putLong(MISSING);
+            } else {
+                index.putLong(shard.position()).putLong(chunk.remaining());
+                shard.put(chunk.duplicate());
+            }
+        }
+        if (indexChecksum) {
+            index.putInt(crc32c(index.array(), 0, indexSize - 4));
+        }
+        index.flip();
+        shard.put(index);
+        shard.flip();
+        return shard;
+    }
+
+    private ByteBuffer[] readShard(ByteBuffer shard) throws IOException {
+        final ByteBuffer[] chunks = new ByteBuffer[chunksInShard];
+        if (shard == null) {
+            return chunks;
+        }
+        if (shard.remaining() < indexSize) {
+            throw new IOException("Shard is smaller than its index.");
+        }
+        final ByteBuffer indexBytes = shard.duplicate();
+        indexBytes.position(shard.limit() - indexSize);
+        final long[] index = readIndex(indexBytes, null);
+        final long dataSize = shard.remaining() - indexSize;
+        for (int i = 0; i < chunksInShard; i++) {
+            final long offset = index[i * 2];
+            final long nbytes = index[i * 2 + 1];
+            if (offset == MISSING) {
+                continue;
+            }
+            checkIndexEntry(null, i, offset, nbytes, dataSize);
+            final ByteBuffer chunk = shard.duplicate();
+            chunk.position(shard.position() + (int) offset);
+            chunk.limit(chunk.position() + (int) nbytes);
+            chunks[i] = chunk.slice();
+        }
+        return chunks;
+    }
+
+    /**
+     * @param dataSize the size of the chunk data of the shard, or an upper bound if it is not known
+     */
+    private static void checkIndexEntry(String shardKey, int position, long offset, long nbytes, long dataSize) throws IOException {
+        // the unsigned values of the index are negative beyond 2^63
+        if (offset < 0 || nbytes < 0 || nbytes > dataSize - offset) {
+            throw new IOException("Corrupt shard index entry " + position + (shardKey == null ? "" : " of '" + shardKey + "'")
+                                  + ": offset=" + offset + ", nbytes=" + nbytes);
+        }
+    }
+
+    private long[] readIndex(ByteBuffer indexBytes, String shardKey) throws IOException {
+        if (indexBytes.remaining() != indexSize) {
+            throw new IOException("Unexpected shard index size " + indexBytes.remaining() + (shardKey == null ? "" : " of '" + shardKey + "'"));
+        }
+        final ByteBuffer buffer = indexBytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final long[] index = new long[chunksInShard * 2];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = buffer.getLong();
+        }
+        if (indexChecksum) {
+            final byte[] bytes = new byte[indexSize - 4];
+            indexBytes.duplicate().get(bytes);
+            if (buffer.getInt() != crc32c(bytes, 0, bytes.length)) {
+                throw new IOException("Shard index checksum mismatch" + (shardKey == null ? "" : " in '" + shardKey + "'"));
+            }
+        }
+        return index;
+    }
+
+    private ChunkLocation locate(String key) {
+        if (!key.startsWith(keyPrefix)) {
+            return null;
+        }
+        final int[] chunkIndex = chunkKeyEncoding.decode(key.substring(keyPrefix.length()), chunksPerShard.length);
+        if (chunkIndex == null) {
+            return null;
+        }
+        final int[] shardIndex = new int[chunkIndex.length];
+        int position = 0;
+        for (int i = 0; i < chunkIndex.length; i++) {
+            shardIndex[i] = chunkIndex[i] / chunksPerShard[i];
+            position = position * chunksPerShard[i] + chunkIndex[i] % chunksPerShard[i];
+        }
+        return new ChunkLocation(key, keyPrefix + chunkKeyEncoding.encode(shardIndex), position);
+    }
+
+    private static final int[] CRC32C_TABLE = new int[256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ 0x82F63B78 : c >>> 1;
+            }
+            CRC32C_TABLE[n] = c;
+        }
+    }
+
+    static int crc32c(byte[] bytes, int offset, int length) {
+        int crc = 0xFFFFFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc = (crc >>> 8) ^ CRC32C_TABLE[(crc ^ bytes[i]) & 0xFF];
+        }
+        return ~crc;
+    }
+
+    private static final class ChunkLocation {
+        private final String key;
+        private final String shardKey;
+        private final int position;
+
+        private ChunkLocation(String key, String shardKey, int position) {
+            this.key = key;
+            this.shardKey = shardKey;
+            this.position = position;
+        }
+    }
+}
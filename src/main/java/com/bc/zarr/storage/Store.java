@@ -26,10 +26,18 @@
 
 package com.bc.zarr.storage;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -47,6 +55,95 @@ public interface Store extends Closeable {
 
     void delete(String key) throws IOException;
 
+    /**
+     * Reads a byte range of the value associated with the given key. Stores which are able to read
+     * ranges without reading the whole value (e.g. file channels, HTTP range requests) should override
+     * this method. The default implementation reads the whole value and returns the requested part.
+     *
+     * @param key    the key
+     * @param offset the position of the first byte to be read. A negative offset addresses the range relative
+     *               to the end of the value, e.g. {@code getRange(key, -16, 16)} returns the last 16 bytes.
+     * @param length the number of bytes to be read
+     * @return the requested bytes or {@code null} if the key is not present in the store
+     * @throws IOException if the range could not be read or lies outside of the value
+     */
+    default ByteBuffer getRange(String key, long offset, int length) throws IOException {
+        final ByteBuffer value = getMany(Collections.singletonList(key)).get(key);
+        if (value == null) {
+            return null;
+        }
+        final long start = offset < 0 ? value.remaining() + offset : offset;
+        if (start < 0 || length < 0 || start + length > value.remaining()) {
+            throw new IOException("Range [" + offset + ", " + length + "] exceeds the size " + value.remaining() + " of '" + key + "'.");
+        }
+        final ByteBuffer range = value.duplicate();
+        range.position(range.position() + (int) start);
+        range.limit(range.position() + length);
+        return range.slice();
+    }
+
+    /**
+     * Reads the values of several keys at once. Stores which are able to batch requests (e.g. remote stores
+     * or stores with an expensive lookup per key) should override this method to amortize the per request
+     * overhead. The default implementation reads the keys one after the other.
+     *
+     * @param keys the keys to be read
+     * @return a map from key to value. Keys which are not present in the store are not contained in the map.
+     * @throws IOException if one of the values could not be read
+     */
+    default Map<String, ByteBuffer> getMany(Collection<String> keys) throws IOException {
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        for (String key : keys) {
+            try (final InputStream is = getInputStream(key)) {
+                if (is == null) {
+                    continue;
+                }
+                final ByteArrayOutputStream os = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = is.read(buffer)) >= 0) {
+                    os.write(buffer, 0, read);
+                }
+                values.put(key, ByteBuffer.wrap(os.toByteArray()));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Writes the values of several keys at once. Stores which are able to batch requests should override
+     * this method. The default implementation writes the values one after the other.
+     *
+     * @param values a map from key to value. The remaining bytes of each buffer are written.
+     * @throws IOException if one of the values could not be written
+     */
+    default void putMany(Map<String, ByteBuffer> values) throws IOException {
+        for (Map.Entry<String, ByteBuffer> entry : values.entrySet()) {
+            try (
+                    final OutputStream os = getOutputStream(entry.getKey());
+                    final WritableByteChannel channel = Channels.newChannel(os)
+            ) {
+                final ByteBuffer value = entry.getValue().duplicate();
+                while (value.hasRemaining()) {
+                    channel.write(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes several keys at once. Stores which are able to batch requests should override this method. The
+     * default implementation deletes the keys one after the other.
+     *
+     * @param keys the keys to be deleted, keys which are not present in the store are ignored
+     * @throws IOException if one of the keys could not be deleted
+     */
+    default void deleteMany(Collection<String> keys) throws IOException {
+        for (String key : keys) {
+            delete(key);
+        }
+    }
+
     Set<String> getArrayKeys() throws IOException;
 
     Set<String> getGroupKeys() throws IOException;
@@ -108,12 +108,16 @@ public class ZipStore implements Store {
 
     @Override
     public TreeSet<String> getArrayKeys() throws IOException {
-        return getKeysFor(ZarrConstants.FILENAME_DOT_ZARRAY);
+        final TreeSet<String> keys = getKeysFor(ZarrConstants.FILENAME_DOT_ZARRAY);
+        keys.addAll(ZarrUtils.filterNodeKeys(this, getKeysFor(ZarrConstants.FILENAME_ZARR_JSON), ZarrConstants.NODE_TYPE_ARRAY));
+        return keys;
     }
 
     @Override
     public TreeSet<String> getGroupKeys() throws IOException {
-        return getKeysFor(ZarrConstants.FILENAME_DOT_ZGROUP);
+        final TreeSet<String> keys = getKeysFor(ZarrConstants.FILENAME_DOT_ZGROUP);
+        keys.addAll(ZarrUtils.filterNodeKeys(this, getKeysFor(ZarrConstants.FILENAME_ZARR_JSON), ZarrConstants.NODE_TYPE_GROUP));
+        return keys;
     }
 
     private TreeSet<String> getKeysFor(String suffix) throws IOException {
@@ -0,0 +1,281 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrUtils;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Computes an output array from one or more input arrays of the same shape, block by block. E.g. to convert
+ * temperatures from Kelvin to Celsius:
+ * <pre>
+ *    new ChunkMapper(celsius, kelvin).run(k -&gt; k - 273.15);
+ * </pre>
+ * The blocks are the chunks (or shards) of the output array, so every output chunk is written exactly once and
+ * without reading it first. The blocks are processed in parallel, each worker holds one block of every input and
+ * of the output at a time.
+ */
+public class ChunkMapper {
+
+    private final ZarrArray output;
+    private final ZarrArray[] inputs;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean propagateFillValues;
+
+    /**
+     * @param output the array to be written
+     * @param inputs the arrays to be read, all of the same shape as the output
+     */
+    public ChunkMapper(ZarrArray output, ZarrArray... inputs) {
+        if (inputs.length == 0) {
+            throw new IllegalArgumentException("At least one input array expected.");
+        }
+        for (ZarrArray input : inputs) {
+            if (!Arrays.equals(input.getShape(), output.getShape())) {
+                throw new IllegalArgumentException("Shapes differ: input " + Arrays.toString(input.getShape()) + ", output " + Arrays.toString(output.getShape()) + ".");
+            }
+        }
+        this.output = output;
+        this.inputs = inputs.clone();
+    }
+
+    /**
+     * @param parallelism the number of blocks processed concurrently, default the number of processors
+     * @return a reference to this mapper
+     */
+    public ChunkMapper parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param propagateFillValues whether elements which are fill values in any input become fill values of the
+     *                            output instead of being passed to an elementwise function, default {@code false}
+     * @return a reference to this mapper
+     */
+    public ChunkMapper propagateFillValues(boolean propagateFillValues) {
+        this.propagateFillValues = propagateFillValues;
+        return this;
+    }
+
+    /**
+     * Applies an elementwise function to a single input, see {@link #propagateFillValues(boolean)} for the
+     * handling of fill values. Results are rounded to the nearest integer for integer outputs.
+     *
+     * @return the number of blocks written
+     */
+    public int run(DoubleUnaryOperator operator) throws IOException, InvalidRangeException {
+        expectInputs(1);
+        return run(elementwise(values -> operator.applyAsDouble(values[0])));
+    }
+
+    /**
+     * Applies an elementwise function to two inputs, see {@link #propagateFillValues(boolean)} for the handling
+     * of fill values. Results are rounded to the nearest integer for integer outputs.
+     *
+     * @return the number of blocks written
+     */
+    public int run(DoubleBinaryOperator operator) throws IOException, InvalidRangeException {
+        expectInputs(2);
+        return run(elementwise(values -> operator.applyAsDouble(values[0], values[1])));
+    }
+
+    /**
+     * @return the number of blocks written
+     */
+    public int run(ChunkFunction function) throws IOException, InvalidRangeException {
+        final int[] shape = output.getShape();
+        final int[] blocks = output.getShards() != null ? output.getShards() : output.getChunks();
+        final List<int[]> offsets = blockOffsets(shape, blocks);
+        if (offsets.isEmpty()) {
+            return 0;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, offsets.size()));
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int[] offset : offsets) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    process(function, offset, blocks);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Mapping interrupted.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InvalidRangeException) {
+                throw (InvalidRangeException) cause;
+            }
+            throw new IOException("Mapping failed.", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return offsets.size();
+    }
+
+    private void process(ChunkFunction function, int[] offset, int[] blocks) throws IOException, InvalidRangeException {
+        final int[] shape = output.getShape();
+        final int[] blockShape = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            blockShape[i] = Math.min(blocks[i], shape[i] - offset[i]);
+        }
+        final Object[] inputBlocks = new Object[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputBlocks[i] = inputs[i].read(blockShape, offset);
+        }
+        final Object outputBlock = ZarrUtils.createDataBuffer(output.getDataType(), blockShape);
+        function.apply(inputBlocks, outputBlock, blockShape, offset);
+        output.write(outputBlock, blockShape, offset);
+    }
+
+    private ChunkFunction elementwise(ElementFunction function) {
+        final Number[] inputFills = new Number[inputs.length];
+        final DataType[] inputTypes = new DataType[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            // without propagation fill values are ordinary values, e.g. the default fill value 0
+            inputFills[i] = propagateFillValues ? inputs[i].getFillValue() : null;
+            inputTypes[i] = inputs[i].getDataType();
+        }
+        final Number outputFill = output.getFillValue();
+        final DataType outputType = output.getDataType();
+        return (inputBlocks, outputBlock, shape, offset) -> {
+            final int size = java.lang.reflect.Array.getLength(outputBlock);
+            final double[] values = new double[inputBlocks.length];
+            for (int e = 0; e < size; e++) {
+                boolean isFill = false;
+                for (int i = 0; i < inputBlocks.length; i++) {
+                    values[i] = get(inputBlocks[i], inputTypes[i], e);
+                    isFill |= inputFills[i] != null && isFill(values[i], inputFills[i].doubleValue());
+                }
+                final double result = isFill ? (outputFill == null ? Double.NaN : outputFill.doubleValue()) : function.apply(values);
+                set(outputBlock, outputType, e, result);
+            }
+        };
+    }
+
+    private void expectInputs(int count) {
+        if (inputs.length != count) {
+            throw new IllegalStateException("The function expects " + count + " inputs but the mapper has " + inputs.length + ".");
+        }
+    }
+
+    private static boolean isFill(double value, double fill) {
+        return value == fill || Double.isNaN(fill) && Double.isNaN(value);
+    }
+
+    static double get(Object block, DataType dataType, int index) {
+        switch (dataType) {
+            case f8:
+                return ((double[]) block)[index];
+            case f4:
+                return ((float[]) block)[index];
+            case i8:
+                return ((long[]) block)[index];
+            case i4:
+                return ((int[]) block)[index];
+            case u4:
+                return ((int[]) block)[index] & 0xFFFFFFFFL;
+            case i2:
+                return ((short[]) block)[index];
+            case u2:
+                return ((short[]) block)[index] & 0xFFFF;
+            case i1:
+                return ((byte[]) block)[index];
+            default:
+                return ((byte[]) block)[index] & 0xFF;
+        }
+    }
+
+    static void set(Object block, DataType dataType, int index, double value) {
+        switch (dataType) {
+            case f8:
+                ((double[]) block)[index] = value;
+                break;
+            case f4:
+                ((float[]) block)[index] = (float) value;
+                break;
+            case i8:
+                ((long[]) block)[index] = (long) Math.rint(value);
+                break;
+            case i4:
+            case u4:
+                ((int[]) block)[index] = (int) (long) Math.rint(value);
+                break;
+            case i2:
+            case u2:
+                ((short[]) block)[index] = (short) (long) Math.rint(value);
+                break;
+            default:
+                ((byte[]) block)[index] = (byte) (long) Math.rint(value);
+        }
+    }
+
+    static List<int[]> blockOffsets(int[] shape, int[] blocks) {
+        final int[] counts = new int[shape.length];
+        long total = 1;
+        for (int i = 0; i < shape.length; i++) {
+            counts[i] = (shape[i] + blocks[i] - 1) / blocks[i];
+            total *= counts[i];
+        }
+        final List<int[]> offsets = new ArrayList<>();
+        for (long linearIndex = 0; linearIndex < total; linearIndex++) {
+            final int[] offset = new int[shape.length];
+            long rest = linearIndex;
+            for (int i = shape.length - 1; i >= 0; i--) {
+                offset[i] = (int) (rest % counts[i]) * blocks[i];
+                rest /= counts[i];
+            }
+            offsets.add(offset);
+        }
+        return offsets;
+    }
+
+    private interface ElementFunction {
+        double apply(double[] values);
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.Compressor;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.chunk.ChunkReaderWriter;
+import com.bc.zarr.storage.InMemoryStore;
+import com.bc.zarr.storage.Store;
+import com.bc.zarr.ucar.NetCDF_Util;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Helps choosing the {@link Compressor} of an array by trial compressing sample chunks with a set of candidates.
+ * E.g.:
+ * <pre>
+ *    List&lt;CompressorTrial&gt; trials = new CompressorSelector().sampleCount(20).evaluate(ZarrArray.open(path));
+ *    Compressor best = CompressorSelector.best(trials, 100);
+ *    ZarrArray.create(target, params.compressor(best));
+ * </pre>
+ * The samples are serialized like chunks of the array, including its byte order and filters. The candidates are
+ * evaluated in parallel, each candidate by a single thread, so the measured throughputs are those of a single
+ * core as long as the parallelism does not exceed the number of cores.
+ */
+public class CompressorSelector {
+
+    private static final int MAX_ATTEMPTS_PER_SAMPLE = 50;
+
+    private List<Compressor> candidates = defaultCandidates();
+    private int sampleCount = 10;
+    private int repetitions = 3;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long seed = 42;
+
+    /**
+     * @return zlib, gzip, zstd and blosc at several levels, lz4 and bz2. The blosc candidates fail if the native
+     * blosc library is not available.
+     */
+    public static List<Compressor> defaultCandidates() {
+        final List<Compressor> compressors = new ArrayList<>();
+        for (int level : new int[]{1, 5, 9}) {
+            compressors.add(CompressorFactory.create("zlib", "level", level));
+        }
+        compressors.add(CompressorFactory.create("gzip", "level", 5));
+        for (int level : new int[]{1, 3, 9, 19}) {
+            compressors.add(CompressorFactory.create("zstd", "level", level));
+        }
+        compressors.add(CompressorFactory.create("lz4"));
+        compressors.add(CompressorFactory.create("bz2", "level", 9));
+        for (String cname : new String[]{"lz4", "zstd", "blosclz"}) {
+            for (int shuffle : new int[]{0, 1, 2}) {
+                for (int clevel : new int[]{1, 5, 9}) {
+                    compressors.add(CompressorFactory.create("blosc", "cname", cname, "shuffle", shuffle, "clevel", clevel));
+                }
+            }
+        }
+        return compressors;
+    }
+
+    /**
+     * @param compressors the candidates, e.g. created by {@link CompressorFactory}
+     * @return a reference to this selector
+     */
+    public CompressorSelector candidates(List<Compressor> compressors) {
+        if (compressors == null || compressors.isEmpty()) {
+            throw new IllegalArgumentException("At least one candidate compressor must be given.");
+        }
+        this.candidates = new ArrayList<>(compressors);
+        return this;
+    }
+
+    /**
+     * @param sampleCount the maximum number of chunks sampled from an array, default {@code 10}
+     * @return a reference to this selector
+     */
+    public CompressorSelector sampleCount(int sampleCount) {
+        if (sampleCount < 1) {
+            throw new IllegalArgumentException("Sample count must be at least 1 but was " + sampleCount + ".");
+        }
+        this.sampleCount = sampleCount;
+        return this;
+    }
+
+    /**
+     * @param repetitions the number of times each sample is compressed and uncompressed to measure the
+     *                    throughput, default {@code 3}. The fastest repetition counts.
+     * @return a reference to this selector
+     */
+    public CompressorSelector repetitions(int repetitions) {
+        if (repetitions < 1) {
+            throw new IllegalArgumentException("Repetitions must be at least 1 but was " + repetitions + ".");
+        }
+        this.repetitions = repetitions;
+        return this;
+    }
+
+    /**
+     * @param parallelism the number of candidates evaluated concurrently, default the number of processors
+     * @return a reference to this selector
+     */
+    public CompressorSelector parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param seed the seed of the random chunk selection, default {@code 42}
+     * @return a reference to this selector
+     */
+    public CompressorSelector seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Samples up to {@link #sampleCount(int)} randomly chosen chunks of the array and trial compresses them.
+     * Only chunks present in the store are sampled, at most {@code 50} chunks are probed per sample.
+     *
+     * @return the trials sorted by descending compression ratio, failed trials last
+     */
+    public List<CompressorTrial> evaluate(ZarrArray array) throws IOException, InvalidRangeException {
+        final int[] shape = array.getShape();
+        final int[] chunks = array.getChunks();
+        final List<int[]> chunkIndices = sampleChunkIndices(array);
+        if (chunkIndices.isEmpty()) {
+            throw new IOException("No stored chunks found to be sampled in " + array + ".");
+        }
+        final List<byte[]> samples = new ArrayList<>();
+        for (int[] chunkIndex : chunkIndices) {
+            final int[] offset = new int[shape.length];
+            final int[] regionShape = new int[shape.length];
+            for (int i = 0; i < shape.length; i++) {
+                offset[i] = chunkIndex[i] * chunks[i];
+                regionShape[i] = Math.min(chunks[i], shape[i] - offset[i]);
+            }
+            final Object data = array.read(regionShape, offset);
+            samples.add(serialize(data, regionShape, array));
+        }
+        return evaluate(samples);
+    }
+
+    /**
+     * Trial compresses a single in-memory buffer.
+     *
+     * @param data     a primitive java array, e.g. {@code float[]}
+     * @param shape    the shape of the data
+     * @param dataType the data type the data is stored with
+     * @param order    the byte order the data is stored with
+     * @return the trials sorted by descending compression ratio, failed trials last
+     */
+    public List<CompressorTrial> evaluate(Object data, int[] shape, DataType dataType, ByteOrder order) throws IOException {
+        final ChunkReaderWriter serializer = ChunkReaderWriter.create(CompressorFactory.nullCompressor, dataType, order, shape, 0, new InMemoryStore());
+        return evaluate(Collections.singletonList(serialize(serializer, data, shape)));
+    }
+
+    /**
+     * @param trials          the result of an evaluation
+     * @param minCompressMBps the minimum compression throughput in MB/s, {@code 0} to ignore the speed
+     * @return the compressor with the best ratio among those fast enough or {@code null} if there is none
+     */
+    public static Compressor best(List<CompressorTrial> trials, double minCompressMBps) {
+        return trials.stream()
+                .filter(trial -> !trial.isFailed() && trial.getCompressMBps() >= minCompressMBps)
+                .max(Comparator.comparingDouble(CompressorTrial::getRatio))
+                .map(CompressorTrial::getCompressor)
+                .orElse(null);
+    }
+
+    private List<CompressorTrial> evaluate(List<byte[]> samples) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, candidates.size()));
+        try {
+            final List<Future<CompressorTrial>> futures = new ArrayList<>();
+            for (Compressor candidate : candidates) {
+                futures.add(executor.submit((Callable<CompressorTrial>) () -> trial(candidate, samples)));
+            }
+            final List<CompressorTrial> trials = new ArrayList<>();
+            for (Future<CompressorTrial> future : futures) {
+                trials.add(future.get());
+            }
+            trials.sort(Comparator.comparing(CompressorTrial::isFailed)
+                                .thenComparing(Comparator.comparingDouble(CompressorTrial::getRatio).reversed()));
+            return trials;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compressor evaluation interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Compressor evaluation failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompressorTrial trial(Compressor compressor, List<byte[]> samples) {
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        long compressNanos = 0;
+        long uncompressNanos = 0;
+        try {
+            for (byte[] sample : samples) {
+                byte[] compressed = null;
+                long fastest = Long.MAX_VALUE;
+                for (int i = 0; i < repetitions; i++) {
+                    final long start = System.nanoTime();
+                    compressed = compressor.compress(sample);
+                    fastest = Math.min(fastest, System.nanoTime() - start);
+                }
+                compressNanos += fastest;
+                byte[] uncompressed = null;
+                fastest = Long.MAX_VALUE;
+                for (int i = 0; i < repetitions; i++) {
+                    final long start = System.nanoTime();
+                    uncompressed = compressor.uncompress(compressed, sample.length);
+                    fastest = Math.min(fastest, System.nanoTime() - start);
+                }
+                uncompressNanos += fastest;
+                if (!Arrays.equals(sample, uncompressed)) {
+                    return new CompressorTrial(compressor, "round trip changed the data");
+                }
+                rawBytes += sample.length;
+                compressedBytes += compressed.length;
+            }
+        } catch (Exception | LinkageError e) {
+            // LinkageError: e.g. blosc without the native library
+            return new CompressorTrial(compressor, e.toString());
+        }
+        return new CompressorTrial(compressor, rawBytes, compressedBytes, compressNanos, uncompressNanos);
+    }
+
+    /**
+     * Chooses up to {@link #sampleCount(int)} random chunks which are present in the store. Chunks never written
+     * would decode to fill values only and inflate the compression ratios of sparse arrays. For sharded arrays
+     * the presence of the shard holding the chunk is checked.
+     */
+    private List<int[]> sampleChunkIndices(ZarrArray array) throws IOException {
+        final int[] shape = array.getShape();
+        final int[] chunks = array.getChunks();
+        final int[] shards = array.getShards();
+        final int[] units = shards == null ? chunks : shards;
+        final int[] chunkCounts = new int[shape.length];
+        final int[] unitCounts = new int[shape.length];
+        long total = 1;
+        for (int i = 0; i < shape.length; i++) {
+            chunkCounts[i] = (shape[i] + chunks[i] - 1) / chunks[i];
+            unitCounts[i] = (shape[i] + units[i] - 1) / units[i];
+            total *= chunkCounts[i];
+        }
+        final List<String> storageKeys = array.getStorageKeys();
+        final Random random = new Random(seed);
+        final long maxAttempts = Math.min(total, (long) sampleCount * MAX_ATTEMPTS_PER_SAMPLE);
+        final List<Long> shuffled = new ArrayList<>();
+        if (total <= maxAttempts) {
+            for (long i = 0; i < total; i++) {
+                shuffled.add(i);
+            }
+            Collections.shuffle(shuffled, random);
+        }
+        final Set<Long> tried = new HashSet<>();
+        final List<int[]> chunkIndices = new ArrayList<>();
+        while (chunkIndices.size() < sampleCount && tried.size() < maxAttempts) {
+            long linearIndex = shuffled.isEmpty() ? (long) (random.nextDouble() * total) : shuffled.get(tried.size());
+            if (!tried.add(linearIndex)) {
+                continue;
+            }
+            final int[] chunkIndex = new int[shape.length];
+            for (int i = shape.length - 1; i >= 0; i--) {
+                chunkIndex[i] = (int) (linearIndex % chunkCounts[i]);
+                linearIndex /= chunkCounts[i];
+            }
+            long unitIndex = 0;
+            for (int i = 0; i < shape.length; i++) {
+                unitIndex = unitIndex * unitCounts[i] + (long) chunkIndex[i] * chunks[i] / units[i];
+            }
+            if (isStored(array.getStore(), storageKeys.get((int) unitIndex))) {
+                chunkIndices.add(chunkIndex);
+            }
+        }
+        return chunkIndices;
+    }
+
+    private static boolean isStored(Store store, String key) throws IOException {
+        try (InputStream is = store.getInputStream(key)) {
+            return is != null;
+        }
+    }
+
+    private static byte[] serialize(Object data, int[] shape, ZarrArray array) throws IOException {
+        final ChunkReaderWriter serializer = ChunkReaderWriter.create(CompressorFactory.nullCompressor, array.getFilters(), array.getDataType(),
+                                                                      array.getByteOrder(), shape, array.getFillValue(), new InMemoryStore());
+        return serialize(serializer, data, shape);
+    }
+
+    private static byte[] serialize(ChunkReaderWriter serializer, Object data, int[] shape) throws IOException {
+        final ByteBuffer serialized = serializer.encode(NetCDF_Util.createArrayWithGivenStorage(data, shape));
+        final byte[] bytes = new byte[serialized.remaining()];
+        serialized.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.Compressor;
+
+/**
+ * The result of trial compressing sample chunks with one {@link Compressor}, see {@link CompressorSelector}.
+ */
+public final class CompressorTrial {
+
+    private final Compressor compressor;
+    private final long rawBytes;
+    private final long compressedBytes;
+    private final long compressNanos;
+    private final long uncompressNanos;
+    private final String error;
+
+    CompressorTrial(Compressor compressor, long rawBytes, long compressedBytes, long compressNanos, long uncompressNanos) {
+        this.compressor = compressor;
+        this.rawBytes = rawBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressNanos = compressNanos;
+        this.uncompressNanos = uncompressNanos;
+        this.error = null;
+    }
+
+    CompressorTrial(Compressor compressor, String error) {
+        this.compressor = compressor;
+        this.rawBytes = 0;
+        this.compressedBytes = 0;
+        this.compressNanos = 0;
+        this.uncompressNanos = 0;
+        this.error = error;
+    }
+
+    public Compressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * @return {@code true} if the compressor failed, e.g. because a native library is missing or the data did not
+     * survive the round trip
+     */
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * @return the reason of the failure or {@code null}
+     */
+    public String getError() {
+        return error;
+    }
+
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * @return raw size divided by compressed size
+     */
+    public double getRatio() {
+        return compressedBytes == 0 ? 0 : (double) rawBytes / compressedBytes;
+    }
+
+    /**
+     * @return the compression throughput in raw megabytes (10^6 bytes) per second
+     */
+    public double getCompressMBps() {
+        return compressNanos == 0 ? 0 : rawBytes * 1000.0 / compressNanos;
+    }
+
+    /**
+     * @return the decompression throughput in raw megabytes (10^6 bytes) per second
+     */
+    public double getUncompressMBps() {
+        return uncompressNanos == 0 ? 0 : rawBytes * 1000.0 / uncompressNanos;
+    }
+
+    @Override
+    public String toString() {
+        if (isFailed()) {
+            return compressor + " failed: " + error;
+        }
+        return String.format("%s ratio=%.2f compress=%.1fMB/s uncompress=%.1fMB/s",
+                             compressor, getRatio(), getCompressMBps(), getUncompressMBps());
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.DataType;
+import com.bc.zarr.Filter;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+import com.bc.zarr.ZarrUtils;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a multiscale pyramid of a 2D or 3D array. The full resolution array is copied into the target group as
+ * level {@code "0"}, each further level {@code "1"}, {@code "2"}, ... halves the last two dimensions of the level
+ * before it, so no level is computed from the full resolution data except level {@code "1"}. The chunks of a level
+ * are computed in parallel, each from a block of at most four chunks of the level before it.
+ * <p>
+ * The levels are described by an OME-NGFF (version 0.4) {@code multiscales} attribute of the target group.
+ */
+public class PyramidBuilder {
+
+    public enum Resampling {
+        /**
+         * The mean of the valid values of each 2x2 window, rounded for integer data types. NaN is not valid, nor
+         * are fill values if {@link #skipFillValues(boolean)} is set.
+         */
+        MEAN,
+        /**
+         * The upper left value of each 2x2 window.
+         */
+        NEAREST,
+        /**
+         * The most frequent valid value of each 2x2 window, the smallest one if several are equally frequent.
+         * Suitable for classification data.
+         */
+        MODE
+    }
+
+    private final ZarrArray source;
+    private Resampling resampling = Resampling.MEAN;
+    private int levels;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean skipFillValues;
+    private String name;
+    private String[] axes;
+
+    /**
+     * @param source the full resolution array with two ({@code y, x}) or three ({@code z, y, x}) dimensions
+     */
+    public PyramidBuilder(ZarrArray source) {
+        final int rank = source.getShape().length;
+        if (rank != 2 && rank != 3) {
+            throw new IllegalArgumentException("Two or three dimensions expected but the array has " + rank + ".");
+        }
+        this.source = source;
+        this.axes = rank == 2 ? new String[]{"y", "x"} : new String[]{"z", "y", "x"};
+    }
+
+    /**
+     * @param resampling the method to combine 2x2 windows into one value, default {@link Resampling#MEAN}
+     * @return a reference to this builder
+     */
+    public PyramidBuilder resampling(Resampling resampling) {
+        this.resampling = Objects.requireNonNull(resampling);
+        return this;
+    }
+
+    /**
+     * @param levels the number of levels including the full resolution. By default levels are added until the
+     *               coarsest level fits into a single chunk.
+     * @return a reference to this builder
+     */
+    public PyramidBuilder levels(int levels) {
+        if (levels < 1) {
+            throw new IllegalArgumentException("Levels must be at least 1 but was " + levels + ".");
+        }
+        this.levels = levels;
+        return this;
+    }
+
+    /**
+     * @param parallelism the number of chunks computed concurrently, default the number of processors
+     * @return a reference to this builder
+     */
+    public PyramidBuilder parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param skipFillValues whether values equal to the fill value are treated as missing by {@link Resampling#MEAN}
+     *                       and {@link Resampling#MODE}, so a window becomes a fill value only if all its values
+     *                       are fill values, default {@code false}
+     * @return a reference to this builder
+     */
+    public PyramidBuilder skipFillValues(boolean skipFillValues) {
+        this.skipFillValues = skipFillValues;
+        return this;
+    }
+
+    /**
+     * @param name the name of the multiscale image written to the {@code multiscales} attribute
+     * @return a reference to this builder
+     */
+    public PyramidBuilder name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * @param axes the names of the dimensions written to the {@code multiscales} attribute, default
+     *             {@code "y", "x"} or {@code "z", "y", "x"}. The names {@code "x"}, {@code "y"} and {@code "z"}
+     *             are space axes, {@code "t"} is a time axis and {@code "c"} a channel axis.
+     * @return a reference to this builder
+     */
+    public PyramidBuilder axes(String... axes) {
+        if (axes.length != this.axes.length) {
+            throw new IllegalArgumentException(this.axes.length + " axes expected but got " + axes.length + ".");
+        }
+        this.axes = axes.clone();
+        return this;
+    }
+
+    /**
+     * Writes the levels into the target group and adds the {@code multiscales} attribute to it.
+     *
+     * @return the levels from full to coarsest resolution
+     */
+    public List<ZarrArray> build(ZarrGroup target) throws IOException, InvalidRangeException {
+        final List<ZarrArray> pyramid = new ArrayList<>();
+        pyramid.add(new ZarrCopier().parallelism(parallelism).copy(source, target, "0"));
+        final int levelCount = levels > 0 ? levels : defaultLevels();
+        ZarrArray previous = source;
+        for (int level = 1; level < levelCount; level++) {
+            final ZarrArray next = target.createArray(String.valueOf(level), levelParams(previous));
+            downsample(previous, next);
+            pyramid.add(next);
+            previous = next;
+        }
+        final Map<String, Object> attributes = new LinkedHashMap<>(target.getAttributes());
+        attributes.put("multiscales", Collections.singletonList(multiscale(levelCount)));
+        target.writeAttributes(attributes);
+        return pyramid;
+    }
+
+    private int defaultLevels() {
+        final int[] shape = source.getShape();
+        final int[] chunks = source.getChunks();
+        final int rank = shape.length;
+        int height = shape[rank - 2];
+        int width = shape[rank - 1];
+        int levelCount = 1;
+        while (height > chunks[rank - 2] || width > chunks[rank - 1]) {
+            height = (height + 1) / 2;
+            width = (width + 1) / 2;
+            levelCount++;
+        }
+        return levelCount;
+    }
+
+    private static ArrayParams levelParams(ZarrArray previous) {
+        final int[] shape = previous.getShape().clone();
+        final int rank = shape.length;
+        shape[rank - 2] = (shape[rank - 2] + 1) / 2;
+        shape[rank - 1] = (shape[rank - 1] + 1) / 2;
+        // shards are not kept, the coarser levels are small
+        return new ArrayParams()
+                .shape(shape)
+                .chunks(previous.getChunks())
+                .dataType(previous.getDataType())
+                .byteOrder(previous.getByteOrder())
+                .fillValue(previous.getFillValue())
+                .compressor(previous.getCompressor())
+                .filters(previous.getFilters().toArray(new Filter[0]));
+    }
+
+    private void downsample(ZarrArray input, ZarrArray output) throws IOException, InvalidRangeException {
+        final List<int[]> offsets = ChunkMapper.blockOffsets(output.getShape(), output.getChunks());
+        if (offsets.isEmpty()) {
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, offsets.size()));
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int[] offset : offsets) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    downsampleBlock(input, output, offset);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Downsampling interrupted.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InvalidRangeException) {
+                throw (InvalidRangeException) cause;
+            }
+            throw new IOException("Downsampling failed.", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void downsampleBlock(ZarrArray input, ZarrArray output, int[] offset) throws IOException, InvalidRangeException {
+        final int rank = offset.length;
+        final int[] outShape = new int[rank];
+        final int[] inShape = new int[rank];
+        final int[] inOffset = new int[rank];
+        for (int i = 0; i < rank; i++) {
+            outShape[i] = Math.min(output.getChunks()[i], output.getShape()[i] - offset[i]);
+            final int factor = i < rank - 2 ? 1 : 2;
+            inOffset[i] = offset[i] * factor;
+            inShape[i] = Math.min(outShape[i] * factor, input.getShape()[i] - inOffset[i]);
+        }
+        final Object in = input.read(inShape, inOffset);
+        final DataType dataType = output.getDataType();
+        final Object out = ZarrUtils.createDataBuffer(dataType, outShape);
+        final Number fillValue = output.getFillValue();
+        final double fill = fillValue == null ? Double.NaN : fillValue.doubleValue();
+        final Number skippedValue = skipFillValues ? fillValue : null;
+
+        final int depth = rank == 3 ? outShape[0] : 1;
+        final int outHeight = outShape[rank - 2];
+        final int outWidth = outShape[rank - 1];
+        final int inHeight = inShape[rank - 2];
+        final int inWidth = inShape[rank - 1];
+        final double[] window = new double[4];
+        for (int z = 0; z < depth; z++) {
+            for (int y = 0; y < outHeight; y++) {
+                for (int x = 0; x < outWidth; x++) {
+                    int count = 0;
+                    for (int dy = 0; dy < 2 && 2 * y + dy < inHeight; dy++) {
+                        for (int dx = 0; dx < 2 && 2 * x + dx < inWidth; dx++) {
+                            final int index = (z * inHeight + 2 * y + dy) * inWidth + 2 * x + dx;
+                            final double value = ChunkMapper.get(in, dataType, index);
+                            if (resampling == Resampling.NEAREST || isValid(value, skippedValue)) {
+                                window[count++] = value;
+                            }
+                        }
+                    }
+                    final double value = count == 0 ? fill : resample(window, count);
+                    ChunkMapper.set(out, dataType, (z * outHeight + y) * outWidth + x, value);
+                }
+            }
+        }
+        output.write(out, outShape, offset);
+    }
+
+    private static boolean isValid(double value, Number skippedValue) {
+        return !Double.isNaN(value) && (skippedValue == null || value != skippedValue.doubleValue());
+    }
+
+    private double resample(double[] window, int count) {
+        switch (resampling) {
+            case NEAREST:
+                return window[0];
+            case MODE:
+                return mode(window, count);
+            default:
+                double sum = 0;
+                for (int i = 0; i < count; i++) {
+                    sum += window[i];
+                }
+                return sum / count;
+        }
+    }
+
+    private static double mode(double[] window, int count) {
+        Arrays.sort(window, 0, count);
+        double mode = window[0];
+        int modeCount = 0;
+        for (int start = 0; start < count; ) {
+            int end = start + 1;
+            while (end < count && window[end] == window[start]) {
+                end++;
+            }
+            if (end - start > modeCount) {
+                mode = window[start];
+                modeCount = end - start;
+            }
+            start = end;
+        }
+        return mode;
+    }
+
+    private Map<String, Object> multiscale(int levelCount) {
+        final List<Map<String, Object>> axisList = new ArrayList<>();
+        for (String axis : axes) {
+            final Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", axis);
+            final String type = axisType(axis);
+            if (type != null) {
+                entry.put("type", type);
+            }
+            axisList.add(entry);
+        }
+        final List<Map<String, Object>> datasets = new ArrayList<>();
+        for (int level = 0; level < levelCount; level++) {
+            final double[] scale = new double[axes.length];
+            Arrays.fill(scale, 1.0);
+            scale[axes.length - 2] = 1 << level;
+            scale[axes.length - 1] = 1 << level;
+            final Map<String, Object> transformation = new LinkedHashMap<>();
+            transformation.put("type", "scale");
+            transformation.put("scale", scale);
+            final Map<String, Object> dataset = new LinkedHashMap<>();
+            dataset.put("path", String.valueOf(level));
+            dataset.put("coordinateTransformations", Collections.singletonList(transformation));
+            datasets.add(dataset);
+        }
+        final Map<String, Object> multiscale = new LinkedHashMap<>();
+        multiscale.put("version", "0.4");
+        if (name != null) {
+            multiscale.put("name", name);
+        }
+        multiscale.put("axes", axisList);
+        multiscale.put("datasets", datasets);
+        multiscale.put("type", resampling.name().toLowerCase(Locale.ROOT));
+        return multiscale;
+    }
+
+    private static String axisType(String axis) {
+        switch (axis) {
+            case "x":
+            case "y":
+            case "z":
+                return "space";
+            case "t":
+                return "time";
+            case "c":
+                return "channel";
+            default:
+                return null;
+        }
+    }
+}
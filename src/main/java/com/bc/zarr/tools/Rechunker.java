@@ -0,0 +1,339 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.storage.Store;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Copies the data of an array into another array of the same shape and data type but with a different chunk
+ * layout. E.g. to turn an array written with one time step per chunk into one suitable for time series reads:
+ * <pre>
+ *    ZarrArray source = ZarrArray.open(sourcePath);
+ *    ZarrArray target = ZarrArray.create(targetPath, params.chunks(new int[]{1000, 10, 10}));
+ *    new Rechunker(source, target).maxMemory(1L &lt;&lt; 30).checkpoint(store, "rechunk.checkpoint").run();
+ * </pre>
+ * The copy is done in units, blocks aligned to the chunks (or shards) of the target, so that no target chunk is
+ * written more than once. A unit is also aligned to the source chunks (the least common multiple of both sizes
+ * per dimension), so that each source chunk is decompressed only once, but is shrunk to keep the units processed in parallel within {@link #maxMemory(long)}.
+ * Shrunk units read source chunks partially, which costs repeated decompression but no extra memory.
+ * <p>
+ * If a checkpoint is configured, every completed unit is recorded there and an interrupted run can be
+ * restarted with the same arrays and checkpoint; it then skips the completed units. The checkpoint is removed
+ * after a successful run.
+ */
+public class Rechunker {
+
+    private static final String UNIT_SHAPE_KEY = ".unit";
+
+    private final ZarrArray source;
+    private final ZarrArray target;
+    private long maxMemory = 256L * 1024 * 1024;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Store checkpointStore;
+    private String checkpointKey;
+
+    /**
+     * @param source the array to be copied
+     * @param target the array to be written, it must have the same shape and data type as the source
+     */
+    public Rechunker(ZarrArray source, ZarrArray target) {
+        if (!Arrays.equals(source.getShape(), target.getShape())) {
+            throw new IllegalArgumentException("Shapes differ: source " + Arrays.toString(source.getShape()) + ", target " + Arrays.toString(target.getShape()) + ".");
+        }
+        if (source.getDataType() != target.getDataType()) {
+            throw new IllegalArgumentException("Data types differ: source " + source.getDataType() + ", target " + target.getDataType() + ".");
+        }
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * @param maxMemory the number of bytes the units processed concurrently may occupy in total, default 256 MiB.
+     *                  A unit never gets smaller than one target chunk (or shard), even if that exceeds the limit.
+     * @return a reference to this rechunker
+     */
+    public Rechunker maxMemory(long maxMemory) {
+        if (maxMemory < 1) {
+            throw new IllegalArgumentException("Max memory must be positive but was " + maxMemory + ".");
+        }
+        this.maxMemory = maxMemory;
+        return this;
+    }
+
+    /**
+     * @param parallelism the number of units copied concurrently, default the number of processors
+     * @return a reference to this rechunker
+     */
+    public Rechunker parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param store the store recording the progress, may be the store of the target array
+     * @param key   the key below which the progress is recorded, e.g. {@code "rechunk.checkpoint"}
+     * @return a reference to this rechunker
+     */
+    public Rechunker checkpoint(Store store, String key) {
+        if (store == null || key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("Checkpoint store and key must be given.");
+        }
+        this.checkpointStore = store;
+        this.checkpointKey = key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+        return this;
+    }
+
+    /**
+     * @return the shape of the units the array is copied in with the current settings
+     */
+    public int[] computeUnitShape() {
+        final int[] shape = source.getShape();
+        final int[] sourceChunks = source.getChunks();
+        final int[] targetChunks = getTargetBlocks();
+        final int[] unitShape = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            // the smallest size aligned to both the source chunks and the target blocks
+            final long covering = lcm(sourceChunks[i], targetChunks[i]);
+            unitShape[i] = (int) Math.min(covering, (long) ceilDiv(shape[i], targetChunks[i]) * targetChunks[i]);
+        }
+        final long budget = Math.max(1, maxMemory / parallelism);
+        final int byteCount = source.getDataType().getByteCount();
+        while (byteCount * product(unitShape) > budget) {
+            int dim = -1;
+            for (int i = 0; i < unitShape.length; i++) {
+                if (unitShape[i] > targetChunks[i] && (dim < 0 || unitShape[i] / targetChunks[i] > unitShape[dim] / targetChunks[dim])) {
+                    dim = i;
+                }
+            }
+            if (dim < 0) {
+                break;
+            }
+            unitShape[dim] = Math.max(1, unitShape[dim] / targetChunks[dim] / 2) * targetChunks[dim];
+        }
+        return unitShape;
+    }
+
+    /**
+     * Copies all units not recorded as completed in the checkpoint.
+     *
+     * @return the number of units copied by this run
+     */
+    public int run() throws IOException, InvalidRangeException {
+        final int[] unitShape = checkpointStore != null ? startCheckpoint() : computeUnitShape();
+        final int[] shape = source.getShape();
+        final int[] unitCounts = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            // a zero-extent array has no units
+            unitCounts[i] = shape[i] == 0 ? 0 : ceilDiv(shape[i], unitShape[i]);
+        }
+        final long unitCount = product(unitCounts);
+        if (unitCount == 0) {
+            if (checkpointStore != null) {
+                finishCheckpoint(0);
+            }
+            return 0;
+        }
+        final int threadCount = (int) Math.min(parallelism, unitCount);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        int copied = 0;
+        try {
+            // the units are submitted lazily, at most two per thread are pending at a time
+            final Deque<Future<Boolean>> pending = new ArrayDeque<>();
+            for (long i = 0; i < unitCount; i++) {
+                final long unitIndex = i;
+                final int[] offset = unitOffset(unitIndex, unitCounts, unitShape);
+                pending.add(executor.submit((Callable<Boolean>) () -> copy(unitIndex, offset, unitShape)));
+                if (pending.size() >= 2 * threadCount && pending.poll().get()) {
+                    copied++;
+                }
+            }
+            while (!pending.isEmpty()) {
+                if (pending.poll().get()) {
+                    copied++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Rechunking interrupted.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InvalidRangeException) {
+                throw (InvalidRangeException) cause;
+            }
+            throw new IOException("Rechunking failed.", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (checkpointStore != null) {
+            finishCheckpoint(unitCount);
+        }
+        return copied;
+    }
+
+    private boolean copy(long unitIndex, int[] offset, int[] unitShape) throws IOException, InvalidRangeException {
+        if (checkpointStore != null && isRecorded(markerKey(unitIndex))) {
+            return false;
+        }
+        final int[] shape = source.getShape();
+        final int[] blockShape = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            blockShape[i] = Math.min(unitShape[i], shape[i] - offset[i]);
+        }
+        final Object data = source.read(blockShape, offset);
+        target.write(data, blockShape, offset);
+        if (checkpointStore != null) {
+            write(markerKey(unitIndex), "done");
+        }
+        return true;
+    }
+
+    private int[] startCheckpoint() throws IOException {
+        final String recorded = read(checkpointKey + "/" + UNIT_SHAPE_KEY);
+        if (recorded != null) {
+            // a restart must use the units of the interrupted run, the settings may have changed meanwhile
+            final String[] parts = recorded.split(",");
+            final int[] unitShape = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                unitShape[i] = Integer.parseInt(parts[i].trim());
+            }
+            if (unitShape.length != source.getShape().length) {
+                throw new IOException("Checkpoint '" + checkpointKey + "' does not belong to an array of rank " + source.getShape().length + ".");
+            }
+            return unitShape;
+        }
+        final int[] unitShape = computeUnitShape();
+        final StringBuilder sb = new StringBuilder();
+        for (int size : unitShape) {
+            sb.append(sb.length() > 0 ? "," : "").append(size);
+        }
+        write(checkpointKey + "/" + UNIT_SHAPE_KEY, sb.toString());
+        return unitShape;
+    }
+
+    private void finishCheckpoint(long unitCount) throws IOException {
+        // not every store deletes keys below a prefix, so the keys are deleted one by one
+        for (long i = 0; i < unitCount; i++) {
+            checkpointStore.delete(markerKey(i));
+        }
+        checkpointStore.delete(checkpointKey + "/" + UNIT_SHAPE_KEY);
+        checkpointStore.delete(checkpointKey);
+    }
+
+    private String markerKey(long unitIndex) {
+        return checkpointKey + "/" + unitIndex;
+    }
+
+    private boolean isRecorded(String key) throws IOException {
+        try (InputStream is = checkpointStore.getInputStream(key)) {
+            return is != null;
+        }
+    }
+
+    private String read(String key) throws IOException {
+        try (InputStream is = checkpointStore.getInputStream(key)) {
+            if (is == null) {
+                return null;
+            }
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[256];
+            int read;
+            while ((read = is.read(buffer)) >= 0) {
+                os.write(buffer, 0, read);
+            }
+            return new String(os.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void write(String key, String value) throws IOException {
+        try (OutputStream os = checkpointStore.getOutputStream(key)) {
+            os.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @return the shards of the target if it is sharded, its chunks otherwise
+     */
+    private int[] getTargetBlocks() {
+        final int[] shards = target.getShards();
+        return shards != null ? shards : target.getChunks();
+    }
+
+    /**
+     * @return the offset of the unit with the given index in row major order
+     */
+    private static int[] unitOffset(long unitIndex, int[] unitCounts, int[] unitShape) {
+        final int[] offset = new int[unitCounts.length];
+        long rest = unitIndex;
+        for (int i = unitCounts.length - 1; i >= 0; i--) {
+            offset[i] = (int) (rest % unitCounts[i]) * unitShape[i];
+            rest /= unitCounts[i];
+        }
+        return offset;
+    }
+
+    private static long product(int[] shape) {
+        long product = 1;
+        for (int size : shape) {
+            product *= size;
+        }
+        return product;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    private static long lcm(int a, int b) {
+        int x = a;
+        int y = b;
+        while (y != 0) {
+            final int rest = x % y;
+            x = y;
+            y = rest;
+        }
+        return (long) a / x * b;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.Filter;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
+/**
+ * Copies groups and arrays from one store to another, e.g. from a {@code FileSystemStore} into a {@code ZipStore}:
+ * <pre>
+ *    ZarrGroup source = ZarrGroup.open(path);
+ *    ZarrGroup target = ZarrGroup.create(new ZipStore(zipPath));
+ *    new ZarrCopier().parallelism(8).copy(source, target);
+ * </pre>
+ * If the target array stores its chunks exactly like the source array (same zarr format, shape, chunks, shards,
+ * data type, byte order, fill value, compressor and filters), the stored chunk bytes are transferred as they
+ * are, without decompressing them. Otherwise, e.g. if {@link #arrayParams(UnaryOperator)} changes the compressor,
+ * the chunks are decoded and encoded again by a {@link Rechunker}.
+ */
+public class ZarrCopier {
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 64;
+    private UnaryOperator<ArrayParams> arrayParams = UnaryOperator.identity();
+
+    /**
+     * @param parallelism the number of chunk batches transferred concurrently, default the number of processors
+     * @return a reference to this copier
+     */
+    public ZarrCopier parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param batchSize the number of stored chunks (or shards) read and written with a single
+     *                  {@code getMany} and {@code putMany} call when transferring raw bytes, default {@code 64}
+     * @return a reference to this copier
+     */
+    public ZarrCopier batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1 but was " + batchSize + ".");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param arrayParams adjusts the parameters of the target arrays. It is called with the parameters of each
+     *                    source array and may modify and return them, e.g. {@code p -> p.compressor(zstd)}.
+     *                    The shape and the data type must not be changed. By default the parameters are kept.
+     * @return a reference to this copier
+     */
+    public ZarrCopier arrayParams(UnaryOperator<ArrayParams> arrayParams) {
+        this.arrayParams = Objects.requireNonNull(arrayParams);
+        return this;
+    }
+
+    /**
+     * Copies the attributes of the source group and all groups and arrays of its store into the target group.
+     */
+    public void copy(ZarrGroup source, ZarrGroup target) throws IOException, InvalidRangeException {
+        target.writeAttributes(source.getAttributes());
+        // sorted keys, parent groups are created before their children
+        for (String groupKey : source.getGroupKeys()) {
+            target.createSubGroup(groupKey, source.openSubGroup(groupKey).getAttributes());
+        }
+        for (String arrayKey : source.getArrayKeys()) {
+            copy(source.openArray(arrayKey), target, arrayKey);
+        }
+    }
+
+    /**
+     * Creates an array in the target group with the (adjusted) parameters and attributes of the source array and
+     * copies the data.
+     *
+     * @return the created array
+     */
+    public ZarrArray copy(ZarrArray source, ZarrGroup target, String name) throws IOException, InvalidRangeException {
+        final ArrayParams params = arrayParams.apply(toArrayParams(source, target.getZarrFormat()));
+        final ZarrArray copy = target.createArray(name, params, source.getAttributes());
+        copy(source, copy);
+        return copy;
+    }
+
+    /**
+     * Copies the data of the source array into an existing target array of the same shape and data type.
+     *
+     * @return {@code true} if the stored chunk bytes were transferred without decoding them
+     */
+    public boolean copy(ZarrArray source, ZarrArray target) throws IOException, InvalidRangeException {
+        if (!storesChunksAlike(source, target)) {
+            new Rechunker(source, target).parallelism(parallelism).run();
+            return false;
+        }
+        final List<String> sourceKeys = source.getStorageKeys();
+        final List<String> targetKeys = target.getStorageKeys();
+        final int batchCount = (sourceKeys.size() + batchSize - 1) / batchSize;
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, batchCount)));
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int start = 0; start < sourceKeys.size(); start += batchSize) {
+                final int from = start;
+                final int to = Math.min(start + batchSize, sourceKeys.size());
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    transfer(source, sourceKeys.subList(from, to), target, targetKeys.subList(from, to));
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Copying interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Copying " + source + " failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return true;
+    }
+
+    private static void transfer(ZarrArray source, List<String> sourceKeys, ZarrArray target, List<String> targetKeys) throws IOException {
+        final Map<String, ByteBuffer> values = source.getStore().getMany(sourceKeys);
+        if (values.isEmpty()) {
+            return;
+        }
+        final Map<String, ByteBuffer> renamed = new HashMap<>();
+        for (int i = 0; i < sourceKeys.size(); i++) {
+            final ByteBuffer value = values.get(sourceKeys.get(i));
+            if (value != null) {
+                renamed.put(targetKeys.get(i), value);
+            }
+        }
+        target.getStore().putMany(renamed);
+    }
+
+    /**
+     * The chunk key encoding does not matter, the keys are mapped by their position in the chunk grid.
+     */
+    static boolean storesChunksAlike(ZarrArray source, ZarrArray target) {
+        return source.getZarrFormat() == target.getZarrFormat()
+               && Arrays.equals(source.getLongShape(), target.getLongShape())
+               && Arrays.equals(source.getChunks(), target.getChunks())
+               && Arrays.equals(source.getShards(), target.getShards())
+               && source.getDataType() == target.getDataType()
+               && source.getByteOrder().equals(target.getByteOrder())
+               && sameFillValue(source.getFillValue(), target.getFillValue())
+               && Objects.equals(source.getCompressor().getId(), target.getCompressor().getId())
+               && Objects.equals(source.getCompressor().toString(), target.getCompressor().toString())
+               && describe(source.getFilters()).equals(describe(target.getFilters()));
+    }
+
+    private static boolean sameFillValue(Number a, Number b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue()) == 0;
+    }
+
+    private static List<String> describe(List<Filter> filters) {
+        final List<String> descriptions = new ArrayList<>();
+        for (Filter filter : filters) {
+            descriptions.add(filter.toString());
+        }
+        return descriptions;
+    }
+
+    private static ArrayParams toArrayParams(ZarrArray array, int targetFormat) {
+        // the zarr format is not set, the target array inherits the format of the target group
+        final ArrayParams params = new ArrayParams()
+                .shape(array.getLongShape())
+                .chunks(array.getChunks())
+                .dataType(array.getDataType())
+                .byteOrder(array.getByteOrder())
+                .fillValue(array.getFillValue())
+                .compressor(array.getCompressor())
+                .filters(array.getFilters().toArray(new Filter[0]));
+        // Zarr v2 does not define sharding, copies into v2 groups store plain chunks
+        if (array.getShards() != null && targetFormat == 3) {
+            params.shards(array.getShards());
+        }
+        return params;
+    }
+}
@@ -204,4 +204,72 @@ public class ArrayParametersBuilderTest {
 
         assertThat(parameters.getChunks(), is(equalTo(new int[]{444, 5000})));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shardsMustBeAMultipleOfChunks() {
+        try {
+            //execution
+            new ArrayParams()
+                    .shape(100, 100)
+                    .chunks(10, 10)
+                    .shards(20, 25)
+                    .build();
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), is("Shards must be a multiple of chunks. Shards: [20, 25] Chunks: [10, 10]"));
+        }
+    }
+
+    @Test
+    public void shardsRequireZarrV3() {
+        try {
+            //execution
+            new ArrayParams()
+                    .shape(100, 100)
+                    .chunks(10, 10)
+                    .shards(20, 20)
+                    .zarrFormat(2)
+                    .build();
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), is("Sharding is only supported for Zarr v3 arrays."));
+        }
+    }
+
+    @Test
+    public void shardsAreNullIfNotGiven() {
+        //execution
+        final ArrayParams.Params parameters = new ArrayParams()
+                .shape(100, 100)
+                .build();
+
+        assertThat(parameters.getShards(), is(nullValue()));
+    }
+
+    @Test
+    public void dimensionSeparatorMustBeDotOrSlash() {
+        try {
+            //execution
+            new ArrayParams().dimensionSeparator("_");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), is("Dimension separator must be '.' or '/' but was '_'."));
+        }
+    }
+
+    @Test
+    public void dimensionSeparatorIsCopiedByToBuilder() {
+        //execution
+        final ArrayParams.Params parameters = new ArrayParams()
+                .shape(100, 100)
+                .dimensionSeparator("/")
+                .build();
+
+        //verification
+        assertThat(parameters.getDimensionSeparator(), is("/"));
+        assertThat(parameters.toBuilder().build().getDimensionSeparator(), is("/"));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ChunkKeyCacheTest {
+
+    @Test
+    public void keysArePrefixedWithTheArrayKey() {
+        //preparation
+        final ChunkKeyCache cache = new ChunkKeyCache("group/band", new int[]{10, 20}, new int[]{3, 7}, ChunkKeyEncoding.v2("."));
+        final ChunkKeyCache rootCache = new ChunkKeyCache("", new int[]{10, 20}, new int[]{3, 7}, ChunkKeyEncoding.create("default", "/"));
+
+        //execution & verification
+        assertThat(cache.get(new int[]{3, 2}), is("group/band/3.2"));
+        assertThat(rootCache.get(new int[]{3, 2}), is("c/3/2"));
+    }
+
+    @Test
+    public void linearIndexAndChunkIndexAddressTheSameKey() {
+        //preparation
+        final ChunkKeyCache cache = new ChunkKeyCache("a", new int[]{10, 20, 5}, new int[]{3, 7, 5}, ChunkKeyEncoding.v2("/"));
+
+        //execution
+        final String byLinearIndex = cache.get(2L);
+        final String byChunkIndex = cache.get(new int[]{0, 2, 0});
+
+        //verification
+        assertThat(byLinearIndex, is("a/0/2/0"));
+        assertThat(byChunkIndex, is(sameInstance(byLinearIndex)));
+        assertThat(cache.toChunkIndex(3L * 3 * 1 + 2), is(new int[]{3, 2, 0}));
+    }
+
+    @Test
+    public void repeatedAccessReturnsTheCachedInstance() {
+        //preparation
+        final ChunkKeyCache cache = new ChunkKeyCache("a", new int[]{100000, 100000}, new int[]{10, 10}, ChunkKeyEncoding.v2("."));
+
+        //execution
+        final String first = cache.get(new int[]{9999, 9999});
+        final String second = cache.get(new int[]{9999, 9999});
+
+        //verification
+        assertThat(first, is("a/9999.9999"));
+        assertThat(second, is(sameInstance(first)));
+    }
+
+    @Test
+    public void theNumberOfCachedKeysIsBounded() {
+        //preparation
+        final ChunkKeyCache cache = new ChunkKeyCache("a", new long[]{100000, 100000}, new int[]{10, 10}, ChunkKeyEncoding.v2("."), 4096);
+        final String cached = cache.get(new int[]{0, 5});
+
+        //execution
+        final String first = cache.get(new int[]{9999, 9999});
+        final String second = cache.get(new int[]{9999, 9999});
+
+        //verification
+        assertThat(cache.get(new int[]{0, 5}), is(sameInstance(cached)));
+        assertThat(first, is("a/9999.9999"));
+        assertThat(second, is(equalTo(first)));
+        assertThat(second, is(not(sameInstance(first))));
+    }
+
+    @Test
+    public void buildDoesNotCache() {
+        //preparation
+        final ChunkKeyCache cache = new ChunkKeyCache("a", new int[]{100, 100}, new int[]{10, 10}, ChunkKeyEncoding.v2("."));
+
+        //execution
+        final String built = cache.build(12L);
+
+        //verification
+        assertThat(built, is("a/1.2"));
+        assertThat(cache.build(new int[]{1, 2}), is(not(sameInstance(built))));
+        final String cached = cache.get(12L);
+        assertThat(cache.build(12L), is(sameInstance(cached)));
+    }
+
+    @Test
+    public void concurrentAccessReturnsOneInstancePerChunk() throws Exception {
+        //preparation
+        final ChunkKeyCache cache = new ChunkKeyCache("a", new int[]{64, 64}, new int[]{1, 1}, ChunkKeyEncoding.v2("."));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<String[]>> futures = new ArrayList<>();
+
+        //execution
+        try {
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    final String[] keys = new String[64 * 64];
+                    for (int i = 0; i < keys.length; i++) {
+                        keys[i] = cache.get(new int[]{i / 64, i % 64});
+                    }
+                    return keys;
+                }));
+            }
+            final String[] expected = futures.get(0).get();
+
+            //verification
+            for (Future<String[]> future : futures) {
+                final String[] keys = future.get();
+                for (int i = 0; i < keys.length; i++) {
+                    assertThat(keys[i], is(sameInstance(expected[i])));
+                }
+            }
+            assertThat(expected[64 * 3 + 5], is("a/3.5"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import org.junit.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ChunkKeyEncodingTest {
+
+    @Test
+    public void encode() {
+        assertThat(ChunkKeyEncoding.create("default", null).encode(new int[]{1, 23, 0}), is("c/1/23/0"));
+        assertThat(ChunkKeyEncoding.create("default", ".").encode(new int[]{1, 23, 0}), is("c.1.23.0"));
+        assertThat(ChunkKeyEncoding.v2(null).encode(new int[]{1, 23, 0}), is("1.23.0"));
+        assertThat(ChunkKeyEncoding.v2("/").encode(new int[]{1, 23, 0}), is("1/23/0"));
+        assertThat(ChunkKeyEncoding.v2(null).encode(new int[0]), is("0"));
+    }
+
+    @Test
+    public void decode() {
+        final ChunkKeyEncoding defaultEncoding = ChunkKeyEncoding.create("default", "/");
+        assertThat(defaultEncoding.decode("c/1/23/0", 3), is(new int[]{1, 23, 0}));
+        assertThat(defaultEncoding.decode("c/1/23", 3), is(nullValue()));
+        assertThat(defaultEncoding.decode("1/23/0", 3), is(nullValue()));
+        assertThat(defaultEncoding.decode("zarr.json", 3), is(nullValue()));
+
+        final ChunkKeyEncoding v2 = ChunkKeyEncoding.v2(".");
+        assertThat(v2.decode("1.23.0", 3), is(new int[]{1, 23, 0}));
+        assertThat(v2.decode("1.23.0.4", 3), is(nullValue()));
+        assertThat(v2.decode(".zarray", 3), is(nullValue()));
+    }
+
+    @Test
+    public void decode_largeIndices() {
+        final ChunkKeyEncoding defaultEncoding = ChunkKeyEncoding.create("default", "/");
+        assertThat(defaultEncoding.decode("c/1000000000/2147483647", 2), is(new int[]{1000000000, Integer.MAX_VALUE}));
+        assertThat(defaultEncoding.decode("c/0/2147483648", 2), is(nullValue()));
+        assertThat(defaultEncoding.decode("c/0/99999999999999999999", 2), is(nullValue()));
+    }
+
+    @Test
+    public void decode_rankZero() {
+        assertThat(ChunkKeyEncoding.v2(".").decode("0", 0), is(new int[0]));
+        assertThat(ChunkKeyEncoding.v2(".").decode("1", 0), is(nullValue()));
+        assertThat(ChunkKeyEncoding.create("default", "/").decode("c", 0), is(new int[0]));
+    }
+
+    @Test
+    public void create_invalidArguments() {
+        try {
+            ChunkKeyEncoding.create("custom", null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage(), is("Chunk key encoding 'custom' not supported."));
+        }
+        try {
+            ChunkKeyEncoding.v2("_");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage(), is("Chunk key separator must be '.' or '/' but was '_'."));
+        }
+    }
+}
@@ -107,6 +107,31 @@ public class CompressorFactoryTest {
         }
     }
 
+    @Test
+    public void create_numcodecs_compressors() {
+        assertEquals("compressor=gzip/level=1", CompressorFactory.create("gzip").toString());
+        assertEquals("compressor=zstd/level=5/checksum=true",
+                     CompressorFactory.create("zstd", "level", 5, "checksum", true).toString());
+        assertEquals("compressor=lz4/acceleration=1", CompressorFactory.create("lz4").toString());
+        assertEquals("compressor=bz2/level=9", CompressorFactory.create("bz2", "level", "9").toString());
+    }
+
+    @Test
+    public void create_numcodecs_compressors_level_invalid() {
+        try {
+            CompressorFactory.create("gzip", "level", 10);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("gzip: level parameter must be between 0 and 9 but was: 10", expected.getMessage());
+        }
+        try {
+            CompressorFactory.create("bz2", "level", 0);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("bz2: level parameter must be between 1 and 9 but was: 0", expected.getMessage());
+        }
+    }
+
     @Test
     public void create_compressor_not_supported() {
         final String id = "kkkkkkk";
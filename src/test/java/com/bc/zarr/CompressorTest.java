@@ -28,6 +28,7 @@ package com.bc.zarr;
 
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.MatcherAssert.*;
+import static org.junit.Assert.fail;
 
 import com.bc.zarr.chunk.ZarrInputStreamAdapter;
 
@@ -299,6 +300,101 @@ public class CompressorTest {
         }
     }
 
+    @Test
+    public void writeRead_NumcodecsCompressors() throws IOException {
+        final byte[] input = new byte[4000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i % 7 == 0 ? i : 22);
+        }
+        for (String id : new String[]{"gzip", "zstd", "lz4", "bz2"}) {
+            final Compressor compressor = CompressorFactory.create(id);
+
+            //stream path
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            compressor.compress(new ByteArrayInputStream(input), os);
+            final byte[] compressed = os.toByteArray();
+            assertThat(id, compressed.length, is(lessThan(input.length)));
+            os = new ByteArrayOutputStream();
+            compressor.uncompress(new MockAWSChecksumValidatingInputStream(new ByteArrayInputStream(compressed), len -> len > 16 ? 7 : len), os);
+            assertThat(id, os.toByteArray(), is(equalTo(input)));
+
+            //buffer path
+            final byte[] bufferCompressed = compressor.compress(input);
+            assertThat(id, compressor.uncompress(bufferCompressed, input.length), is(equalTo(input)));
+            assertThat(id, compressor.uncompress(compressed, -1), is(equalTo(input)));
+        }
+    }
+
+    @Test
+    public void lz4_isPrefixedWithLittleEndianSize() throws IOException {
+        final byte[] input = new byte[300];
+        final byte[] compressed = CompressorFactory.create("lz4").compress(input);
+        assertThat(Arrays.copyOf(compressed, 4), is(equalTo(new byte[]{44, 1, 0, 0})));
+    }
+
+    @Test
+    public void lz4_rejectsCorruptData() throws IOException {
+        final byte[] input = new byte[300];
+        final Compressor compressor = CompressorFactory.create("lz4");
+        final byte[] compressed = compressor.compress(input);
+
+        final byte[] truncated = Arrays.copyOf(compressed, compressed.length - 2);
+        try {
+            compressor.uncompress(truncated, input.length);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage(), startsWith("lz4: "));
+        }
+
+        final byte[] wrongSize = compressed.clone();
+        wrongSize[0] = 45;
+        try {
+            compressor.uncompress(wrongSize, -1);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage(), startsWith("lz4: "));
+        }
+    }
+
+    @Test
+    public void zstd_and_gzip_writeStandardFrames() throws IOException {
+        final byte[] input = new byte[300];
+        final byte[] zstd = CompressorFactory.create("zstd", "level", 3, "checksum", true).compress(input);
+        assertThat(Arrays.copyOf(zstd, 4), is(equalTo(new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd})));
+        final byte[] gzip = CompressorFactory.create("gzip", "level", 5).compress(input);
+        assertThat(Arrays.copyOf(gzip, 2), is(equalTo(new byte[]{0x1f, (byte) 0x8b})));
+    }
+
+    @Test
+    public void zlib_reusedStreamsProduceIndependentResults() throws IOException {
+        final byte[] input = new byte[10000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i % 13 == 0 ? i : 7);
+        }
+        final Compressor fast = CompressorFactory.create("zlib", "level", 1);
+        final Compressor best = CompressorFactory.create("zlib", "level", 9);
+
+        final byte[] fastCompressed = fast.compress(input);
+        final byte[] bestCompressed = best.compress(input);
+        assertThat(fast.compress(input), is(equalTo(fastCompressed)));
+        assertThat(best.compress(input), is(equalTo(bestCompressed)));
+        assertThat(best.uncompress(fastCompressed, input.length), is(equalTo(input)));
+        assertThat(fast.uncompress(bestCompressed, -1), is(equalTo(input)));
+        assertThat(fast.uncompress(fast.compress(new byte[0]), -1).length, is(0));
+    }
+
+    @Test
+    public void zlib_truncatedInput() throws IOException {
+        final Compressor compressor = CompressorFactory.create("zlib");
+        final byte[] compressed = compressor.compress(new byte[1000]);
+        try {
+            compressor.uncompress(Arrays.copyOf(compressed, compressed.length - 3), 1000);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage(), is("zlib: unexpected end of compressed data."));
+        }
+    }
+
     // Simulates a software.amazon.awssdk.services.s3.checksums.ChecksumValidatingInputStream which
     // does not provide it's own implementation of available() and always returns 0.
     // Additionally, this class may return less bytes than requested from read(), this is allowed per
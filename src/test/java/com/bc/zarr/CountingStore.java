@@ -0,0 +1,94 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.InMemoryStore;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link InMemoryStore} recording the keys requested, stored and deleted through it.
+ * Accesses to the chunk statistics are not recorded.
+ */
+class CountingStore extends InMemoryStore {
+
+    final List<String> requestedKeys = Collections.synchronizedList(new ArrayList<>());
+    final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    final List<String> storedKeys = Collections.synchronizedList(new ArrayList<>());
+    final List<Integer> storedBatchSizes = Collections.synchronizedList(new ArrayList<>());
+    final List<String> deletedKeys = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public InputStream getInputStream(String key) {
+        if (!isStatistics(key)) {
+            requestedKeys.add(key);
+        }
+        return super.getInputStream(key);
+    }
+
+    @Override
+    public Map<String, ByteBuffer> getMany(Collection<String> keys) {
+        if (keys.isEmpty() || !isStatistics(keys.iterator().next())) {
+            requestedKeys.addAll(keys);
+            batchSizes.add(keys.size());
+        }
+        return super.getMany(keys);
+    }
+
+    @Override
+    public void putMany(Map<String, ByteBuffer> values) {
+        int batchSize = 0;
+        for (String key : values.keySet()) {
+            if (!isStatistics(key)) {
+                storedKeys.add(key);
+                batchSize++;
+            }
+        }
+        if (batchSize > 0) {
+            storedBatchSizes.add(batchSize);
+        }
+        super.putMany(values);
+    }
+
+    @Override
+    public void delete(String key) {
+        if (!isStatistics(key)) {
+            deletedKeys.add(key);
+        }
+        super.delete(key);
+    }
+
+    private static boolean isStatistics(String key) {
+        return key.startsWith(ZarrConstants.FILENAME_DOT_ZSTATS + "/") || key.contains("/" + ZarrConstants.FILENAME_DOT_ZSTATS + "/");
+    }
+}
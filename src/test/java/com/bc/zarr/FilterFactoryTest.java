@@ -0,0 +1,230 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+public class FilterFactoryTest {
+
+    @Test
+    public void delta_sameType_worksInPlace() {
+        final byte[] raw = intBytes(ByteOrder.LITTLE_ENDIAN, 100, 103, 106, 104);
+        final Filter filter = FilterFactory.create("delta", "dtype", "<i4");
+
+        final byte[] encoded = filter.encode(raw);
+        assertThat(encoded, is(sameInstance(raw)));
+        assertThat(encoded, is(equalTo(intBytes(ByteOrder.LITTLE_ENDIAN, 100, 3, 3, -2))));
+        assertThat(filter.decode(encoded), is(equalTo(intBytes(ByteOrder.LITTLE_ENDIAN, 100, 103, 106, 104))));
+    }
+
+    @Test
+    public void delta_withAstype() {
+        final byte[] raw = intBytes(ByteOrder.BIG_ENDIAN, 100, 103, 106, 104);
+        final Filter filter = FilterFactory.create("delta", "dtype", ">i4", "astype", "|i1");
+
+        final byte[] encoded = filter.encode(raw.clone());
+        assertThat(encoded, is(equalTo(new byte[]{100, 3, 3, -2})));
+        assertThat(filter.decode(encoded), is(equalTo(raw)));
+    }
+
+    @Test
+    public void fixedScaleOffset() {
+        final ByteBuffer buffer = ByteBuffer.allocate(4 * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putDouble(1000.0).putDouble(1000.1).putDouble(1000.25).putDouble(1025.5);
+        final Filter filter = FilterFactory.create("fixedscaleoffset", "offset", 1000, "scale", 10, "dtype", "<f8", "astype", "|u1");
+
+        final byte[] encoded = filter.encode(buffer.array().clone());
+        // 2.5 is rounded half to even like numpy.around
+        assertThat(encoded, is(equalTo(new byte[]{0, 1, 2, (byte) 255})));
+        final ByteBuffer decoded = ByteBuffer.wrap(filter.decode(encoded)).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(decoded.getDouble(0), is(1000.0));
+        assertThat(decoded.getDouble(8), is(closeTo(1000.1, 1e-9)));
+        assertThat(decoded.getDouble(16), is(closeTo(1000.2, 1e-9)));
+        assertThat(decoded.getDouble(24), is(1025.5));
+    }
+
+    @Test
+    public void shuffle() {
+        final byte[] raw = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        final Filter filter = FilterFactory.create("shuffle", "elementsize", 4);
+
+        final byte[] encoded = filter.encode(raw);
+        assertThat(encoded, is(equalTo(new byte[]{1, 5, 2, 6, 3, 7, 4, 8, 9})));
+        assertThat(filter.decode(encoded), is(equalTo(raw)));
+    }
+
+    @Test
+    public void bitRound_f4() {
+        final ByteBuffer buffer = ByteBuffer.allocate(3 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putFloat(3.14159265f).putFloat(-1.2345678f).putFloat(1.5f);
+        final Filter filter = FilterFactory.create("bitround", "keepbits", 3).forDataType(DataType.f4, ByteOrder.LITTLE_ENDIAN);
+
+        final ByteBuffer encoded = ByteBuffer.wrap(filter.encode(buffer.array())).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(encoded.getFloat(0), is(3.25f));
+        assertThat(encoded.getFloat(4), is(-1.25f));
+        assertThat(encoded.getFloat(8), is(1.5f));
+    }
+
+    @Test
+    public void bitRound_f8_keepsAllBits() {
+        final ByteBuffer buffer = ByteBuffer.allocate(8).putDouble(Math.PI);
+        final Filter filter = FilterFactory.create("bitround", "keepbits", 52).forDataType(DataType.f8, ByteOrder.BIG_ENDIAN);
+
+        assertThat(ByteBuffer.wrap(filter.encode(buffer.array())).getDouble(0), is(Math.PI));
+    }
+
+    @Test
+    public void bitRound_invalidDataTypeOrKeepbits() {
+        final Filter filter = FilterFactory.create("bitround", "keepbits", 30);
+        try {
+            filter.forDataType(DataType.f4, ByteOrder.BIG_ENDIAN);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("bitround: keepbits must not exceed 23 for f4 but was: 30", expected.getMessage());
+        }
+        try {
+            filter.forDataType(DataType.i4, ByteOrder.BIG_ENDIAN);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("bitround: only f4 and f8 are supported but was i4.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void quantize() {
+        final ByteBuffer buffer = ByteBuffer.allocate(2 * 8).putDouble(Math.PI).putDouble(-2.71828);
+        final Filter filter = FilterFactory.create("quantize", "digits", 2, "dtype", ">f8");
+
+        final ByteBuffer encoded = ByteBuffer.wrap(filter.encode(buffer.array()));
+        // numcodecs uses a precision of 2^-7 for 2 digits
+        assertThat(encoded.getDouble(0), is(402 / 128.0));
+        assertThat(encoded.getDouble(8), is(-348 / 128.0));
+    }
+
+    @Test
+    public void quantize_withAstype() {
+        final ByteBuffer buffer = ByteBuffer.allocate(8).putDouble(Math.PI);
+        final Filter filter = FilterFactory.create("quantize", "digits", 2, "dtype", ">f8", "astype", "<f4");
+
+        final byte[] encoded = filter.encode(buffer.array());
+        assertThat(encoded.length, is(4));
+        assertThat(ByteBuffer.wrap(filter.decode(encoded)).getDouble(0), is(402 / 128.0));
+    }
+
+    @Test
+    public void arrayWithBitRound_writeAndRead() throws Exception {
+        final InMemoryStore store = new InMemoryStore();
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams()
+                .shape(4, 4).chunks(2, 2).dataType(DataType.f4)
+                .filters(FilterFactory.create("bitround", "keepbits", 3))
+                .compressor(CompressorFactory.create("zlib")));
+        final float[] data = new float[16];
+        Arrays.fill(data, 3.14159265f);
+
+        array.write(data, new int[]{4, 4}, new int[]{0, 0});
+
+        final ZarrArray reopened = ZarrArray.open(store);
+        assertThat(reopened.getFilters().get(0).toString(), is("filter=bitround/keepbits=3"));
+        final float[] expected = new float[16];
+        Arrays.fill(expected, 3.25f);
+        assertThat((float[]) reopened.read(), is(equalTo(expected)));
+    }
+
+    @Test
+    public void create_filter_not_supported() {
+        try {
+            FilterFactory.create("kkkkkkk");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Filter id:'kkkkkkk' not supported.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void arrayWithFilters_writeAndRead() throws Exception {
+        final InMemoryStore store = new InMemoryStore();
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams()
+                .shape(6, 4).chunks(3, 4).dataType(DataType.i4).byteOrder(ByteOrder.LITTLE_ENDIAN)
+                .filters(FilterFactory.create("delta", "dtype", "<i4"), FilterFactory.create("shuffle", "elementsize", 4))
+                .compressor(null));
+        final int[] data = new int[24];
+        Arrays.setAll(data, i -> 1000 + i * i);
+
+        array.write(data, new int[]{6, 4}, new int[]{0, 0});
+
+        final String header;
+        try (InputStream is = store.getInputStream(".zarray")) {
+            header = new Scanner(is, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+        }
+        assertThat(header, containsString("\"filters\" : [ {"));
+        assertThat(header, containsString("\"id\" : \"delta\""));
+        assertThat(header, containsString("\"elementsize\" : 4"));
+
+        final ZarrArray reopened = ZarrArray.open(store);
+        assertThat(reopened.getFilters().size(), is(2));
+        assertThat(reopened.getFilters().get(0).toString(), is("filter=delta/dtype=<i4/astype=<i4"));
+        assertThat((int[]) reopened.read(), is(equalTo(data)));
+        assertThat((int[]) reopened.read(new int[]{2, 2}, new int[]{2, 1}), is(equalTo(new int[]{data[9], data[10], data[13], data[14]})));
+    }
+
+    @Test
+    public void arrayWithDelta_i1_leavesTheWrittenDataUnchanged() throws Exception {
+        final InMemoryStore store = new InMemoryStore();
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams()
+                .shape(8).chunks(8).dataType(DataType.i1)
+                .filters(FilterFactory.create("delta", "dtype", "|i1"))
+                .compressor(null));
+        array.buildStatistics();
+        final byte[] data = {10, 12, 14, 16, 18, 20, 22, 24};
+
+        array.write(data, new int[]{8}, new int[]{0});
+
+        assertThat(data, is(equalTo(new byte[]{10, 12, 14, 16, 18, 20, 22, 24})));
+        assertThat(array.getChunkStatistics(0).getMin(), is(10.0));
+        assertThat(array.getChunkStatistics(0).getMax(), is(24.0));
+        assertThat((byte[]) ZarrArray.open(store).read(), is(equalTo(data)));
+    }
+
+    private static byte[] intBytes(ByteOrder order, int... values) {
+        final ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(order);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+}
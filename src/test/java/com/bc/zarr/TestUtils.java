@@ -79,4 +79,15 @@ public class TestUtils {
     public static String readContent(Path path) throws IOException {
         return Files.lines(path).collect(Collectors.joining());
     }
+
+    /**
+     * @return the values {@code 0, 1, ..., length - 1}
+     */
+    public static int[] range(int length) {
+        final int[] data = new int[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = i;
+        }
+        return data;
+    }
 }
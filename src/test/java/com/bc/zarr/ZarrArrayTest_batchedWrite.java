@@ -0,0 +1,109 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.bc.zarr;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.bc.zarr.TestUtils.range;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ZarrArrayTest_batchedWrite {
+
+    private CountingStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new CountingStore();
+    }
+
+    @Test
+    public void chunksAreStoredInBoundedBatches() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(200).chunks(1).dataType(DataType.i4));
+        store.storedBatchSizes.clear();
+
+        //execution
+        array.write(range(200), new int[]{200}, new int[]{0});
+
+        //verification
+        assertThat(store.storedBatchSizes, contains(64, 64, 64, 8));
+        assertThat((int[]) array.read(), is(range(200)));
+    }
+
+    @Test
+    public void shardsAreNotSplitAcrossBatches() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(16, 16).chunks(1, 2).shards(8, 8).dataType(DataType.i4).zarrFormat(3));
+        store.storedKeys.clear();
+
+        //execution
+        array.write(range(256), new int[]{16, 16}, new int[]{0, 0});
+
+        //verification
+        // each shard holds 32 chunks, the chunks are not written in shard order
+        assertThat(store.storedKeys, containsInAnyOrder("c/0/0", "c/0/1", "c/1/0", "c/1/1"));
+        assertThat(store.storedBatchSizes.size(), is(2));
+        assertThat((int[]) array.read(), is(range(256)));
+    }
+
+    @Test
+    public void concurrentWritesOfManyChunks() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(64, 64).chunks(2, 2).dataType(DataType.i4));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //execution
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int row = 0; row < 64; row++) {
+                final int y = row;
+                futures.add(executor.submit(() -> {
+                    final int[] data = new int[64];
+                    for (int x = 0; x < 64; x++) {
+                        data[x] = y * 64 + x;
+                    }
+                    array.write(data, new int[]{1, 64}, new int[]{y, 0});
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //verification
+        assertThat((int[]) array.read(), is(range(64 * 64)));
+    }
+}
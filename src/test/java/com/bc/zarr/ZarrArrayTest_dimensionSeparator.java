@@ -0,0 +1,138 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.FileSystemStore;
+import com.bc.zarr.storage.InMemoryStore;
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import org.junit.*;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ZarrArrayTest_dimensionSeparator {
+
+    private InMemoryStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new InMemoryStore();
+    }
+
+    @Test
+    public void writeNestedChunkKeys() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams()
+                .shape(4, 6).chunks(2, 3)
+                .dataType(DataType.i1).compressor(null)
+                .dimensionSeparator("/"));
+
+        //execution
+        array.write(3, new int[]{2, 3}, new int[]{2, 3});
+
+        //verification
+        assertThat(store.getInputStream("1/1"), is(notNullValue()));
+        assertThat(store.getInputStream("1.1"), is(nullValue()));
+        assertThat(readString(".zarray"), containsString("\"dimension_separator\" : \"/\""));
+    }
+
+    @Test
+    public void flatChunkKeysByDefault() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams()
+                .shape(4, 6).chunks(2, 3)
+                .dataType(DataType.i1).compressor(null));
+
+        //execution
+        array.write(3, new int[]{2, 3}, new int[]{2, 3});
+
+        //verification
+        assertThat(store.getInputStream("1.1"), is(notNullValue()));
+        assertThat(readString(".zarray"), not(containsString("dimension_separator")));
+    }
+
+    @Test
+    public void readNestedArrayWrittenByOtherImplementation() throws Exception {
+        //preparation
+        write(".zarray", ("{\"chunks\":[2,2],\"compressor\":null,\"dimension_separator\":\"/\",\"dtype\":\"|i1\"," +
+                          "\"fill_value\":0,\"filters\":null,\"order\":\"C\",\"shape\":[2,4],\"zarr_format\":2}")
+                .getBytes(StandardCharsets.UTF_8));
+        write("0/1", new byte[]{1, 2, 3, 4});
+
+        //execution
+        final ZarrArray array = ZarrArray.open(store);
+
+        //verification
+        assertThat((byte[]) array.read(), is(new byte[]{0, 0, 1, 2, 0, 0, 3, 4}));
+    }
+
+    @Test
+    public void nestedDirectoriesInFileSystemStore() throws Exception {
+        //preparation
+        final Path root = Jimfs.newFileSystem(Configuration.unix()).getPath("/array.zarr");
+        final ZarrArray array = ZarrArray.create(new FileSystemStore(root), new ArrayParams()
+                .shape(3, 4, 4).chunks(1, 2, 2)
+                .dataType(DataType.i2).compressor(null)
+                .dimensionSeparator("/"));
+
+        //execution
+        array.write(5);
+        final ZarrArray reopened = ZarrArray.open(new FileSystemStore(root));
+
+        //verification
+        assertThat(Files.isDirectory(root.resolve("2/1")), is(true));
+        assertThat(Files.isRegularFile(root.resolve("2/1/1")), is(true));
+        assertThat(Files.list(root).map(path -> path.getFileName().toString()).collect(Collectors.toList()),
+                   containsInAnyOrder(".zarray", "0", "1", "2"));
+        final short[] expected = new short[3 * 4 * 4];
+        java.util.Arrays.fill(expected, (short) 5);
+        assertThat((short[]) reopened.read(), is(expected));
+    }
+
+    private String readString(String key) throws Exception {
+        try (InputStream is = store.getInputStream(key);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    private void write(String key, byte[] bytes) throws Exception {
+        try (OutputStream os = store.getOutputStream(key)) {
+            os.write(bytes);
+        }
+    }
+}
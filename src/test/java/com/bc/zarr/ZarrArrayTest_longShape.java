@@ -0,0 +1,106 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrArrayTest_longShape {
+
+    private static final long ROWS = 3_000_000_000L;
+
+    private InMemoryStore store;
+    private ZarrArray array;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new InMemoryStore();
+        array = ZarrArray.create(store, new ArrayParams().shape(ROWS, 4).chunks(1000, 4).dataType(DataType.i4).fillValue(-1));
+    }
+
+    @Test
+    public void writeAndReadBeyondTheIntRange() throws Exception {
+        //execution
+        array.write(new int[]{1, 2, 3, 4, 5, 6, 7, 8}, new int[]{2, 4}, new long[]{ROWS - 1001, 0});
+
+        //verification
+        assertThat((int[]) array.read(new int[]{3, 4}, new long[]{ROWS - 1002, 0}), is(new int[]{
+                -1, -1, -1, -1,
+                1, 2, 3, 4,
+                5, 6, 7, 8}));
+        assertThat(store.getInputStream("2999998.0"), is(notNullValue()));
+        assertThat(store.getInputStream("2999999.0"), is(notNullValue()));
+    }
+
+    @Test
+    public void headerKeepsTheLongShape() throws Exception {
+        //execution
+        final ZarrArray reopened = ZarrArray.open(store);
+
+        //verification
+        assertThat(reopened.getLongShape(), is(new long[]{ROWS, 4}));
+        assertThat(reopened.getChunks(), is(new int[]{1000, 4}));
+    }
+
+    @Test
+    public void intShapeIsRejected() throws Exception {
+        //execution
+        try {
+            array.getShape();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("exceeds the int range"));
+        }
+    }
+
+    @Test
+    public void chunkSpanningTheWholeDimensionIsRejected() throws Exception {
+        //execution
+        try {
+            ZarrArray.create(new ArrayParams().shape(ROWS).chunked(false));
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("can not span the whole dimension"));
+        }
+    }
+
+    @Test
+    public void appendAtTheEnd() throws Exception {
+        //execution
+        final long[] shape = array.append(new int[]{9, 9, 9, 9}, 0);
+
+        //verification
+        assertThat(shape, is(new long[]{ROWS + 1, 4}));
+        assertThat((int[]) array.read(new int[]{1, 4}, new long[]{ROWS, 0}), is(new int[]{9, 9, 9, 9}));
+    }
+}
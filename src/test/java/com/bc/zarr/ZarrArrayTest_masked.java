@@ -0,0 +1,173 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrArrayTest_masked {
+
+    private CountingStore store;
+    private ZarrArray array;
+    private boolean[] mask;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new CountingStore();
+        array = ZarrArray.create(store, new ArrayParams().shape(4, 6).chunks(2, 3).dataType(DataType.i4).fillValue(-1));
+        final int[] data = new int[24];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        array.write(data, new int[]{4, 6}, new int[]{0, 0});
+        // chunk (0, 0) all true, chunk (0, 1) mixed, chunks (1, 0) and (1, 1) all false
+        mask = new boolean[]{
+                true, true, true, false, true, false,
+                true, true, true, true, false, false,
+                false, false, false, false, false, false,
+                false, false, false, false, false, false};
+        store.requestedKeys.clear();
+        store.storedKeys.clear();
+    }
+
+    @Test
+    public void getInRowMajorOrder() throws Exception {
+        //execution
+        final int[] values = (int[]) array.getMasked(mask);
+
+        //verification
+        assertThat(values, is(new int[]{0, 1, 2, 4, 6, 7, 8, 9}));
+        assertThat(store.requestedKeys, containsInAnyOrder("0.0", "0.1"));
+    }
+
+    @Test
+    public void setValues() throws Exception {
+        //execution
+        array.setMasked(mask, new int[]{100, 101, 102, 104, 106, 107, 108, 109});
+
+        //verification
+        // the all true chunk is overwritten without being read
+        assertThat(store.requestedKeys, contains("0.1"));
+        assertThat(store.storedKeys, containsInAnyOrder("0.0", "0.1"));
+        assertThat((int[]) array.read(new int[]{2, 6}), is(new int[]{
+                100, 101, 102, 3, 104, 5,
+                106, 107, 108, 109, 10, 11}));
+    }
+
+    @Test
+    public void setValue() throws Exception {
+        //execution
+        array.setMasked(mask, -5);
+
+        //verification
+        assertThat((int[]) array.getMasked(mask), is(new int[]{-5, -5, -5, -5, -5, -5, -5, -5}));
+        assertThat(((int[]) array.read(new int[]{1, 6}))[3], is(3));
+    }
+
+    @Test
+    public void maskArray() throws Exception {
+        //preparation
+        final ZarrArray land = ZarrArray.create(new ArrayParams().shape(4, 6).chunks(4, 4).dataType(DataType.u1));
+        final byte[] landValues = new byte[24];
+        for (int i = 0; i < landValues.length; i++) {
+            landValues[i] = (byte) (mask[i] ? 1 : 0);
+        }
+        land.write(landValues, new int[]{4, 6}, new int[]{0, 0});
+
+        //execution
+        final int[] values = (int[]) array.getMasked(land);
+        array.setMasked(land, new int[]{0, 0, 0, 0, 0, 0, 0, 0});
+
+        //verification
+        assertThat(values, is(new int[]{0, 1, 2, 4, 6, 7, 8, 9}));
+        assertThat((int[]) array.getMasked(mask), is(new int[8]));
+    }
+
+    @Test
+    public void threeDimensionsAcrossSeveralChunkColumns() throws Exception {
+        //preparation
+        final ZarrArray cube = ZarrArray.create(new ArrayParams().shape(3, 4, 5).chunks(2, 3, 2).dataType(DataType.f4));
+        final float[] data = new float[60];
+        final boolean[] cubeMask = new boolean[60];
+        final List<Float> expected = new ArrayList<>();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+            cubeMask[i] = i % 3 == 0 || i % 7 == 0;
+            if (cubeMask[i]) {
+                expected.add((float) i);
+            }
+        }
+        cube.write(data, new int[]{3, 4, 5}, new int[]{0, 0, 0});
+
+        //execution
+        final float[] values = (float[]) cube.getMasked(cubeMask);
+
+        //verification
+        assertThat(values.length, is(expected.size()));
+        for (int i = 0; i < values.length; i++) {
+            assertThat(values[i], is(expected.get(i)));
+        }
+    }
+
+    @Test
+    public void valueCountMustMatchTheMask() throws Exception {
+        //execution
+        try {
+            array.setMasked(mask, new int[3]);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), is("8 elements are selected by the mask but 3 values are given."));
+        }
+    }
+
+    @Test
+    public void valueCountMustMatchTheMaskArrayBeforeWriting() throws Exception {
+        //preparation
+        // selects one element in the first slab and one in the second
+        final ZarrArray sparse = ZarrArray.create(new ArrayParams().shape(4, 6).chunks(2, 3).dataType(DataType.u1));
+        sparse.write(new byte[]{1}, new int[]{1, 1}, new int[]{0, 0});
+        sparse.write(new byte[]{1}, new int[]{1, 1}, new int[]{3, 5});
+
+        //execution
+        try {
+            array.setMasked(sparse, new int[]{100, 101, 102});
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), is("2 elements are selected by the mask but 3 values are given."));
+            assertThat(store.storedKeys, is(empty()));
+            assertThat(((int[]) array.read(new int[]{1, 1}))[0], is(0));
+        }
+    }
+}
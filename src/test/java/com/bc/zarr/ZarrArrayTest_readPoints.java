@@ -0,0 +1,120 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import org.junit.*;
+import ucar.ma2.InvalidRangeException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrArrayTest_readPoints {
+
+    private CountingStore store;
+    private ZarrArray array;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new CountingStore();
+        array = ZarrArray.create(store, new ArrayParams().shape(100, 100).chunks(10, 10).dataType(DataType.f8).fillValue(-1));
+        final double[] data = new double[100 * 100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        array.write(data, new int[]{100, 100}, new int[]{0, 0});
+        store.requestedKeys.clear();
+    }
+
+    @Test
+    public void valuesInTheOrderOfTheCoordinates() throws Exception {
+        //execution
+        final double[] values = (double[]) array.readPoints(new int[]{99, 0, 5, 98, 7}, new int[]{99, 0, 3, 91, 1});
+
+        //verification
+        assertThat(values, is(new double[]{9999, 0, 503, 9891, 701}));
+    }
+
+    @Test
+    public void everyChunkIsFetchedOnce() throws Exception {
+        //preparation
+        final int count = 1000;
+        final long[] ys = new long[count];
+        final long[] xs = new long[count];
+        for (int i = 0; i < count; i++) {
+            ys[i] = (i * 37) % 100;
+            xs[i] = (i * 53) % 20;
+        }
+
+        //execution
+        final double[] values = (double[]) array.readPoints(ys, xs);
+
+        //verification
+        for (int i = 0; i < count; i++) {
+            assertThat(values[i], is((double) (ys[i] * 100 + xs[i])));
+        }
+        assertThat(store.requestedKeys.size(), is(20));
+        assertThat(store.requestedKeys.size(), is(store.requestedKeys.stream().distinct().toArray().length));
+    }
+
+    @Test
+    public void pointsOfUnwrittenChunksAreFillValues() throws Exception {
+        //preparation
+        final ZarrArray empty = ZarrArray.create(new ArrayParams().shape(10, 10).chunks(5, 5).dataType(DataType.i2).fillValue(7));
+        empty.write(new short[]{1}, new int[]{1, 1}, new int[]{0, 0});
+
+        //execution
+        final short[] values = (short[]) empty.readPoints(new int[]{0, 9}, new int[]{0, 9});
+
+        //verification
+        assertThat(values, is(new short[]{1, 7}));
+    }
+
+    @Test
+    public void pointOutOfBoundsIsRejected() throws Exception {
+        //execution
+        try {
+            array.readPoints(new int[]{1, 100}, new int[]{1, 1});
+            fail("InvalidRangeException expected");
+        } catch (InvalidRangeException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Point 1 exceeds dimension 0"));
+        }
+    }
+
+    @Test
+    public void coordinateArraysMustHaveTheSameLength() throws Exception {
+        //execution
+        try {
+            array.readPoints(new int[]{1, 2}, new int[]{1});
+            fail("InvalidRangeException expected");
+        } catch (InvalidRangeException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("same length"));
+        }
+    }
+}
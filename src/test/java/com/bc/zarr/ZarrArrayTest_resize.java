@@ -0,0 +1,221 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static com.bc.zarr.TestUtils.range;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrArrayTest_resize {
+
+    private InMemoryStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new InMemoryStore();
+    }
+
+    @Test
+    public void appendTimeSteps() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(2, 2, 3).chunks(3, 2, 3).dataType(DataType.i4).fillValue(-1));
+        array.write(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11}, new int[]{2, 2, 3}, new int[]{0, 0, 0});
+
+        //execution
+        final long[] shape = array.append(new int[]{12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23}, 0);
+
+        //verification
+        assertThat(shape, is(new long[]{4, 2, 3}));
+        final int[] expected = new int[24];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i;
+        }
+        assertThat((int[]) array.read(), is(expected));
+        final ZarrArray reopened = ZarrArray.open(store);
+        assertThat(reopened.getShape(), is(new int[]{4, 2, 3}));
+        assertThat((int[]) reopened.read(), is(expected));
+    }
+
+    @Test
+    public void appendRejectsIncompatibleData() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(2, 3).dataType(DataType.i4));
+
+        //execution
+        try {
+            array.append(new int[4], 0);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("not a multiple of the slice size 3"));
+        }
+    }
+
+    @Test
+    public void shrinkDeletesDroppedChunksAndClearsCutChunks() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(5, 5).chunks(2, 2).dataType(DataType.i4).fillValue(-1));
+        array.write(range(25), new int[]{5, 5}, new int[]{0, 0});
+
+        //execution
+        array.resize(3, 3);
+
+        //verification
+        assertThat(array.getShape(), is(new int[]{3, 3}));
+        assertThat(store.getInputStream("1.1"), is(notNullValue()));
+        assertThat(store.getInputStream("1.2"), is(nullValue()));
+        assertThat(store.getInputStream("2.0"), is(nullValue()));
+        assertThat((int[]) array.read(), is(new int[]{
+                0, 1, 2,
+                5, 6, 7,
+                10, 11, 12}));
+        array.resize(5, 5);
+        assertThat((int[]) array.read(), is(new int[]{
+                0, 1, 2, -1, -1,
+                5, 6, 7, -1, -1,
+                10, 11, 12, -1, -1,
+                -1, -1, -1, -1, -1,
+                -1, -1, -1, -1, -1}));
+    }
+
+    @Test
+    public void shrinkDeletesOnlyTheDroppedChunks() throws Exception {
+        //preparation
+        final CountingStore countingStore = new CountingStore();
+        final ZarrArray array = ZarrArray.create(countingStore, new ArrayParams().shape(6, 6).chunks(2, 2).dataType(DataType.i4));
+        array.write(range(36), new int[]{6, 6}, new int[]{0, 0});
+        countingStore.deletedKeys.clear();
+
+        //execution
+        array.resize(4, 3);
+
+        //verification
+        assertThat(countingStore.deletedKeys, containsInAnyOrder("2.0", "2.1", "2.2", "0.2", "1.2"));
+    }
+
+    @Test
+    public void shrinkShardedArray() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(8, 8).chunks(2, 2).shards(4, 4).dataType(DataType.i4).fillValue(-1).zarrFormat(3));
+        array.write(range(64), new int[]{8, 8}, new int[]{0, 0});
+
+        //execution
+        array.resize(3, 8);
+
+        //verification
+        assertThat(array.getStorageKeys().size(), is(2));
+        assertThat(store.getInputStream("c/1/0"), is(nullValue()));
+        assertThat(store.getInputStream("c/1/1"), is(nullValue()));
+        array.resize(8, 8);
+        final int[] data = (int[]) array.read();
+        assertThat(data[2 * 8 + 7], is(23));
+        assertThat(data[3 * 8], is(-1));
+        assertThat(data[63], is(-1));
+    }
+
+    @Test
+    public void shrinkShardedArrayRewritesEachShardOnce() throws Exception {
+        //preparation
+        final CountingStore countingStore = new CountingStore();
+        final ZarrArray array = ZarrArray.create(countingStore, new ArrayParams().shape(8, 8).chunks(2, 2).shards(4, 4).dataType(DataType.i4).zarrFormat(3));
+        array.write(range(64), new int[]{8, 8}, new int[]{0, 0});
+        countingStore.storedKeys.clear();
+        countingStore.deletedKeys.clear();
+
+        //execution
+        array.resize(2, 8);
+
+        //verification
+        // the second chunk row of both kept shards is dropped
+        assertThat(countingStore.storedKeys, containsInAnyOrder("c/0/0", "c/0/1"));
+        assertThat(countingStore.deletedKeys, containsInAnyOrder("c/1/0", "c/1/1"));
+        assertThat((int[]) array.read(), is(range(16)));
+    }
+
+    @Test
+    public void statisticsFollowTheResizedGrid() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(4, 4).chunks(2, 2).dataType(DataType.i4).fillValue(-1));
+        array.write(range(16), new int[]{4, 4}, new int[]{0, 0});
+        array.buildStatistics();
+
+        //execution
+        array.resize(4, 3);
+
+        //verification
+        assertThat(array.getChunkStatistics(1, 0).getMax(), is(13.0));
+        final ChunkStatistics cut = array.getChunkStatistics(1, 1);
+        assertThat(cut.getCount(), is(2L));
+        assertThat(cut.getMax(), is(14.0));
+        array.resize(4, 6);
+        assertThat(array.getChunkStatistics(1, 1).getCount(), is(2L));
+        assertThat(array.getChunkStatistics(1, 2), is(nullValue()));
+    }
+
+    @Test
+    public void resizeV3KeepsAttributes() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams().shape(4).chunks(2).dataType(DataType.i4).zarrFormat(3),
+                                                 Collections.singletonMap("units", "K"));
+
+        //execution
+        array.append(new int[]{1, 2, 3}, 0);
+
+        //verification
+        final ZarrArray reopened = ZarrArray.open(store);
+        assertThat(reopened.getShape(), is(new int[]{7}));
+        assertThat(reopened.getAttributes().get("units"), is("K"));
+        assertThat((int[]) reopened.read(new int[]{3}, new int[]{4}), is(new int[]{1, 2, 3}));
+    }
+
+    @Test
+    public void resizeV3KeepsDimensionNames() throws Exception {
+        //preparation
+        ZarrArray.create(store, new ArrayParams().shape(4).chunks(2).dataType(DataType.i4).zarrFormat(3));
+        final String zarrJson = StandardCharsets.UTF_8.decode(store.getMany(Collections.singletonList("zarr.json")).get("zarr.json")).toString();
+        final String named = zarrJson.replaceFirst("\\{", "{\"dimension_names\" : [\"time\"],");
+        store.putMany(Collections.singletonMap("zarr.json", ByteBuffer.wrap(named.getBytes(StandardCharsets.UTF_8))));
+        final ZarrArray array = ZarrArray.open(store);
+
+        //execution
+        array.resize(6);
+
+        //verification
+        final String resized = StandardCharsets.UTF_8.decode(store.getMany(Collections.singletonList("zarr.json")).get("zarr.json")).toString();
+        assertThat(resized, containsString("\"dimension_names\""));
+        assertThat(resized, containsString("\"time\""));
+        assertThat(ZarrArray.open(store).getShape(), is(new int[]{6}));
+    }
+}
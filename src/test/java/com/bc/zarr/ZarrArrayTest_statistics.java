@@ -0,0 +1,241 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrArrayTest_statistics {
+
+    private CountingStore store;
+    private ZarrArray array;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new CountingStore();
+        array = ZarrArray.create(store, new ArrayParams().shape(25, 20).chunks(10, 10).dataType(DataType.i4).fillValue(-1));
+        final int[] data = new int[25 * 20];
+        for (int y = 0; y < 25; y++) {
+            for (int x = 0; x < 20; x++) {
+                data[y * 20 + x] = y < 10 ? x : 20 + y;
+            }
+        }
+        // keep some fill values in chunk (0, 0)
+        data[0] = -1;
+        data[1] = -1;
+        array.write(data, new int[]{25, 20}, new int[]{0, 0});
+    }
+
+    @Test
+    public void buildStatistics() throws Exception {
+        //execution
+        array.buildStatistics();
+
+        //verification
+        assertThat(array.hasStatistics(), is(true));
+        final ChunkStatistics first = array.getChunkStatistics(0, 0);
+        assertThat(first.getCount(), is(100L));
+        assertThat(first.getFillCount(), is(2L));
+        assertThat(first.getMin(), is(0.0));
+        assertThat(first.getMax(), is(9.0));
+        // edge chunk, 5 rows within the array bounds
+        final ChunkStatistics edge = array.getChunkStatistics(2, 1);
+        assertThat(edge.getCount(), is(50L));
+        assertThat(edge.getMin(), is(40.0));
+        assertThat(edge.getMax(), is(44.0));
+        assertThat(ZarrArray.open(store).getChunkStatistics(2, 1).getMax(), is(44.0));
+    }
+
+    @Test
+    public void writeMaintainsStatistics() throws Exception {
+        //preparation
+        array.buildStatistics();
+        final ZarrArray reopened = ZarrArray.open(store);
+
+        //execution
+        reopened.write(99, new int[]{1, 1}, new int[]{3, 15});
+
+        //verification
+        assertThat(reopened.getChunkStatistics(0, 1).getMax(), is(99.0));
+        assertThat(ZarrArray.open(store).getChunkStatistics(0, 1).getMax(), is(99.0));
+        assertThat(ZarrArray.open(store).getChunkStatistics(0, 1).getMin(), is(10.0));
+    }
+
+    @Test
+    public void writesOfOtherInstancesAreKept() throws Exception {
+        //preparation
+        array.buildStatistics();
+        final ZarrArray first = ZarrArray.open(store);
+        final ZarrArray second = ZarrArray.open(store);
+        assertThat(first.hasStatistics(), is(true));
+        assertThat(second.hasStatistics(), is(true));
+
+        //execution
+        first.write(99, new int[]{1, 1}, new int[]{3, 15});
+        second.write(77, new int[]{1, 1}, new int[]{13, 5});
+
+        //verification
+        final ZarrArray reopened = ZarrArray.open(store);
+        assertThat(reopened.getChunkStatistics(0, 1).getMax(), is(99.0));
+        assertThat(reopened.getChunkStatistics(1, 0).getMax(), is(77.0));
+        assertThat(second.getChunkStatistics(0, 1).getMax(), is(99.0));
+    }
+
+    @Test
+    public void instancesOpenedBeforeTheBuildMaintainTheStatistics() throws Exception {
+        //preparation
+        final ZarrArray openedBefore = ZarrArray.open(store);
+        array.buildStatistics();
+
+        //execution
+        openedBefore.write(99, new int[]{1, 1}, new int[]{3, 15});
+
+        //verification
+        assertThat(array.getChunkStatistics(0, 1).getMax(), is(99.0));
+        assertThat(array.scan(ValuePredicate.greaterThan(90), (position, value) -> {
+        }), is(1L));
+    }
+
+    @Test
+    public void chunksOfAFailedWriteAreAlwaysRead() throws Exception {
+        //preparation
+        final FailingStore failingStore = new FailingStore();
+        final ZarrArray failing = ZarrArray.create(failingStore, new ArrayParams().shape(20).chunks(10).dataType(DataType.i4).fillValue(-1));
+        failing.write(new int[20], new int[]{20}, new int[]{0});
+        failing.buildStatistics();
+        failingStore.failStatisticsUpdates = true;
+
+        //execution
+        try {
+            failing.write(99, new int[]{1}, new int[]{15});
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            // the chunk is stored, but the statistics are not updated
+        }
+
+        //verification
+        final ZarrArray reopened = ZarrArray.open(failingStore);
+        assertThat(reopened.getChunkStatistics(0).getMax(), is(0.0));
+        assertThat(reopened.getChunkStatistics(1), is(nullValue()));
+        assertThat(reopened.findChunks(ValuePredicate.greaterThan(90)).size(), is(1));
+        assertThat(reopened.scan(ValuePredicate.greaterThan(90), (position, value) -> {
+        }), is(1L));
+    }
+
+    @Test
+    public void scan_skipsChunksOutsideTheRange() throws Exception {
+        //preparation
+        array.buildStatistics();
+        final List<long[]> positions = new ArrayList<>();
+        store.requestedKeys.clear();
+
+        //execution
+        final long matches = array.scan(ValuePredicate.greaterThan(43), (position, value) -> positions.add(position));
+
+        //verification
+        assertThat(array.findChunks(ValuePredicate.greaterThan(43)).size(), is(2));
+        assertThat(matches, is(20L));
+        assertThat(positions.get(0), is(new long[]{24, 0}));
+        assertThat(store.requestedKeys, containsInAnyOrder("2.0", "2.1"));
+    }
+
+    @Test
+    public void scan_withoutStatisticsReadsAllChunks() throws Exception {
+        //preparation
+        store.requestedKeys.clear();
+
+        //execution
+        final long matches = array.scan(ValuePredicate.between(5, 6), (position, value) -> {
+        });
+
+        //verification
+        assertThat(array.hasStatistics(), is(false));
+        assertThat(array.findChunks(ValuePredicate.between(5, 6)).size(), is(6));
+        assertThat(matches, is(20L));
+        assertThat(store.requestedKeys.size(), is(6));
+    }
+
+    @Test
+    public void fillValuesNeverMatch() throws Exception {
+        //preparation
+        array.buildStatistics();
+
+        //execution
+        final long matches = array.scan(ValuePredicate.lessThan(0), (position, value) -> {
+        });
+
+        //verification
+        assertThat(matches, is(0L));
+        assertThat(array.findChunks(ValuePredicate.lessThan(0)), is(empty()));
+    }
+
+    @Test
+    public void unsignedValues() throws Exception {
+        //preparation
+        final ZarrArray unsigned = ZarrArray.create(new InMemoryStore(), new ArrayParams().shape(4).chunks(4).dataType(DataType.u1).fillValue(0));
+        unsigned.write(new byte[]{0, 1, (byte) 200, (byte) 255}, new int[]{4}, new int[]{0});
+
+        //execution
+        unsigned.buildStatistics();
+        final List<Double> values = new ArrayList<>();
+        final long matches = unsigned.scan(ValuePredicate.greaterThan(100), (position, value) -> values.add(value));
+
+        //verification
+        final ChunkStatistics statistics = unsigned.getChunkStatistics(0);
+        assertThat(statistics.getFillCount(), is(1L));
+        assertThat(statistics.getMin(), is(1.0));
+        assertThat(statistics.getMax(), is(255.0));
+        assertThat(matches, is(2L));
+        assertThat(values, contains(200.0, 255.0));
+    }
+
+    private static class FailingStore extends InMemoryStore {
+
+        boolean failStatisticsUpdates;
+        private int statisticsPuts;
+
+        @Override
+        public void putMany(Map<String, ByteBuffer> values) {
+            if (failStatisticsUpdates && values.keySet().iterator().next().contains(ZarrConstants.FILENAME_DOT_ZSTATS)) {
+                // let the invalidation pass, fail the update after the chunks are stored
+                if (++statisticsPuts == 2) {
+                    throw new IllegalStateException("statistics update failed");
+                }
+            }
+            super.putMany(values);
+        }
+    }
+}
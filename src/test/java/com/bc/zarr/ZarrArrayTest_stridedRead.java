@@ -0,0 +1,155 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import org.junit.*;
+import ucar.ma2.InvalidRangeException;
+
+import static com.bc.zarr.TestUtils.range;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrArrayTest_stridedRead {
+
+    private ZarrArray array;
+
+    @Before
+    public void setUp() throws Exception {
+        array = ZarrArray.create(new ArrayParams().shape(10, 12).chunks(3, 5).dataType(DataType.i4));
+        array.write(range(120), new int[]{10, 12}, new int[]{0, 0});
+    }
+
+    @Test
+    public void everyNthElement() throws Exception {
+        //execution
+        final int[] data = (int[]) array.read(new int[]{4, 3}, new long[]{0, 1}, new int[]{3, 5});
+
+        //verification
+        assertThat(data, is(new int[]{
+                1, 6, 11,
+                37, 42, 47,
+                73, 78, 83,
+                109, 114, 119}));
+    }
+
+    @Test
+    public void negativeStep() throws Exception {
+        //execution
+        final int[] data = (int[]) array.read(new int[]{5, 4}, new long[]{9, 11}, new int[]{-2, -3});
+
+        //verification
+        assertThat(data, is(new int[]{
+                119, 116, 113, 110,
+                95, 92, 89, 86,
+                71, 68, 65, 62,
+                47, 44, 41, 38,
+                23, 20, 17, 14}));
+    }
+
+    @Test
+    public void stepOneEqualsContiguousRead() throws Exception {
+        //execution
+        final int[] data = (int[]) array.read(new int[]{4, 7}, new long[]{2, 3}, new int[]{1, 1});
+
+        //verification
+        assertThat(data, is((int[]) array.read(new int[]{4, 7}, new int[]{2, 3})));
+    }
+
+    @Test
+    public void readIntoIntBufferIsAContiguousRead() throws Exception {
+        //preparation
+        final int[] buffer = new int[4];
+
+        //execution
+        array.read(buffer, new int[]{2, 2}, new int[]{1, 1});
+
+        //verification
+        assertThat(buffer, is(new int[]{13, 14, 25, 26}));
+    }
+
+    @Test
+    public void onlyChunksWithSelectedElementsAreFetched() throws Exception {
+        //preparation
+        final CountingStore store = new CountingStore();
+        final ZarrArray line = ZarrArray.create(store, new ArrayParams().shape(100).chunks(10).dataType(DataType.f4).fillValue(-1));
+        final float[] values = new float[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i / 2f;
+        }
+        line.write(values, new int[]{100}, new int[]{0});
+        store.requestedKeys.clear();
+
+        //execution
+        final float[] data = (float[]) line.read(new int[]{3}, new long[]{5}, new int[]{40});
+
+        //verification
+        assertThat(data, is(new float[]{2.5f, 22.5f, 42.5f}));
+        assertThat(store.requestedKeys, containsInAnyOrder("0", "4", "8"));
+    }
+
+    @Test
+    public void chunksAreFetchedInBatches() throws Exception {
+        //preparation
+        final CountingStore store = new CountingStore();
+        final ZarrArray line = ZarrArray.create(store, new ArrayParams().shape(200).chunks(1).dataType(DataType.i4));
+        line.write(range(200), new int[]{200}, new int[]{0});
+        store.batchSizes.clear();
+
+        //execution
+        final int[] data = (int[]) line.read(new int[]{100}, new long[]{1}, new int[]{2});
+
+        //verification
+        assertThat(data[0], is(1));
+        assertThat(data[99], is(199));
+        assertThat(store.batchSizes, contains(64, 36));
+    }
+
+    @Test
+    public void selectionBeyondTheBoundsIsRejected() throws Exception {
+        //execution
+        try {
+            array.read(new int[]{4, 1}, new long[]{0, 0}, new int[]{4, 1});
+            fail("InvalidRangeException expected");
+        } catch (InvalidRangeException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("exceeds dimension 0 of size 10"));
+        }
+    }
+
+    @Test
+    public void zeroStepIsRejected() throws Exception {
+        //execution
+        try {
+            array.read(new int[]{2, 2}, new long[]{0, 0}, new int[]{1, 0});
+            fail("InvalidRangeException expected");
+        } catch (InvalidRangeException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Step must not be zero"));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import org.junit.*;
+
+import static com.bc.zarr.TestUtils.range;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrArrayTest_view {
+
+    private CountingStore store;
+    private ZarrArray array;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new CountingStore();
+        array = ZarrArray.create(store, new ArrayParams().shape(10, 12).chunks(3, 5).dataType(DataType.i4));
+        array.write(range(120), new int[]{10, 12}, new int[]{0, 0});
+        store.requestedKeys.clear();
+    }
+
+    @Test
+    public void wholeArray() throws Exception {
+        //execution
+        final ZarrArrayView view = array.view();
+
+        //verification
+        assertThat(view.getShape(), is(new int[]{10, 12}));
+        assertThat(view.getDataType(), is(DataType.i4));
+        assertThat((int[]) view.read(), is(range(120)));
+    }
+
+    @Test
+    public void deriveViewsWithoutIO() throws Exception {
+        //execution
+        final ZarrArrayView view = array.view()
+                .slice(new long[]{2, 1}, new long[]{6, 10})
+                .step(2, -3)
+                .transpose(1, 0);
+
+        //verification
+        assertThat(view.getShape(), is(new int[]{4, 3}));
+        assertThat(store.requestedKeys, is(empty()));
+    }
+
+    @Test
+    public void slicesCompose() throws Exception {
+        //execution
+        final ZarrArrayView view = array.view()
+                .slice(new long[]{2, 3}, new long[]{6, 8})
+                .slice(new int[]{1, 2}, new int[]{2, 3});
+
+        //verification
+        assertThat((int[]) view.read(), is(new int[]{
+                41, 42, 43,
+                53, 54, 55}));
+        assertThat(store.requestedKeys, containsInAnyOrder("1.1"));
+    }
+
+    @Test
+    public void stepsCompose() throws Exception {
+        //execution
+        final ZarrArrayView view = array.view()
+                .step(2, 1)
+                .slice(new long[]{1, 0}, new long[]{4, 12})
+                .step(-2, 4);
+
+        //verification
+        assertThat(view.getShape(), is(new int[]{2, 3}));
+        assertThat((int[]) view.read(), is(new int[]{
+                96, 100, 104,
+                48, 52, 56}));
+    }
+
+    @Test
+    public void transposeReordersTheDimensions() throws Exception {
+        //preparation
+        final ZarrArrayView region = array.view().slice(new long[]{0, 0}, new long[]{2, 3});
+
+        //execution
+        final ZarrArrayView view = region.transpose(1, 0);
+
+        //verification
+        assertThat(view.getShape(), is(new int[]{3, 2}));
+        assertThat((int[]) view.read(), is(new int[]{
+                0, 12,
+                1, 13,
+                2, 14}));
+        assertThat((int[]) view.transpose(1, 0).read(), is((int[]) region.read()));
+    }
+
+    @Test
+    public void slicingATransposedView() throws Exception {
+        //execution
+        final ZarrArrayView view = array.view()
+                .transpose(1, 0)
+                .slice(new long[]{4, 7}, new long[]{2, 3})
+                .step(-1, 1);
+
+        //verification
+        assertThat((int[]) view.read(), is(new int[]{
+                89, 101, 113,
+                88, 100, 112}));
+    }
+
+    @Test
+    public void readARegionOfTheView() throws Exception {
+        //preparation
+        final ZarrArrayView view = array.view().step(1, -1);
+
+        //execution
+        final int[] data = (int[]) view.read(new int[]{2, 2}, new long[]{1, 0});
+
+        //verification
+        assertThat(data, is(new int[]{23, 22, 35, 34}));
+    }
+
+    @Test
+    public void sliceBeyondTheViewIsRejected() {
+        //preparation
+        final ZarrArrayView view = array.view().step(2, 2);
+
+        //execution
+        try {
+            view.slice(new long[]{3, 0}, new long[]{3, 6});
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("exceeds the view shape [5, 6]"));
+        }
+    }
+
+    @Test
+    public void invalidPermutationIsRejected() {
+        //execution
+        try {
+            array.view().transpose(0, 0);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Not a permutation"));
+        }
+    }
+}
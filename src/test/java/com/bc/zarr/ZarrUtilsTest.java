@@ -153,6 +153,8 @@ public class ZarrUtilsTest {
     @Test
     public void computeChunkFilename() {
         assertEquals("1.2.3.42", ZarrUtils.createChunkFilename(new int[]{1, 2, 3, 42}));
+        assertEquals("1.2.3.42", ZarrUtils.createChunkFilename(new int[]{1, 2, 3, 42}, "."));
+        assertEquals("1/2/3/42", ZarrUtils.createChunkFilename(new int[]{1, 2, 3, 42}, "/"));
     }
 
     private String expectedJson(boolean nullCompressor) {
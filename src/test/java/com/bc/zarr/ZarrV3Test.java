@@ -0,0 +1,241 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr;
+
+import com.bc.zarr.storage.InMemoryStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ZarrV3Test {
+
+    private InMemoryStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new InMemoryStore();
+    }
+
+    @Test
+    public void createGroupAndArray_writesZarrJsonDocuments() throws Exception {
+        //preparation
+        final ZarrGroup group = ZarrGroup.create(store, Collections.singletonMap("title", "v3"), 3);
+        final ArrayParams params = new ArrayParams()
+                .shape(4, 6).chunks(2, 3)
+                .dataType(DataType.i4).byteOrder(ByteOrder.LITTLE_ENDIAN)
+                .fillValue(-1)
+                .compressor(CompressorFactory.create("zlib", "level", 1));
+
+        //execution
+        final ZarrArray array = group.createArray("band", params, Collections.singletonMap("unit", "m"));
+        array.write(7, new int[]{2, 3}, new int[]{0, 3});
+
+        //verification
+        final JsonNode groupJson = readJson("zarr.json");
+        assertThat(groupJson.get("zarr_format").asInt(), is(3));
+        assertThat(groupJson.get("node_type").asText(), is("group"));
+        assertThat(groupJson.get("attributes").get("title").asText(), is("v3"));
+
+        final JsonNode arrayJson = readJson("band/zarr.json");
+        assertThat(arrayJson.get("zarr_format").asInt(), is(3));
+        assertThat(arrayJson.get("node_type").asText(), is("array"));
+        assertThat(arrayJson.get("shape").toString(), is("[4,6]"));
+        assertThat(arrayJson.get("data_type").asText(), is("int32"));
+        assertThat(arrayJson.get("chunk_grid").toString(), is("{\"name\":\"regular\",\"configuration\":{\"chunk_shape\":[2,3]}}"));
+        assertThat(arrayJson.get("chunk_key_encoding").toString(), is("{\"name\":\"default\",\"configuration\":{\"separator\":\"/\"}}"));
+        assertThat(arrayJson.get("fill_value").asInt(), is(-1));
+        assertThat(arrayJson.get("codecs").toString(), is("[{\"name\":\"bytes\",\"configuration\":{\"endian\":\"little\"}}," +
+                                                          "{\"name\":\"numcodecs.zlib\",\"configuration\":{\"level\":1}}]"));
+        assertThat(arrayJson.get("attributes").get("unit").asText(), is("m"));
+
+        assertThat(store.getInputStream("band/.zarray"), is(nullValue()));
+        assertThat(store.getInputStream("band/.zattrs"), is(nullValue()));
+        assertThat(store.getInputStream("band/c/0/1"), is(notNullValue()));
+        assertThat(store.getInputStream("band/c/0/0"), is(nullValue()));
+    }
+
+    @Test
+    public void openGroupAndArray_roundtrip() throws Exception {
+        //preparation
+        final ZarrGroup created = ZarrGroup.create(store, null, 3);
+        created.createSubGroup("sub");
+        final ZarrArray array = created.createArray("band", new ArrayParams()
+                .shape(5, 7).chunks(2, 3).dataType(DataType.f4).fillValue(Float.NaN)
+                .compressor(CompressorFactory.create("zlib", "level", 1)));
+        final float[] data = new float[5 * 7];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i * 0.5f;
+        }
+        array.write(data, new int[]{5, 7}, new int[]{0, 0});
+
+        //execution
+        final ZarrGroup group = ZarrGroup.open(store);
+        final ZarrArray opened = group.openArray("band");
+        group.writeAttributes(Collections.singletonMap("answer", 42));
+
+        //verification
+        assertThat(group.getZarrFormat(), is(3));
+        assertThat(group.openSubGroup("sub").getZarrFormat(), is(3));
+        assertThat(group.getArrayKeys(), contains("band"));
+        assertThat(group.getGroupKeys(), contains("sub"));
+        assertThat(group.getAttributes().get("answer"), is(42));
+        assertThat(readJson("zarr.json").get("node_type").asText(), is("group"));
+
+        assertThat(opened.getZarrFormat(), is(3));
+        assertThat(opened.getShape(), is(new int[]{5, 7}));
+        assertThat(opened.getChunks(), is(new int[]{2, 3}));
+        assertThat(opened.getDataType(), is(DataType.f4));
+        assertThat(opened.getByteOrder(), is(ByteOrder.BIG_ENDIAN));
+        assertThat(opened.getFillValue().doubleValue(), is(Double.NaN));
+        assertThat(opened.getCompressor().getId(), is("zlib"));
+        assertThat((float[]) opened.read(), is(data));
+    }
+
+    @Test
+    public void shardedArray_roundtrip() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(store, new ArrayParams()
+                .shape(8, 8).chunks(2, 2).shards(4, 8)
+                .dataType(DataType.i2).compressor(null)
+                .zarrFormat(3));
+        final short[] data = new short[8 * 8];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (short) i;
+        }
+
+        //execution
+        array.write(data, new int[]{8, 8}, new int[]{0, 0});
+        final ZarrArray opened = ZarrArray.open(store);
+
+        //verification
+        final JsonNode zarrJson = readJson("zarr.json");
+        assertThat(zarrJson.get("chunk_grid").get("configuration").get("chunk_shape").toString(), is("[4,8]"));
+        final JsonNode sharding = zarrJson.get("codecs").get(0);
+        assertThat(sharding.get("name").asText(), is("sharding_indexed"));
+        assertThat(sharding.get("configuration").get("chunk_shape").toString(), is("[2,2]"));
+        assertThat(sharding.get("configuration").get("index_location").asText(), is("end"));
+        assertThat(store.getInputStream("c/0/0"), is(notNullValue()));
+        assertThat(store.getInputStream("c/1/0"), is(notNullValue()));
+        assertThat(store.getInputStream("c/0/0/0"), is(nullValue()));
+
+        assertThat(opened.getShards(), is(new int[]{4, 8}));
+        assertThat(opened.getChunks(), is(new int[]{2, 2}));
+        assertThat((short[]) opened.read(), is(data));
+    }
+
+    @Test
+    public void openArray_writtenByOtherImplementation() throws Exception {
+        //preparation
+        writeJson("zarr.json", "{\"zarr_format\":3,\"node_type\":\"array\",\"shape\":[2,2],\"data_type\":\"float64\"," +
+                               "\"chunk_grid\":{\"name\":\"regular\",\"configuration\":{\"chunk_shape\":[2,1]}}," +
+                               "\"chunk_key_encoding\":{\"name\":\"v2\",\"configuration\":{\"separator\":\".\"}}," +
+                               "\"fill_value\":\"-Infinity\",\"codecs\":[{\"name\":\"bytes\",\"configuration\":{\"endian\":\"little\"}}]," +
+                               "\"attributes\":{},\"dimension_names\":[\"y\",\"x\"]}");
+        final ByteBuffer chunk = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putDouble(1.5).putDouble(2.5);
+        try (OutputStream os = store.getOutputStream("0.1")) {
+            os.write(chunk.array());
+        }
+
+        //execution
+        final ZarrArray array = ZarrArray.open(store);
+
+        //verification
+        assertThat(array.getByteOrder(), is(ByteOrder.LITTLE_ENDIAN));
+        assertThat(array.getFillValue().doubleValue(), is(Double.NEGATIVE_INFINITY));
+        assertThat((double[]) array.read(), is(new double[]{Double.NEGATIVE_INFINITY, 1.5, Double.NEGATIVE_INFINITY, 2.5}));
+    }
+
+    @Test
+    public void openArray_unsupportedCodec() throws Exception {
+        //preparation
+        writeJson("zarr.json", "{\"zarr_format\":3,\"node_type\":\"array\",\"shape\":[2,2],\"data_type\":\"int8\"," +
+                               "\"chunk_grid\":{\"name\":\"regular\",\"configuration\":{\"chunk_shape\":[2,2]}}," +
+                               "\"chunk_key_encoding\":{\"name\":\"default\"},\"fill_value\":0," +
+                               "\"codecs\":[{\"name\":\"transpose\",\"configuration\":{\"order\":[1,0]}},{\"name\":\"bytes\"}]}");
+
+        //execution
+        try {
+            ZarrArray.open(store);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Codec 'transpose' not supported"));
+        }
+    }
+
+    @Test
+    public void openGroup_arrayNodeIsNotAGroup() throws Exception {
+        //preparation
+        ZarrArray.create(store, new ArrayParams().shape(2).zarrFormat(3));
+
+        //execution
+        try {
+            ZarrGroup.open(store);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            //verification
+            assertThat(expected.getMessage(), is("Node type 'group' expected but is 'array'"));
+        }
+    }
+
+    @Test
+    public void arrayParams_invalidZarrFormat() {
+        try {
+            new ArrayParams().zarrFormat(4);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage(), is("Zarr format 2 or 3 expected but was 4."));
+        }
+    }
+
+    private JsonNode readJson(String key) throws IOException {
+        final Map<String, ByteBuffer> values = store.getMany(Collections.singletonList(key));
+        final ByteBuffer buffer = values.get(key);
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new ObjectMapper().readTree(bytes);
+    }
+
+    private void writeJson(String key, String json) throws IOException {
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        values.put(key, ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+        store.putMany(values);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.jfr;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+import com.bc.zarr.storage.InMemoryStore;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ChunkEventsTest {
+
+    private Path recordingFile;
+
+    @Before
+    public void setUp() throws Exception {
+        recordingFile = Files.createTempFile("jzarr", ".jfr");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(recordingFile);
+    }
+
+    @Test
+    public void readAndWriteEmitChunkCompressorAndStoreEvents() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrGroup.create(new InMemoryStore()).createArray("band", new ArrayParams()
+                .shape(10, 10).chunks(5, 5).dataType(DataType.i2)
+                .compressor(CompressorFactory.create("zlib", "level", 1)));
+
+        //execution
+        try (Recording recording = new Recording()) {
+            recording.enable(ChunkReadEvent.class).withoutThreshold();
+            recording.enable(ChunkWriteEvent.class).withoutThreshold();
+            recording.enable(CompressorEvent.class).withoutThreshold();
+            recording.enable(StoreEvent.class).withoutThreshold();
+            recording.start();
+            array.write(7);
+            array.read();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        //verification
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        final List<RecordedEvent> writes = ofType(events, "com.bc.zarr.ChunkWrite");
+        final List<RecordedEvent> reads = ofType(events, "com.bc.zarr.ChunkRead");
+        final List<RecordedEvent> compressorCalls = ofType(events, "com.bc.zarr.Compressor");
+        final List<RecordedEvent> storeCalls = ofType(events, "com.bc.zarr.Store");
+        final List<RecordedEvent> puts = withOperation(storeCalls, StoreEvent.PUT_MANY);
+        final List<RecordedEvent> gets = withOperation(storeCalls, StoreEvent.GET_MANY);
+        assertThat(writes.size(), is(4));
+        assertThat(reads.size(), is(4));
+        assertThat(compressorCalls.size(), is(8));
+        assertThat(puts.size(), is(1));
+        assertThat(gets.size(), is(greaterThanOrEqualTo(1)));
+
+        final RecordedEvent read = reads.get(0);
+        assertThat(read.getString("arrayPath"), is("band"));
+        assertThat(read.getString("chunkKey"), startsWith("band/"));
+        assertThat(read.getLong("rawSize"), is(5L * 5 * 2));
+        assertThat(read.getLong("storedSize"), is(greaterThan(0L)));
+        assertThat(compressorCalls.get(0).getString("compressor"), is("zlib"));
+        assertThat(puts.get(0).getInt("keyCount"), is(4));
+        final RecordedEvent readRequest = gets.get(gets.size() - 1);
+        assertThat(readRequest.getInt("keyCount"), is(4));
+        assertThat(readRequest.getLong("bytes"), is(puts.get(0).getLong("bytes")));
+    }
+
+    private static List<RecordedEvent> withOperation(List<RecordedEvent> storeCalls, String operation) {
+        return storeCalls.stream()
+                .filter(event -> event.getString("operation").equals(operation))
+                .collect(Collectors.toList());
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.metrics;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.*;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ChunkMetricsTest {
+
+    private ChunkMetrics metrics;
+    private ZarrArray array;
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new ChunkMetrics();
+        final ZarrGroup group = ZarrGroup.create(new InMemoryStore());
+        array = group.createArray("band", new ArrayParams()
+                .shape(10, 10).chunks(5, 5).dataType(DataType.i4)
+                .compressor(CompressorFactory.create("zlib", "level", 1)));
+        array.setInstrumentation(metrics);
+    }
+
+    @Test
+    public void writeRecordsEncodeCompressAndStore() throws Exception {
+        //execution
+        array.write(3);
+
+        //verification
+        final Map<ChunkOperation, OperationMetrics> ops = metrics.get("band");
+        assertThat(ops.get(ChunkOperation.ENCODE).getCount(), is(4L));
+        assertThat(ops.get(ChunkOperation.ENCODE).getBytesOut(), is(4L * 25 * 4));
+        assertThat(ops.get(ChunkOperation.COMPRESS).getCount(), is(4L));
+        assertThat(ops.get(ChunkOperation.COMPRESS).getBytesIn(), is(4L * 25 * 4));
+        assertThat(ops.get(ChunkOperation.STORE).getCount(), is(1L));
+        assertThat(ops.get(ChunkOperation.STORE).getBytesIn(), is(ops.get(ChunkOperation.COMPRESS).getBytesOut()));
+        assertThat(metrics.getArrayPaths(), contains("band"));
+    }
+
+    @Test
+    public void readRecordsFetchDecompressDecodeAndCopy() throws Exception {
+        //preparation
+        array.write(3);
+        metrics.reset();
+
+        //execution
+        array.read(new int[]{4, 4}, new int[]{3, 3});
+
+        //verification
+        final Map<ChunkOperation, OperationMetrics> ops = metrics.get("band");
+        assertThat(ops.get(ChunkOperation.FETCH).getCount(), is(1L));
+        assertThat(ops.get(ChunkOperation.DECOMPRESS).getCount(), is(4L));
+        assertThat(ops.get(ChunkOperation.DECOMPRESS).getBytesIn(), is(ops.get(ChunkOperation.FETCH).getBytesOut()));
+        assertThat(ops.get(ChunkOperation.DECODE).getCount(), is(4L));
+        assertThat(ops.get(ChunkOperation.COPY).getCount(), is(4L));
+        assertThat(metrics.getCompressionRatio("band"), is(greaterThan(1.0)));
+    }
+
+    @Test
+    public void noopInstrumentationRecordsNothing() throws Exception {
+        //preparation
+        array.setInstrumentation(null);
+
+        //execution
+        array.write(3);
+        array.read();
+
+        //verification
+        assertThat(array.getInstrumentation(), is(sameInstance(ChunkInstrumentation.NOOP)));
+        assertThat(metrics.getArrayPaths(), is(empty()));
+    }
+
+    @Test
+    public void histogramQuantiles() {
+        //preparation
+        final OperationMetrics operation = new OperationMetrics();
+
+        //execution
+        for (int i = 0; i < 99; i++) {
+            operation.record(100, 0, 0);
+        }
+        operation.record(5000, 0, 0);
+
+        //verification
+        assertThat(operation.getQuantileUpperBoundNanos(0.5), is(128L));
+        assertThat(operation.getQuantileUpperBoundNanos(1.0), is(8192L));
+        assertThat(new OperationMetrics().getQuantileUpperBoundNanos(0.5), is(0L));
+    }
+
+    @Test
+    public void jmxExposesTheMetricsOfAnArray() throws Exception {
+        //preparation
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        array.write(3);
+
+        //execution
+        final ObjectName name = JmxChunkMetrics.register(metrics, "band", server);
+
+        //verification
+        final Map<?, ?> counts = (Map<?, ?>) server.getAttribute(name, "Counts");
+        assertThat(counts.size(), is(ChunkOperation.values().length));
+        assertThat(server.getAttribute(name, "ArrayPath"), is("band"));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.reduce;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import org.junit.*;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ReducerTest {
+
+    private ZarrArray array;
+
+    @Before
+    public void setUp() throws Exception {
+        // 3 time steps of 5 x 7 pixels, value = t * 100 + y * 10 + x
+        array = ZarrArray.create(new ArrayParams().shape(3, 5, 7).chunks(2, 2, 3).dataType(DataType.i2).fillValue(-1));
+        final short[] data = new short[3 * 5 * 7];
+        for (int t = 0; t < 3; t++) {
+            for (int y = 0; y < 5; y++) {
+                for (int x = 0; x < 7; x++) {
+                    data[(t * 5 + y) * 7 + x] = (short) (t * 100 + y * 10 + x);
+                }
+            }
+        }
+        data[0] = -1;
+        array.write(data, new int[]{3, 5, 7}, new int[]{0, 0, 0});
+    }
+
+    @Test
+    public void summary() throws Exception {
+        //execution
+        final Summary summary = new Reducer(array).parallelism(3).skipFillValues(true).summary();
+
+        //verification
+        assertThat(summary.getCount(), is(104L));
+        assertThat(summary.getMin(), is(1.0));
+        assertThat(summary.getMax(), is(246.0));
+        // all 105 values sum up to 3 * 35 * 23 + 35 * 100 * 3
+        assertThat(summary.getSum(), is(3.0 * 35 * 23 + 35 * 300));
+        assertThat(summary.getMean(), is(closeTo(summary.getSum() / 104, 1e-9)));
+    }
+
+    @Test
+    public void summary_includesFillValuesByDefault() throws Exception {
+        //preparation
+        final ZarrArray zeros = ZarrArray.create(new ArrayParams().shape(6).chunks(4).dataType(DataType.i4));
+        zeros.write(new int[]{0, 0, 3, 5, 0, 4}, new int[]{6}, new int[]{0});
+
+        //execution
+        final Summary summary = new Reducer(zeros).summary();
+        final Summary skipped = new Reducer(zeros).skipFillValues(true).summary();
+
+        //verification
+        assertThat(zeros.getFillValue().intValue(), is(0));
+        assertThat(summary.getCount(), is(6L));
+        assertThat(summary.getMin(), is(0.0));
+        assertThat(summary.getMean(), is(2.0));
+        assertThat(skipped.getCount(), is(3L));
+        assertThat(skipped.getMean(), is(4.0));
+    }
+
+    @Test
+    public void histogram() throws Exception {
+        //execution
+        final Histogram histogram = new Reducer(array).skipFillValues(true).histogram(0, 199.99, 2);
+
+        //verification
+        assertThat(histogram.getCounts(), is(new long[]{34, 35}));
+        assertThat(histogram.getBelow(), is(0L));
+        assertThat(histogram.getAbove(), is(35L));
+    }
+
+    @Test
+    public void reduceAlongAxis() throws Exception {
+        //execution
+        final List<Summary> perPixel = new Reducer(array).skipFillValues(true).reduce(0, Summary::new);
+        final List<Summary> perTimeStep = new Reducer(array).skipFillValues(true).reduce(1, Summary::new);
+
+        //verification
+        assertThat(perPixel.size(), is(35));
+        assertThat(perPixel.get(0).getCount(), is(2L));
+        assertThat(perPixel.get(0).getMean(), is(150.0));
+        assertThat(perPixel.get(4 * 7 + 6).getMean(), is(146.0));
+        assertThat(perPixel.get(4 * 7 + 6).getMin(), is(46.0));
+        // shape [3, 7], the rows of every time step and column
+        assertThat(perTimeStep.size(), is(21));
+        assertThat(perTimeStep.get(2 * 7 + 3).getMean(), is(223.0));
+        assertThat(perTimeStep.get(2 * 7 + 3).getCount(), is(5L));
+    }
+
+    @Test
+    public void unsignedValues() throws Exception {
+        //preparation
+        final ZarrArray bytes = ZarrArray.create(new ArrayParams().shape(4).chunks(3).dataType(DataType.u1));
+        bytes.write(new byte[]{(byte) 200, (byte) 255, 1, 0}, new int[]{4}, new int[]{0});
+
+        //execution
+        final Summary summary = new Reducer(bytes).summary();
+
+        //verification
+        assertThat(summary.getCount(), is(4L));
+        assertThat(summary.getMax(), is(255.0));
+        assertThat(summary.getSum(), is(456.0));
+    }
+}
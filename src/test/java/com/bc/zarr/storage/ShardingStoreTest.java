@@ -0,0 +1,285 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.storage;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.ChunkKeyEncoding;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ShardingStoreTest {
+
+    private InMemoryStore baseStore;
+    private ShardingStore store;
+
+    @Before
+    public void setUp() {
+        baseStore = new InMemoryStore();
+        store = new ShardingStore(baseStore, "array", new int[]{2, 2}, ChunkKeyEncoding.v2("."), false);
+    }
+
+    @Test
+    public void chunksArePackedIntoShardWithIndexAtTheEnd() throws IOException {
+        //execution
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        values.put("array/0.0", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        values.put("array/1.1", ByteBuffer.wrap(new byte[]{4, 5}));
+        store.putMany(values);
+
+        //verification
+        assertThat(baseStore.getInputStream("array/0.0"), is(notNullValue()));
+        assertThat(baseStore.getInputStream("array/1.1"), is(nullValue()));
+        final ByteBuffer shard = baseStore.getMany(Arrays.asList("array/0.0")).get("array/0.0").order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(shard.remaining(), is(5 + 4 * 16));
+        shard.position(5);
+        assertThat(shard.getLong(), is(0L));
+        assertThat(shard.getLong(), is(3L));
+        assertThat(shard.getLong(), is(-1L));
+        assertThat(shard.getLong(), is(-1L));
+        assertThat(shard.getLong(), is(-1L));
+        assertThat(shard.getLong(), is(-1L));
+        assertThat(shard.getLong(), is(3L));
+        assertThat(shard.getLong(), is(2L));
+    }
+
+    @Test
+    public void readChunksFromDifferentShards() throws IOException {
+        //preparation
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        values.put("array/0.0", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        values.put("array/0.3", ByteBuffer.wrap(new byte[]{4, 5}));
+        values.put("array/5.1", ByteBuffer.wrap(new byte[]{6}));
+        store.putMany(values);
+
+        //execution
+        final Map<String, ByteBuffer> read = store.getMany(Arrays.asList("array/0.0", "array/0.3", "array/5.1", "array/0.1", "array/7.7"));
+
+        //verification
+        assertThat(read.keySet(), containsInAnyOrder("array/0.0", "array/0.3", "array/5.1"));
+        assertThat(toBytes(read.get("array/0.0")), is(equalTo(new byte[]{1, 2, 3})));
+        assertThat(toBytes(read.get("array/0.3")), is(equalTo(new byte[]{4, 5})));
+        assertThat(toBytes(read.get("array/5.1")), is(equalTo(new byte[]{6})));
+        assertThat(baseStore.getInputStream("array/0.1"), is(notNullValue()));
+        assertThat(baseStore.getInputStream("array/2.0"), is(notNullValue()));
+    }
+
+    @Test
+    public void updateSingleChunkKeepsTheOtherChunksOfTheShard() throws IOException {
+        //preparation
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        values.put("array/0.0", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        values.put("array/0.1", ByteBuffer.wrap(new byte[]{4, 5}));
+        store.putMany(values);
+
+        //execution
+        try (OutputStream os = store.getOutputStream("array/0.1")) {
+            os.write(new byte[]{7, 8, 9, 10});
+        }
+
+        //verification
+        assertThat(readFully(store.getInputStream("array/0.0")), is(equalTo(new byte[]{1, 2, 3})));
+        assertThat(readFully(store.getInputStream("array/0.1")), is(equalTo(new byte[]{7, 8, 9, 10})));
+    }
+
+    @Test
+    public void deleteLastChunkOfAShardDeletesTheShard() throws IOException {
+        //preparation
+        try (OutputStream os = store.getOutputStream("array/1.1")) {
+            os.write(new byte[]{1});
+        }
+        assertThat(baseStore.getInputStream("array/0.0"), is(notNullValue()));
+
+        //execution
+        store.delete("array/1.1");
+
+        //verification
+        assertThat(store.getInputStream("array/1.1"), is(nullValue()));
+        assertThat(baseStore.getInputStream("array/0.0"), is(nullValue()));
+    }
+
+    @Test
+    public void nonChunkKeysArePassedThrough() throws IOException {
+        //execution
+        try (OutputStream os = store.getOutputStream("array/.zattrs")) {
+            os.write(new byte[]{1, 2});
+        }
+
+        //verification
+        assertThat(readFully(baseStore.getInputStream("array/.zattrs")), is(equalTo(new byte[]{1, 2})));
+        assertThat(readFully(store.getInputStream("array/.zattrs")), is(equalTo(new byte[]{1, 2})));
+    }
+
+    @Test
+    public void writeAndReadShardedArray() throws IOException, InvalidRangeException {
+        //preparation
+        final ZarrArray array = ZarrArray.create(baseStore, new ArrayParams()
+                .shape(10, 12)
+                .chunks(2, 3)
+                .shards(4, 6)
+                .dataType(DataType.i4)
+                .fillValue(-1)
+                .compressor(CompressorFactory.create("zlib", "level", 1))
+                .zarrFormat(3));
+        final int[] data = new int[6 * 7];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+
+        //execution
+        array.write(data, new int[]{6, 7}, new int[]{3, 4});
+        final ZarrArray reopened = ZarrArray.open(baseStore);
+        final int[] read = (int[]) reopened.read(new int[]{8, 9}, new int[]{2, 3});
+
+        //verification
+        assertThat(reopened.getShards(), is(equalTo(new int[]{4, 6})));
+        assertThat(baseStore.getInputStream("c/0/0"), is(notNullValue()));
+        assertThat(baseStore.getInputStream("c/2/1"), is(notNullValue()));
+        assertThat(baseStore.getInputStream("c/1/2"), is(nullValue()));
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 9; x++) {
+                final int dataY = y + 2 - 3;
+                final int dataX = x + 3 - 4;
+                final int expected = dataY >= 0 && dataY < 6 && dataX >= 0 && dataX < 7 ? data[dataY * 7 + dataX] : -1;
+                assertThat("y=" + y + " x=" + x, read[y * 9 + x], is(expected));
+            }
+        }
+    }
+
+    @Test
+    public void shardedZarrV2ArrayIsRejected() throws IOException {
+        try {
+            //execution
+            ZarrArray.create(baseStore, new ArrayParams().shape(10, 12).chunks(2, 3).shards(4, 6));
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), is("Sharding is only supported for Zarr v3 arrays."));
+            assertThat(baseStore.getInputStream(".zarray"), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void crc32c() {
+        final byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertThat(ShardingStore.crc32c(bytes, 0, bytes.length), is(0xE3069283));
+    }
+
+    @Test
+    public void indexChecksumIsWrittenAndVerified() throws IOException {
+        //preparation
+        final ShardingStore checksumStore = new ShardingStore(baseStore, "array", new int[]{2},
+                                                              ChunkKeyEncoding.create("default", "/"), true);
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        values.put("array/c/1", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        checksumStore.putMany(values);
+        final byte[] shard = toBytes(baseStore.getMany(Arrays.asList("array/c/0")).get("array/c/0"));
+
+        //verification
+        assertThat(shard.length, is(3 + 2 * 16 + 4));
+        assertThat(toBytes(checksumStore.getMany(Arrays.asList("array/c/1")).get("array/c/1")), is(new byte[]{1, 2, 3}));
+
+        //execution
+        shard[3 + 16] ^= 1;
+        final Map<String, ByteBuffer> corrupted = new HashMap<>();
+        corrupted.put("array/c/0", ByteBuffer.wrap(shard));
+        baseStore.putMany(corrupted);
+        try {
+            checksumStore.getMany(Arrays.asList("array/c/1"));
+            fail("IOException expected");
+        } catch (IOException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Shard index checksum mismatch"));
+        }
+    }
+
+    @Test
+    public void defaultsToTheZarrV3Layout() throws IOException {
+        //preparation
+        final ShardingStore v3Store = new ShardingStore(baseStore, "array", new int[]{2, 2});
+
+        //execution
+        v3Store.putMany(Collections.singletonMap("array/c/1/3", ByteBuffer.wrap(new byte[]{1, 2, 3})));
+
+        //verification
+        final byte[] shard = toBytes(baseStore.getMany(Arrays.asList("array/c/0/1")).get("array/c/0/1"));
+        assertThat(shard.length, is(3 + 4 * 16 + 4));
+        assertThat(ShardingStore.crc32c(shard, 3, 4 * 16), is(ByteBuffer.wrap(shard, 3 + 4 * 16, 4).order(ByteOrder.LITTLE_ENDIAN).getInt()));
+        assertThat(toBytes(v3Store.getMany(Arrays.asList("array/c/1/3")).get("array/c/1/3")), is(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    public void corruptIndexEntriesAreRejectedByRangeReads() throws IOException {
+        //preparation
+        store.putMany(Collections.singletonMap("array/0.0", ByteBuffer.wrap(new byte[]{1, 2, 3})));
+        final byte[] shard = toBytes(baseStore.getMany(Arrays.asList("array/0.0")).get("array/0.0"));
+        // nbytes of the first chunk beyond 2^63
+        ByteBuffer.wrap(shard, 3 + 8, 8).order(ByteOrder.LITTLE_ENDIAN).putLong(-16L);
+        baseStore.putMany(Collections.singletonMap("array/0.0", ByteBuffer.wrap(shard)));
+
+        //execution
+        try {
+            store.getMany(Arrays.asList("array/0.0"));
+            fail("IOException expected");
+        } catch (IOException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Corrupt shard index entry 0 of 'array/0.0'"));
+        }
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            final byte[] buffer = new byte[1024];
+            final int read = in.read(buffer);
+            return Arrays.copyOf(buffer, Math.max(read, 0));
+        }
+    }
+}
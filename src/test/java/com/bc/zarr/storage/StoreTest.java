@@ -0,0 +1,158 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.storage;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class StoreTest {
+
+    @Test
+    public void putManyAndGetMany_defaultImplementation() throws IOException {
+        final Store store = new FileSystemStore(Jimfs.newFileSystem(Configuration.unix()).getPath("store"));
+        putManyAndGetMany(store);
+    }
+
+    @Test
+    public void putManyAndGetMany_inMemoryStore() throws IOException {
+        putManyAndGetMany(new InMemoryStore());
+    }
+
+    @Test
+    public void putMany_writesOnlyTheRemainingBytesAndDoesNotConsumeTheBuffer() throws IOException {
+        //preparation
+        final Store store = new InMemoryStore();
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5});
+        buffer.position(2);
+
+        //execution
+        store.putMany(singletonMap("key", buffer));
+
+        //verification
+        assertThat(buffer.position(), is(2));
+        try (InputStream is = store.getInputStream("key")) {
+            final byte[] bytes = new byte[5];
+            assertThat(is.read(bytes), is(3));
+            assertThat(Arrays.copyOf(bytes, 3), is(equalTo(new byte[]{3, 4, 5})));
+        }
+    }
+
+    @Test
+    public void getRange() throws IOException {
+        final Store defaultImplementation = new Store() {
+            private final InMemoryStore delegate = new InMemoryStore();
+
+            @Override
+            public InputStream getInputStream(String key) {
+                return delegate.getInputStream(key);
+            }
+
+            @Override
+            public OutputStream getOutputStream(String key) {
+                return delegate.getOutputStream(key);
+            }
+
+            @Override
+            public void delete(String key) {
+                delegate.delete(key);
+            }
+
+            @Override
+            public Set<String> getArrayKeys() throws IOException {
+                return delegate.getArrayKeys();
+            }
+
+            @Override
+            public Set<String> getGroupKeys() throws IOException {
+                return delegate.getGroupKeys();
+            }
+        };
+        getRange(defaultImplementation);
+        getRange(new InMemoryStore());
+        getRange(new FileSystemStore(Jimfs.newFileSystem(Configuration.unix()).getPath("store")));
+    }
+
+    private void getRange(Store store) throws IOException {
+        //preparation
+        store.putMany(singletonMap("key", ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6})));
+
+        //execution & verification
+        assertThat(toBytes(store.getRange("key", 1, 3)), is(equalTo(new byte[]{2, 3, 4})));
+        assertThat(toBytes(store.getRange("key", -2, 2)), is(equalTo(new byte[]{5, 6})));
+        assertThat(store.getRange("missing", 0, 1), is(nullValue()));
+        try {
+            store.getRange("key", 4, 3);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage(), containsString("exceeds the size 6"));
+        }
+    }
+
+    private void putManyAndGetMany(Store store) throws IOException {
+        //preparation
+        final Map<String, ByteBuffer> values = new HashMap<>();
+        values.put("a/0.0", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        values.put("a/0.1", ByteBuffer.wrap(new byte[]{4, 5}));
+        values.put("b/0", ByteBuffer.wrap(new byte[0]));
+
+        //execution
+        store.putMany(values);
+        final Map<String, ByteBuffer> read = store.getMany(Arrays.asList("a/0.0", "a/0.1", "b/0", "not/existing"));
+
+        //verification
+        assertThat(read.keySet(), containsInAnyOrder("a/0.0", "a/0.1", "b/0"));
+        assertThat(toBytes(read.get("a/0.0")), is(equalTo(new byte[]{1, 2, 3})));
+        assertThat(toBytes(read.get("a/0.1")), is(equalTo(new byte[]{4, 5})));
+        assertThat(toBytes(read.get("b/0")), is(equalTo(new byte[0])));
+    }
+
+    private static Map<String, ByteBuffer> singletonMap(String key, ByteBuffer value) {
+        final Map<String, ByteBuffer> map = new HashMap<>();
+        map.put(key, value);
+        return map;
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
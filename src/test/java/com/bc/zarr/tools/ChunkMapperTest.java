@@ -0,0 +1,154 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import org.junit.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class ChunkMapperTest {
+
+    private ZarrArray kelvin;
+
+    @Before
+    public void setUp() throws Exception {
+        kelvin = ZarrArray.create(new ArrayParams().shape(10, 12).chunks(4, 5).dataType(DataType.f4).fillValue(-1));
+        final float[] data = new float[10 * 12];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 273.15f + i;
+        }
+        data[7] = -1;
+        kelvin.write(data, new int[]{10, 12}, new int[]{0, 0});
+    }
+
+    @Test
+    public void unaryOperator() throws Exception {
+        //preparation
+        final ZarrArray celsius = ZarrArray.create(new ArrayParams().shape(10, 12).chunks(3, 7).dataType(DataType.i2).fillValue(-999));
+
+        //execution
+        final int blocks = new ChunkMapper(celsius, kelvin).parallelism(3).propagateFillValues(true).run(k -> k - 273.15);
+
+        //verification
+        assertThat(blocks, is(4 * 2));
+        final short[] result = (short[]) celsius.read();
+        for (int i = 0; i < result.length; i++) {
+            assertThat(result[i], is(i == 7 ? (short) -999 : (short) i));
+        }
+    }
+
+    @Test
+    public void binaryOperator() throws Exception {
+        //preparation
+        final ZarrArray offset = ZarrArray.create(new ArrayParams().shape(10, 12).chunks(10, 12).dataType(DataType.i4));
+        offset.write(100);
+        final ZarrArray sum = ZarrArray.create(new ArrayParams().shape(10, 12).chunks(5, 6).dataType(DataType.f8).fillValue(Double.NaN));
+
+        //execution
+        new ChunkMapper(sum, kelvin, offset).propagateFillValues(true).run((a, b) -> a + b);
+
+        //verification
+        final double[] result = (double[]) sum.read();
+        assertThat(result[0], is(closeTo(373.15, 1e-4)));
+        assertThat(Double.isNaN(result[7]), is(true));
+        assertThat(result[119], is(closeTo(492.15, 1e-4)));
+    }
+
+    @Test
+    public void fillValuesArePassedToTheFunctionByDefault() throws Exception {
+        //preparation
+        final ZarrArray counts = ZarrArray.create(new ArrayParams().shape(6).chunks(4).dataType(DataType.i4));
+        counts.write(new int[]{0, 3, 0, 0, 5, 0}, new int[]{6}, new int[]{0});
+        final ZarrArray incremented = ZarrArray.create(new ArrayParams().shape(6).chunks(4).dataType(DataType.i4));
+
+        //execution
+        new ChunkMapper(incremented, counts).run(v -> v + 1);
+
+        //verification
+        assertThat(counts.getFillValue().intValue(), is(0));
+        assertThat((int[]) incremented.read(), is(new int[]{1, 4, 1, 1, 6, 1}));
+    }
+
+    @Test
+    public void chunkFunctionGetsAlignedBlocks() throws Exception {
+        //preparation
+        final ZarrArray positions = ZarrArray.create(new ArrayParams().shape(10, 12).chunks(4, 5).dataType(DataType.i4));
+
+        //execution
+        new ChunkMapper(positions, kelvin).run((inputs, output, shape, offset) -> {
+            final float[] in = (float[]) inputs[0];
+            final int[] out = (int[]) output;
+            assertThat(in.length, is(out.length));
+            for (int y = 0; y < shape[0]; y++) {
+                for (int x = 0; x < shape[1]; x++) {
+                    out[y * shape[1] + x] = (offset[0] + y) * 12 + offset[1] + x;
+                }
+            }
+        });
+
+        //verification
+        final int[] result = (int[]) positions.read();
+        for (int i = 0; i < result.length; i++) {
+            assertThat(result[i], is(i));
+        }
+    }
+
+    @Test
+    public void differentShapesAreRejected() throws Exception {
+        //preparation
+        final ZarrArray other = ZarrArray.create(new ArrayParams().shape(10, 11).dataType(DataType.f4));
+
+        //execution
+        try {
+            new ChunkMapper(other, kelvin);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Shapes differ"));
+        }
+    }
+
+    @Test
+    public void operatorArityMustMatchInputs() throws Exception {
+        //preparation
+        final ChunkMapper mapper = new ChunkMapper(kelvin, kelvin);
+
+        //execution
+        try {
+            mapper.run((a, b) -> a);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("expects 2 inputs"));
+        }
+    }
+}
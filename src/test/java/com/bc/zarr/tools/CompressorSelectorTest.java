@@ -0,0 +1,165 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.Compressor;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import org.junit.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class CompressorSelectorTest {
+
+    private Compressor zlib1;
+    private Compressor zlib9;
+    private Compressor broken;
+    private CompressorSelector selector;
+
+    @Before
+    public void setUp() {
+        zlib1 = CompressorFactory.create("zlib", "level", 1);
+        zlib9 = CompressorFactory.create("zlib", "level", 9);
+        broken = new Compressor() {
+            @Override
+            public String getId() {
+                return "broken";
+            }
+
+            @Override
+            public String toString() {
+                return getId();
+            }
+
+            @Override
+            public void compress(InputStream is, OutputStream os) throws IOException {
+                throw new IOException("always fails");
+            }
+
+            @Override
+            public void uncompress(InputStream is, OutputStream os) throws IOException {
+                throw new IOException("always fails");
+            }
+        };
+        selector = new CompressorSelector()
+                .candidates(Arrays.asList(broken, CompressorFactory.nullCompressor, zlib1, zlib9))
+                .repetitions(1)
+                .parallelism(2);
+    }
+
+    @Test
+    public void evaluateArray() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(new ArrayParams().shape(50, 40).chunks(20, 20).dataType(DataType.i2));
+        final short[] data = new short[50 * 40];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (short) (i / 7);
+        }
+        array.write(data, new int[]{50, 40}, new int[]{0, 0});
+
+        //execution
+        final List<CompressorTrial> trials = selector.sampleCount(4).evaluate(array);
+
+        //verification
+        assertThat(trials.size(), is(4));
+        assertThat(trials.get(0).getCompressor(), is(anyOf(sameInstance(zlib1), sameInstance(zlib9))));
+        assertThat(trials.get(1).getCompressor(), is(anyOf(sameInstance(zlib1), sameInstance(zlib9))));
+        assertThat(trials.get(0).getRatio(), is(greaterThanOrEqualTo(trials.get(1).getRatio())));
+        assertThat(trials.get(2).getCompressor(), is(sameInstance(CompressorFactory.nullCompressor)));
+        assertThat(trials.get(2).getRatio(), is(1.0));
+        assertThat(trials.get(3).isFailed(), is(true));
+        assertThat(trials.get(3).getError(), containsString("always fails"));
+        // 4 sampled chunks of 20 x 20 or smaller edge chunks, 2 bytes each
+        assertThat(trials.get(0).getRawBytes(), is(greaterThan(4L * 10 * 20 * 2)));
+        assertThat(trials.get(0).getRawBytes(), is(lessThanOrEqualTo(4L * 20 * 20 * 2)));
+        assertThat(trials.get(0).getCompressMBps(), is(greaterThan(0.0)));
+    }
+
+    @Test
+    public void evaluateArray_samplesOnlyStoredChunks() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(new ArrayParams().shape(60, 40).chunks(20, 20).dataType(DataType.i2));
+        final short[] data = new short[20 * 20];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (short) (i * 31);
+        }
+        array.write(data, new int[]{20, 20}, new int[]{20, 20});
+
+        //execution
+        final List<CompressorTrial> trials = selector.sampleCount(4).evaluate(array);
+
+        //verification
+        for (CompressorTrial trial : trials) {
+            if (!trial.isFailed()) {
+                assertThat(trial.getRawBytes(), is(20L * 20 * 2));
+            }
+        }
+    }
+
+    @Test
+    public void evaluateArray_withoutStoredChunks() throws Exception {
+        //preparation
+        final ZarrArray array = ZarrArray.create(new ArrayParams().shape(60, 40).chunks(20, 20).dataType(DataType.i2));
+
+        //execution
+        try {
+            selector.evaluate(array);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            //verification
+            assertThat(expected.getMessage(), startsWith("No stored chunks found"));
+        }
+    }
+
+    @Test
+    public void evaluateBuffer_andChooseBest() throws Exception {
+        //preparation
+        final float[] data = new float[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) Math.sin(i / 100.0);
+        }
+
+        //execution
+        final List<CompressorTrial> trials = selector.evaluate(data, new int[]{100, 100}, DataType.f4, ByteOrder.LITTLE_ENDIAN);
+
+        //verification
+        assertThat(trials.get(0).getRawBytes(), is(40000L));
+        assertThat(CompressorSelector.best(trials, 0), is(sameInstance(trials.get(0).getCompressor())));
+        assertThat(CompressorSelector.best(trials, Double.MAX_VALUE), is(nullValue()));
+    }
+}
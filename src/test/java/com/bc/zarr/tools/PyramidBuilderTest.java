@@ -0,0 +1,170 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.*;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PyramidBuilderTest {
+
+    private ZarrArray source;
+
+    @Before
+    public void setUp() throws Exception {
+        source = ZarrArray.create(new ArrayParams().shape(5, 8).chunks(2, 2).dataType(DataType.i4).fillValue(-1));
+        final int[] data = new int[5 * 8];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        data[0] = -1;
+        source.write(data, new int[]{5, 8}, new int[]{0, 0});
+    }
+
+    @Test
+    public void mean() throws Exception {
+        //preparation
+        final ZarrGroup group = ZarrGroup.create(new InMemoryStore());
+
+        //execution
+        final List<ZarrArray> levels = new PyramidBuilder(source).parallelism(2).skipFillValues(true).build(group);
+
+        //verification
+        assertThat(levels.size(), is(3));
+        assertThat(levels.get(1).getShape(), is(new int[]{3, 4}));
+        assertThat(levels.get(2).getShape(), is(new int[]{2, 2}));
+        assertThat((int[]) levels.get(0).read(), is((int[]) source.read()));
+        assertThat((int[]) group.openArray("1").read(), is(new int[]{
+                6, 6, 8, 10, // the fill value at 0,0 is ignored: (1 + 8 + 9) / 3, halves are rounded to even
+                20, 22, 24, 26,
+                32, 34, 36, 38}));
+        assertThat((int[]) group.openArray("2").read(), is(new int[]{
+                14, 17,
+                33, 37}));
+    }
+
+    @Test
+    public void fillValuesAreResampledByDefault() throws Exception {
+        //preparation
+        final ZarrArray counts = ZarrArray.create(new ArrayParams().shape(2, 4).chunks(2, 4).dataType(DataType.i4));
+        counts.write(new int[]{
+                0, 4, 1, 1,
+                0, 0, 2, 1}, new int[]{2, 4}, new int[]{0, 0});
+
+        //execution
+        final List<ZarrArray> mean = new PyramidBuilder(counts).levels(2).build(ZarrGroup.create(new InMemoryStore()));
+        final List<ZarrArray> mode = new PyramidBuilder(counts).resampling(PyramidBuilder.Resampling.MODE).levels(2).build(ZarrGroup.create(new InMemoryStore()));
+        final List<ZarrArray> skipped = new PyramidBuilder(counts).skipFillValues(true).levels(2).build(ZarrGroup.create(new InMemoryStore()));
+
+        //verification
+        assertThat((int[]) mean.get(1).read(), is(new int[]{1, 1}));
+        assertThat((int[]) mode.get(1).read(), is(new int[]{0, 1}));
+        assertThat((int[]) skipped.get(1).read(), is(new int[]{4, 1}));
+    }
+
+    @Test
+    public void zeroExtentArray() throws Exception {
+        //preparation
+        final ZarrArray empty = ZarrArray.create(new ArrayParams().shape(0, 8).chunks(2, 2).dataType(DataType.i4));
+
+        //execution
+        final List<ZarrArray> levels = new PyramidBuilder(empty).levels(2).build(ZarrGroup.create(new InMemoryStore()));
+
+        //verification
+        assertThat(levels.size(), is(2));
+        assertThat(levels.get(1).getShape(), is(new int[]{0, 4}));
+    }
+
+    @Test
+    public void nearestAndMode() throws Exception {
+        //preparation
+        final ZarrArray classes = ZarrArray.create(new ArrayParams().shape(2, 4, 4).chunks(1, 2, 2).dataType(DataType.u1).fillValue(255));
+        classes.write(new byte[]{
+                1, 2, 3, 3,
+                2, 2, 4, 5,
+                0, 0, 7, 7,
+                9, 0, 7, 8,
+
+                5, 5, 5, 5,
+                5, 5, 5, 5,
+                5, 5, 5, 5,
+                5, 5, 5, 5}, new int[]{2, 4, 4}, new int[]{0, 0, 0});
+
+        //execution
+        final List<ZarrArray> nearest = new PyramidBuilder(classes).resampling(PyramidBuilder.Resampling.NEAREST).levels(2).build(ZarrGroup.create(new InMemoryStore()));
+        final List<ZarrArray> mode = new PyramidBuilder(classes).resampling(PyramidBuilder.Resampling.MODE).levels(2).build(ZarrGroup.create(new InMemoryStore()));
+
+        //verification
+        assertThat(nearest.get(1).getShape(), is(new int[]{2, 2, 2}));
+        assertThat((byte[]) nearest.get(1).read(), is(new byte[]{
+                1, 3,
+                0, 7,
+
+                5, 5,
+                5, 5}));
+        assertThat((byte[]) mode.get(1).read(), is(new byte[]{
+                2, 3,
+                0, 7,
+
+                5, 5,
+                5, 5}));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void multiscalesAttribute() throws Exception {
+        //preparation
+        final ZarrGroup group = ZarrGroup.create(new InMemoryStore());
+
+        //execution
+        new PyramidBuilder(source).name("image").levels(2).build(group);
+
+        //verification
+        final Map<String, Object> multiscale = ((List<Map<String, Object>>) group.getAttributes().get("multiscales")).get(0);
+        assertThat(multiscale.get("version"), is("0.4"));
+        assertThat(multiscale.get("name"), is("image"));
+        assertThat(multiscale.get("type"), is("mean"));
+        final List<Map<String, Object>> axes = (List<Map<String, Object>>) multiscale.get("axes");
+        assertThat(axes.get(0).get("name"), is("y"));
+        assertThat(axes.get(1).get("type"), is("space"));
+        final List<Map<String, Object>> datasets = (List<Map<String, Object>>) multiscale.get("datasets");
+        assertThat(datasets.size(), is(2));
+        assertThat(datasets.get(1).get("path"), is("1"));
+        final Map<String, Object> transformation = ((List<Map<String, Object>>) datasets.get(1).get("coordinateTransformations")).get(0);
+        assertThat(transformation.get("type"), is("scale"));
+        assertThat((List<Double>) transformation.get("scale"), contains(2.0, 2.0));
+    }
+}
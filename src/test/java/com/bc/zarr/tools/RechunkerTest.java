@@ -0,0 +1,169 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class RechunkerTest {
+
+    private ZarrArray source;
+    private ZarrArray target;
+    private int[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        // one time step per chunk rechunked to time series chunks
+        source = ZarrArray.create(new ArrayParams().shape(30, 20, 20).chunks(1, 20, 20).dataType(DataType.i4));
+        target = ZarrArray.create(new ArrayParams().shape(30, 20, 20).chunks(30, 5, 5).dataType(DataType.i4).fillValue(-1));
+        data = new int[30 * 20 * 20];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        source.write(data, new int[]{30, 20, 20}, new int[]{0, 0, 0});
+    }
+
+    @Test
+    public void computeUnitShape() {
+        //preparation
+        final Rechunker rechunker = new Rechunker(source, target).parallelism(2);
+
+        //execution
+        //verification
+        assertThat(rechunker.maxMemory(1L << 20).computeUnitShape(), is(new int[]{30, 20, 20}));
+        assertThat(rechunker.maxMemory(2 * 4000).computeUnitShape(), is(new int[]{30, 5, 5}));
+        // never smaller than a target chunk
+        assertThat(rechunker.maxMemory(1).computeUnitShape(), is(new int[]{30, 5, 5}));
+    }
+
+    @Test
+    public void computeUnitShape_alignedToSourceAndTargetChunks() throws Exception {
+        //preparation
+        final ZarrArray source = ZarrArray.create(new ArrayParams().shape(12, 10).chunks(3, 10).dataType(DataType.i4));
+        final ZarrArray target = ZarrArray.create(new ArrayParams().shape(12, 10).chunks(2, 4).dataType(DataType.i4));
+
+        //execution
+        final int[] unitShape = new Rechunker(source, target).computeUnitShape();
+
+        //verification
+        // source chunk [3, 6) lies within unit [0, 6), so it is decoded once
+        assertThat(unitShape, is(new int[]{6, 12}));
+    }
+
+    @Test
+    public void run() throws Exception {
+        //preparation
+        final Rechunker rechunker = new Rechunker(source, target).parallelism(2).maxMemory(2 * 4000);
+
+        //execution
+        final int copied = rechunker.run();
+
+        //verification
+        assertThat(copied, is(16));
+        assertThat((int[]) target.read(), is(data));
+    }
+
+    @Test
+    public void run_restartFromCheckpoint() throws Exception {
+        //preparation
+        final InMemoryStore checkpoint = new InMemoryStore();
+        put(checkpoint, "progress/.unit", "30,5,5");
+        put(checkpoint, "progress/0", "done");
+        final Rechunker rechunker = new Rechunker(source, target).parallelism(2).checkpoint(checkpoint, "progress");
+
+        //execution
+        final int copied = rechunker.run();
+
+        //verification
+        assertThat(copied, is(15));
+        final int[] firstUnit = (int[]) target.read(new int[]{30, 5, 5}, new int[]{0, 0, 0});
+        assertThat(firstUnit[0], is(-1));
+        assertThat(target.read(new int[]{30, 20, 15}, new int[]{0, 0, 5}), is(source.read(new int[]{30, 20, 15}, new int[]{0, 0, 5})));
+        assertThat(checkpoint.getInputStream("progress/.unit"), is(nullValue()));
+        assertThat(checkpoint.getInputStream("progress/1"), is(nullValue()));
+    }
+
+    @Test
+    public void run_parallelismBelowTheUnitCount() throws Exception {
+        //preparation
+        final Rechunker rechunker = new Rechunker(source, target).parallelism(1).maxMemory(4000);
+
+        //execution
+        final int copied = rechunker.run();
+
+        //verification
+        assertThat(copied, is(16));
+        assertThat((int[]) target.read(), is(data));
+    }
+
+    @Test
+    public void run_zeroExtentArray() throws Exception {
+        //preparation
+        final ZarrArray source = ZarrArray.create(new ArrayParams().shape(0, 20).chunks(1, 20).dataType(DataType.i4));
+        final ZarrArray target = ZarrArray.create(new ArrayParams().shape(0, 20).chunks(10, 5).dataType(DataType.i4));
+        final InMemoryStore checkpoint = new InMemoryStore();
+
+        //execution
+        final int copied = new Rechunker(source, target).checkpoint(checkpoint, "progress").run();
+
+        //verification
+        assertThat(copied, is(0));
+        assertThat(checkpoint.getInputStream("progress/.unit"), is(nullValue()));
+    }
+
+    @Test
+    public void differentShapesAreRejected() throws Exception {
+        //preparation
+        final ZarrArray other = ZarrArray.create(new ArrayParams().shape(30, 20, 10).dataType(DataType.i4));
+
+        //execution
+        try {
+            new Rechunker(source, other);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            //verification
+            assertThat(expected.getMessage(), containsString("Shapes differ"));
+        }
+    }
+
+    private static void put(InMemoryStore store, String key, String value) throws IOException {
+        try (OutputStream os = store.getOutputStream(key)) {
+            os.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
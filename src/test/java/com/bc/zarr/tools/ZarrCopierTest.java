@@ -0,0 +1,141 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2020. Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.bc.zarr.tools;
+
+import com.bc.zarr.ArrayParams;
+import com.bc.zarr.CompressorFactory;
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+import com.bc.zarr.storage.InMemoryStore;
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ZarrCopierTest {
+
+    private InMemoryStore sourceStore;
+    private ZarrGroup source;
+    private int[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        sourceStore = new InMemoryStore();
+        source = ZarrGroup.create(sourceStore, Collections.singletonMap("title", "archive"), 3);
+        final ZarrGroup sub = source.createSubGroup("sub", Collections.singletonMap("level", 1));
+        data = new int[40 * 30];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % 97;
+        }
+        final ZarrArray plain = source.createArray("plain", new ArrayParams().shape(40, 30).chunks(10, 10).dataType(DataType.i4),
+                                                   Collections.singletonMap("units", "K"));
+        plain.write(data, new int[]{40, 30}, new int[]{0, 0});
+        final ZarrArray sharded = sub.createArray("sharded", new ArrayParams().shape(40, 30).chunks(10, 10).shards(20, 30).dataType(DataType.i4));
+        // only the upper half is written, the lower shard is not present in the store
+        sharded.write(Arrays.copyOf(data, 20 * 30), new int[]{20, 30}, new int[]{0, 0});
+    }
+
+    @Test
+    public void copyGroup_transfersRawChunks() throws Exception {
+        //preparation
+        final InMemoryStore targetStore = new InMemoryStore();
+        final ZarrGroup target = ZarrGroup.create(targetStore, null, 3);
+
+        //execution
+        new ZarrCopier().parallelism(3).batchSize(2).copy(source, target);
+
+        //verification
+        assertThat(target.getAttributes(), hasEntry("title", "archive"));
+        assertThat(target.getGroupKeys(), contains("sub"));
+        assertThat(target.openSubGroup("sub").getAttributes(), hasEntry("level", 1));
+        assertThat(target.getArrayKeys(), containsInAnyOrder("plain", "sub/sharded"));
+        final ZarrArray plain = target.openArray("plain");
+        assertThat(plain.getAttributes(), hasEntry("units", "K"));
+        assertThat((int[]) plain.read(), is(data));
+        final ZarrArray sharded = target.openArray("sub/sharded");
+        assertThat(sharded.getShards(), is(new int[]{20, 30}));
+        assertThat((int[]) sharded.read(new int[]{20, 30}), is(Arrays.copyOf(data, 20 * 30)));
+        for (String key : source.openArray("plain").getStorageKeys()) {
+            assertThat(targetStore.getMany(Collections.singletonList(key)).get(key), is(sourceStore.getMany(Collections.singletonList(key)).get(key)));
+        }
+        final Map<String, ByteBuffer> shards = targetStore.getMany(sharded.getStorageKeys());
+        assertThat(shards.size(), is(1));
+    }
+
+    @Test
+    public void copyShardedArray_intoZarrV2Group() throws Exception {
+        //preparation
+        final ZarrGroup target = ZarrGroup.create(new InMemoryStore());
+
+        //execution
+        final ZarrArray copy = new ZarrCopier().copy(source.openArray("sub/sharded"), target, "sharded");
+
+        //verification
+        assertThat(copy.getZarrFormat(), is(2));
+        assertThat(copy.getShards(), is(nullValue()));
+        assertThat((int[]) copy.read(new int[]{20, 30}), is(Arrays.copyOf(data, 20 * 30)));
+    }
+
+    @Test
+    public void copyArray_reencodesWithOtherCompressor() throws Exception {
+        //preparation
+        final ZarrGroup target = ZarrGroup.create(new InMemoryStore());
+        final ZarrCopier copier = new ZarrCopier().arrayParams(p -> p.compressor(CompressorFactory.create("zlib", "level", 9)));
+
+        //execution
+        final ZarrArray copy = copier.copy(source.openArray("plain"), target, "copy");
+
+        //verification
+        assertThat(copy.getCompressor().toString(), containsString("level=9"));
+        assertThat(ZarrCopier.storesChunksAlike(source.openArray("plain"), copy), is(false));
+        assertThat((int[]) copy.read(), is(data));
+    }
+
+    @Test
+    public void copyArray_intoExistingArray() throws Exception {
+        //preparation
+        final ZarrArray plain = source.openArray("plain");
+        final ZarrArray alike = ZarrArray.create(new ArrayParams().shape(40, 30).chunks(10, 10).dataType(DataType.i4).dimensionSeparator(".").zarrFormat(3));
+        final ZarrArray other = ZarrArray.create(new ArrayParams().shape(40, 30).chunks(40, 30).dataType(DataType.i4));
+
+        //execution
+        final boolean raw = new ZarrCopier().copy(plain, alike);
+        final boolean reencoded = !new ZarrCopier().copy(plain, other);
+
+        //verification
+        assertThat(raw, is(true));
+        assertThat(reencoded, is(true));
+        assertThat((int[]) alike.read(), is(data));
+        assertThat((int[]) other.read(), is(data));
+    }
+}